@@ -18,13 +18,21 @@ import javafx.scene.paint.PhongMaterial;
  *	-Arrow3D
  *	-Box3D
  *	-Cone3D
+ *	-Curve3D
+ *	-CurveTrace3D (drawn incrementally when returned at every iteration)
  *	-Cylinder3D
  *	-Drone3D
+ *	-Formula3D
+ *	-Hull3D
+ *	-Isosurface3D
  *	-Line3D
  *	-Line3D[]
  *	-Oval3D
+ *	-ParametricSurface3D
+ *	-Patch3D (updated in place when returned again with new control points)
  *  -Mesh3D
  *	-Plane3D
+ *	-PlaneArrangement
  *	-Point3D
  *	-Point3D[]
  *	-Polygon3D
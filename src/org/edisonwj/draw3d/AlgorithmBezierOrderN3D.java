@@ -9,6 +9,9 @@ import javafx.scene.paint.PhongMaterial;
 * @version 36 June 2015
 * 
 * Animates the computation of an order-N Bezier curve in 3D space.
+* Each step returns a snapshot of one CurveTrace3D, holding the control polygon, the
+* de Casteljau construction polygons for the current parameter t, and the curve traced
+* so far; drawCurveTrace3D() appends only the new curve segment.
 */
 public class AlgorithmBezierOrderN3D implements Algorithm {
 	
@@ -21,10 +24,9 @@ public class AlgorithmBezierOrderN3D implements Algorithm {
     private PhongMaterial vMaterial;
     private PhongMaterial red = new PhongMaterial(Color.RED);
     private PhongMaterial grey = new PhongMaterial(Color.GREY);
-    private int di;
     private Rand mr;
-    private Object[] drawSet;
-	private Point3D[] bezierCurve;
+    private CurveTrace3D trace;
+	private double[] work;
     private Point3D[] p = {
     		new Point3D(2, 0, 0),
     		new Point3D(0, 0, 5),
@@ -42,48 +44,51 @@ public class AlgorithmBezierOrderN3D implements Algorithm {
 	public AlgorithmBezierOrderN3D() {
 		System.out.println("Loaded: " + this.getClass().getName());
 		mr = new Rand();
-		bezierCurve = new Point3D[iterations+1];
-		bezierCurve[0] = p[0];
+		// Polyline 0 is the control polygon, polylines 1 to p.length-2 the construction levels
+		trace = new CurveTrace3D(p.length - 1, red);
+		trace.setPolylineMaterial(0, grey);
+		for (int i = 1; i < p.length - 1; i++) {
+			trace.setPolylineMaterial(i, new PhongMaterial(setColor()));
+		}
+		work = new double[3*p.length];
 	}
 	
 	public Object[] processAlgorithm(int n) {
-		int nlines = p.length * (p.length-1) / 2;
-		drawSet = new Object[3*nlines + n + 1];
-		di = 0;
-		
-		for (int i = 0; i < p.length-1; i++) {
-			drawSet[di++] = new Line3D(p[i], p[i+1], grey);
-			drawSet[di++] = new Sphere3D(p[i], .05, grey);
-			drawSet[di++] = new Sphere3D(p[i+1], .05, grey);	
+		if (n == 0) {
+			trace.reset();
+			setControlPoints();
+			trace.setPolyline(0, work, p.length);
 		}
 		
-		setBezierPoints(n);
+		setBezierPoint(n);
 		
-	    return drawSet;
+	    return new Object[] {trace.snapshot()};
 	    
 	}
 	
-	private void setBezierPoints(int n) {
-		double t = n * 1.0/iterations;
-		Point3D[] tmp = p.clone();
-	    int i = tmp.length - 1;
+	private void setControlPoints() {
+		for (int i = 0; i < p.length; i++) {
+			work[3*i]   = p[i].getX();
+			work[3*i+1] = p[i].getY();
+			work[3*i+2] = p[i].getZ();
+		}
+	}
+	
+	private void setBezierPoint(int n) {
+		double t = (iterations > 1) ? n * 1.0/(iterations - 1) : 1.0;
+		setControlPoints();
+	    int i = p.length - 1;
 	    while (i > 0) {
-	    	PhongMaterial m = new PhongMaterial(setColor());
-	        for (int k = 0; k < i; k++) {
+	        for (int k = 0; k < 3*i; k++) {
 //				tmp[k] = tmp[k] + t * (tmp[k+1] - tmp[k])
-	            tmp[k] = tmp[k].add(tmp[k+1].subtract(tmp[k]).multiply(t));
-	            if (k > 0) {
-	            	drawSet[di++] = new Line3D(tmp[k-1], tmp[k], m);
-	    			drawSet[di++] = new Sphere3D(tmp[k-1], .05, m);
-	    			drawSet[di++] = new Sphere3D(tmp[k], .05, m);	
-		            }   
-	        }      		
+	            work[k] += t * (work[k+3] - work[k]);
+	        }
+	        if (i > 1) {
+	        	trace.setPolyline(p.length - i, work, i);
+	        }
 	        i--;
 	    }
-	    bezierCurve[n + 1] = tmp[0];
-		for (i = 0; i < n + 1; i++) {
-			drawSet[di++] = new Line3D(bezierCurve[i], bezierCurve[i+1], red);
-		}
+	    trace.addPoint(work[0], work[1], work[2]);
 	}
 	
 	private Color setColor() {
@@ -8,8 +8,12 @@ import javafx.scene.paint.PhongMaterial;
 * @author William Edison
 * @version 1.00 July 2015
 * 
-* Draws a series of point set values for a function z(x,y), defined below,
-* as the parameter m varies from 0 to 1.0.
+* Draws a series of surfaces for a function z(x,y), given by the formula
+* below, as the parameter m varies from 0 to 1.0. Each iteration returns a
+* Formula3D with its value of m, drawn by drawFormula3D() as a crack-free
+* mesh sampled adaptively where z bends most, together with the values on
+* the grid of spacing intv, evaluated by Formula3D.grid() in parallel rows,
+* as a point set on the surface.
 *
 */
 public class AlgorithmF implements Algorithm {
@@ -20,6 +24,7 @@ public class AlgorithmF implements Algorithm {
 	private long delay = 500L;
 	private final boolean clear = true;
 	private final boolean drone = false;
+	private static final String FORMULA = "m*cos(sqrt(x^2+y^2))/(2+sqrt(x^2+y^2))";
     PhongMaterial tMaterial;
 	
 	public AlgorithmF() {
@@ -37,20 +42,18 @@ public class AlgorithmF implements Algorithm {
 		int sizex = (int)(((maxx - minx) / intv) + 1.0);
 		int sizey = (int)(((maxy - miny) / intv) + 1.0);
 		
-		Point3D[] f = new Point3D[sizex * sizey];
+		PhongMaterial surfaceMaterial = new PhongMaterial();
+		surfaceMaterial.setDiffuseColor(Color.LIGHTSTEELBLUE);
+		surfaceMaterial.setSpecularColor(Color.WHITE);
+		Formula3D formula = new Formula3D(FORMULA, surfaceMaterial);
+		formula.setParameter("m", m);
+		double[] p = formula.grid(minx, minx + (sizex-1)*intv, miny, miny + (sizey-1)*intv, sizex, sizey);
 		
-		double x = minx-intv;
-		for (int i = 0; i < sizex; i++) {
-			x += intv;
-			double y = miny-intv;
-    		for (int j = 0; j < sizey; j++) {
-    			y += intv;
-    			double z = m * Math.cos(Math.pow(x*x + y*y, 0.5))/(2.0 + Math.pow(x*x + y*y, 0.5));
-    			int k = i*sizey + j;
-    			f[k] = new Point3D(x, y, z);
-    		}
-    	}
-		return f;
+		Point3D[] f = new Point3D[sizex * sizey];
+		for (int k = 0; k < f.length; k++) {
+			f[k] = new Point3D(p[3*k], p[3*k+1], p[3*k+2]);
+		}
+		return new Object[] {formula, f};
 	}
     
 	public int getId() {
@@ -178,9 +178,8 @@ public class Arrow3D implements Draw3DDefaults {
      * @return	length	Double value of the Arrow length
      */
 	public double length() {
-		return Math.sqrt((p1.getX()-p2.getX())*(p1.getX()-p2.getX())
-						+ (p1.getY()-p2.getY())*(p1.getY()-p2.getY())
-						+ (p1.getZ()-p2.getZ())*(p1.getZ()-p2.getZ()));
+		return VectorMath.distance(p1.getX(), p1.getY(), p1.getZ(),
+								   p2.getX(), p2.getY(), p2.getZ());
 	}
 	
     /**
@@ -225,7 +224,7 @@ public class Arrow3D implements Draw3DDefaults {
 		z = p2.getZ() - p1.getZ();
 		
 		// Compute phi
-		double rho = Math.sqrt(x*x + y*y + z*z);
+		double rho = VectorMath.length(x, y, z);
 		return Math.acos(-y/rho);
 	}
 	
@@ -0,0 +1,580 @@
+package org.edisonwj.draw3d;
+
+import java.util.Arrays;
+
+import javafx.geometry.Point3D;
+import javafx.scene.shape.TriangleMesh;
+/**
+* Clip3D class provides static methods clipping polygons, line segments and triangle meshes
+* to a convex region bounded by planes, usually the box of the current x, y, z range.
+*
+* Each plane is given by four packed values a, b, c, d and the inside of the region is
+* a*x + b*y + c*z <= d. boxPlanes() creates the six planes of a range box
+* {minX, maxX, minY, maxY, minZ, maxZ}, the layout of VectorMath.bounds().
+*
+* Polygons are clipped one plane at a time by the Sutherland-Hodgman algorithm, using caller
+* supplied packed arrays. Vertices may carry extra components after x, y, z, such as texture
+* coordinates, which are interpolated along with the position. Intersections with a plane of
+* a range box lie exactly on the box.
+* Adapted from: Sutherland and Hodgman, Reentrant Polygon Clipping, CACM 17(1), 1974.
+*
+* Batches of lines and segments are clipped to a range box by the Liang-Barsky algorithm,
+* from point and direction coordinates held in separate arrays; each line is clipped
+* independently in a short loop over one box slab at a time, and large batches are split across threads.
+* Adapted from: Liang and Barsky, A New Concept and Method for Line Clipping, ACM TOG 3(1), 1984.
+*
+* Meshes are clipped in a single pass over the faces: faces wholly inside are kept, faces
+* wholly outside one plane are dropped, and only the remaining faces are clipped.
+*
+* The class implements defaults specified in Draw3DDefaults.
+*
+* @author William Edison
+* @version 1.02
+*
+*/
+public final class Clip3D implements Draw3DDefaults {
+
+	private Clip3D() {
+	}
+
+	/**
+	 * Creates the six planes bounding a range box.
+	 *
+	 * @param	box		double[6] {minX, maxX, minY, maxY, minZ, maxZ}
+	 * @return	planes	double[24] packed a, b, c, d plane values
+	 */
+	public static double[] boxPlanes(double[] box) {
+		return new double[] {
+			-1.0,  0.0,  0.0, -box[0],
+			 1.0,  0.0,  0.0,  box[1],
+			 0.0, -1.0,  0.0, -box[2],
+			 0.0,  1.0,  0.0,  box[3],
+			 0.0,  0.0, -1.0, -box[4],
+			 0.0,  0.0,  1.0,  box[5]
+		};
+	}
+
+	/**
+	 * Computes the bit mask of the planes that point (x, y, z) is outside of.
+	 *
+	 * @param	planes	double[] packed plane values
+	 * @param	np		int number of planes (at most 32)
+	 * @return	int outcode, 0 if the point is inside all planes
+	 */
+	public static int outcode(double x, double y, double z, double[] planes, int np) {
+		int code = 0;
+		for (int j = 0, k = 0; j < np; j++, k += 4) {
+			if (planes[k]*x + planes[k+1]*y + planes[k+2]*z > planes[k+3]) {
+				code |= 1 << j;
+			}
+		}
+		return code;
+	}
+
+	/**
+	 * Clips a polygon to the planes. Vertex i of the input has its dim components at
+	 * in[dim*i] .. in[dim*i+dim-1], with x, y, z first. The result is written to out.
+	 * The out and work arrays must hold dim*(n+np) values; in may be the same array as out.
+	 *
+	 * @param	in		double[] packed polygon vertices
+	 * @param	n		int number of vertices
+	 * @param	dim		int number of components per vertex, at least 3
+	 * @param	planes	double[] packed plane values
+	 * @param	np		int number of planes
+	 * @param	out		double[] packed clipped polygon vertices
+	 * @param	work	double[] work array
+	 * @return	int number of vertices of the clipped polygon, 0 if it is wholly outside
+	 */
+	public static int clipPolygon(double[] in, int n, int dim, double[] planes, int np,
+								  double[] out, double[] work) {
+		// Alternate between out and work, never clipping an array onto itself
+		double[] src = in;
+		for (int j = 0; j < np && n > 0; j++) {
+			double[] dst = (src == out) ? work : out;
+			n = clipPlane(src, n, dim, planes, 4*j, dst);
+			src = dst;
+		}
+		if (src != out) {
+			System.arraycopy(src, 0, out, 0, dim*n);
+		}
+		return n;
+	}
+
+	/**
+	 * Clips a polygon against a single plane, Sutherland-Hodgman style.
+	 */
+	private static int clipPlane(double[] in, int n, int dim, double[] planes, int k, double[] out) {
+		double a = planes[k], b = planes[k+1], c = planes[k+2], d = planes[k+3];
+		int axis = -1;						// coordinate of an axis aligned plane
+		if (b == 0.0 && c == 0.0 && Math.abs(a) == 1.0) axis = 0;
+		else if (a == 0.0 && c == 0.0 && Math.abs(b) == 1.0) axis = 1;
+		else if (a == 0.0 && b == 0.0 && Math.abs(c) == 1.0) axis = 2;
+		double bound = (axis >= 0) ? d * planes[k+axis] : 0.0;
+
+		int m = 0;
+		int p = dim*(n-1);
+		double dp = a*in[p] + b*in[p+1] + c*in[p+2] - d;
+		for (int i = 0; i < n; i++) {
+			int q = dim*i;
+			double dq = a*in[q] + b*in[q+1] + c*in[q+2] - d;
+			if ((dp < 0.0 && dq > 0.0) || (dp > 0.0 && dq < 0.0)) {
+				// Edge crosses the plane; add the intersection point.
+				// An end point on the plane is kept as it is, so it is not duplicated
+				double t = dp / (dp - dq);
+				int o = dim*m;
+				for (int e = 0; e < dim; e++) {
+					out[o+e] = in[p+e] + t*(in[q+e] - in[p+e]);
+				}
+				if (axis >= 0) {
+					out[o+axis] = bound;
+				}
+				m++;
+			}
+			if (dq <= 0.0) {
+				System.arraycopy(in, q, out, dim*m, dim);
+				m++;
+			}
+			p = q;
+			dp = dq;
+		}
+		return m;
+	}
+
+	/**
+	 * Clips a line segment to the planes, in place. The segment is the set of points
+	 * p1 + t*(p2 - p1) with t in [0, 1]; each plane the segment crosses narrows this
+	 * parameter interval, entering planes raising its lower end and leaving planes
+	 * lowering its upper end, and the end points are computed once from the final interval.
+	 * Adapted from: Liang and Barsky, A New Concept and Method for Line Clipping, ACM TOG 3(1), 1984.
+	 *
+	 * @param	seg		double[6] packed end points x1, y1, z1, x2, y2, z2
+	 * @param	planes	double[] packed plane values
+	 * @param	np		int number of planes
+	 * @return	boolean false if the segment is wholly outside
+	 */
+	public static boolean clipSegment(double[] seg, double[] planes, int np) {
+		double t0 = 0.0;
+		double t1 = 1.0;
+		int k0 = -1;									// plane setting each end of the interval
+		int k1 = -1;
+		for (int j = 0, k = 0; j < np; j++, k += 4) {
+			double a = planes[k], b = planes[k+1], c = planes[k+2], d = planes[k+3];
+			double d1 = a*seg[0] + b*seg[1] + c*seg[2] - d;
+			double d2 = a*seg[3] + b*seg[4] + c*seg[5] - d;
+			if (d1 > 0.0 && d2 > 0.0) {
+				return false;
+			}
+			if (d1 > 0.0) {								// entering the plane
+				double t = d1 / (d1 - d2);
+				if (t > t0) {
+					t0 = t;
+					k0 = k;
+				}
+			}
+			else if (d2 > 0.0) {						// leaving the plane
+				double t = d1 / (d1 - d2);
+				if (t < t1) {
+					t1 = t;
+					k1 = k;
+				}
+			}
+			if (t0 > t1) {
+				return false;
+			}
+		}
+		double ex = seg[3] - seg[0];
+		double ey = seg[4] - seg[1];
+		double ez = seg[5] - seg[2];
+		if (k1 >= 0) {
+			clipPoint(seg, 3, seg[0] + t1*ex, seg[1] + t1*ey, seg[2] + t1*ez, planes, k1);
+		}
+		if (k0 >= 0) {
+			clipPoint(seg, 0, seg[0] + t0*ex, seg[1] + t0*ey, seg[2] + t0*ez, planes, k0);
+		}
+		return true;
+	}
+
+	/**
+	 * Stores a clipped end point, placing it exactly on the clipping plane when
+	 * the plane is a face of a range box.
+	 */
+	private static void clipPoint(double[] seg, int o, double x, double y, double z, double[] planes, int k) {
+		double a = planes[k], b = planes[k+1], c = planes[k+2], d = planes[k+3];
+		seg[o]   = (b == 0.0 && c == 0.0 && Math.abs(a) == 1.0) ? a*d : x;
+		seg[o+1] = (a == 0.0 && c == 0.0 && Math.abs(b) == 1.0) ? b*d : y;
+		seg[o+2] = (a == 0.0 && b == 0.0 && Math.abs(c) == 1.0) ? c*d : z;
+	}
+
+	/**
+	 * Clips a polygon to a range box.
+	 *
+	 * @param	v	Point3D array of polygon vertices
+	 * @param	box	double[6] {minX, maxX, minY, maxY, minZ, maxZ}
+	 * @return	Point3D array of clipped polygon vertices; v itself if it is wholly inside,
+	 * 			an empty array if it is wholly outside
+	 */
+	public static Point3D[] clipPolygon(Point3D[] v, double[] box) {
+		double[] planes = boxPlanes(box);
+		int all = 0;
+		for (int i = 0; i < v.length; i++) {
+			all |= outcode(v[i].getX(), v[i].getY(), v[i].getZ(), planes, 6);
+		}
+		if (all == 0) {
+			return v;
+		}
+		double[] out = new double[3*(v.length+6)];
+		int n = clipPolygon(VectorMath.toPacked(v), v.length, 3, planes, 6, out, new double[out.length]);
+		return VectorMath.toPoint3DArray(out, n);
+	}
+
+	/**
+	 * Clips a line segment to a range box.
+	 *
+	 * @param	p1	Point3D first end point
+	 * @param	p2	Point3D second end point
+	 * @param	box	double[6] {minX, maxX, minY, maxY, minZ, maxZ}
+	 * @return	Point3D[2] array of clipped end points, the given points if wholly inside,
+	 * 			or null if wholly outside
+	 */
+	public static Point3D[] clipSegment(Point3D p1, Point3D p2, double[] box) {
+		double[] seg = {p1.getX(), p1.getY(), p1.getZ(), p2.getX(), p2.getY(), p2.getZ()};
+		double[] planes = boxPlanes(box);
+		if (outcode(seg[0], seg[1], seg[2], planes, 6) == 0 &&
+			outcode(seg[3], seg[4], seg[5], planes, 6) == 0) {
+			return new Point3D[] {p1, p2};
+		}
+		if (!clipSegment(seg, planes, 6)) {
+			return null;
+		}
+		return VectorMath.toPoint3DArray(seg, 2);
+	}
+
+	/**
+	 * Clips a batch of lines to a range box. Line i is the set of points
+	 * (x[i], y[i], z[i]) + t*(ux[i], uy[i], uz[i]) with t in [tmin, tmax]:
+	 * tmin = 0, tmax = 1 gives the segments from p1 to p2 = p1 + u, and
+	 * tmin = Double.NEGATIVE_INFINITY, tmax = Double.POSITIVE_INFINITY gives infinite lines.
+	 *
+	 * @param	x		double array of x coordinates of points on the lines
+	 * @param	y		double array of y coordinates of points on the lines
+	 * @param	z		double array of z coordinates of points on the lines
+	 * @param	ux		double array of x components of the line directions
+	 * @param	uy		double array of y components of the line directions
+	 * @param	uz		double array of z components of the line directions
+	 * @param	n		int number of lines
+	 * @param	tmin	double lower bound of the line parameter
+	 * @param	tmax	double upper bound of the line parameter
+	 * @param	box		double[6] {minX, maxX, minY, maxY, minZ, maxZ}
+	 * @param	t0		double[n] clipped lower parameter of each line
+	 * @param	t1		double[n] clipped upper parameter of each line;
+	 * 					t0[i] > t1[i] if line i is wholly outside
+	 */
+	public static void clipLineParameters(final double[] x, final double[] y, final double[] z,
+								 final double[] ux, final double[] uy, final double[] uz, int n,
+								 final double tmin, final double tmax, final double[] box,
+								 final double[] t0, final double[] t1) {
+		new ParallelRange() {
+			@Override
+			protected void compute(int lo, int hi) {
+				double minX = box[0], maxX = box[1];
+				double minY = box[2], maxY = box[3];
+				double minZ = box[4], maxZ = box[5];
+				for (int i = lo; i < hi; i++) {
+					// Narrow the parameter interval [t, s] to the x, y, z slabs of the box in turn
+					double t = tmin;
+					double s = tmax;
+					double u;
+					double p;
+					u = ux[i];
+					p = x[i];
+					if (u != 0.0) {
+						double inv = 1.0 / u;
+						double ta = (minX - p) * inv;
+						double tb = (maxX - p) * inv;
+						t = Math.max(t, Math.min(ta, tb));
+						s = Math.min(s, Math.max(ta, tb));
+					}
+					else if (p < minX || p > maxX) {
+						t = Double.POSITIVE_INFINITY;		// parallel to and outside the slab
+						s = Double.NEGATIVE_INFINITY;
+					}
+					u = uy[i];
+					p = y[i];
+					if (u != 0.0) {
+						double inv = 1.0 / u;
+						double ta = (minY - p) * inv;
+						double tb = (maxY - p) * inv;
+						t = Math.max(t, Math.min(ta, tb));
+						s = Math.min(s, Math.max(ta, tb));
+					}
+					else if (p < minY || p > maxY) {
+						t = Double.POSITIVE_INFINITY;		// parallel to and outside the slab
+						s = Double.NEGATIVE_INFINITY;
+					}
+					u = uz[i];
+					p = z[i];
+					if (u != 0.0) {
+						double inv = 1.0 / u;
+						double ta = (minZ - p) * inv;
+						double tb = (maxZ - p) * inv;
+						t = Math.max(t, Math.min(ta, tb));
+						s = Math.min(s, Math.max(ta, tb));
+					}
+					else if (p < minZ || p > maxZ) {
+						t = Double.POSITIVE_INFINITY;		// parallel to and outside the slab
+						s = Double.NEGATIVE_INFINITY;
+					}
+					t0[i] = t;
+					t1[i] = s;
+				}
+			}
+		}.invoke(0, n);
+	}
+
+	/**
+	 * Clips a batch of lines to a range box and returns the end points of the clipped
+	 * segments of the lines that intersect the box. See clipLineParameters().
+	 *
+	 * @param	x		double array of x coordinates of points on the lines
+	 * @param	y		double array of y coordinates of points on the lines
+	 * @param	z		double array of z coordinates of points on the lines
+	 * @param	ux		double array of x components of the line directions
+	 * @param	uy		double array of y components of the line directions
+	 * @param	uz		double array of z components of the line directions
+	 * @param	n		int number of lines
+	 * @param	tmin	double lower bound of the line parameter
+	 * @param	tmax	double upper bound of the line parameter
+	 * @param	box		double[6] {minX, maxX, minY, maxY, minZ, maxZ}
+	 *
+	 * @param	out		double[6*n] packed end points x1, y1, z1, x2, y2, z2 of the clipped segments
+	 * @param	index	int[n] indices of the lines of the clipped segments, or null
+	 * @return	int number of clipped segments
+	 */
+	public static int clipLines(double[] x, double[] y, double[] z,
+								double[] ux, double[] uy, double[] uz, int n,
+								double tmin, double tmax, double[] box,
+								double[] out, int[] index) {
+		double[] t0 = new double[n];
+		double[] t1 = new double[n];
+		clipLineParameters(x, y, z, ux, uy, uz, n, tmin, tmax, box, t0, t1);
+		int m = 0;
+		for (int i = 0; i < n; i++) {
+			if (t0[i] <= t1[i]) {
+				int o = 6*m;
+				out[o]   = point(x[i], ux[i], t0[i], box[0], box[1]);
+				out[o+1] = point(y[i], uy[i], t0[i], box[2], box[3]);
+				out[o+2] = point(z[i], uz[i], t0[i], box[4], box[5]);
+				out[o+3] = point(x[i], ux[i], t1[i], box[0], box[1]);
+				out[o+4] = point(y[i], uy[i], t1[i], box[2], box[3]);
+				out[o+5] = point(z[i], uz[i], t1[i], box[4], box[5]);
+				if (index != null) {
+					index[m] = i;
+				}
+				m++;
+			}
+		}
+		return m;
+	}
+
+	/**
+	 * Clips a batch of lines given by symmetric line equation coefficients to a range box.
+	 * Symmetric line equation: (x-a1)/b1 = (y-a2)/b2 = (z-a3)/b3, i.e. the line through
+	 * (a1, a2, a3) with direction (b1, b2, b3); zero b coefficients are allowed.
+	 *
+	 * @param	coefficients	double[6*n] packed coefficients a1, a2, a3, b1, b2, b3 of each line
+	 * @param	box				double[6] {minX, maxX, minY, maxY, minZ, maxZ}
+	 * @param	out				double[6*n] packed end points x1, y1, z1, x2, y2, z2 of the clipped segments
+	 * @param	index			int[n] indices of the lines of the clipped segments, or null
+	 * @return	int number of clipped segments
+	 */
+	public static int clipLineEquations(double[] coefficients, double[] box, double[] out, int[] index) {
+		int n = coefficients.length / 6;
+		double[] x = new double[n];
+		double[] y = new double[n];
+		double[] z = new double[n];
+		double[] ux = new double[n];
+		double[] uy = new double[n];
+		double[] uz = new double[n];
+		for (int i = 0, k = 0; i < n; i++, k += 6) {
+			x[i]  = coefficients[k];
+			y[i]  = coefficients[k+1];
+			z[i]  = coefficients[k+2];
+			ux[i] = coefficients[k+3];
+			uy[i] = coefficients[k+4];
+			uz[i] = coefficients[k+5];
+		}
+		return clipLines(x, y, z, ux, uy, uz, n, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY,
+						 box, out, index);
+	}
+
+	/**
+	 * Returns the coordinate p + t*u of a clipped end point, kept within [min, max]
+	 * against rounding; a zero direction component leaves p unchanged for infinite t.
+	 */
+	private static double point(double p, double u, double t, double min, double max) {
+		if (u == 0.0) {
+			return p;
+		}
+		return Math.min(Math.max(p + t*u, min), max);
+	}
+
+	/**
+	 * Clips a TriangleMesh with faces of point and texture coordinate indices to the planes,
+	 * given in the coordinates of the mesh points. Faces crossing a plane are replaced by
+	 * the triangles of their clipped polygons, with new points and texture coordinates;
+	 * smoothing groups are carried over.
+	 *
+	 * @param	mesh	TriangleMesh to be clipped
+	 * @param	planes	double[] packed plane values
+	 * @param	np		int number of planes (at most 32)
+	 * @return	TriangleMesh clipped mesh; mesh itself if it is wholly inside
+	 */
+	public static TriangleMesh clipMesh(TriangleMesh mesh, final double[] planes, final int np) {
+		final float[] points = mesh.getPoints().toArray(null);
+		float[] tex = mesh.getTexCoords().toArray(null);
+		int[] faces = mesh.getFaces().toArray(null);
+		int[] groups = mesh.getFaceSmoothingGroups().toArray(null);
+		int stride = mesh.getFaceElementSize();
+		int nfaces = faces.length / stride;
+
+		// Outcodes of all points in one pass
+		final int[] codes = new int[points.length/3];
+		new ParallelRange() {
+			protected void compute(int lo, int hi) {
+				for (int i = lo; i < hi; i++) {
+					codes[i] = outcode(points[3*i], points[3*i+1], points[3*i+2], planes, np);
+				}
+			}
+		}.invoke(0, codes.length);
+
+		int all = 0;
+		for (int i = 0; i < codes.length; i++) {
+			all |= codes[i];
+		}
+		if (all == 0) {
+			return mesh;
+		}
+
+		FloatList newPoints = new FloatList(points.length);
+		newPoints.addAll(points);
+		FloatList newTex = new FloatList(tex.length);
+		newTex.addAll(tex);
+		int[] newFaces = new int[faces.length];
+		int[] newGroups = new int[groups.length];
+		int nf = 0;
+		int e = stride/3;						// face indices per vertex: point, (normal,) texture
+
+		double[] poly = new double[5*(3+np)];
+		double[] work = new double[poly.length];
+		for (int f = 0; f < nfaces; f++) {
+			int base = f*stride;
+			int c0 = codes[faces[base]], c1 = codes[faces[base+e]], c2 = codes[faces[base+2*e]];
+			if ((c0 & c1 & c2) != 0) {
+				continue;							// wholly outside one plane
+			}
+			if ((c0 | c1 | c2) == 0) {
+				newFaces = grow(newFaces, (nf+1)*stride);
+				System.arraycopy(faces, base, newFaces, nf*stride, stride);
+				if (groups.length > 0) {
+					newGroups = grow(newGroups, nf+1);
+					newGroups[nf] = groups[f];
+				}
+				nf++;
+				continue;
+			}
+
+			// Clip the face as a polygon of x, y, z, u, v vertices
+			for (int j = 0; j < 3; j++) {
+				int pi = faces[base+j*e];
+				int ti = faces[base+j*e+e-1];
+				poly[5*j]   = points[3*pi];
+				poly[5*j+1] = points[3*pi+1];
+				poly[5*j+2] = points[3*pi+2];
+				poly[5*j+3] = (2*ti+1 < tex.length) ? tex[2*ti]   : 0.0;
+				poly[5*j+4] = (2*ti+1 < tex.length) ? tex[2*ti+1] : 0.0;
+			}
+			int n = clipPolygon(poly, 3, 5, planes, np, poly, work);
+			if (n < 3) {
+				continue;
+			}
+			int first = newPoints.size()/3;
+			for (int j = 0; j < n; j++) {
+				newPoints.add((float) poly[5*j]);
+				newPoints.add((float) poly[5*j+1]);
+				newPoints.add((float) poly[5*j+2]);
+				newTex.add((float) poly[5*j+3]);
+				newTex.add((float) poly[5*j+4]);
+			}
+			int firstTex = newTex.size()/2 - n;
+			// The clipped polygon is convex; fan triangulate it
+			for (int j = 1; j < n-1; j++) {
+				newFaces = grow(newFaces, (nf+1)*stride);
+				int o = nf*stride;
+				for (int k = 0; k < 3; k++) {
+					int corner = (k == 0) ? 0 : j+k-1;
+					newFaces[o+k*e] = first + corner;
+					newFaces[o+k*e+e-1] = firstTex + corner;
+					if (e == 3) {
+						newFaces[o+k*e+1] = faces[base+1];		// normal of the first face vertex
+					}
+				}
+				if (groups.length > 0) {
+					newGroups = grow(newGroups, nf+1);
+					newGroups[nf] = groups[f];
+				}
+				nf++;
+			}
+		}
+
+		TriangleMesh clipped = new TriangleMesh(mesh.getVertexFormat());
+		clipped.getPoints().setAll(newPoints.toArray());
+		clipped.getTexCoords().setAll(newTex.toArray());
+		if (e == 3) {
+			clipped.getNormals().setAll(mesh.getNormals());
+		}
+		clipped.getFaces().setAll(newFaces, 0, nf*stride);
+		if (groups.length > 0) {
+			clipped.getFaceSmoothingGroups().setAll(newGroups, 0, nf);
+		}
+		return clipped;
+	}
+
+	private static int[] grow(int[] a, int size) {
+		return (size <= a.length) ? a : Arrays.copyOf(a, Math.max(size, 2*a.length));
+	}
+
+	/**
+	 * Growable float array for the clipped mesh points and texture coordinates.
+	 */
+	private static final class FloatList {
+		float[] a;
+		int size;
+
+		FloatList(int capacity) {
+			a = new float[Math.max(capacity, 16)];
+		}
+
+		void add(float v) {
+			if (size == a.length) {
+				a = Arrays.copyOf(a, 2*a.length);
+			}
+			a[size++] = v;
+		}
+
+		void addAll(float[] v) {
+			if (size + v.length > a.length) {
+				a = Arrays.copyOf(a, Math.max(size + v.length, 2*a.length));
+			}
+			System.arraycopy(v, 0, a, size, v.length);
+			size += v.length;
+		}
+
+		int size() {
+			return size;
+		}
+
+		float[] toArray() {
+			return Arrays.copyOf(a, size);
+		}
+	}
+}
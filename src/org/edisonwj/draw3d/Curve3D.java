@@ -0,0 +1,616 @@
+package org.edisonwj.draw3d;
+
+import java.util.Arrays;
+
+import javafx.geometry.Point3D;
+import javafx.scene.paint.PhongMaterial;
+import javafx.scene.shape.CullFace;
+import javafx.scene.shape.DrawMode;
+/**
+* Curve3D class captures information defining a polynomial or rational curve with specified:
+* - type BEZIER, BSPLINE (uniform B-spline) or NURBS
+* - array of control points (user coordinate scale)
+* - degree, and for NURBS the knot vector and control point weights
+* - PhongMaterial (optional)
+* - DrawMode setting (optional)
+* - Cullface setting (optional)
+* The Curve3D object is drawn by drawCurve3D() as a single TriangleMesh along the line
+* segments returned by tessellate().
+*
+* A Bezier curve is evaluated in O(n) time from its Bernstein coefficients, which are
+* precomputed with the control points, by a Horner scheme in t/(1-t) or (1-t)/t.
+* Above degree BERNSTEIN_MAX_DEGREE the Bernstein coefficients lose accuracy and the de
+* Casteljau algorithm is used instead. B-spline and NURBS curves are evaluated by the de
+* Boor algorithm in homogeneous coordinates. Evaluation uses work arrays allocated with
+* the curve, so no objects are created per point.
+*
+* tessellate() subdivides the parameter range recursively until the curve is within a
+* tolerance of its line segments, measured after scaling to screen coordinates, so that
+* curved parts receive many segments and flat parts few. Each knot span, or for a Bezier
+* curve each of n equal parts, is subdivided separately, and the end points are exact.
+* See also: Les Piegl and Wayne Tiller, The NURBS Book, 2nd ed., Springer, 1997.
+*
+* The class implements defaults specified in Draw3DDefaults.
+*
+* @author William Edison
+* @version 1.02
+*
+*/
+public class Curve3D implements Draw3DDefaults {
+	public static final int BEZIER = 0;
+	public static final int BSPLINE = 1;
+	public static final int NURBS = 2;
+
+	private static final int BERNSTEIN_MAX_DEGREE = 30;
+	private static final int MAX_DEPTH = 16;		// maximum subdivision depth of tessellate()
+
+	private int type;
+	private Point3D[] p;
+	private int degree;
+	private double[] knots;
+	private double[] weights;
+	private PhongMaterial m;
+	private DrawMode dm;
+	private CullFace cf;
+
+	// Evaluation state
+	private double[] cp;			// Packed homogeneous control points wx, wy, wz, w
+	private double[] binomial;		// Bernstein coefficients of a Bezier curve
+	private double[] work;			// de Casteljau or de Boor work array
+	private double[] pt = new double[3];
+
+	// Tessellation state
+	private double[] out;
+	private int nout;
+	private double tol2;
+	private double sx, sy, sz;
+
+	/**
+	 * Constructs a Bezier Curve3D object given an array of control points.
+	 *
+	 * @param	p	Point3D array of at least two control points
+	 */
+	public Curve3D(Point3D[] p) {
+		this(BEZIER, p, p.length - 1, null, null);
+	}
+
+	/**
+	 * Constructs a Bezier Curve3D object given an array of control points and PhongMaterial.
+	 *
+	 * @param	p	Point3D array of at least two control points
+	 * @param	m	PhongMaterial determining curve color
+	 */
+	public Curve3D(Point3D[] p, PhongMaterial m) {
+		this(p);
+		this.m = m;
+	}
+
+	/**
+	 * Constructs a uniform B-spline Curve3D object given an array of control points and the degree.
+	 * The knots are 0, 1, 2, ..., so the curve does not in general pass through the end control points.
+	 *
+	 * @param	p		Point3D array of more than degree control points
+	 * @param	degree	int degree of the curve, e.g. 3 for a cubic B-spline
+	 */
+	public Curve3D(Point3D[] p, int degree) {
+		this(BSPLINE, p, degree, null, null);
+	}
+
+	/**
+	 * Constructs a uniform B-spline Curve3D object given an array of control points,
+	 * the degree and PhongMaterial.
+	 *
+	 * @param	p		Point3D array of more than degree control points
+	 * @param	degree	int degree of the curve, e.g. 3 for a cubic B-spline
+	 * @param	m		PhongMaterial determining curve color
+	 */
+	public Curve3D(Point3D[] p, int degree, PhongMaterial m) {
+		this(p, degree);
+		this.m = m;
+	}
+
+	/**
+	 * Constructs a NURBS Curve3D object given an array of control points, their weights,
+	 * the knot vector and the degree.
+	 *
+	 * @param	p		Point3D array of more than degree control points
+	 * @param	weights	double array of positive control point weights, or null for weights of 1
+	 * @param	knots	double array of p.length + degree + 1 non-decreasing knots, or null for
+	 * 					uniform knots clamped at both ends, so the curve passes through
+	 * 					the end control points
+	 * @param	degree	int degree of the curve
+	 */
+	public Curve3D(Point3D[] p, double[] weights, double[] knots, int degree) {
+		this(NURBS, p, degree, weights, knots);
+	}
+
+	/**
+	 * Constructs a NURBS Curve3D object given an array of control points, their weights,
+	 * the knot vector, the degree and PhongMaterial.
+	 *
+	 * @param	p		Point3D array of more than degree control points
+	 * @param	weights	double array of positive control point weights, or null for weights of 1
+	 * @param	knots	double array of p.length + degree + 1 non-decreasing knots, or null for
+	 * 					uniform knots clamped at both ends
+	 * @param	degree	int degree of the curve
+	 * @param	m		PhongMaterial determining curve color
+	 */
+	public Curve3D(Point3D[] p, double[] weights, double[] knots, int degree, PhongMaterial m) {
+		this(p, weights, knots, degree);
+		this.m = m;
+	}
+
+	private Curve3D(int type, Point3D[] p, int degree, double[] weights, double[] knots) {
+		int n = p.length;
+		if (degree < 1 || n <= degree) {
+			throw new IllegalArgumentException("Curve3D: " + n + " control points for degree " + degree);
+		}
+		this.type = type;
+		this.p = p;
+		this.degree = degree;
+
+		if (weights == null) {
+			weights = new double[n];
+			Arrays.fill(weights, 1.0);
+		}
+		else if (weights.length != n) {
+			throw new IllegalArgumentException("Curve3D: " + weights.length + " weights for " + n + " control points");
+		}
+		this.weights = weights;
+
+		if (type == BSPLINE) {
+			knots = new double[n + degree + 1];
+			for (int i = 0; i < knots.length; i++) {
+				knots[i] = i;
+			}
+		}
+		else if (type == NURBS && knots == null) {
+			knots = new double[n + degree + 1];
+			for (int i = 0; i < knots.length; i++) {
+				knots[i] = Math.min(Math.max(i - degree, 0), n - degree);
+			}
+		}
+		if (knots != null) {
+			if (knots.length != n + degree + 1) {
+				throw new IllegalArgumentException("Curve3D: " + knots.length + " knots, " + (n + degree + 1) + " required");
+			}
+			for (int i = 1; i < knots.length; i++) {
+				if (knots[i] < knots[i-1]) {
+					throw new IllegalArgumentException("Curve3D: knots are not non-decreasing");
+				}
+			}
+			if (!(knots[degree] < knots[n])) {
+				throw new IllegalArgumentException("Curve3D: empty parameter range");
+			}
+		}
+		this.knots = knots;
+
+		cp = new double[4*n];
+		for (int i = 0; i < n; i++) {
+			double w = weights[i];
+			cp[4*i]   = w * p[i].getX();
+			cp[4*i+1] = w * p[i].getY();
+			cp[4*i+2] = w * p[i].getZ();
+			cp[4*i+3] = w;
+		}
+		if (type == BEZIER) {
+			if (degree <= BERNSTEIN_MAX_DEGREE) {
+				binomial = new double[degree + 1];
+				binomial[0] = 1.0;
+				for (int k = 1; k <= degree; k++) {
+					binomial[k] = binomial[k-1] * (degree - k + 1) / k;
+				}
+			}
+			else {
+				work = new double[3*n];
+			}
+		}
+		else {
+			work = new double[4*(degree + 1)];
+		}
+	}
+
+	/**
+	 * Gets the first value of the curve parameter
+	 *
+	 * @return	double start of the parameter range
+	 */
+	public double getStart() {
+		return (type == BEZIER) ? 0.0 : knots[degree];
+	}
+
+	/**
+	 * Gets the last value of the curve parameter
+	 *
+	 * @return	double end of the parameter range
+	 */
+	public double getEnd() {
+		return (type == BEZIER) ? 1.0 : knots[p.length];
+	}
+
+	/**
+	 * Evaluates the curve at parameter t into a packed array.
+	 *
+	 * @param	t		double curve parameter, within [getStart(), getEnd()]
+	 * @param	v		double array receiving x, y, z
+	 * @param	offset	int index of x in v
+	 */
+	public void evaluate(double t, double[] v, int offset) {
+		if (type == BEZIER) {
+			if (binomial != null) {
+				bernstein(t, v, offset);
+			}
+			else {
+				deCasteljau(t, v, offset);
+			}
+		}
+		else {
+			deBoor(t, v, offset);
+		}
+	}
+
+	/**
+	 * Returns the point of the curve at parameter t.
+	 *
+	 * @param	t	double curve parameter, within [getStart(), getEnd()]
+	 * @return	Point3D point of the curve
+	 */
+	public Point3D point(double t) {
+		double[] v = new double[3];
+		evaluate(t, v, 0);
+		return new Point3D(v[0], v[1], v[2]);
+	}
+
+	/**
+	 * Sum of the Bernstein terms C(n,k) t^k (1-t)^(n-k) P[k] by Horner's scheme in
+	 * t/(1-t) for t <= 1/2 and in (1-t)/t for t > 1/2, so the ratio is at most 1.
+	 */
+	private void bernstein(double t, double[] v, int offset) {
+		int n = degree;
+		double s = 1.0 - t;
+		double x, y, z;
+		if (t <= 0.5) {
+			double r = t / s;
+			x = binomial[n] * cp[4*n];
+			y = binomial[n] * cp[4*n+1];
+			z = binomial[n] * cp[4*n+2];
+			for (int k = n-1; k >= 0; k--) {
+				x = x*r + binomial[k] * cp[4*k];
+				y = y*r + binomial[k] * cp[4*k+1];
+				z = z*r + binomial[k] * cp[4*k+2];
+			}
+			r = Math.pow(s, n);
+			x *= r;
+			y *= r;
+			z *= r;
+		}
+		else {
+			double r = s / t;
+			x = binomial[0] * cp[0];
+			y = binomial[0] * cp[1];
+			z = binomial[0] * cp[2];
+			for (int k = 1; k <= n; k++) {
+				x = x*r + binomial[k] * cp[4*k];
+				y = y*r + binomial[k] * cp[4*k+1];
+				z = z*r + binomial[k] * cp[4*k+2];
+			}
+			r = Math.pow(t, n);
+			x *= r;
+			y *= r;
+			z *= r;
+		}
+		v[offset]   = x;
+		v[offset+1] = y;
+		v[offset+2] = z;
+	}
+
+	/**
+	 * de Casteljau evaluation of a Bezier curve in the work array
+	 */
+	private void deCasteljau(double t, double[] v, int offset) {
+		int n = p.length;
+		for (int i = 0; i < n; i++) {
+			work[3*i]   = cp[4*i];
+			work[3*i+1] = cp[4*i+1];
+			work[3*i+2] = cp[4*i+2];
+		}
+		for (int i = n-1; i > 0; i--) {
+			for (int k = 0; k < 3*i; k++) {
+				work[k] += t * (work[k+3] - work[k]);
+			}
+		}
+		v[offset]   = work[0];
+		v[offset+1] = work[1];
+		v[offset+2] = work[2];
+	}
+
+	/**
+	 * de Boor evaluation of a B-spline or NURBS curve in homogeneous coordinates
+	 */
+	private void deBoor(double t, double[] v, int offset) {
+		int n = p.length;
+		int d = degree;
+
+		// Knot span k with knots[k] <= t < knots[k+1], the last span for the end of the range
+		int lo = d;
+		int hi = n;
+		if (t >= knots[n]) {
+			lo = n - 1;
+			while (knots[lo] == knots[n]) {
+				lo--;
+			}
+		}
+		else {
+			while (hi - lo > 1) {
+				int mid = (lo + hi) >>> 1;
+				if (t < knots[mid]) {
+					hi = mid;
+				}
+				else {
+					lo = mid;
+				}
+			}
+		}
+		int k = lo;
+
+		System.arraycopy(cp, 4*(k - d), work, 0, 4*(d + 1));
+		for (int r = 1; r <= d; r++) {
+			for (int j = d; j >= r; j--) {
+				int i = j + k - d;
+				double alpha = (t - knots[i]) / (knots[i + d + 1 - r] - knots[i]);
+				int o = 4*j;
+				work[o]   += (1.0 - alpha) * (work[o-4] - work[o]);
+				work[o+1] += (1.0 - alpha) * (work[o-3] - work[o+1]);
+				work[o+2] += (1.0 - alpha) * (work[o-2] - work[o+2]);
+				work[o+3] += (1.0 - alpha) * (work[o-1] - work[o+3]);
+			}
+		}
+		int o = 4*d;
+		v[offset]   = work[o]   / work[o+3];
+		v[offset+1] = work[o+1] / work[o+3];
+		v[offset+2] = work[o+2] / work[o+3];
+	}
+
+	/**
+	 * Tessellates the curve into line segments. The x, y, z distances are multiplied by the
+	 * scale factors before comparison with the tolerance, so that with the user to screen
+	 * scale factors the tolerance is in pixels.
+	 *
+	 * @param	tolerance	double maximum distance of the curve from its line segments
+	 * @param	sx			double scale factor of x distances
+	 * @param	sy			double scale factor of y distances
+	 * @param	sz			double scale factor of z distances
+	 * @return	double array of packed x, y, z points of the polyline, the first and last
+	 * 			being the points at getStart() and getEnd()
+	 */
+	public double[] tessellate(double tolerance, double sx, double sy, double sz) {
+		this.tol2 = tolerance * tolerance;
+		this.sx = sx;
+		this.sy = sy;
+		this.sz = sz;
+		out = new double[3*64];
+		nout = 0;
+
+		double t0 = getStart();
+		evaluate(t0, pt, 0);
+		add(pt[0], pt[1], pt[2]);
+		double xa = pt[0], ya = pt[1], za = pt[2];
+
+		// Initial parts: the knot spans, or n equal parts of a Bezier curve
+		int parts = (type == BEZIER) ? Math.max(degree, 2) : p.length - degree;
+		for (int i = 1; i <= parts; i++) {
+			double t1;
+			if (type == BEZIER) {
+				t1 = (i == parts) ? 1.0 : (double)i / parts;
+			}
+			else {
+				t1 = knots[degree + i];
+				if (t1 == t0) {
+					continue;
+				}
+			}
+			evaluate(t1, pt, 0);
+			double xb = pt[0], yb = pt[1], zb = pt[2];
+			subdivide(t0, xa, ya, za, t1, xb, yb, zb, 0);
+			t0 = t1;
+			xa = xb;
+			ya = yb;
+			za = zb;
+		}
+		double[] result = Arrays.copyOf(out, 3*nout);
+		out = null;
+		return result;
+	}
+
+	/**
+	 * Adds the end point b of [ta, tb] if the curve is flat over the interval, otherwise
+	 * subdivides it at the midpoint. Flatness is tested at 1/4, 1/2 and 3/4 of the interval.
+	 */
+	private void subdivide(double ta, double xa, double ya, double za,
+						   double tb, double xb, double yb, double zb, int depth) {
+		double tm = 0.5 * (ta + tb);
+		evaluate(tm, pt, 0);
+		double xm = pt[0], ym = pt[1], zm = pt[2];
+		if (depth >= MAX_DEPTH || (isFlat(xa, ya, za, xb, yb, zb, xm, ym, zm) &&
+								   isFlat(0.5*(ta + tm), xa, ya, za, xb, yb, zb) &&
+								   isFlat(0.5*(tm + tb), xa, ya, za, xb, yb, zb))) {
+			add(xb, yb, zb);
+			return;
+		}
+		subdivide(ta, xa, ya, za, tm, xm, ym, zm, depth + 1);
+		subdivide(tm, xm, ym, zm, tb, xb, yb, zb, depth + 1);
+	}
+
+	private boolean isFlat(double t, double xa, double ya, double za, double xb, double yb, double zb) {
+		evaluate(t, pt, 0);
+		return isFlat(xa, ya, za, xb, yb, zb, pt[0], pt[1], pt[2]);
+	}
+
+	/**
+	 * Indicates whether point c is within the tolerance of the segment from a to b, in scaled coordinates
+	 */
+	private boolean isFlat(double xa, double ya, double za, double xb, double yb, double zb,
+						   double xc, double yc, double zc) {
+		double ux = sx*(xb - xa), uy = sy*(yb - ya), uz = sz*(zb - za);
+		double vx = sx*(xc - xa), vy = sy*(yc - ya), vz = sz*(zc - za);
+		double uu = ux*ux + uy*uy + uz*uz;
+		double uv = ux*vx + uy*vy + uz*vz;
+		double s = (uu > 0.0) ? Math.min(Math.max(uv / uu, 0.0), 1.0) : 0.0;
+		double dx = vx - s*ux, dy = vy - s*uy, dz = vz - s*uz;
+		return dx*dx + dy*dy + dz*dz <= tol2;
+	}
+
+	private void add(double x, double y, double z) {
+		if (3*nout + 3 > out.length) {
+			out = Arrays.copyOf(out, 2*out.length);
+		}
+		out[3*nout]   = x;
+		out[3*nout+1] = y;
+		out[3*nout+2] = z;
+		nout++;
+	}
+
+	/**
+	 * Gets the type of the curve
+	 *
+	 * @return	type	int BEZIER, BSPLINE, or NURBS
+	 */
+	public int getType() {
+		return type;
+	}
+
+	/**
+	 * Gets the control points
+	 *
+	 * @return	p	Point3D array of control points
+	 */
+	public Point3D[] getControlPoints() {
+		return p;
+	}
+
+	/**
+	 * Gets the degree
+	 *
+	 * @return	degree	int degree of the curve
+	 */
+	public int getDegree() {
+		return degree;
+	}
+
+	/**
+	 * Gets the knot vector
+	 *
+	 * @return	knots	double array of knots, null for a Bezier curve
+	 */
+	public double[] getKnots() {
+		return knots;
+	}
+
+	/**
+	 * Gets the control point weights
+	 *
+	 * @return	weights	double array of weights
+	 */
+	public double[] getWeights() {
+		return weights;
+	}
+
+	/**
+	 * Gets the PhongMaterial
+	 *
+	 * @return	m	PhongMaterial
+	 */
+	public PhongMaterial getMaterial() {
+		return m;
+	}
+
+	/**
+	 * Sets the PhongMaterial
+	 *
+	 * @param	m	PhongMaterial
+	 */
+	public void setMaterial(PhongMaterial m) {
+		this.m = m;
+	}
+
+	/**
+	 * Gets the DrawMode
+	 *
+	 * @return	dm	DrawMode
+	 */
+	public DrawMode getDrawMode() {
+		return dm;
+	}
+
+	/**
+	 * Sets the DrawMode
+	 *
+	 * @param	dm	DrawMode
+	 */
+	public void setDrawMode(DrawMode dm) {
+		this.dm = dm;
+	}
+
+	/**
+	 * Gets the CullFace
+	 *
+	 * @return	cf	CullFace
+	 */
+	public CullFace getCullFace() {
+		return cf;
+	}
+
+	/**
+	 * Sets the CullFace
+	 *
+	 * @param	cf	CullFace
+	 */
+	public void setCullFace(CullFace cf) {
+		this.cf = cf;
+	}
+
+	/**
+	 * Returns a String containing all Curve3D values for saving to a data file:
+	 * the type, degree and control points, for a NURBS curve the weights and knots,
+	 * and the drawing settings. The String is read by DataReader.readObject()
+	 * to recreate a Curve3D object when reading a saved data file.
+	 *
+	 * @return	String capturing all Curve3D field values
+	 */
+	public String outString() {
+		String[] names = {"BEZIER", "BSPLINE", "NURBS"};
+		StringBuilder sb = new StringBuilder(64*p.length);
+		sb.append("Curve: ").append(names[type]).append(", ").append(degree).append(", ");
+		for (int i = 0; i < p.length; i++) {
+			sb.append("( ").append(p[i].getX()).append(", ").append(p[i].getY()).append(", ").append(p[i].getZ()).append(" ), ");
+		}
+		sb.append("#");
+		if (type == NURBS) {
+			for (int i = 0; i < weights.length; i++) {
+				sb.append(", ").append(weights[i]);
+			}
+			for (int i = 0; i < knots.length; i++) {
+				sb.append(", ").append(knots[i]);
+			}
+		}
+		sb.append(", ").append(dm).append(", ").append(cf);
+		if (m != null) {
+			sb.append(", ").append(m.getDiffuseColor());
+			if (m.getSpecularColor() != null) {
+				sb.append(", ").append(m.getSpecularColor());
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Returns a String containing the Curve3D type, degree and number of control points
+	 *
+	 * @return	String representation of the Curve3D
+	 */
+	@Override
+	public String toString() {
+		String[] names = {"Bezier", "B-spline", "NURBS"};
+		return "Curve3D: " + names[type] + ", degree= " + degree + ", control points= " + p.length;
+	}
+}
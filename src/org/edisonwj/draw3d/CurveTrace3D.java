@@ -0,0 +1,334 @@
+package org.edisonwj.draw3d;
+
+import java.util.Arrays;
+
+import javafx.scene.paint.PhongMaterial;
+import javafx.scene.shape.CullFace;
+import javafx.scene.shape.DrawMode;
+/**
+* CurveTrace3D class captures information defining a curve traced step by step in an
+* animation, for example by an Algorithm, with:
+* - packed double array of the traced points (user coordinate scale), growing by one
+*   point per step
+* - a fixed number of construction polylines, e.g. the de Casteljau polygons of a Bezier
+*   curve, replaced at each step
+* - PhongMaterial of the traced curve and of each polyline (optional)
+* - DrawMode setting (optional)
+* - Cullface setting (optional)
+*
+* The points are set by the algorithm thread, which returns a snapshot() of the object at
+* each step of the animation for drawing by drawCurveTrace3D() on the JavaFX application
+* thread. A snapshot cannot be changed: it shares the traced points, which are only ever
+* appended to, and copies the polylines, so taking one does not grow with the number of
+* steps. drawCurveTrace3D() keeps the traced curve of a trace as one growing TriangleMesh,
+* appends only the segments added since the previous snapshot, and updates the points of
+* the polyline meshes in place, so the work per step is independent of the number of steps.
+*
+* The class implements defaults specified in Draw3DDefaults.
+*
+* @author William Edison
+* @version 1.02
+*
+*/
+public class CurveTrace3D implements Draw3DDefaults {
+	private double[] p = new double[3*256];	// Packed x, y, z of the traced points
+	private int n;								// Number of traced points
+	private double[][] polylines;				// Packed points of each polyline
+	private int[] polylineCounts;				// Number of points of each polyline
+	private PhongMaterial m;
+	private PhongMaterial[] pm;
+	private DrawMode dm;
+	private CullFace cf;
+	private final CurveTrace3D trace;			// The trace a snapshot was taken of, or this
+	private int resets;							// Number of calls to reset()
+
+	/**
+	 * Constructs a CurveTrace3D object with the specified number of construction polylines.
+	 *
+	 * @param	polylineCount	int number of construction polylines, may be 0
+	 */
+	public CurveTrace3D(int polylineCount) {
+		polylines = new double[polylineCount][0];
+		polylineCounts = new int[polylineCount];
+		pm = new PhongMaterial[polylineCount];
+		trace = this;
+	}
+
+	/**
+	 * Constructs a CurveTrace3D object with the specified number of construction polylines
+	 * and the PhongMaterial of the traced curve.
+	 *
+	 * @param	polylineCount	int number of construction polylines, may be 0
+	 * @param	m				PhongMaterial determining the traced curve color
+	 */
+	public CurveTrace3D(int polylineCount, PhongMaterial m) {
+		this(polylineCount);
+		this.m = m;
+	}
+
+	private CurveTrace3D(CurveTrace3D t) {
+		p = t.p;
+		n = t.n;
+		polylineCounts = t.polylineCounts.clone();
+		polylines = new double[polylineCounts.length][];
+		for (int k = 0; k < polylines.length; k++) {
+			polylines[k] = Arrays.copyOf(t.polylines[k], 3*polylineCounts[k]);
+		}
+		m = t.m;
+		pm = t.pm.clone();
+		dm = t.dm;
+		cf = t.cf;
+		trace = t;
+		resets = t.resets;
+	}
+
+	/**
+	 * Takes a snapshot of the traced points and polylines, for drawing while
+	 * the trace continues to be changed.
+	 *
+	 * @return	CurveTrace3D snapshot, which cannot be changed
+	 */
+	public CurveTrace3D snapshot() {
+		return new CurveTrace3D(this);
+	}
+
+	/**
+	 * Tests whether this object is a snapshot
+	 *
+	 * @return	boolean true if this object was created by snapshot()
+	 */
+	public boolean isSnapshot() {
+		return trace != this;
+	}
+
+	/**
+	 * Gets the trace this object is a snapshot of, or this object if it is not a snapshot.
+	 *
+	 * @return	CurveTrace3D trace
+	 */
+	public CurveTrace3D getTrace() {
+		return trace;
+	}
+
+	/**
+	 * Gets the number of times the trace has been reset, so that a snapshot taken after
+	 * a reset can be told from one taken before it.
+	 *
+	 * @return	int number of resets
+	 */
+	public int getResetCount() {
+		return resets;
+	}
+
+	private void checkChange() {
+		if (trace != this) {
+			throw new IllegalStateException("CurveTrace3D: A snapshot cannot be changed");
+		}
+	}
+
+	/**
+	 * Appends a point to the traced curve.
+	 *
+	 * @param	x	double x coordinate of the point
+	 * @param	y	double y coordinate of the point
+	 * @param	z	double z coordinate of the point
+	 * @throws	IllegalStateException if this object is a snapshot
+	 */
+	public void addPoint(double x, double y, double z) {
+		checkChange();
+		if (3*n + 3 > p.length) {
+			p = Arrays.copyOf(p, 2*p.length);
+		}
+		p[3*n]   = x;
+		p[3*n+1] = y;
+		p[3*n+2] = z;
+		n++;
+	}
+
+	/**
+	 * Replaces construction polyline k.
+	 *
+	 * @param	k		int index of the polyline
+	 * @param	v		double array of packed x, y, z points of the polyline
+	 * @param	count	int number of points
+	 * @throws	IllegalStateException if this object is a snapshot
+	 */
+	public void setPolyline(int k, double[] v, int count) {
+		checkChange();
+		if (polylines[k].length < 3*count) {
+			polylines[k] = new double[3*count];
+		}
+		System.arraycopy(v, 0, polylines[k], 0, 3*count);
+		polylineCounts[k] = count;
+	}
+
+	/**
+	 * Removes the traced points and the polyline points, to trace a new curve.
+	 * Snapshots keep the points they were taken with.
+	 *
+	 * @throws	IllegalStateException if this object is a snapshot
+	 */
+	public void reset() {
+		checkChange();
+		p = new double[p.length];
+		n = 0;
+		Arrays.fill(polylineCounts, 0);
+		resets++;
+	}
+
+	/**
+	 * Gets the number of traced points
+	 *
+	 * @return	n	int number of traced points
+	 */
+	public int getPointCount() {
+		return n;
+	}
+
+	/**
+	 * Gets a copy of the traced points from index from up to the current number of points.
+	 *
+	 * @param	from	int index of the first point
+	 * @return	double array of packed x, y, z points
+	 */
+	public double[] getPoints(int from) {
+		return Arrays.copyOfRange(p, 3*from, 3*n);
+	}
+
+	/**
+	 * Gets the number of construction polylines
+	 *
+	 * @return	int number of polylines
+	 */
+	public int getPolylineCount() {
+		return polylines.length;
+	}
+
+	/**
+	 * Gets a copy of the points of construction polyline k.
+	 *
+	 * @param	k	int index of the polyline
+	 * @return	double array of packed x, y, z points
+	 */
+	public double[] getPolyline(int k) {
+		return Arrays.copyOf(polylines[k], 3*polylineCounts[k]);
+	}
+
+	/**
+	 * Gets the PhongMaterial of the traced curve
+	 *
+	 * @return	m	PhongMaterial
+	 */
+	public PhongMaterial getMaterial() {
+		return m;
+	}
+
+	/**
+	 * Sets the PhongMaterial of the traced curve
+	 *
+	 * @param	m	PhongMaterial
+	 */
+	public void setMaterial(PhongMaterial m) {
+		this.m = m;
+	}
+
+	/**
+	 * Gets the PhongMaterial of construction polyline k
+	 *
+	 * @param	k	int index of the polyline
+	 * @return	PhongMaterial of the polyline, null if not set
+	 */
+	public PhongMaterial getPolylineMaterial(int k) {
+		return pm[k];
+	}
+
+	/**
+	 * Sets the PhongMaterial of construction polyline k
+	 *
+	 * @param	k	int index of the polyline
+	 * @param	m	PhongMaterial
+	 */
+	public void setPolylineMaterial(int k, PhongMaterial m) {
+		pm[k] = m;
+	}
+
+	/**
+	 * Gets the DrawMode
+	 *
+	 * @return	dm	DrawMode
+	 */
+	public DrawMode getDrawMode() {
+		return dm;
+	}
+
+	/**
+	 * Sets the DrawMode
+	 *
+	 * @param	dm	DrawMode
+	 */
+	public void setDrawMode(DrawMode dm) {
+		this.dm = dm;
+	}
+
+	/**
+	 * Gets the CullFace
+	 *
+	 * @return	cf	CullFace
+	 */
+	public CullFace getCullFace() {
+		return cf;
+	}
+
+	/**
+	 * Sets the CullFace
+	 *
+	 * @param	cf	CullFace
+	 */
+	public void setCullFace(CullFace cf) {
+		this.cf = cf;
+	}
+
+	/**
+	 * Returns a String containing all CurveTrace3D values for saving to a data file: the
+	 * number of polylines, the traced points, the points and color of each polyline, and the
+	 * drawing settings. The String is read by DataReader.readObject() to recreate a
+	 * CurveTrace3D object when reading a saved data file.
+	 *
+	 * @return	String capturing all CurveTrace3D field values
+	 */
+	public String outString() {
+		StringBuilder sb = new StringBuilder(64*n + 128);
+		sb.append("Trace: ").append(polylines.length).append(", ");
+		appendPoints(sb, p, n);
+		for (int k = 0; k < polylines.length; k++) {
+			sb.append(", ");
+			appendPoints(sb, polylines[k], polylineCounts[k]);
+			sb.append(", ").append((pm[k] != null) ? pm[k].getDiffuseColor() : null);
+		}
+		sb.append(", ").append(dm).append(", ").append(cf);
+		if (m != null) {
+			sb.append(", ").append(m.getDiffuseColor());
+			if (m.getSpecularColor() != null) {
+				sb.append(", ").append(m.getSpecularColor());
+			}
+		}
+		return sb.toString();
+	}
+
+	private static void appendPoints(StringBuilder sb, double[] v, int count) {
+		for (int i = 0; i < 3*count; i += 3) {
+			sb.append("( ").append(v[i]).append(", ").append(v[i+1]).append(", ").append(v[i+2]).append(" ), ");
+		}
+		sb.append("#");
+	}
+
+	/**
+	 * Returns a String containing the number of traced points and polylines
+	 *
+	 * @return	String representation of the CurveTrace3D
+	 */
+	@Override
+	public String toString() {
+		return "CurveTrace3D: points= " + getPointCount() + ", polylines= " + polylines.length;
+	}
+}
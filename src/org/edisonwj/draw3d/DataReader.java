@@ -0,0 +1,937 @@
+package org.edisonwj.draw3d;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.NoSuchElementException;
+import java.util.zip.GZIPInputStream;
+
+import javafx.geometry.Point3D;
+import javafx.scene.paint.Color;
+import javafx.scene.paint.PhongMaterial;
+import javafx.scene.shape.CullFace;
+import javafx.scene.shape.DrawMode;
+import javafx.scene.text.Font;
+/**
+* DataReader class reads Draw3D data files, as written by the outString() methods of the
+* drawing objects, in a single pass over the bytes of the file. Each line holds a type name
+* followed by fields separated by any of ",;: " (";:" for Text, Formula and Isosurface lines), e.g.
+*   Sphere: 1.0, 2.0, 3.0, 0.5, 64
+* nextLine() advances to the next line and finds its type in one table of type names;
+* the fields are then read with nextDouble(), nextInt(), nextBoolean() and nextField(),
+* or readObject() creates the drawing object of the line directly from its fields.
+*
+* The file is read in large blocks into a byte buffer, and lines and fields are found in
+* place. Numbers are scanned by hand: a decimal whose digits form an integer below 2^53 and
+* whose power of ten is within 22 is converted exactly by one multiplication or division, and other
+* numbers are left to Double.parseDouble(), so the values are those of Double.valueOf().
+* Adapted from: Clinger, How to Read Floating Point Numbers Accurately, PLDI 1990.
+*
+* The class implements defaults specified in Draw3DDefaults.
+*
+* @author William Edison
+* @version 1.02
+*
+*/
+public class DataReader implements Draw3DDefaults {
+	public static final int UNKNOWN = -1;
+	public static final int COMMENT = 0;
+	public static final int DATA_GROUP = 1;
+	public static final int VIEW = 2;
+	public static final int CAMERA = 3;
+	public static final int ORIGIN = 4;
+	public static final int RANGE = 5;
+	public static final int COLOR = 6;
+	public static final int ARROW = 7;
+	public static final int BOX = 8;
+	public static final int CONE = 9;
+	public static final int CYLINDER = 10;
+	public static final int LINE = 11;
+	public static final int OVAL = 12;
+	public static final int PLANE = 13;
+	public static final int POLYGON = 14;
+	public static final int POINT = 15;
+	public static final int RECTANGLE = 16;
+	public static final int SPHERE = 17;
+	public static final int TEXT = 18;
+	public static final int TRIANGLE = 19;
+	public static final int VECTOR = 20;
+	public static final int CURVE = 21;
+	public static final int HULL = 22;
+	public static final int PATCH = 23;
+	public static final int ARRANGEMENT = 24;
+	public static final int TRACE = 25;
+	public static final int FORMULA = 26;
+	public static final int ISOSURFACE = 27;
+	public static final String COMPRESSED_EXTENSION = ".gz";
+
+	private static final String[] TYPES = {
+		"//", "DataGroup", "View", "Camera", "Origin", "Range", "Color",
+		"Arrow", "Box", "Cone", "Cylinder", "Line", "Oval", "Plane", "Polygon",
+		"Point", "Rectangle", "Sphere", "Text", "Triangle", "Vector", "Curve",
+		"Hull", "Patch", "Arrangement", "Trace", "Formula", "Isosurface"
+	};
+	private static final byte[][] TYPE_BYTES = new byte[TYPES.length][];
+	static {
+		for (int i = 0; i < TYPES.length; i++) {
+			TYPE_BYTES[i] = TYPES[i].getBytes(StandardCharsets.US_ASCII);
+		}
+	}
+	private static final double[] POWERS = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+		1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
+	private static final long MAX_EXACT = 1L << 53;
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private final InputStream in;
+	private byte[] buf = new byte[BUFFER_SIZE];
+	private int limit;					// End of the bytes read into buf
+	private long offset;				// Position in the data of buf[0]
+	private boolean eof;
+	private int next;					// Start of the next line
+	private boolean skipLineFeed;		// Last line ended in '\r', skip a '\n' following it
+	private int start;					// Start of the current line
+	private int pos;					// Scan position in the current line
+	private int end;					// End of the current line
+	private int lineNumber;
+	private int type;
+	private boolean textFields;			// Fields separated by ";:" only
+	private final HashMap<String, Color> colors = new HashMap<String, Color>();
+
+	/**
+	 * Constructs a DataReader object reading the specified file, decompressing
+	 * it when its name ends in COMPRESSED_EXTENSION.
+	 *
+	 * @param	file	File data file
+	 * @throws	IOException if the file cannot be opened
+	 */
+	public DataReader(File file) throws IOException {
+		this(open(file));
+	}
+
+	private static InputStream open(File file) throws IOException {
+		InputStream in = new FileInputStream(file);
+		if (file.getName().endsWith(COMPRESSED_EXTENSION)) {
+			try {
+				in = new GZIPInputStream(in, BUFFER_SIZE);
+			}
+			catch (IOException e) {
+				in.close();
+				throw e;
+			}
+		}
+		return in;
+	}
+
+	/**
+	 * Constructs a DataReader object reading the specified stream.
+	 *
+	 * @param	in	InputStream data
+	 */
+	public DataReader(InputStream in) {
+		this.in = in;
+	}
+
+	/**
+	 * Advances to the next line that is not blank and finds its type.
+	 *
+	 * @return	boolean true if there is a next line, false at the end of the data
+	 * @throws	IOException if the data cannot be read
+	 */
+	public boolean nextLine() throws IOException {
+		while (true) {
+			int e = findLineEnd();
+			if (e < 0) {
+				return false;
+			}
+			start = next;
+			pos = next;
+			end = e;
+			next = e + 1;
+			skipLineFeed = (buf[e] == '\r');
+			lineNumber++;
+			textFields = false;
+			if (skipDelimiters()) {
+				int s = pos;
+				while (pos < end && !isDelimiter(buf[pos])) {
+					pos++;
+				}
+				type = findType(s, pos);
+				textFields = (type == TEXT || type == FORMULA || type == ISOSURFACE);
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Finds the end of the line starting at next, reading more of the data as needed.
+	 * A line ends in '\n', '\r' or "\r\n". Returns -1 at the end of the data.
+	 */
+	private int findLineEnd() throws IOException {
+		int i = next;
+		while (true) {
+			if (skipLineFeed && i < limit) {
+				// The '\n' of a "\r\n", possibly read only now
+				skipLineFeed = false;
+				if (buf[i] == '\n') {
+					next = ++i;
+				}
+			}
+			for (; i < limit; i++) {
+				if (buf[i] == '\n' || buf[i] == '\r') {
+					return i;
+				}
+			}
+			if (eof) {
+				if (next < limit) {
+					// Last line without a line end, terminated in the buffer
+					ensureSpace();
+					buf[limit] = '\n';
+					return limit++;
+				}
+				return -1;
+			}
+			i -= next;
+			ensureSpace();
+			i += next;
+			int n = in.read(buf, limit, buf.length - limit);
+			if (n < 0) {
+				eof = true;
+			}
+			else {
+				limit += n;
+			}
+		}
+	}
+
+	/**
+	 * Moves the partial line at next to the start of the buffer, growing the buffer
+	 * when the line fills it, so that there is space to read more.
+	 */
+	private void ensureSpace() {
+		if (next > 0) {
+			System.arraycopy(buf, next, buf, 0, limit - next);
+			limit -= next;
+			offset += next;
+			next = 0;
+		}
+		if (limit == buf.length) {
+			buf = Arrays.copyOf(buf, 2*buf.length);
+		}
+	}
+
+	private int findType(int s, int e) {
+		if (e - s >= 2 && buf[s] == '/' && buf[s+1] == '/') {
+			return COMMENT;
+		}
+		for (int t = 1; t < TYPE_BYTES.length; t++) {
+			byte[] name = TYPE_BYTES[t];
+			if (name.length == e - s) {
+				int k = 0;
+				while (k < name.length && name[k] == buf[s+k]) {
+					k++;
+				}
+				if (k == name.length) {
+					return t;
+				}
+			}
+		}
+		return UNKNOWN;
+	}
+
+	private boolean isDelimiter(byte b) {
+		if (textFields) {
+			return b == ':' || b == ';';
+		}
+		return b == ',' || b == ';' || b == ':' || (b <= ' ' && b >= 0);
+	}
+
+	/**
+	 * Skips delimiters, returning true if a field follows.
+	 */
+	private boolean skipDelimiters() {
+		while (pos < end && isDelimiter(buf[pos])) {
+			pos++;
+		}
+		return pos < end;
+	}
+
+	/**
+	 * Finds the next field, returning its end; the field starts at pos.
+	 */
+	private int field() {
+		if (!skipDelimiters()) {
+			throw new NoSuchElementException("missing field");
+		}
+		int e = pos;
+		while (e < end && !isDelimiter(buf[e])) {
+			e++;
+		}
+		return e;
+	}
+
+	/**
+	 * Gets the type of the current line, one of the type constants, or UNKNOWN.
+	 *
+	 * @return	int type of the line
+	 */
+	public int getType() {
+		return type;
+	}
+
+	/**
+	 * Gets the number of the current line, counting from 1.
+	 *
+	 * @return	int line number
+	 */
+	public int getLineNumber() {
+		return lineNumber;
+	}
+
+	/**
+	 * Gets the number of bytes of the data read up to the end of the current line,
+	 * counting the bytes after decompression.
+	 *
+	 * @return	long position in the data
+	 */
+	public long getPosition() {
+		return offset + next;
+	}
+
+	/**
+	 * Gets the current line.
+	 *
+	 * @return	String line
+	 */
+	public String getLine() {
+		return new String(buf, start, end - start, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Tests whether the current line has more fields.
+	 *
+	 * @return	boolean true if a field follows
+	 */
+	public boolean hasMoreFields() {
+		return skipDelimiters();
+	}
+
+	/**
+	 * Counts the remaining fields of the current line.
+	 *
+	 * @return	int number of fields
+	 */
+	public int countFields() {
+		int p = pos;
+		int n = 0;
+		while (skipDelimiters()) {
+			n++;
+			while (pos < end && !isDelimiter(buf[pos])) {
+				pos++;
+			}
+		}
+		pos = p;
+		return n;
+	}
+
+	/**
+	 * Reads the next field as a String.
+	 *
+	 * @return	String field
+	 * @throws	NoSuchElementException if the line has no more fields
+	 */
+	public String nextField() {
+		int e = field();
+		String s = new String(buf, pos, e - pos, StandardCharsets.UTF_8);
+		pos = e;
+		return s;
+	}
+
+	/**
+	 * Reads the next field as a double, with the value given by Double.valueOf().
+	 *
+	 * @return	double value
+	 * @throws	NoSuchElementException if the line has no more fields
+	 * @throws	NumberFormatException if the field is not a number
+	 */
+	public double nextDouble() {
+		int e = field();
+		int s = pos;
+		pos = e;
+		while (s < e && buf[s] <= ' ' && buf[s] >= 0) {
+			s++;
+		}
+		while (e > s && buf[e-1] <= ' ' && buf[e-1] >= 0) {
+			e--;
+		}
+		return parseDouble(s, e);
+	}
+
+	/**
+	 * Reads the next field as an int, with the value given by Integer.valueOf().
+	 *
+	 * @return	int value
+	 * @throws	NoSuchElementException if the line has no more fields
+	 * @throws	NumberFormatException if the field is not an integer
+	 */
+	public int nextInt() {
+		int e = field();
+		int s = pos;
+		pos = e;
+		while (s < e && buf[s] <= ' ' && buf[s] >= 0) {
+			s++;
+		}
+		while (e > s && buf[e-1] <= ' ' && buf[e-1] >= 0) {
+			e--;
+		}
+		int i = s;
+		boolean negative = false;
+		if (i < e && (buf[i] == '-' || buf[i] == '+')) {
+			negative = buf[i] == '-';
+			i++;
+		}
+		long value = 0;
+		if (i < e && e - i <= 10) {
+			for (; i < e; i++) {
+				int d = buf[i] - '0';
+				if (d < 0 || d > 9) {
+					break;
+				}
+				value = 10*value + d;
+			}
+			if (negative) {
+				value = -value;
+			}
+			if (i == e && value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+				return (int) value;
+			}
+		}
+		return Integer.parseInt(new String(buf, s, e - s, StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Reads the next field as a boolean, with the value given by Boolean.valueOf().
+	 *
+	 * @return	boolean true if the field is "true", ignoring case
+	 * @throws	NoSuchElementException if the line has no more fields
+	 */
+	public boolean nextBoolean() {
+		int e = field();
+		boolean value = e - pos == 4 &&
+						(buf[pos] | 0x20) == 't' && (buf[pos+1] | 0x20) == 'r' &&
+						(buf[pos+2] | 0x20) == 'u' && (buf[pos+3] | 0x20) == 'e';
+		pos = e;
+		return value;
+	}
+
+	/**
+	 * Reads the next field as a Color given by Color.web(), e.g. 0x40e0d0ff or red.
+	 * Colors are kept, so that each distinct field is converted once.
+	 *
+	 * @return	Color color, or null if the field is "null"
+	 * @throws	NoSuchElementException if the line has no more fields
+	 * @throws	IllegalArgumentException if the field is not a color
+	 */
+	public Color nextColor() {
+		String s = nextField().trim();
+		if (s.equals("null")) {
+			return null;
+		}
+		Color c = colors.get(s);
+		if (c == null) {
+			c = Color.web(s);
+			colors.put(s, c);
+		}
+		return c;
+	}
+
+	/**
+	 * Converts bytes s to e to a double, exactly for short decimals and by
+	 * Double.parseDouble() otherwise.
+	 */
+	private double parseDouble(int s, int e) {
+		int i = s;
+		boolean negative = false;
+		if (i < e && (buf[i] == '-' || buf[i] == '+')) {
+			negative = buf[i] == '-';
+			i++;
+		}
+		long mantissa = 0;
+		int digits = 0;					// Significant digits in the mantissa
+		int exponent = 0;
+		boolean any = false;
+		for (; i < e && buf[i] >= '0' && buf[i] <= '9'; i++) {
+			mantissa = 10*mantissa + (buf[i] - '0');
+			if (mantissa != 0) {
+				digits++;
+			}
+			any = true;
+		}
+		if (i < e && buf[i] == '.') {
+			for (i++; i < e && buf[i] >= '0' && buf[i] <= '9'; i++) {
+				mantissa = 10*mantissa + (buf[i] - '0');
+				if (mantissa != 0) {
+					digits++;
+				}
+				exponent--;
+				any = true;
+			}
+		}
+		if (any && i < e && (buf[i] == 'e' || buf[i] == 'E')) {
+			i++;
+			boolean negativeExponent = false;
+			if (i < e && (buf[i] == '-' || buf[i] == '+')) {
+				negativeExponent = buf[i] == '-';
+				i++;
+			}
+			int x = 0;
+			int start = i;
+			for (; i < e && buf[i] >= '0' && buf[i] <= '9' && x < 1000; i++) {
+				x = 10*x + (buf[i] - '0');
+			}
+			if (i == start) {
+				any = false;
+			}
+			exponent += negativeExponent ? -x : x;
+		}
+		if (any && i == e && digits <= 18 && mantissa <= MAX_EXACT &&
+			exponent >= -22 && exponent <= 22) {
+			double value = mantissa;
+			value = (exponent < 0) ? value / POWERS[-exponent] : value * POWERS[exponent];
+			return negative ? -value : value;
+		}
+		return Double.parseDouble(new String(buf, s, e - s, StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Creates the drawing object of the current line from its fields: an Arrow3D, Box3D,
+	 * Cone3D, Cylinder3D, Line3D, Oval3D, Plane3D, Polygon3D, Point3D, Rectangle3D,
+	 * Sphere3D, Text3D, Triangle3D, Vector3D, Curve3D, Hull3D, Patch3D, PlaneArrangement,
+	 * CurveTrace3D, Formula3D or Isosurface3D. A DrawMode, CullFace or color field
+	 * of "null" leaves the setting unspecified.
+	 *
+	 * @return	Object drawing object, or null if the line is not a drawing object
+	 * @throws	NoSuchElementException if a required field is missing
+	 * @throws	IllegalArgumentException if a field has an invalid value
+	 */
+	public Object readObject() {
+		switch (type) {
+		case ARROW: {
+			Point3D p1 = nextPoint();
+			Point3D p2 = nextPoint();
+			double r = nextDouble();
+			Arrow3D a = new Arrow3D(p1, p2, nextMaterial());
+			a.setArrowRadius(r);
+			return a;
+		}
+		case BOX: {
+			Point3D p = nextPoint();
+			double w = nextDouble();
+			double h = nextDouble();
+			double d = nextDouble();
+			double[] r = nextRotation();
+			DrawMode dm = nextDrawMode();
+			CullFace cf = nextCullFace();
+			Box3D b = new Box3D(p, w, h, d, r[0], r[1], r[2], nextMaterial());
+			b.setDrawMode(dm);
+			b.setCullFace(cf);
+			return b;
+		}
+		case CONE: {
+			Point3D p = nextPoint();
+			double radius = nextDouble();
+			double h = nextDouble();
+			int divisions = nextInt();
+			double[] r = nextRotation();
+			DrawMode dm = nextDrawMode();
+			CullFace cf = nextCullFace();
+			Cone3D c = new Cone3D(p, radius, h, r[0], r[1], r[2], nextMaterial());
+			c.setConeDivisions(divisions);
+			c.setDrawMode(dm);
+			c.setCullFace(cf);
+			return c;
+		}
+		case CYLINDER: {
+			Point3D p = nextPoint();
+			double radius = nextDouble();
+			double h = nextDouble();
+			int divisions = nextInt();
+			double[] r = nextRotation();
+			DrawMode dm = nextDrawMode();
+			CullFace cf = nextCullFace();
+			Cylinder3D c = new Cylinder3D(p, radius, h, r[0], r[1], r[2], nextMaterial());
+			c.setCylinderDivisions(divisions);
+			c.setDrawMode(dm);
+			c.setCullFace(cf);
+			return c;
+		}
+		case LINE: {
+			Point3D p1 = nextPoint();
+			Point3D p2 = nextPoint();
+			Line3D l = new Line3D(p1, p2);
+			if (hasMoreFields()) {
+				l.setLineRadius(nextDouble());
+			}
+			l.setMaterial(nextMaterial());
+			return l;
+		}
+		case OVAL: {
+			Point3D p = nextPoint();
+			double a = nextDouble();
+			double b = nextDouble();
+			int divisions = nextInt();
+			double[] r = nextRotation();
+			DrawMode dm = nextDrawMode();
+			CullFace cf = nextCullFace();
+			Oval3D o = new Oval3D(p, a, b, r[0], r[1], r[2], nextMaterial());
+			o.setOvalDivisions(divisions);
+			o.setDrawMode(dm);
+			o.setCullFace(cf);
+			return o;
+		}
+		case PLANE: {
+			double a = nextDouble();
+			double b = nextDouble();
+			double c = nextDouble();
+			double d = nextDouble();
+			DrawMode dm = nextDrawMode();
+			CullFace cf = nextCullFace();
+			Plane3D pl = new Plane3D(a, b, c, d, nextMaterial());
+			pl.setDrawMode(dm);
+			pl.setCullFace(cf);
+			return pl;
+		}
+		case POLYGON: {
+			Point3D[] v = nextVertices("Polygon3D");
+			Polygon3D p = new Polygon3D(v);
+			if (hasMoreFields()) {
+				p.setDrawEdges(nextBoolean());
+			}
+			if (hasMoreFields()) {
+				p.setDrawVertices(nextBoolean());
+			}
+			if (hasMoreFields()) {
+				p.setDrawVertexLabels(nextBoolean());
+			}
+			p.setDrawMode(nextDrawMode());
+			p.setCullFace(nextCullFace());
+			p.setMaterial(nextMaterial());
+			return p;
+		}
+		case POINT:
+			return nextPoint();
+		case RECTANGLE: {
+			Point3D p = nextPoint();
+			double w = nextDouble();
+			double h = nextDouble();
+			double[] r = nextRotation();
+			DrawMode dm = nextDrawMode();
+			CullFace cf = nextCullFace();
+			Rectangle3D rect = new Rectangle3D(p, w, h, r[0], r[1], r[2], nextMaterial());
+			rect.setDrawMode(dm);
+			rect.setCullFace(cf);
+			return rect;
+		}
+		case SPHERE: {
+			Point3D p = nextPoint();
+			double radius = nextDouble();
+			int divisions = nextInt();
+			double[] r = nextRotation();
+			DrawMode dm = nextDrawMode();
+			CullFace cf = nextCullFace();
+			Sphere3D s = new Sphere3D(p, radius, r[0], r[1], r[2], nextMaterial());
+			s.setSphereDivisions(divisions);
+			s.setDrawMode(dm);
+			s.setCullFace(cf);
+			return s;
+		}
+		case TEXT: {
+			// Fields separated by ";:" only; the font name is kept as written and
+			// the remaining fields are joined as the text
+			Point3D p = nextPoint();
+			double[] r = {nextDouble(), nextDouble(), nextDouble()};
+			int e = field();
+			Font font = Font.font(new String(buf, pos, e - pos, StandardCharsets.UTF_8));
+			pos = e;
+			Color c = nextColor();
+			StringBuilder t = new StringBuilder();
+			while (hasMoreFields()) {
+				t.append(nextField());
+			}
+			Text3D text = new Text3D(p, r[0], r[1], r[2], t.toString(), c);
+			text.setLabelFont(font);
+			return text;
+		}
+		case TRIANGLE: {
+			Point3D[] v = nextVertices("Triangle3D");
+			Triangle3D t = new Triangle3D(v);
+			t.setDrawMode(nextDrawMode());
+			t.setCullFace(nextCullFace());
+			t.setMaterial(nextMaterial());
+			return t;
+		}
+		case VECTOR: {
+			Point3D p = nextPoint();
+			double r = nextDouble();
+			Vector3D v = new Vector3D(p, nextMaterial());
+			v.setVectorRadius(r);
+			return v;
+		}
+		case CURVE: {
+			String kind = nextField();
+			int degree = nextInt();
+			Point3D[] v = nextVertices("Curve3D");
+			Curve3D c;
+			if (kind.equals("BEZIER")) {
+				c = new Curve3D(v);
+			}
+			else if (kind.equals("BSPLINE")) {
+				c = new Curve3D(v, degree);
+			}
+			else if (kind.equals("NURBS")) {
+				double[] w = nextDoubles(v.length);
+				double[] k = nextDoubles(v.length + degree + 1);
+				c = new Curve3D(v, w, k, degree);
+			}
+			else {
+				throw new IllegalArgumentException("Curve3D: Unknown curve type " + kind);
+			}
+			c.setDrawMode(nextDrawMode());
+			c.setCullFace(nextCullFace());
+			c.setMaterial(nextMaterial());
+			return c;
+		}
+		case HULL: {
+			Hull3D h = new Hull3D(nextVertices("Hull3D"));
+			h.setDrawMode(nextDrawMode());
+			h.setCullFace(nextCullFace());
+			h.setMaterial(nextMaterial());
+			return h;
+		}
+		case PATCH: {
+			String kind = nextField();
+			int degree = nextInt();
+			int nu = nextInt();
+			int nv = nextInt();
+			int divisions = nextInt();
+			Point3D[] v = nextVertices("Patch3D");
+			if (nu < 1 || nv < 1 || v.length != (long) nu*nv) {
+				throw new IllegalArgumentException("Patch3D: " + v.length + " control points for " + nu + " x " + nv);
+			}
+			Point3D[][] g = new Point3D[nu][];
+			for (int i = 0; i < nu; i++) {
+				g[i] = Arrays.copyOfRange(v, i*nv, (i + 1)*nv);
+			}
+			Patch3D p;
+			if (kind.equals("BEZIER")) {
+				p = new Patch3D(g);
+			}
+			else if (kind.equals("BSPLINE")) {
+				p = new Patch3D(g, degree);
+			}
+			else {
+				throw new IllegalArgumentException("Patch3D: Unknown patch type " + kind);
+			}
+			p.setDivisions(divisions);
+			p.setDrawMode(nextDrawMode());
+			p.setCullFace(nextCullFace());
+			p.setMaterial(nextMaterial());
+			return p;
+		}
+		case ARRANGEMENT: {
+			double[] box = nextDoubles(6);
+			Plane3D[] planes = new Plane3D[nextInt()];
+			for (int i = 0; i < planes.length; i++) {
+				double[] e = nextDoubles(4);
+				planes[i] = new Plane3D(e[0], e[1], e[2], e[3]);
+			}
+			PlaneArrangement a = new PlaneArrangement(planes, box[0], box[1], box[2], box[3], box[4], box[5]);
+			a.setDrawMode(nextDrawMode());
+			a.setCullFace(nextCullFace());
+			a.setPointMaterial(hasMoreFields() ? toMaterial(nextColor()) : null);
+			a.setMaterial(nextMaterial());
+			return a;
+		}
+		case TRACE: {
+			CurveTrace3D t = new CurveTrace3D(nextInt());
+			Point3D[] v = nextVertices("CurveTrace3D");
+			for (int i = 0; i < v.length; i++) {
+				t.addPoint(v[i].getX(), v[i].getY(), v[i].getZ());
+			}
+			for (int k = 0; k < t.getPolylineCount(); k++) {
+				v = nextVertices("CurveTrace3D");
+				double[] packed = new double[3*v.length];
+				for (int i = 0; i < v.length; i++) {
+					packed[3*i] = v[i].getX();
+					packed[3*i+1] = v[i].getY();
+					packed[3*i+2] = v[i].getZ();
+				}
+				t.setPolyline(k, packed, v.length);
+				t.setPolylineMaterial(k, toMaterial(nextColor()));
+			}
+			t.setDrawMode(nextDrawMode());
+			t.setCullFace(nextCullFace());
+			t.setMaterial(nextMaterial());
+			return t;
+		}
+		case FORMULA: {
+			// Fields separated by ";:" only, as the formula may contain ","
+			Formula3D f = nextFormula();
+			f.setDrawMode(nextDrawMode());
+			f.setCullFace(nextCullFace());
+			f.setMaterial(nextMaterial());
+			return f;
+		}
+		case ISOSURFACE: {
+			// Fields separated by ";:" only, as the formula may contain ","
+			Formula3D f = nextFormula();
+			double level = nextDouble();
+			int divisions = nextInt();
+			double[] box = nextDoubles(6);
+			Isosurface3D s = new Isosurface3D(f, level, divisions, box[0], box[1], box[2], box[3], box[4], box[5]);
+			s.setDrawMode(nextDrawMode());
+			s.setCullFace(nextCullFace());
+			s.setMaterial(nextMaterial());
+			return s;
+		}
+		default:
+			return null;
+		}
+	}
+
+	private Point3D nextPoint() {
+		double x = nextDouble();
+		double y = nextDouble();
+		double z = nextDouble();
+		return new Point3D(x, y, z);
+	}
+
+	private double[] nextDoubles(int n) {
+		double[] v = new double[n];
+		for (int i = 0; i < n; i++) {
+			v[i] = nextDouble();
+		}
+		return v;
+	}
+
+	/**
+	 * Reads optional x, y, z rotations, 0.0 if absent.
+	 */
+	private double[] nextRotation() {
+		double[] r = new double[3];
+		if (hasMoreFields()) {
+			r[0] = nextDouble();
+			r[1] = nextDouble();
+			r[2] = nextDouble();
+		}
+		return r;
+	}
+
+	private DrawMode nextDrawMode() {
+		if (!hasMoreFields()) {
+			return null;
+		}
+		String s = nextField().trim();
+		return s.equals("null") ? null : DrawMode.valueOf(s);
+	}
+
+	private CullFace nextCullFace() {
+		if (!hasMoreFields()) {
+			return null;
+		}
+		String s = nextField().trim();
+		return s.equals("null") ? null : CullFace.valueOf(s);
+	}
+
+	/**
+	 * Reads a formula followed by the values of its parameters.
+	 */
+	private Formula3D nextFormula() {
+		Formula3D f = new Formula3D(nextField().trim());
+		for (String name : f.getParameterNames()) {
+			f.setParameter(name, nextDouble());
+		}
+		return f;
+	}
+
+	private static PhongMaterial toMaterial(Color diffuse) {
+		return (diffuse == null) ? null : new PhongMaterial(diffuse);
+	}
+
+	/**
+	 * Reads an optional diffuse color and specular color as a PhongMaterial.
+	 */
+	private PhongMaterial nextMaterial() {
+		if (!hasMoreFields()) {
+			return null;
+		}
+		Color diffuse = nextColor();
+		if (diffuse == null) {
+			return null;
+		}
+		PhongMaterial m = new PhongMaterial();
+		m.setDiffuseColor(diffuse);
+		if (hasMoreFields()) {
+			Color specular = nextColor();
+			if (specular != null) {
+				m.setSpecularColor(specular);
+			}
+		}
+		return m;
+	}
+
+	/**
+	 * Reads vertices written as ( x, y, z ) up to a field #.
+	 */
+	private Point3D[] nextVertices(String name) {
+		ArrayList<Point3D> v = new ArrayList<Point3D>();
+		while (hasMoreFields()) {
+			int e = field();
+			byte b = buf[pos];
+			boolean single = (e - pos == 1);
+			pos = e;
+			if (single && b == '#') {
+				break;
+			}
+			if (!single || b != '(') {
+				System.out.println(name + ": Error reading data specification in line " + lineNumber);
+				break;
+			}
+			v.add(nextPoint());
+			e = field();
+			single = (e - pos == 1);
+			b = buf[pos];
+			pos = e;
+			if (!single || b != ')') {
+				System.out.println(name + ": Ill formed specification in line " + lineNumber);
+				break;
+			}
+		}
+		return v.toArray(new Point3D[v.size()]);
+	}
+
+	/**
+	 * Closes the data.
+	 *
+	 * @throws	IOException if the data cannot be closed
+	 */
+	public void close() throws IOException {
+		in.close();
+	}
+
+	/**
+	 * Returns a String containing the current line number and type.
+	 *
+	 * @return	String representation of the DataReader
+	 */
+	@Override
+	public String toString() {
+		return "DataReader: line= " + lineNumber + ", type= " + (type < 0 ? "unknown" : TYPES[type]);
+	}
+}
@@ -0,0 +1,278 @@
+package org.edisonwj.draw3d;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import javafx.geometry.Point3D;
+/**
+* DataWriter class writes Draw3D data files in the text format read by DataReader, with
+* the lines of the drawing objects given by their outString() methods. Each view is
+* written as its header lines, DataGroup, View, Camera, Origin and Range, followed by
+* the lines of its objects.
+*
+* The objects are split into chunks of SAVE_CHUNK, and writeGroup() converts a group of
+* chunks to text in parallel and writes them in order, so that only one group is held
+* in memory and the caller may report progress or stop between groups. A file name
+* ending in COMPRESSED_EXTENSION is written with GZIP compression, each chunk being
+* compressed in parallel as a member of the GZIP file. The file is written to a
+* temporary file in the same directory, which commit() moves in place of the file, so
+* that a failed or stopped write leaves any previous file unchanged.
+*
+* The class implements defaults specified in Draw3DDefaults.
+*
+* @author William Edison
+* @version 1.02
+*
+*/
+public class DataWriter implements Draw3DDefaults {
+	private final File file;
+	private final ArrayList<String> headers;
+	private final ArrayList<ArrayList<Object>> drawLists;
+	private final ArrayList<int[]> chunks = new ArrayList<>();	// view, first and following object of each chunk
+	private final int group = Math.max(4*ForkJoinPool.getCommonPoolParallelism(), 1);
+	private final boolean compressed;
+	private final File temp;
+	private OutputStream out;
+	private int written;
+
+	/**
+	 * Constructs a DataWriter object writing views to the specified file. The lists
+	 * must not be changed while the file is written; a String in a draw list is
+	 * written as the lines of an object already converted by writeLines().
+	 *
+	 * @param	file		File data file
+	 * @param	headers		ArrayList of the header lines of each view
+	 * @param	drawLists	ArrayList of the drawing objects of each view
+	 * @throws	IOException if the temporary file cannot be created
+	 */
+	public DataWriter(File file, ArrayList<String> headers, ArrayList<ArrayList<Object>> drawLists) throws IOException {
+		this.file = file;
+		this.headers = headers;
+		this.drawLists = drawLists;
+		for (int v = 0; v < drawLists.size(); v++) {
+			int n = drawLists.get(v).size();
+			for (int lo = 0; lo == 0 || lo < n; lo += SAVE_CHUNK) {
+				chunks.add(new int[] {v, lo, Math.min(lo + SAVE_CHUNK, n)});
+			}
+		}
+		compressed = file.getName().endsWith(DataReader.COMPRESSED_EXTENSION);
+		temp = File.createTempFile(file.getName(), ".tmp", file.getAbsoluteFile().getParentFile());
+		out = new FileOutputStream(temp);
+	}
+
+	/**
+	 * Tests whether chunks of objects remain to be written.
+	 *
+	 * @return	boolean true if writeGroup() has more to write
+	 */
+	public boolean hasMoreChunks() {
+		return written < chunks.size();
+	}
+
+	/**
+	 * Gets the number of chunks of objects written.
+	 *
+	 * @return	int number of chunks written
+	 */
+	public int getChunksWritten() {
+		return written;
+	}
+
+	/**
+	 * Gets the number of chunks of objects to write.
+	 *
+	 * @return	int number of chunks
+	 */
+	public int getChunkCount() {
+		return chunks.size();
+	}
+
+	/**
+	 * Converts the next group of chunks to text, compressing them for a compressed
+	 * file, in parallel and writes them in order.
+	 *
+	 * @throws	IOException if the file cannot be written
+	 * @throws	IllegalArgumentException if an object has no text format
+	 */
+	public void writeGroup() throws IOException {
+		final int first = written;
+		final int last = Math.min(first + group, chunks.size());
+		final byte[][] text = new byte[last - first][];
+		new ParallelRange() {
+			@Override protected void compute(int lo, int hi) {
+				for (int c = lo; c < hi; c++) {
+					int[] chunk = chunks.get(c);
+					byte[] b = writeLines(headers.get(chunk[0]), drawLists.get(chunk[0]), chunk[1], chunk[2])
+							   .getBytes(StandardCharsets.UTF_8);
+					text[c - first] = compressed ? compress(b) : b;
+				}
+			}
+		}.invoke(first, last, 1);
+		for (byte[] b : text) {
+			out.write(b);
+		}
+		written = last;
+	}
+
+	/**
+	 * Completes the file, writing any chunks that remain, and moves it in place of
+	 * the data file.
+	 *
+	 * @throws	IOException if the file cannot be written or moved
+	 * @throws	IllegalArgumentException if an object has no text format
+	 */
+	public void commit() throws IOException {
+		while (hasMoreChunks()) {
+			writeGroup();
+		}
+		out.close();
+		out = null;
+		Files.move(temp.toPath(), file.toPath(),
+				   StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * Closes the file, deleting it unless commit() has moved it in place of the data file.
+	 *
+	 * @throws	IOException if the file cannot be closed or deleted
+	 */
+	public void close() throws IOException {
+		try {
+			if (out != null) {
+				out.close();
+				out = null;
+			}
+		}
+		finally {
+			Files.deleteIfExists(temp.toPath());
+		}
+	}
+
+	/**
+	 * Compresses bytes as a GZIP member; concatenated members form a GZIP file.
+	 *
+	 * @param	b	byte[] bytes to compress
+	 * @return	byte[] GZIP member
+	 */
+	private static byte[] compress(byte[] b) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(b.length/2 + 64);
+		try {
+			GZIPOutputStream gzip = new GZIPOutputStream(out, 1 << 16) {
+				{ def.setLevel(Deflater.BEST_SPEED); }
+			};
+			gzip.write(b);
+			gzip.close();
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * Converts objects lo to hi of a draw list to lines of the text data format,
+	 * preceded by the view's header lines when lo is 0. A String in the draw list is
+	 * written as it is.
+	 *
+	 * @param	header		String DataGroup, View, Camera, Origin and Range lines of the view
+	 * @param	drawList	ArrayList of the drawing objects of the view
+	 * @param	lo			int index of the first object
+	 * @param	hi			int index following the last object
+	 * @return	String text of the lines
+	 * @throws	IllegalArgumentException if an object has no text format
+	 */
+	public static String writeLines(String header, ArrayList<Object> drawList, int lo, int hi) {
+		String nl = System.lineSeparator();
+		StringBuilder sb = new StringBuilder(64*(hi - lo) + header.length());
+		if (lo == 0) {
+			sb.append(header);
+		}
+		for (int j = lo; j < hi; j++) {
+			Object object = drawList.get(j);
+			if (object instanceof String) {
+				sb.append((String)object);
+			}
+			else if (object instanceof Point3D) {
+				Point3D p = (Point3D)object;
+				sb.append("Point: ").append(p.getX()).append(", ")
+				  .append(p.getY()).append(", ").append(p.getZ()).append(nl);
+			}
+			else if (object instanceof Arrow3D) {
+				sb.append(((Arrow3D)object).outString()).append(nl);
+			}
+			else if (object instanceof Box3D) {
+				sb.append(((Box3D)object).outString()).append(nl);
+			}
+			else if (object instanceof Cone3D) {
+				sb.append(((Cone3D)object).outString()).append(nl);
+			}
+			else if (object instanceof Cylinder3D) {
+				sb.append(((Cylinder3D)object).outString()).append(nl);
+			}
+			else if (object instanceof Line3D) {
+				sb.append(((Line3D)object).outString()).append(nl);
+			}
+			else if (object instanceof Oval3D) {
+				sb.append(((Oval3D)object).outString()).append(nl);
+			}
+			else if (object instanceof Plane3D) {
+				sb.append(((Plane3D)object).outString()).append(nl);
+			}
+			else if (object instanceof Polygon3D) {
+				sb.append(((Polygon3D)object).outString()).append(nl);
+			}
+			else if (object instanceof Rectangle3D) {
+				sb.append(((Rectangle3D)object).outString()).append(nl);
+			}
+			else if (object instanceof Sphere3D) {
+				sb.append(((Sphere3D)object).outString()).append(nl);
+			}
+			else if (object instanceof Text3D) {
+				sb.append(((Text3D)object).outString()).append(nl);
+			}
+			else if (object instanceof Triangle3D) {
+				sb.append(((Triangle3D)object).outString()).append(nl);
+			}
+			else if (object instanceof Vector3D) {
+				sb.append(((Vector3D)object).outString()).append(nl);
+			}
+			else if (object instanceof Curve3D) {
+				sb.append(((Curve3D)object).outString()).append(nl);
+			}
+			else if (object instanceof Hull3D) {
+				sb.append(((Hull3D)object).outString()).append(nl);
+			}
+			else if (object instanceof Patch3D) {
+				sb.append(((Patch3D)object).outString()).append(nl);
+			}
+			else if (object instanceof PlaneArrangement) {
+				sb.append(((PlaneArrangement)object).outString()).append(nl);
+			}
+			else if (object instanceof CurveTrace3D) {
+				sb.append(((CurveTrace3D)object).outString()).append(nl);
+			}
+			else if (object instanceof Formula3D) {
+				sb.append(((Formula3D)object).outString()).append(nl);
+			}
+			else if (object instanceof Isosurface3D && ((Isosurface3D)object).getFunction() instanceof Formula3D) {
+				sb.append(((Isosurface3D)object).outString()).append(nl);
+			}
+			else {
+				// Objects defined by code, e.g. a ParametricSurface3D, have no text format
+				throw new IllegalArgumentException("Cannot save " + object + ", only objects defined by data can be saved");
+			}
+		}
+		return sb.toString();
+	}
+}
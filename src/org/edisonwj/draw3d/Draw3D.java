@@ -3,23 +3,28 @@ package org.edisonwj.draw3d;
 import java.awt.Desktop;
 import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.NoSuchElementException;
 import java.util.StringTokenizer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 
+import javafx.animation.AnimationTimer;
 import javafx.concurrent.Task;
+import javafx.concurrent.Worker;
+import javafx.concurrent.WorkerStateEvent;
 import javax.imageio.ImageIO;
 import javafx.geometry.Point3D;
 import javafx.application.Application;
 import javafx.application.Platform;
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
 import javafx.embed.swing.SwingFXUtils;
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
@@ -31,6 +36,7 @@ import javafx.scene.Scene;
 import javafx.scene.SceneAntialiasing;
 import javafx.scene.SnapshotParameters;
 import javafx.scene.SubScene;
+import javafx.scene.control.Alert;
 import javafx.scene.control.CheckMenuItem;
 import javafx.scene.control.Menu;
 import javafx.scene.control.MenuBar;
@@ -53,7 +59,9 @@ import javafx.scene.shape.Sphere;
 import javafx.scene.shape.TriangleMesh;
 import javafx.scene.text.Font;
 import javafx.scene.text.Text;
+import javafx.scene.transform.Affine;
 import javafx.scene.transform.Rotate;
+import javafx.scene.transform.Transform;
 import javafx.scene.transform.Translate;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
@@ -85,6 +93,8 @@ import javafx.stage.Stage;
 * - drawArrow(double x1, double y1, double z1,
 *			  double x2, double y2, double z2)
 * - drawBezier(Point3D[] p)
+* - drawBSpline(Point3D[] p, int degree)
+* - drawBSplinePatch(Point3D[][] p, int degree)
 * - drawCircle(double x, double y, double z, double r)
 * - drawCircle(double x, double y, double z, double r,
 *    		   double rx, double ry, double rz)
@@ -103,6 +113,9 @@ import javafx.stage.Stage;
 * - drawCylinder(double x, double y, double z,
 *				 double r, double h,
 *				 double rx, double ry, double rz)
+* - drawFormula(String formula)
+* - drawHull(Point3D[] p)
+* - drawIsosurface(Function3D f)
 * - drawLabel(double x, double y, double z, String s)
 * - drawLabel(double x, double y, double z,
 *			  double rx, double ry, double rz, String s)
@@ -110,15 +123,22 @@ import javafx.stage.Stage;
 *			 double x2, double y2, double z2)
 * - drawLineEquation(double a1, double a2, double a3,
 *					 double b1, double b2, double b3)
+* - drawLineEquationSet(double[] coefficients)
+* - drawNURBS(Point3D[] p, double[] weights,
+*			  double[] knots, int degree)
 * - drawOval(double xi, double yi, double zi,
 *			 double a, double b)
 * - drawOval(double xi, double yi, double zi,
 *			 double a, double b,
 *			 double rx, double ry, double rz)
+* - drawParametricSurface(ParametricFunction3D f,
+*			double u0, double u1, double v0, double v1)
+* - drawPatch(Point3D[][] p)
 * - drawPlane(double a, double b, double c, double d)
 * - drawPlane(double x1, double y1, double z1,
 *			  double x2, double y2, double z2,
 *			  double x3, double y3, double z3)
+* - drawPlaneArrangement(Plane3D[] pl)
 * - drawPoint(double x, double y, double z)
 * - drawPolygon(Point3D[] v)
 * - drawPolygon(Point3D[] v,
@@ -162,14 +182,22 @@ import javafx.stage.Stage;
 * - drawArrow3D(Arrow3D a3d)
 * - drawBox3D(Box3D b3d)
 * - drawCone3D(Cone3D c3d)
+* - drawCurve3D(Curve3D c3d)
+* - drawCurveTrace3D(CurveTrace3D ct)
 * - drawCylinder3D(Cylinder3D c3d))
 * - drawDrone3D(Drone3D d3d)
+* - drawFormula3D(Formula3D f)
+* - drawHull3D(Hull3D h3d)
+* - drawIsosurface3D(Isosurface3D iso)
 * - drawLabel3D(Text3D t3d)
 * - drawLine3D(Line3D ln)
 * - drawLine3DSet(Line3D[] ln)
 * - drawMesh3D(Mesh3D m3d)
 * - drawOval3D(Oval3D o3d)
+* - drawParametricSurface3D(ParametricSurface3D ps)
+* - drawPatch3D(Patch3D p3d)
 * - drawPlane3D(Plane3D pl)
+* - drawPlaneArrangement(PlaneArrangement pa)
 * - drawPoint3D(Point3D p)
 * - drawPoint3DSet(Point3D[] p)
 * - drawPolygon3D(Polygon3D p3d)
@@ -191,6 +219,7 @@ import javafx.stage.Stage;
 * - setShowBoundaryCube(boolean b)
 * - setBackgroundColor(Color c)
 * - setCumulate(boolean b)
+* - setRangePolicy(int policy)	RANGE_DRAW, RANGE_CLAMP, RANGE_CULL, or RANGE_CLIP
 *
 * - setStart(int i)			Specify initial view to display
 * - setStart()				Start display with view zero
@@ -208,6 +237,9 @@ import javafx.stage.Stage;
 * - setXYZRange(double minmaxX, double minmaxY, double minmaxZ)
 * 		Sets user coordinate space ranges.
 *		(10, 10, 10) is default.
+* - animateTransform(double[][] tmatrix, double seconds)
+* 		Animates the transform of the current view by the matrix,
+*		using the row vector convention of Vector3D.transform().
 * 
 * See JavaDoc for a full description of the classes and methods and 
 * Help.txt for a description of application options, menu options,
@@ -220,6 +252,7 @@ public class Draw3D extends Application implements Draw3DDefaults {
 	
 	private Desktop desktop;
     private Stage stage;
+    private String stageTitle = "Draw3D Version 1.00";			// window title without task progress
     private Scene scene;
     private BorderPane border;
 	private Pane pane;
@@ -260,8 +293,17 @@ public class Draw3D extends Application implements Draw3DDefaults {
 	private ArrayList<int[]> savedOrigin;
 	private ArrayList<double[]> savedRange;
 	private ArrayList<boolean[]> savedViewSettings;
+	private ArrayList<double[]> savedRangeErrors;		// out of range count and bounding box of offending coordinates for each view
+	private int rangePolicy = RANGE_POLICY;
 	private ArrayList<Task<Object>> algorithmTaskList = new ArrayList<>();	// a list of the algorithms that have been loaded
+	private Task<Object> dataTask;								// the data file being loaded, or null
+	private Task<Object> saveTask;								// the data file being saved, or null
+	private PendingViews pendingViews = new PendingViews();	// scene file views read when first displayed
+	private IdentityHashMap<Object, TraceMeshes> traceMeshes = new IdentityHashMap<>();	// meshes of each curve trace, updated in place
+	private IdentityHashMap<Object, PatchMesh> patchMeshes = new IdentityHashMap<>();	// mesh of each patch, updated in place
+	private IdentityHashMap<Object, FormulaSurface> formulaSurfaces = new IdentityHashMap<>();	// sampled surface of each formula
     private ArrayList<Drone3D> droneState = new ArrayList<>();
+    private AnimationTimer transformTimer;						// animation of a linear transform of a view
     private int droneCount = 0;
 	
     private double mousePosX;
@@ -316,7 +358,7 @@ public class Draw3D extends Application implements Draw3DDefaults {
     public void start(Stage stage) throws Exception {
     	this.stage = stage;
     	scene = buildScene();
-        stage.setTitle("Draw3D Version 1.00");
+        stage.setTitle(stageTitle);
         stage.setScene(scene);
         stage.show();
     }
@@ -376,6 +418,7 @@ public class Draw3D extends Application implements Draw3DDefaults {
     	saveRange(0);
     	savedViewSettings = new ArrayList<boolean[]>();		// a list of the View settings associated with each view
     	saveViewSettings(0);
+    	savedRangeErrors = new ArrayList<double[]>();		// a list of the out of range statistics associated with each view
     	
     	drawList = new ArrayList<Object>();					// a list of all the 3D objects in a view
     	saveDrawLists = new ArrayList<ArrayList<Object>>();	// a list of the 3D objects associated with each view
@@ -939,6 +982,11 @@ public class Draw3D extends Application implements Draw3DDefaults {
 //    		objectGroup.getChildren().remove(tickGroup);
     		buildTickMarks();
     	}
+    	
+    	// Clip the objects already drawn to the new range
+    	if (rangePolicy == RANGE_CLIP && drawList != null && !drawList.isEmpty()) {
+    		reDrawView(currentSequenceNum);
+    	}
     }
 	
 	/**
@@ -1392,6 +1440,18 @@ public class Draw3D extends Application implements Draw3DDefaults {
 			task.cancel();
 		}
 		algorithmTaskList.clear();
+		if (dataTask != null) {
+			dataTask.cancel();
+			dataTask = null;
+		}
+		if (saveTask != null) {
+			saveTask.cancel();
+			saveTask = null;
+		}
+		pendingViews.clear();
+		traceMeshes.clear();
+		patchMeshes.clear();
+		formulaSurfaces.clear();
 		droneCount = 0;
 		droneState.clear();
 
@@ -1400,6 +1460,7 @@ public class Draw3D extends Application implements Draw3DDefaults {
 		savedOrigin.clear();
 		savedRange.clear();
 		savedViewSettings.clear();
+		savedRangeErrors.clear();
 		
 		viewNumber = 0;
 		currentSequenceNum = 0;
@@ -1580,6 +1641,7 @@ public class Draw3D extends Application implements Draw3DDefaults {
      * @param	num	Integer number of the initially displayed view
 	 */
     public void setStart(int num) {
+    	reportRangeErrors();
     	Group aGroup;
     	for (int i = 0; i < dataGroup.size(); i++ ) {
     		aGroup = dataGroup.get(i);
@@ -1836,6 +1898,7 @@ public class Draw3D extends Application implements Draw3DDefaults {
      * Initiates a new view in a sequence of views with associated data objects.
      */
 	public void incrSequence() {
+		reportRangeErrors(currentSequenceNum);
 		currentSequenceNum++;
 		saveCamera(currentSequenceNum);
 		saveOrigin(currentSequenceNum);
@@ -1859,6 +1922,171 @@ public class Draw3D extends Application implements Draw3DDefaults {
 		cumulate = b;
 		saveViewSettings(currentSequenceNum);
 	}
+	
+	/**
+	 * Animates the application of a linear transform to all objects of the current view,
+	 * over TRANSFORM_SECONDS seconds. See animateTransform(double[][], double).
+	 * 
+	 * @param	tmatrix	double[3][3] or double[4][4] transform matrix in user space
+	 */
+	public void animateTransform(double[][] tmatrix) {
+		animateTransform(tmatrix, TRANSFORM_SECONDS);
+	}
+	
+	/**
+	 * Animates the application of a linear transform to all objects of the current view,
+	 * from the identity to the specified matrix. The matrix follows the convention of
+	 * Vector3D.transform(), i.e. user space row vectors are multiplied by the matrix and a
+	 * 4x4 matrix holds a translation in row 3.
+	 * 
+	 * The transform is decomposed into a rotation and a symmetric stretch, which are
+	 * interpolated separately (rotation by quaternion slerp) so that rotations turn rather
+	 * than shrink through the origin. Singular matrices, e.g. projections, are interpolated
+	 * linearly. Each frame sets a single Affine on the view's dataGroup; the objects
+	 * themselves are not recomputed or redrawn, and the saved objects are unchanged.
+	 * 
+	 * @param	tmatrix	double[3][3] or double[4][4] transform matrix in user space
+	 * @param	seconds	double duration of the animation in seconds
+	 */
+	public void animateTransform(double[][] tmatrix, double seconds) {
+		stopTransform();
+		final Affine affine = getViewAffine(currentSequenceNum);
+		
+		// Linear map of user space column vectors, l = transpose of the 3x3 part of tmatrix
+		final double[][] l = new double[3][3];
+		for (int i = 0; i < 3; i++) {
+			for (int j = 0; j < 3; j++) {
+				l[i][j] = tmatrix[j][i];
+			}
+		}
+		final double[] tu = new double[3];
+		if (tmatrix.length == 4) {
+			tu[0] = tmatrix[3][0];
+			tu[1] = tmatrix[3][1];
+			tu[2] = tmatrix[3][2];
+		}
+		
+		// Map from user to screen space, s = origin + a * u, and its inverse
+		final double[][] a = new double[3][3];
+		final double[][] ai = new double[3][3];
+		a[0][0] = dX(1.0);
+		if (axesZupCheckItem.isSelected()) {
+			a[1][2] = dZ(1.0);
+			a[2][1] = dY(1.0);
+		}
+		else {
+			a[1][1] = dY(1.0);
+			a[2][2] = dZ(1.0);
+		}
+		for (int i = 0; i < 3; i++) {
+			for (int j = 0; j < 3; j++) {
+				if (a[i][j] != 0.0) {
+					ai[j][i] = 1.0 / a[i][j];
+				}
+			}
+		}
+		final double[] o = {origin[0], origin[1], origin[2]};
+		
+		final double[][] r = new double[3][3];
+		final double[][] s = new double[3][3];
+		final boolean polar = MatrixMath.polarDecompose(l, r, s);
+		final double[] q1 = new double[4];
+		if (polar) {
+			MatrixMath.toQuaternion(r, q1);
+		}
+		final double[] q0 = {1.0, 0.0, 0.0, 0.0};
+		final long duration = (long) (Math.max(seconds, 0.0) * 1.0e9);
+		
+		transformTimer = new AnimationTimer() {
+			private long start = -1;
+			private final double[] q = new double[4];
+			private final double[][] lt = new double[3][3];
+			private final double[][] st = new double[3][3];
+			private final double[][] tmp = new double[3][3];
+			private final double[][] ls = new double[3][3];
+			private final double[] ts = new double[3];
+			
+			@Override
+			public void handle(long now) {
+				if (start < 0) {
+					start = now;
+				}
+				double t = (duration == 0) ? 1.0 : Math.min(1.0, (double) (now - start) / duration);
+				
+				// Interpolated user space map
+				if (polar) {
+					MatrixMath.slerp(q0, q1, t, q);
+					MatrixMath.fromQuaternion(q, tmp);
+					for (int i = 0; i < 3; i++) {
+						for (int j = 0; j < 3; j++) {
+							st[i][j] = t * s[i][j] + ((i == j) ? 1.0 - t : 0.0);
+						}
+					}
+					MatrixMath.multiply(tmp, st, lt);
+				}
+				else {
+					for (int i = 0; i < 3; i++) {
+						for (int j = 0; j < 3; j++) {
+							lt[i][j] = t * l[i][j] + ((i == j) ? 1.0 - t : 0.0);
+						}
+					}
+				}
+				
+				// Screen space map ls = a * lt * ai, translation o + a * t * tu - ls * o
+				MatrixMath.multiply(a, lt, tmp);
+				MatrixMath.multiply(tmp, ai, ls);
+				for (int i = 0; i < 3; i++) {
+					ts[i] = o[i] - ls[i][0]*o[0] - ls[i][1]*o[1] - ls[i][2]*o[2]
+						  + t * (a[i][0]*tu[0] + a[i][1]*tu[1] + a[i][2]*tu[2]);
+				}
+				affine.setToTransform(ls[0][0], ls[0][1], ls[0][2], ts[0],
+									  ls[1][0], ls[1][1], ls[1][2], ts[1],
+									  ls[2][0], ls[2][1], ls[2][2], ts[2]);
+				if (t >= 1.0) {
+					stop();
+				}
+			}
+		};
+		transformTimer.start();
+	}
+	
+	/**
+	 * Stops a running transform animation, leaving the view at its current state.
+	 */
+	public void stopTransform() {
+		if (transformTimer != null) {
+			transformTimer.stop();
+			transformTimer = null;
+		}
+	}
+	
+	/**
+	 * Removes any animated transform from the current view, restoring its objects
+	 * to their drawn positions.
+	 */
+	public void resetTransform() {
+		stopTransform();
+		getViewAffine(currentSequenceNum).setToIdentity();
+	}
+	
+	/**
+	 * Gets the Affine transform of the dataGroup of the specified view, creating it
+	 * when not yet present.
+	 * 
+	 * @param	seqNum	int valued sequence/view number
+	 * @return	Affine transform of the view
+	 */
+	private Affine getViewAffine(int seqNum) {
+		Group aGroup = dataGroup.get(seqNum);
+		for (int i = 0; i < aGroup.getTransforms().size(); i++) {
+			if (aGroup.getTransforms().get(i) instanceof Affine) {
+				return (Affine) aGroup.getTransforms().get(i);
+			}
+		}
+		Affine affine = new Affine();
+		aGroup.getTransforms().add(affine);
+		return affine;
+	}
 	   
     /**
      * Converts an x value in screen coordinate space to user space.
@@ -1935,6 +2163,12 @@ public class Draw3D extends Application implements Draw3DDefaults {
 		if (errorCheck(x1, y1, z1) || errorCheck(x2, y2, z2)) {
     		return;
     	}
+		x1 = rangeX(x1);
+		y1 = rangeY(y1);
+		z1 = rangeZ(z1);
+		x2 = rangeX(x2);
+		y2 = rangeY(y2);
+		z2 = rangeZ(z2);
 		
         Arrow3D a3dt;      
     	if ( axesZupCheckItem.isSelected() ) {
@@ -1980,32 +2214,277 @@ public class Draw3D extends Application implements Draw3DDefaults {
     }
 	
     /**
-     * Draws a Bezier curve defined by the specified array of control points.
+     * Draws a Bezier curve defined by the specified array of control points, as Line3D
+     * segments drawn by drawLine3D(). The curve is tessellated by Curve3D to within
+     * CURVE_TOLERANCE pixels in the current screen scale, from the first to the last
+     * control point. drawCurve3D() draws a Curve3D object as a single TriangleMesh instead.
      * The object is drawn with the color specified by drawMaterial as set by setDrawColor().
      *
      * @param	p	Point3D[] array of control points defining the curve
      */
 	public void drawBezier(Point3D[] p) {
-		int iter = 100;
-		Point3D[] bezierCurve = new Point3D[iter];
-		bezierCurve[0] = p[0];
-		for (int j = 0; j < iter; j++) {
-			double t = j * 1.0/iter;
-			Point3D[] tmp = p.clone();
-		    int i = tmp.length - 1;
-		    int ix = p.length - 1;
-		    while (i > 0) {	
-		        for (int k = 0; k < i; k++) {
-	//				tmp[k] = tmp[k] + t * (tmp[k+1] - tmp[k])
-		            tmp[k] = tmp[k].add(tmp[k+1].subtract(tmp[k]).multiply(t));  
-		        }      		
-		        i--;
-		    }
-		    bezierCurve[j] = tmp[0];
+		double[] pts = new Curve3D(p, drawMaterial).tessellate(CURVE_TOLERANCE,
+								Math.abs(dX(1.0)), Math.abs(dY(1.0)), Math.abs(dZ(1.0)));
+		for (int j = 0; j < pts.length/3 - 1; j++) {
+			drawLine3D(new Line3D(new Point3D(pts[3*j], pts[3*j+1], pts[3*j+2]),
+								  new Point3D(pts[3*j+3], pts[3*j+4], pts[3*j+5]), drawMaterial));
+		}
+	}
+	
+    /**
+     * Draws a uniform B-spline curve defined by the specified array of control points and degree.
+     * The object is drawn with the color specified by drawMaterial as set by setDrawColor().
+     *
+     * @param	p		Point3D[] array of control points defining the curve
+     * @param	degree	int degree of the curve, e.g. 3 for a cubic B-spline
+     */
+	public void drawBSpline(Point3D[] p, int degree) {
+		drawCurve3D(new Curve3D(p, degree, drawMaterial));
+	}
+	
+    /**
+     * Draws a NURBS curve defined by the specified control points, weights, knots and degree.
+     * The object is drawn with the color specified by drawMaterial as set by setDrawColor().
+     *
+     * @param	p		Point3D[] array of control points defining the curve
+     * @param	weights	double array of control point weights, or null for weights of 1
+     * @param	knots	double array of p.length + degree + 1 knots, or null for clamped uniform knots
+     * @param	degree	int degree of the curve
+     */
+	public void drawNURBS(Point3D[] p, double[] weights, double[] knots, int degree) {
+		drawCurve3D(new Curve3D(p, weights, knots, degree, drawMaterial));
+	}
+	
+    /**
+     * Draws the Curve3D object specified as a single TriangleMesh of prisms of radius lineRadius
+     * along its line segments. The curve is tessellated in screen coordinates to within
+     * CURVE_TOLERANCE pixels, so the Curve3D object is kept for re-drawing. The segments
+     * are subject to the range policy like the lines drawn by drawLine3D().
+     *
+     * @param	c3d	Curve3D object to be drawn
+     */
+	public void drawCurve3D(Curve3D c3d) {
+		PhongMaterial m = c3d.getMaterial();
+		if (m == null) {
+			m = drawMaterial;
+			c3d.setMaterial(m);
+		}
+		DrawMode dm = c3d.getDrawMode();
+		if (dm == null) {
+			dm = drawMode;
+			c3d.setDrawMode(dm);
+		}
+		CullFace cf = c3d.getCullFace();
+		if (cf == null) {
+			cf = cullFace;
+			c3d.setCullFace(cf);
+		}
+		
+		double[] pts = c3d.tessellate(CURVE_TOLERANCE, Math.abs(dX(1.0)), Math.abs(dY(1.0)), Math.abs(dZ(1.0)));
+		int n = pts.length/3 - 1;
+		double[] s = new double[6*n];
+		for (int i = 0; i < n; i++) {
+			System.arraycopy(pts, 3*i, s, 6*i, 6);
+		}
+		if (rangePolicy == RANGE_CLIP) {
+			double[] x = new double[n], y = new double[n], z = new double[n];
+			double[] ux = new double[n], uy = new double[n], uz = new double[n];
+			for (int i = 0; i < n; i++) {
+				x[i] = s[6*i];
+				y[i] = s[6*i+1];
+				z[i] = s[6*i+2];
+				ux[i] = s[6*i+3] - x[i];
+				uy[i] = s[6*i+4] - y[i];
+				uz[i] = s[6*i+5] - z[i];
+			}
+			n = Clip3D.clipLines(x, y, z, ux, uy, uz, n, 0.0, 1.0, rangeBox(), s, null);
+		}
+		// Check, cull or clamp the segment end points as drawLine3D() does for each line
+		int k = 0;
+		for (int i = 0; i < n; i++) {
+			int j = 6*i;
+			if (errorCheck(s[j], s[j+1], s[j+2]) || errorCheck(s[j+3], s[j+4], s[j+5])) {
+				continue;
+			}
+			s[6*k]   = rangeX(s[j]);
+			s[6*k+1] = rangeY(s[j+1]);
+			s[6*k+2] = rangeZ(s[j+2]);
+			s[6*k+3] = rangeX(s[j+3]);
+			s[6*k+4] = rangeY(s[j+4]);
+			s[6*k+5] = rangeZ(s[j+5]);
+			k++;
+		}
+		n = k;
+		
+		drawList.add(c3d);
+		if (n > 0) {
+			MeshView meshView = new MeshView(buildPrismMesh(toScreen(s, 2*n), n, lineRadius));
+			meshView.setMaterial(m);
+			meshView.setDrawMode(dm);
+			meshView.setCullFace(cf);
+			Group aGroup = dataGroup.get(currentSequenceNum);
+			aGroup.getChildren().add(meshView);
+		}
+	}
+	
+    /**
+     * Draws the CurveTrace3D object specified, usually a snapshot returned by each step of
+     * a curve animation. The first call for a trace, and any call after the trace has been
+     * reset or the view re-scaled, builds a TriangleMesh of prisms of radius lineRadius for
+     * the traced curve, and one of prisms and octahedra of radius pointSize for each
+     * construction polyline. Later calls append only the segments traced since the previous
+     * call and update the polyline points in place, so the work per step does not grow with
+     * the number of steps. The meshes are kept in traceMeshes by trace, and are added back
+     * to the view after it has been cleared. The latest snapshot replaces the previous one
+     * in the draw list.
+     *
+     * @param	ct	CurveTrace3D object to be drawn
+     */
+	public void drawCurveTrace3D(CurveTrace3D ct) {
+		PhongMaterial m = ct.getMaterial();
+		if (m == null) {
+			m = drawMaterial;
+			ct.setMaterial(m);
+		}
+		DrawMode dm = ct.getDrawMode();
+		if (dm == null) {
+			dm = drawMode;
+			ct.setDrawMode(dm);
+		}
+		CullFace cf = ct.getCullFace();
+		if (cf == null) {
+			cf = cullFace;
+			ct.setCullFace(cf);
+		}
+		
+		int np = ct.getPolylineCount();
+		Group aGroup = dataGroup.get(currentSequenceNum);
+		double[] key = {minX, maxX, minY, maxY, minZ, maxZ, origin[0], origin[1], origin[2],
+						axesZupCheckItem.isSelected() ? 1.0 : 0.0};
+		TraceMeshes tm = traceMeshes.get(ct.getTrace());
+		if (tm == null || (tm.views[0].getParent() != aGroup && tm.views[0].getParent() != null) ||
+			!Arrays.equals(tm.key, key) || tm.resets != ct.getResetCount() || ct.getPointCount() < tm.points) {
+			// Replace any previous meshes with empty ones, filled below
+			if (tm != null) {
+				for (MeshView v : tm.views) {
+					if (v.getParent() instanceof Group) {
+						((Group) v.getParent()).getChildren().remove(v);
+					}
+				}
+			}
+			tm = new TraceMeshes();
+			tm.views = new MeshView[np + 1];
+			tm.counts = new int[np];
+			tm.key = key;
+			tm.resets = ct.getResetCount();
+			tm.listIndex = -1;
+			for (int k = 0; k <= np; k++) {
+				TriangleMesh mesh = new TriangleMesh();
+				mesh.getTexCoords().addAll(0,0);
+				MeshView meshView = new MeshView(mesh);
+				PhongMaterial vm = (k == 0) ? null : ct.getPolylineMaterial(k-1);
+				meshView.setMaterial(vm != null ? vm : m);
+				meshView.setDrawMode(dm);
+				meshView.setCullFace(cf);
+				tm.views[k] = meshView;
+			}
+			traceMeshes.put(ct.getTrace(), tm);
+		}
+		if (tm.views[0].getParent() == null) {
+			aGroup.getChildren().addAll(tm.views);
+		}
+		
+		// Keep the latest snapshot of the trace, once, in the draw list
+		if (tm.listIndex >= 0 && tm.listIndex < drawList.size() && drawList.get(tm.listIndex) == tm.listed) {
+			drawList.set(tm.listIndex, ct);
+		}
+		else {
+			tm.listIndex = drawList.size();
+			drawList.add(ct);
+		}
+		tm.listed = ct;
+		
+		// Append the segments traced since the previous call
+		int from = Math.max(tm.points - 1, 0);
+		double[] p = ct.getPoints(from);
+		int n = p.length/3;
+		if (n > 1) {
+			double[] s = polylineSegments(toScreen(p, n), n);
+			TriangleMesh mesh = (TriangleMesh) tm.views[0].getMesh();
+			int base = mesh.getPoints().size()/3;
+			mesh.getPoints().addAll(prismPoints(s, n-1, lineRadius));
+			mesh.getFaces().addAll(prismFaces(base, n-1));
 		}
-		for (int j = 0; j < iter-1; j++) {
-			drawLine3D(new Line3D(bezierCurve[j], bezierCurve[j+1], drawMaterial));
+		tm.points = from + n;
+		
+		// Update the construction polylines, rebuilding the faces only if the number of points changed
+		for (int k = 0; k < np; k++) {
+			double[] v = ct.getPolyline(k);
+			int c = v.length/3;
+			int ns = Math.max(c-1, 0);
+			double[] vs = toScreen(v, c);
+			float[] segmentPoints = prismPoints(polylineSegments(vs, c), ns, lineRadius);
+			float[] vertexPoints = octahedronPoints(vs, c, pointSize);
+			TriangleMesh mesh = (TriangleMesh) tm.views[k+1].getMesh();
+			if (c == tm.counts[k]) {
+				mesh.getPoints().set(0, segmentPoints, 0, segmentPoints.length);
+				mesh.getPoints().set(segmentPoints.length, vertexPoints, 0, vertexPoints.length);
+			}
+			else {
+				mesh.getFaces().clear();
+				mesh.getPoints().setAll(segmentPoints);
+				mesh.getPoints().addAll(vertexPoints);
+				mesh.getFaces().setAll(prismFaces(0, ns));
+				mesh.getFaces().addAll(octahedronFaces(6*ns, c));
+				tm.counts[k] = c;
+			}
+		}
+	}
+	
+	/**
+	 * Meshes of a CurveTrace3D drawn by drawCurveTrace3D().
+	 */
+	private static final class TraceMeshes {
+		MeshView[] views;				// Traced curve, then one per polyline
+		double[] key;					// Range, origin and axes of the meshes
+		int resets;						// Reset count of the trace drawn
+		int points;						// Traced points in the curve mesh
+		int[] counts;					// Points of each polyline mesh
+		Object listed;					// Snapshot in the draw list, at listIndex
+		int listIndex;
+	}
+	
+	/**
+	 * Mesh of a Patch3D drawn by drawPatch3D().
+	 */
+	private static final class PatchMesh {
+		MeshView view;
+		double[] key;					// Range, origin and axes of the mesh
+		int modCount;					// modCount of the mesh points
+		float[] points;
+	}
+	
+	/**
+	 * Sampled surface of a Formula3D drawn by drawFormula3D().
+	 */
+	private static final class FormulaSurface {
+		ParametricSurface3D surface;
+		double[] key;					// Range, screen scale and parameter values of the samples
+	}
+	
+    /**
+     * Converts packed polyline points to the packed end points of its segments.
+     *
+     * @param	v	double array of packed x, y, z points
+     * @param	n	int number of points
+     * @return	double array of packed x1, y1, z1, x2, y2, z2 segment end points
+     */
+	private double[] polylineSegments(double[] v, int n) {
+		double[] s = new double[6*Math.max(n-1, 0)];
+		for (int i = 0; i < n-1; i++) {
+			System.arraycopy(v, 3*i, s, 6*i, 6);
 		}
+		return s;
 	}
    
     /**
@@ -2043,6 +2522,9 @@ public class Draw3D extends Application implements Draw3DDefaults {
     	if (errorCheck(xi, yi, zi)) {
         		return;
         }
+    	xi = rangeX(xi);
+    	yi = rangeY(yi);
+    	zi = rangeZ(zi);
     	
     	Box b;
     	double x = 0.0;
@@ -2188,6 +2670,9 @@ public class Draw3D extends Application implements Draw3DDefaults {
 		if (errorCheck(xi, yi, zi)) {
 			return;
 		}
+		xi = rangeX(xi);
+		yi = rangeY(yi);
+		zi = rangeZ(zi);
 	
 		Cone c;
 		double x = 0.0;
@@ -2337,6 +2822,9 @@ public class Draw3D extends Application implements Draw3DDefaults {
 		if (errorCheck(xi, yi, zi)) {
 			return;
 		}
+		xi = rangeX(xi);
+		yi = rangeY(yi);
+		zi = rangeZ(zi);
 		
 		Cylinder c;
 		double x = 0.0;
@@ -2533,6 +3021,9 @@ public class Draw3D extends Application implements Draw3DDefaults {
     	if (errorCheck(x, y, z)) {
     		return;
     	}
+    	x = rangeX(x);
+    	y = rangeY(y);
+    	z = rangeZ(z);
     	
     	double xt = dX(x);
     	double yt = dY(y);
@@ -2612,9 +3103,30 @@ public class Draw3D extends Application implements Draw3DDefaults {
     		m = drawMaterial;
     		ln.setMaterial(m);
     	}
+    	if (rangePolicy == RANGE_CLIP) {
+    		Point3D[] c = Clip3D.clipSegment(ln.getp1(), ln.getp2(), rangeBox());
+    		if (c == null) {
+    			if (save) {
+    				drawList.add(ln);
+    			}
+    			return;
+    		}
+    		x1 = c[0].getX();
+    		y1 = c[0].getY();
+    		z1 = c[0].getZ();
+    		x2 = c[1].getX();
+    		y2 = c[1].getY();
+    		z2 = c[1].getZ();
+    	}
     	if (errorCheck(x1, y1, z1) || errorCheck(x2, y2, z2)) {
     		return;
     	}
+    	x1 = rangeX(x1);
+    	y1 = rangeY(y1);
+    	z1 = rangeZ(z1);
+    	x2 = rangeX(x2);
+    	y2 = rangeY(y2);
+    	z2 = rangeZ(z2);
     	
         Line3D lnt;
     	if (axesZupCheckItem.isSelected() ) {
@@ -2678,13 +3190,22 @@ public class Draw3D extends Application implements Draw3DDefaults {
 	 * @param b3	b3 coordinate of Cartesian line equation
 	 */
 	public void drawLineEquation(double a1, double a2, double a3, double b1, double b2, double b3) {
-		Line3D ln = new Line3D(a1, a2, a3, b1, b2, b3, true);
-		Point3D[] intersections = ln.findLineBoundaryIntersections(minX,  maxX,  minY,  maxY,  minZ,  maxZ);
-		if (intersections != null) {
-			drawLine3D(new Line3D(intersections[0], intersections[1], drawMaterial));
-		}
-		else {
-//			System.out.println("Line is outside boundaries of current user space. ln= " + ln.toString());
+		drawLineEquationSet(new double[] {a1, a2, a3, b1, b2, b3});
+	}
+	
+	/**
+	 * Draws a set of lines given by symmetric line equation coefficients between their intersection
+	 * points with the current boundary of the user coordinate space. The lines are clipped to the
+	 * boundary together by Clip3D.clipLineEquations(); lines outside the boundary are not drawn.
+	 * Symmetric line equation: (x-a1)/b1 = (y-a2)/b2 = (z-a3)/b3
+	 * 
+	 * @param coefficients	double array of packed coefficients a1, a2, a3, b1, b2, b3 of each line
+	 */
+	public void drawLineEquationSet(double[] coefficients) {
+		double[] out = new double[coefficients.length];
+		int n = Clip3D.clipLineEquations(coefficients, rangeBox(), out, null);
+		for (int k = 0; k < 6*n; k += 6) {
+			drawLine3D(new Line3D(out[k], out[k+1], out[k+2], out[k+3], out[k+4], out[k+5], drawMaterial));
 		}
 	}
 	
@@ -2717,9 +3238,12 @@ public class Draw3D extends Application implements Draw3DDefaults {
     		m3d.setCullFace(cf);
     	}
     	
-		if (errorCheck(xi, yi, zi)) {
+		if (rangePolicy != RANGE_CLIP && errorCheck(xi, yi, zi)) {
 			return;
 		}
+		xi = rangeX(xi);
+		yi = rangeY(yi);
+		zi = rangeZ(zi);
 	
 		double x = 0.0;
 		double y = 0.0;
@@ -2740,6 +3264,13 @@ public class Draw3D extends Application implements Draw3DDefaults {
 		}
     	
 		TriangleMesh mesh = m3d.getMesh();
+		if (rangePolicy == RANGE_CLIP) {
+			mesh = clipMesh(mesh, x, y, z, rx, ry, rz);
+			if (mesh.getFaces().size() == 0) {
+				drawList.add(m3d);
+				return;
+			}
+		}
 /*		
 		if (axesYupCheckItem.isSelected() ) {
 			int npoints = mesh.getPoints().size();
@@ -2770,6 +3301,72 @@ public class Draw3D extends Application implements Draw3DDefaults {
     	aGroup.getChildren().addAll(meshView);
 	}
 	
+    /**
+     * Computes the convex hull of the points and draws it.
+     * The object is drawn with the color specified by drawMaterial = setDrawColor().
+     *
+     * @param	p	Point3D array of points
+     */
+	public void drawHull(Point3D[] p) {
+		drawHull3D(new Hull3D(p, drawMaterial));
+	}
+	
+    /**
+     * Draws the Hull3D object specified as a single TriangleMesh using drawMesh3D().
+     * The mesh is located at the hull centroid and built in the current screen scale,
+     * so the Hull3D object, rather than the mesh, is kept for re-drawing.
+     *
+     * @param	h3d	Hull3D object to be drawn
+     */
+	public void drawHull3D(Hull3D h3d) {
+		int[] vi = h3d.getVertexIndices();
+		int[] f = h3d.getFaces();
+		if (f.length == 0) {
+			return;
+		}
+		double[] p = h3d.getPoints();
+		Point3D c = h3d.getCentroid();
+		
+		// Mesh points relative to the centroid, indexed by position in vi
+		float[] points = new float[3*vi.length];
+		for (int i = 0; i < vi.length; i++) {
+			int k = 3*vi[i];
+			double x = dX(p[k]   - c.getX());
+			double y = dY(p[k+1] - c.getY());
+			double z = dZ(p[k+2] - c.getZ());
+			points[3*i] = (float)x;
+			if ( axesZupCheckItem.isSelected() ) {
+				points[3*i+1] = (float)z;
+				points[3*i+2] = (float)y;
+			}
+			else {
+				points[3*i+1] = (float)y;
+				points[3*i+2] = (float)z;
+			}
+		}
+		int[] faces = new int[2*f.length];
+		for (int i = 0; i < f.length; i++) {
+			faces[2*i] = Arrays.binarySearch(vi, f[i]);
+		}
+		
+		TriangleMesh mesh = new TriangleMesh();
+		mesh.getPoints().setAll(points);
+		mesh.getTexCoords().addAll(0,0);
+		mesh.getFaces().setAll(faces);
+		
+		Mesh3D m3d = new Mesh3D(mesh, c, 0.0, 0.0, 0.0, h3d.getMaterial());
+		m3d.setDrawMode(h3d.getDrawMode());
+		m3d.setCullFace(h3d.getCullFace());
+		int size = drawList.size();
+		drawMesh3D(m3d);
+		h3d.setMaterial(m3d.getMaterial());
+		h3d.setDrawMode(m3d.getDrawMode());
+		h3d.setCullFace(m3d.getCullFace());
+		if (drawList.size() > size) {
+			drawList.set(size, h3d);
+		}
+	}
+	
     /**
      * Constructs an oval object with specified center points, major radius, minor radius,
      * and drawing parameters and draws it. Rotations default to zero.
@@ -2843,6 +3440,9 @@ public class Draw3D extends Application implements Draw3DDefaults {
 		if (errorCheck(xi, yi, zi)) {
 			return;
 		}
+		xi = rangeX(xi);
+		yi = rangeY(yi);
+		zi = rangeZ(zi);
 	
 		Oval o;
 		double x = 0.0;
@@ -3036,77 +3636,708 @@ public class Draw3D extends Application implements Draw3DDefaults {
     }
     
     /**
-     * Displays a series of points lying in the specified Plane.
-     * 
-     * @param pl	Plane3D object defining a Plane
-     */ 
-    public void drawPlanePoints(Plane3D pl) {   	
-        for (double dx=minX; dx<=maxX; dx=dx+.5) {
-        	for (double dy=minY; dy<=maxY; dy=dy+.5) {
-        		for (double dz=minZ; dz<=maxZ; dz=dz+.5) {
-        			Point3D pt = new Point3D(dx, dy, dz);
-		    	    if (pl.pointInPlane(pt)) {
-		    	    	drawPoint3D(pt);
-		    	    }
-        		}
-        	}
-    	}
+     * Computes the intersections of the planes within the current boundary of the user
+     * coordinate space and draws them.
+     * The object is drawn with the color specified by drawMaterial = setDrawColor().
+     *
+     * @param	pl	Plane3D array of planes
+     */
+    public void drawPlaneArrangement(Plane3D[] pl) {
+    	drawPlaneArrangement(new PlaneArrangement(pl, minX, maxX, minY, maxY, minZ, maxZ, drawMaterial));
     }
     
     /**
-     * Constructs a Sphere3D object corresponding to the point using the coordinates
-     * specified as its center and with radius of size pointSize (in pixels).
-     * Pointsize is converted to user coordinates before calling drawSphere3D.
-     * The object is drawn with the color specified by drawMaterial.
+     * Draws the PlaneArrangement object specified: the segments where two planes intersect
+     * as one TriangleMesh of prisms of radius lineRadius, and the points where three planes
+     * intersect as one TriangleMesh of octahedra of radius pointSize. The intersections are
+     * found again if the boundary of the user coordinate space has changed.
      *
-     * @param	x	y coordinate of point
-     * @param	y	y coordinate of point
-     * @param	z	z coordinate of point
+     * @param	pa	PlaneArrangement object to be drawn
      */
-    public void drawPoint(double x, double y, double z) {   	
-    	Sphere3D s3d = new Sphere3D(new Point3D(x, y, z), uX(pointSize), drawMaterial);
-    	drawSphere3D(s3d);
-	}
+    public void drawPlaneArrangement(PlaneArrangement pa) {
+    	PhongMaterial m = pa.getMaterial();
+    	if (m == null) {
+    		m = drawMaterial;
+    		pa.setMaterial(m);
+    	}
+    	PhongMaterial pm = pa.getPointMaterial();
+    	if (pm == null) {
+    		pm = m;
+    	}
+    	DrawMode dm = pa.getDrawMode();
+    	if (dm == null) {
+    		dm = drawMode;
+    		pa.setDrawMode(dm);
+    	}
+    	CullFace cf = pa.getCullFace();
+    	if (cf == null) {
+    		cf = cullFace;
+    		pa.setCullFace(cf);
+    	}
+    	if (!Arrays.equals(pa.getBox(), rangeBox())) {
+    		pa.findIntersections(minX, maxX, minY, maxY, minZ, maxZ);
+    	}
+    	
+    	drawList.add(pa);
+    	Group aGroup = dataGroup.get(currentSequenceNum);
+    	int ns = pa.getSegmentCount();
+    	if (ns > 0) {
+    		MeshView meshView = new MeshView(buildPrismMesh(toScreen(pa.getSegments(), 2*ns), ns, lineRadius));
+    		meshView.setMaterial(m);
+    		meshView.setDrawMode(dm);
+    		meshView.setCullFace(cf);
+    		aGroup.getChildren().add(meshView);
+    	}
+    	int nq = pa.getPointCount();
+    	if (nq > 0) {
+    		MeshView meshView = new MeshView(buildOctahedronMesh(toScreen(pa.getPoints(), nq), nq, pointSize));
+    		meshView.setMaterial(pm);
+    		meshView.setDrawMode(dm);
+    		meshView.setCullFace(cf);
+    		aGroup.getChildren().add(meshView);
+    	}
+    }
     
     /**
-     * Constructs a Sphere3D object corresponding to the coordinates of the Point3D
-     * specified as its center and with radius of size pointSize (in pixels).
-     * Pointsize is converted to user coordinates before calling drawSphere3D.
-     * The object is drawn with the color specified by drawMaterial.
+     * Draws the surface z = f(x, y) of a formula string over the current x, y range of the
+     * user coordinate space, e.g. drawFormula("cos(sqrt(x^2+y^2))/(2+sqrt(x^2+y^2))").
+     * The object is drawn with the color specified by drawMaterial as set by setDrawColor().
      *
-     * @param	p	Point3D specifying point location
+     * @param	formula	String formula of x and y, see Formula3D
      */
-    public void drawPoint3D(Point3D p) {
-    	Sphere3D s3d = new Sphere3D(p, uX(pointSize), drawMaterial);
-    	drawSphere3D(s3d);
+    public void drawFormula(String formula) {
+    	drawFormula3D(new Formula3D(formula, drawMaterial));
     }
     
     /**
-     * Draws a set of points with specified color.
+     * Draws the Formula3D object specified as the surface z = f(x, y), a single TriangleMesh
+     * with one smoothing group, over the current x, y range. The surface is sampled by a
+     * ParametricSurface3D refined to within SURFACE_TOLERANCE pixels and SURFACE_ANGLE degrees
+     * in the current screen scale, with a budget of FORMULA_SAMPLES points. The samples are kept
+     * for the formula and sampled again only when the range, the screen scale or the parameter
+     * values of the formula have changed, so changed parameters are shown when it is re-drawn.
+     * Triangles at points where f is not finite are left out.
      *
-     * @param	p	Point3D[] array specifying point locations
+     * @param	f	Formula3D object to be drawn
      */
-    public void drawPoint3DSet(Point3D[] p) {
-    	for (int i = 0; i < p.length; i++) {
-    		Point3D pt = p[i];   	
-        	if (errorCheck(pt.getX(), pt.getY(), pt.getZ())) {
-        		return;
-        	}
-        	
+    public void drawFormula3D(Formula3D f) {
+    	PhongMaterial m = f.getMaterial();
+    	if (m == null) {
+    		m = drawMaterial;
+    		f.setMaterial(m);
+    	}
+    	DrawMode dm = f.getDrawMode();
+    	if (dm == null) {
+    		dm = drawMode;
+    		f.setDrawMode(dm);
+    	}
+    	CullFace cf = f.getCullFace();
+    	if (cf == null) {
+    		cf = cullFace;
+    		f.setCullFace(cf);
+    	}
+    	
+    	String[] names = f.getParameterNames();
+    	double[] key = new double[7 + names.length];
+    	key[0] = minX;
+    	key[1] = maxX;
+    	key[2] = minY;
+    	key[3] = maxY;
+    	key[4] = Math.abs(dX(1.0));
+    	key[5] = Math.abs(dY(1.0));
+    	key[6] = Math.abs(dZ(1.0));
+    	for (int i = 0; i < names.length; i++) {
+    		key[7+i] = f.getParameter(names[i]);
+    	}
+    	FormulaSurface fs = formulaSurfaces.get(f);
+    	if (fs == null || !Arrays.equals(fs.key, key)) {
+    		fs = new FormulaSurface();
+    		fs.surface = new ParametricSurface3D(f, minX, maxX, minY, maxY);
+    		fs.surface.refine(SURFACE_TOLERANCE, SURFACE_ANGLE, key[4], key[5], key[6], FORMULA_SAMPLES);
+    		fs.key = key;
+    		formulaSurfaces.put(f, fs);
+    	}
+    	ParametricSurface3D ps = fs.surface;
+    	int np = ps.getPointCount();
+    	double[] p = ps.getPoints();
+    	boolean[] finite = new boolean[np];
+    	for (int k = 0; k < np; k++) {
+    		double z = p[3*k+2];
+    		finite[k] = !Double.isNaN(z) && !Double.isInfinite(z);
+    		if (!finite[k]) {
+    			p[3*k+2] = 0.0;
+    		}
+    	}
+    	double[] s = toScreen(p, np);
+    	float[] points = new float[3*np];
+    	for (int k = 0; k < 3*np; k++) {
+    		points[k] = (float) s[k];
+    	}
+    	int[] t = ps.getTriangles();
+    	int[] faces = new int[2*t.length];
+    	int nf = 0;
+    	for (int k = 0; k < t.length; k += 3) {
+    		if (finite[t[k]] && finite[t[k+1]] && finite[t[k+2]]) {
+    			for (int j = 0; j < 3; j++) {
+    				faces[2*nf+2*j]   = t[k+j];
+    				faces[2*nf+2*j+1] = t[k+j];
+    			}
+    			nf += 3;
+    		}
+    	}
+    	int[] smoothing = new int[nf/3];
+    	Arrays.fill(smoothing, 1);
+    	
+    	TriangleMesh mesh = new TriangleMesh();
+    	mesh.getPoints().setAll(points);
+    	mesh.getTexCoords().setAll(ps.getTexCoords());
+    	mesh.getFaces().setAll(faces, 0, 2*nf);
+    	mesh.getFaceSmoothingGroups().setAll(smoothing);
+    	if (rangePolicy == RANGE_CLIP) {
+    		mesh = clipMesh(mesh, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0);
+    	}
+    	
+    	drawList.add(f);
+    	if (mesh.getFaces().size() > 0) {
+    		MeshView meshView = new MeshView(mesh);
+    		meshView.setMaterial(m);
+    		meshView.setDrawMode(dm);
+    		meshView.setCullFace(cf);
+    		Group aGroup = dataGroup.get(currentSequenceNum);
+    		aGroup.getChildren().add(meshView);
+    	}
+    }
+    
+    /**
+     * Draws the surface F(x, y, z) = 0 within the current boundary of the user coordinate
+     * space, sampled on a grid of ISOSURFACE_DIVISIONS along each axis.
+     * The object is drawn with the color specified by drawMaterial as set by setDrawColor().
+     *
+     * @param	f	Function3D F
+     */
+    public void drawIsosurface(Function3D f) {
+    	drawIsosurface3D(new Isosurface3D(f, 0.0, ISOSURFACE_DIVISIONS, minX, maxX, minY, maxY, minZ, maxZ, drawMaterial));
+    }
+    
+    /**
+     * Draws the Isosurface3D object specified as a single TriangleMesh with one smoothing
+     * group. The surface is found again if the boundary of the user coordinate space has changed.
+     *
+     * @param	iso	Isosurface3D object to be drawn
+     */
+    public void drawIsosurface3D(Isosurface3D iso) {
+    	PhongMaterial m = iso.getMaterial();
+    	if (m == null) {
+    		m = drawMaterial;
+    		iso.setMaterial(m);
+    	}
+    	DrawMode dm = iso.getDrawMode();
+    	if (dm == null) {
+    		dm = drawMode;
+    		iso.setDrawMode(dm);
+    	}
+    	CullFace cf = iso.getCullFace();
+    	if (cf == null) {
+    		cf = cullFace;
+    		iso.setCullFace(cf);
+    	}
+    	if (!Arrays.equals(iso.getBox(), rangeBox())) {
+    		iso.findSurface(minX, maxX, minY, maxY, minZ, maxZ);
+    	}
+    	
+    	drawList.add(iso);
+    	int nt = iso.getTriangleCount();
+    	if (nt == 0) {
+    		return;
+    	}
+    	int np = iso.getPointCount();
+    	double[] s = toScreen(iso.getPoints(), np);
+    	float[] points = new float[3*np];
+    	for (int k = 0; k < 3*np; k++) {
+    		points[k] = (float) s[k];
+    	}
+    	int[] t = iso.getTriangles();
+    	int[] faces = new int[6*nt];
+    	for (int k = 0; k < 3*nt; k++) {
+    		faces[2*k] = t[k];
+    	}
+    	int[] smoothing = new int[nt];
+    	Arrays.fill(smoothing, 1);
+    	
+    	TriangleMesh mesh = new TriangleMesh();
+    	mesh.getPoints().setAll(points);
+    	mesh.getTexCoords().addAll(0,0);
+    	mesh.getFaces().setAll(faces);
+    	mesh.getFaceSmoothingGroups().setAll(smoothing);
+    	MeshView meshView = new MeshView(mesh);
+    	meshView.setMaterial(m);
+    	meshView.setDrawMode(dm);
+    	meshView.setCullFace(cf);
+    	Group aGroup = dataGroup.get(currentSequenceNum);
+    	aGroup.getChildren().add(meshView);
+    }
+    
+    /**
+     * Draws the parametric surface (u, v) -> (x, y, z) over the specified parameter range.
+     * The object is drawn with the color specified by drawMaterial as set by setDrawColor().
+     *
+     * @param	f	ParametricFunction3D (u, v) -> (x, y, z)
+     * @param	u0	double start of the u range
+     * @param	u1	double end of the u range
+     * @param	v0	double start of the v range
+     * @param	v1	double end of the v range
+     */
+    public void drawParametricSurface(ParametricFunction3D f, double u0, double u1, double v0, double v1) {
+    	drawParametricSurface3D(new ParametricSurface3D(f, u0, u1, v0, v1, drawMaterial));
+    }
+    
+    /**
+     * Draws the ParametricSurface3D object specified as a single TriangleMesh with one
+     * smoothing group. The surface is first refined to within SURFACE_TOLERANCE pixels and
+     * SURFACE_ANGLE degrees in the current screen scale, up to a budget of SURFACE_SAMPLES
+     * points; the refinement of earlier draws is kept, so re-drawing at a larger scale only
+     * refines further.
+     *
+     * @param	ps	ParametricSurface3D object to be drawn
+     */
+    public void drawParametricSurface3D(ParametricSurface3D ps) {
+    	PhongMaterial m = ps.getMaterial();
+    	if (m == null) {
+    		m = drawMaterial;
+    		ps.setMaterial(m);
+    	}
+    	DrawMode dm = ps.getDrawMode();
+    	if (dm == null) {
+    		dm = drawMode;
+    		ps.setDrawMode(dm);
+    	}
+    	CullFace cf = ps.getCullFace();
+    	if (cf == null) {
+    		cf = cullFace;
+    		ps.setCullFace(cf);
+    	}
+    	ps.refine(SURFACE_TOLERANCE, SURFACE_ANGLE, Math.abs(dX(1.0)), Math.abs(dY(1.0)), Math.abs(dZ(1.0)),
+    			  SURFACE_SAMPLES);
+    	
+    	int np = ps.getPointCount();
+    	double[] s = toScreen(ps.getPoints(), np);
+    	float[] points = new float[3*np];
+    	for (int k = 0; k < 3*np; k++) {
+    		points[k] = (float) s[k];
+    	}
+    	int[] t = ps.getTriangles();
+    	int nt = t.length/3;
+    	int[] faces = new int[6*nt];
+    	for (int k = 0; k < 3*nt; k++) {
+    		faces[2*k]   = t[k];
+    		faces[2*k+1] = t[k];
+    	}
+    	int[] smoothing = new int[nt];
+    	Arrays.fill(smoothing, 1);
+    	
+    	TriangleMesh mesh = new TriangleMesh();
+    	mesh.getPoints().setAll(points);
+    	mesh.getTexCoords().setAll(ps.getTexCoords());
+    	mesh.getFaces().setAll(faces);
+    	mesh.getFaceSmoothingGroups().setAll(smoothing);
+    	if (rangePolicy == RANGE_CLIP) {
+    		mesh = clipMesh(mesh, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0);
+    	}
+    	
+    	drawList.add(ps);
+    	if (mesh.getFaces().size() > 0) {
+    		MeshView meshView = new MeshView(mesh);
+    		meshView.setMaterial(m);
+    		meshView.setDrawMode(dm);
+    		meshView.setCullFace(cf);
+    		Group aGroup = dataGroup.get(currentSequenceNum);
+    		aGroup.getChildren().add(meshView);
+    	}
+    }
+    
+    /**
+     * Draws a Bezier surface patch defined by the specified grid of control points, of degree
+     * one less than the grid size in each direction, e.g. bicubic for a 4 x 4 grid.
+     * The object is drawn with the color specified by drawMaterial as set by setDrawColor().
+     *
+     * @param	p	Point3D[][] grid of control points defining the patch
+     */
+    public void drawPatch(Point3D[][] p) {
+    	drawPatch3D(new Patch3D(p, drawMaterial));
+    }
+    
+    /**
+     * Draws a uniform B-spline surface patch defined by the specified grid of control points
+     * and degree in each direction.
+     * The object is drawn with the color specified by drawMaterial as set by setDrawColor().
+     *
+     * @param	p		Point3D[][] grid of control points defining the patch
+     * @param	degree	int degree of the patch, e.g. 3 for a bicubic B-spline patch
+     */
+    public void drawBSplinePatch(Point3D[][] p, int degree) {
+    	drawPatch3D(new Patch3D(p, degree, drawMaterial));
+    }
+    
+    /**
+     * Draws the Patch3D object specified as a single TriangleMesh over its grid of surface
+     * points, with shared vertices and one smoothing group so that the patch is shaded
+     * smoothly. If the patch is already drawn in the current view at the current range,
+     * origin and axes, only the mesh points are updated, and only if its control points
+     * have changed, so that a patch returned by each step of an Algorithm is animated
+     * without building a new mesh. Under RANGE_CLIP the mesh is clipped and always rebuilt.
+     *
+     * @param	p3d	Patch3D object to be drawn
+     */
+    public void drawPatch3D(Patch3D p3d) {
+    	PhongMaterial m = p3d.getMaterial();
+    	if (m == null) {
+    		m = drawMaterial;
+    		p3d.setMaterial(m);
+    	}
+    	DrawMode dm = p3d.getDrawMode();
+    	if (dm == null) {
+    		dm = drawMode;
+    		p3d.setDrawMode(dm);
+    	}
+    	CullFace cf = p3d.getCullFace();
+    	if (cf == null) {
+    		cf = cullFace;
+    		p3d.setCullFace(cf);
+    	}
+    	
+    	Group aGroup = dataGroup.get(currentSequenceNum);
+    	boolean zUp = axesZupCheckItem.isSelected();
+    	double[] key = {minX, maxX, minY, maxY, minZ, maxZ, origin[0], origin[1], origin[2], zUp ? 1.0 : 0.0};
+    	int modCount = p3d.getModCount();
+    	int size = 3*p3d.getGridU()*p3d.getGridV();
+    	PatchMesh pm = patchMeshes.get(p3d);
+    	if (rangePolicy != RANGE_CLIP && pm != null && pm.view.getParent() == aGroup &&
+    		Arrays.equals(pm.key, key) && pm.points.length == size) {
+    		// Update the points of the mesh already drawn
+    		if (modCount != pm.modCount) {
+    			p3d.tessellate(pm.points, dX(1.0), dY(1.0), dZ(1.0), zUp);
+    			((TriangleMesh) pm.view.getMesh()).getPoints().set(0, pm.points, 0, size);
+    			pm.modCount = modCount;
+    		}
+    		pm.view.setMaterial(m);
+    		pm.view.setDrawMode(dm);
+    		pm.view.setCullFace(cf);
+    		return;
+    	}
+    	
+    	if (pm != null && pm.view.getParent() == aGroup) {
+    		aGroup.getChildren().remove(pm.view);
+    	}
+    	patchMeshes.remove(p3d);
+    	if (!drawList.contains(p3d)) {
+    		drawList.add(p3d);
+    	}
+    	
+    	float[] points = new float[size];
+    	p3d.tessellate(points, dX(1.0), dY(1.0), dZ(1.0), zUp);
+    	TriangleMesh mesh = new TriangleMesh();
+    	mesh.getPoints().setAll(points);
+    	mesh.getTexCoords().setAll(p3d.getTexCoords());
+    	mesh.getFaces().setAll(p3d.getFaces());
+    	int[] smoothing = new int[mesh.getFaces().size()/6];
+    	Arrays.fill(smoothing, 1);
+    	mesh.getFaceSmoothingGroups().setAll(smoothing);
+    	if (rangePolicy == RANGE_CLIP) {
+    		mesh = clipMesh(mesh, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0);
+    		if (mesh.getFaces().size() == 0) {
+    			return;
+    		}
+    	}
+    	
+    	MeshView meshView = new MeshView(mesh);
+    	meshView.setMaterial(m);
+    	meshView.setDrawMode(dm);
+    	meshView.setCullFace(cf);
+    	meshView.getTransforms().add(new Translate(origin[0], origin[1], origin[2]));
+    	pm = new PatchMesh();
+    	pm.view = meshView;
+    	pm.key = key;
+    	pm.modCount = modCount;
+    	pm.points = points;
+    	patchMeshes.put(p3d, pm);
+    	aGroup.getChildren().add(meshView);
+    }
+    
+    /**
+     * Converts packed user coordinates to packed screen coordinates, including the origin.
+     *
+     * @param	p	double array of packed x, y, z user coordinates
+     * @param	n	int number of points
+     * @return	double array of packed x, y, z screen coordinates
+     */
+    private double[] toScreen(double[] p, int n) {
+    	double[] s = new double[3*n];
+    	boolean zUp = axesZupCheckItem.isSelected();
+    	for (int k = 0; k < 3*n; k += 3) {
+    		s[k] = dX(p[k]) + origin[0];
+    		if (zUp) {
+    			s[k+1] = dZ(p[k+2]) + origin[1];
+    			s[k+2] = dY(p[k+1]) + origin[2];
+    		}
+    		else {
+    			s[k+1] = dY(p[k+1]) + origin[1];
+    			s[k+2] = dZ(p[k+2]) + origin[2];
+    		}
+    	}
+    	return s;
+    }
+    
+    /**
+     * Builds a TriangleMesh of triangular prisms of radius r along line segments, the
+     * batched equivalent of drawing each segment with drawLine3D().
+     *
+     * @param	s	double array of packed segment end points in screen coordinates
+     * @param	n	int number of segments
+     * @param	r	double radius of the prisms in pixels
+     * @return	TriangleMesh of the prisms
+     */
+    private TriangleMesh buildPrismMesh(double[] s, int n, double r) {
+    	TriangleMesh mesh = new TriangleMesh();
+    	mesh.getPoints().setAll(prismPoints(s, n, r));
+    	mesh.getTexCoords().addAll(0,0);
+    	mesh.getFaces().setAll(prismFaces(0, n));
+    	return mesh;
+    }
+    
+    /**
+     * Computes the mesh points of prisms of radius r along line segments, six per segment:
+     * three around the first end point followed by three around the second. A segment of
+     * zero length gives a prism of zero length, so the faces depend only on n.
+     *
+     * @param	s	double array of packed segment end points in screen coordinates
+     * @param	n	int number of segments
+     * @param	r	double radius of the prisms in pixels
+     * @return	float array of packed mesh points
+     */
+    private float[] prismPoints(double[] s, int n, double r) {
+    	float[] points = new float[18*n];
+    	double[] e1 = new double[3];
+    	double[] e2 = new double[3];
+    	int np = 0;
+    	for (int i = 0; i < n; i++) {
+    		int o = 6*i;
+    		double dx = s[o+3] - s[o];
+    		double dy = s[o+4] - s[o+1];
+    		double dz = s[o+5] - s[o+2];
+    		double len = VectorMath.length(dx, dy, dz);
+    		if (len == 0.0) {
+    			dx = 0.0;
+    			dy = 0.0;
+    			dz = 1.0;
+    		}
+    		else {
+    			dx /= len;
+    			dy /= len;
+    			dz /= len;
+    		}
+    		
+    		// Unit vectors e1, e2 perpendicular to the segment, e1 x e2 along it
+    		double ax = Math.abs(dx), ay = Math.abs(dy), az = Math.abs(dz);
+    		if (ax <= ay && ax <= az) {
+    			VectorMath.crossProduct(dx, dy, dz, 1.0, 0.0, 0.0, e1, 0);
+    		}
+    		else if (ay <= az) {
+    			VectorMath.crossProduct(dx, dy, dz, 0.0, 1.0, 0.0, e1, 0);
+    		}
+    		else {
+    			VectorMath.crossProduct(dx, dy, dz, 0.0, 0.0, 1.0, e1, 0);
+    		}
+    		double l1 = VectorMath.length(e1[0], e1[1], e1[2]);
+    		e1[0] /= l1;
+    		e1[1] /= l1;
+    		e1[2] /= l1;
+    		VectorMath.crossProduct(dx, dy, dz, e1[0], e1[1], e1[2], e2, 0);
+    		
+    		for (int end = 0; end < 2; end++) {
+    			for (int k = 0; k < 3; k++) {
+    				double c = r*Math.cos(2.0*Math.PI*k/3.0);
+    				double sn = r*Math.sin(2.0*Math.PI*k/3.0);
+    				points[3*np]   = (float)(s[o+3*end]   + c*e1[0] + sn*e2[0]);
+    				points[3*np+1] = (float)(s[o+3*end+1] + c*e1[1] + sn*e2[1]);
+    				points[3*np+2] = (float)(s[o+3*end+2] + c*e1[2] + sn*e2[2]);
+    				np++;
+    			}
+    		}
+    	}
+    	return points;
+    }
+    
+    /**
+     * Computes the faces of prisms whose points were computed by prismPoints(),
+     * two outward triangles per side.
+     *
+     * @param	base	int index of the first mesh point of the prisms
+     * @param	n		int number of prisms
+     * @return	int array of faces, point and texture coordinate index pairs
+     */
+    private int[] prismFaces(int base, int n) {
+    	int[] faces = new int[36*n];
+    	int nf = 0;
+    	for (int i = 0; i < n; i++) {
+    		for (int k = 0; k < 3; k++) {
+    			int a0 = base + 6*i + k;
+    			int a1 = base + 6*i + (k+1)%3;
+    			int b0 = a0 + 3;
+    			int b1 = a1 + 3;
+    			faces[nf]   = a0;
+    			faces[nf+2] = a1;
+    			faces[nf+4] = b1;
+    			faces[nf+6] = a0;
+    			faces[nf+8] = b1;
+    			faces[nf+10] = b0;
+    			nf += 12;
+    		}
+    	}
+    	return faces;
+    }
+    
+    /**
+     * Builds a TriangleMesh of octahedra of radius r centered at points, the batched
+     * equivalent of drawing each point with drawPoint3D().
+     *
+     * @param	p	double array of packed points in screen coordinates
+     * @param	n	int number of points
+     * @param	r	double radius of the octahedra in pixels
+     * @return	TriangleMesh of the octahedra
+     */
+    private TriangleMesh buildOctahedronMesh(double[] p, int n, double r) {
+    	TriangleMesh mesh = new TriangleMesh();
+    	mesh.getPoints().setAll(octahedronPoints(p, n, r));
+    	mesh.getTexCoords().addAll(0,0);
+    	mesh.getFaces().setAll(octahedronFaces(0, n));
+    	return mesh;
+    }
+    
+    /**
+     * Computes the mesh points of octahedra of radius r centered at points, six per point
+     * in the order +x, -x, +y, -y, +z, -z.
+     *
+     * @param	p	double array of packed points in screen coordinates
+     * @param	n	int number of points
+     * @param	r	double radius of the octahedra in pixels
+     * @return	float array of packed mesh points
+     */
+    private float[] octahedronPoints(double[] p, int n, double r) {
+    	float[] points = new float[18*n];
+    	for (int i = 0; i < n; i++) {
+    		int o = 3*i;
+    		int v = 6*i;
+    		for (int k = 0; k < 3; k++) {
+    			for (int j = 0; j < 3; j++) {
+    				points[3*(v+2*k)+j]   = (float)(p[o+j] + (j == k ? r : 0.0));	// +axis k
+    				points[3*(v+2*k+1)+j] = (float)(p[o+j] - (j == k ? r : 0.0));	// -axis k
+    			}
+    		}
+    	}
+    	return points;
+    }
+    
+    /**
+     * Computes the faces of octahedra whose points were computed by octahedronPoints(),
+     * one outward triangle per octant.
+     *
+     * @param	base	int index of the first mesh point of the octahedra
+     * @param	n		int number of octahedra
+     * @return	int array of faces, point and texture coordinate index pairs
+     */
+    private int[] octahedronFaces(int base, int n) {
+    	int[] faces = new int[48*n];
+    	for (int i = 0, nf = 0; i < n; i++) {
+    		int v = base + 6*i;
+    		for (int octant = 0; octant < 8; octant++) {
+    			int x = v + (octant & 1);
+    			int y = v + 2 + (octant >> 1 & 1);
+    			int z = v + 4 + (octant >> 2 & 1);
+    			boolean even = Integer.bitCount(octant) % 2 == 0;
+    			faces[nf]   = x;
+    			faces[nf+2] = even ? y : z;
+    			faces[nf+4] = even ? z : y;
+    			nf += 6;
+    		}
+    	}
+    	return faces;
+    }
+    
+    /**
+     * Displays a series of points lying in the specified Plane.
+     * 
+     * @param pl	Plane3D object defining a Plane
+     */ 
+    public void drawPlanePoints(Plane3D pl) {   	
+        for (double dx=minX; dx<=maxX; dx=dx+.5) {
+        	for (double dy=minY; dy<=maxY; dy=dy+.5) {
+        		for (double dz=minZ; dz<=maxZ; dz=dz+.5) {
+        			Point3D pt = new Point3D(dx, dy, dz);
+		    	    if (pl.pointInPlane(pt)) {
+		    	    	drawPoint3D(pt);
+		    	    }
+        		}
+        	}
+    	}
+    }
+    
+    /**
+     * Constructs a Sphere3D object corresponding to the point using the coordinates
+     * specified as its center and with radius of size pointSize (in pixels).
+     * Pointsize is converted to user coordinates before calling drawSphere3D.
+     * The object is drawn with the color specified by drawMaterial.
+     *
+     * @param	x	y coordinate of point
+     * @param	y	y coordinate of point
+     * @param	z	z coordinate of point
+     */
+    public void drawPoint(double x, double y, double z) {   	
+    	Sphere3D s3d = new Sphere3D(new Point3D(x, y, z), uX(pointSize), drawMaterial);
+    	drawSphere3D(s3d);
+	}
+    
+    /**
+     * Constructs a Sphere3D object corresponding to the coordinates of the Point3D
+     * specified as its center and with radius of size pointSize (in pixels).
+     * Pointsize is converted to user coordinates before calling drawSphere3D.
+     * The object is drawn with the color specified by drawMaterial.
+     *
+     * @param	p	Point3D specifying point location
+     */
+    public void drawPoint3D(Point3D p) {
+    	Sphere3D s3d = new Sphere3D(p, uX(pointSize), drawMaterial);
+    	drawSphere3D(s3d);
+    }
+    
+    /**
+     * Draws a set of points with specified color.
+     *
+     * @param	p	Point3D[] array specifying point locations
+     */
+    public void drawPoint3DSet(Point3D[] p) {
+    	for (int i = 0; i < p.length; i++) {
+    		Point3D pt = p[i];   	
+        	if (errorCheck(pt.getX(), pt.getY(), pt.getZ())) {
+        		continue;
+        	}
+        	double px = rangeX(pt.getX());
+        	double py = rangeY(pt.getY());
+        	double pz = rangeZ(pt.getZ());
+        	
         	Sphere s = new Sphere(pointSize);
         	s.setMaterial(drawMaterial);
         	double x = 0.0;
         	double y = 0.0;
         	double z = 0.0;
         	if ( axesZupCheckItem.isSelected() ) {
-        		x = dX(pt.getX());
-        		y = dZ(pt.getZ());
-        		z = dY(pt.getY());
+        		x = dX(px);
+        		y = dZ(pz);
+        		z = dY(py);
         	}
         	else {
-        		x = dX(pt.getX());
-        		y = dY(pt.getY());
-        		z = dZ(pt.getZ());
+        		x = dX(px);
+        		y = dY(py);
+        		z = dZ(pz);
         	}
         	s.getTransforms().addAll(new Translate(origin[0]+x, origin[1]+y, origin[2]+z));
            	
@@ -3143,6 +4374,7 @@ public class Draw3D extends Application implements Draw3DDefaults {
      
     /**
      * Draws the polygon object specified. 
+     * A polygon that is not simple cannot be triangulated; it is reported and not drawn.
      *
      * @param	p3d	Polygon3D object to be drawn
      */
@@ -3164,6 +4396,18 @@ public class Draw3D extends Application implements Draw3DDefaults {
     	}
     	    	  
     	Point3D[] v = p3d.getV();
+    	boolean clipped = false;
+    	if (rangePolicy == RANGE_CLIP) {
+    		Point3D[] vc = Clip3D.clipPolygon(v, rangeBox());
+    		if (vc != v) {
+    			clipped = true;
+    			v = vc;
+    			if (v.length < 3) {
+    				drawList.add(p3d);
+    				return;
+    			}
+    		}
+    	}
 /*    	
        	// Draw projections
     	int lc = p3d.findLongestComponent();
@@ -3207,18 +4451,31 @@ public class Draw3D extends Application implements Draw3DDefaults {
     		
     		// Get triangle patterns depending on number of vertices
     		int[][] t;
-    		if (p3d.isConvexPoly()) {
-    			t = p3d.triangulateConvexPolygon();
+    		try {
+    			if (clipped) {
+    				t = Triangulator.triangulate(v);
+    			}
+    			else if (p3d.isConvexPoly()) {
+    				t = p3d.triangulateConvexPolygon();
+    			}
+    			else {
+    				t = p3d.triangulatePolygon();
+    			}
     		}
-    		else {
-    			t = p3d.triangulatePolygon();
+    		catch (IllegalArgumentException e) {
+    			System.out.println("drawPolygon3D: " + e.getMessage() + ", polygon not drawn.");
+    			return;
     		}
     		
     		// Add faces to mesh
+    		int[] faces = new int[6*t.length];
     		for (int i = 0; i < t.length; i++) {
-    			 mesh.getFaces().addAll(t[i][0], 0, t[i][1], 0, t[i][2], 0);
+    			 faces[6*i]   = t[i][0];
+    			 faces[6*i+2] = t[i][1];
+    			 faces[6*i+4] = t[i][2];
 //   			 System.out.println("Adding faces[" + i + "]: " + t[i][0] + ", 0, " + t[i][1] + ", 0, " + t[i][2] + ", 0, " );
     		}
+    		mesh.getFaces().setAll(faces);
 
     		MeshView meshView = new MeshView(mesh);
     		meshView.setMaterial(m);
@@ -3251,7 +4508,7 @@ public class Draw3D extends Application implements Draw3DDefaults {
 	    				Sphere3D vertex = new Sphere3D(v[i], uX(VERTEX_SIZE), blackMaterial);
 	    				drawSphere3D(vertex, false);
 	    			}
-	    			if (p3d.getDrawVertexLabels()) {
+	    			if (p3d.getDrawVertexLabels() && !clipped) {
 	    				Text3D label = new Text3D(v[i].getX(), v[i].getY(), v[i].getZ(),
 	    										  180, 0, 0,
 	    										  ("v" + i),
@@ -3357,6 +4614,9 @@ public class Draw3D extends Application implements Draw3DDefaults {
     	if (errorCheck(xi, yi, zi)) {
     		return;
     	}
+    	xi = rangeX(xi);
+    	yi = rangeY(yi);
+    	zi = rangeZ(zi);
     	
     	drawBox3D(b);
     }
@@ -3419,6 +4679,9 @@ public class Draw3D extends Application implements Draw3DDefaults {
     	if (errorCheck(xi, yi, zi)) {
     		return;
     	}
+    	xi = rangeX(xi);
+    	yi = rangeY(yi);
+    	zi = rangeZ(zi);
     	
     	double x = 0.0;
     	double y = 0.0;
@@ -3559,31 +4822,45 @@ public class Draw3D extends Application implements Draw3DDefaults {
 			cf = cullFace;
 			t3d.setCullFace(cf);
 		}
+		if (rangePolicy == RANGE_CLIP) {
+			v = Clip3D.clipPolygon(v, rangeBox());
+			if (v.length < 3) {
+				drawList.add(t3d);
+				return;
+			}
+		}
 		
 		Point3D[] vp = new Point3D[v.length];
 		for (int i = 0; i < v.length; i++) {
-			errorCheck(v[i].getX(), v[i].getY(), v[i].getZ());
+			if (errorCheck(v[i].getX(), v[i].getY(), v[i].getZ())) {
+				return;
+			}
+			double vx = rangeX(v[i].getX());
+			double vy = rangeY(v[i].getY());
+			double vz = rangeZ(v[i].getZ());
 			if ( axesZupCheckItem.isSelected() ) {
-				vp[i] = new Point3D(dX(v[i].getX()) + origin[0],
-						 			dZ(v[i].getZ()) + origin[1],
-						 			dY(v[i].getY()) + origin[2]);
+				vp[i] = new Point3D(dX(vx) + origin[0],
+						 			dZ(vz) + origin[1],
+						 			dY(vy) + origin[2]);
 			}
 			else {
-				vp[i] = new Point3D(dX(v[i].getX()) + origin[0],
-				 					dY(v[i].getY()) + origin[1],
-				 					dZ(v[i].getZ()) + origin[2]);
+				vp[i] = new Point3D(dX(vx) + origin[0],
+				 					dY(vy) + origin[1],
+				 					dZ(vz) + origin[2]);
 			}
 		}
 	
-		Triangle t = new Triangle(vp);
-
-		t.setMaterial(m);
-		t.setDrawMode(dm);
-		t.setCullFace(cf);
-		
 		drawList.add(t3d);
 		Group aGroup = dataGroup.get(currentSequenceNum);
-		aGroup.getChildren().addAll(t);
+		
+		// A clipped triangle is a convex polygon drawn as a fan of triangles
+		for (int i = 1; i < vp.length-1; i++) {
+			Triangle t = new Triangle(new Point3D[] {vp[0], vp[i], vp[i+1]});
+			t.setMaterial(m);
+			t.setDrawMode(dm);
+			t.setCullFace(cf);
+			aGroup.getChildren().addAll(t);
+		}
 	}
     
     /**
@@ -3635,6 +4912,9 @@ public class Draw3D extends Application implements Draw3DDefaults {
     	if (errorCheck(x, y, z)) {
     		return;
     	}
+    	x = rangeX(x);
+    	y = rangeY(y);
+    	z = rangeZ(z);
     	
     	double x1 = dX(x);
     	double y1 = dY(y);
@@ -3732,22 +5012,76 @@ public class Draw3D extends Application implements Draw3DDefaults {
     	for (int i = 0; i < dataGroup.size(); i++) {
     		Group aGroup = dataGroup.get(i);
     		if (aGroup.isVisible()) {
-    			aGroup.setVisible(false);
-   				aGroup.getChildren().clear();
-    			aGroup.setVisible(true);
-    			ArrayList<Object> oldDrawList = saveDrawLists.get(i);
-    			drawList = new ArrayList<>();
-    			saveDrawLists.set(i, drawList);
-    			viewNumber = i;
-    			currentSequenceNum = i;
-    			for (Object object : oldDrawList) {
-    	    		reDraw(object);
-    			}
+    			reDrawView(i);
     		}
     	}
     	viewNumber = saveViewNumber;
     }
     
+    /**
+     * Re-draws all objects of the specified data group, making it the current view.
+     * 
+     * @param	i	int valued sequence/view number
+     */
+    private void reDrawView(int i) {
+    	readPendingView(i);
+    	Group aGroup = dataGroup.get(i);
+		aGroup.setVisible(false);
+		aGroup.getChildren().clear();
+		aGroup.setVisible(true);
+		ArrayList<Object> oldDrawList = saveDrawLists.get(i);
+		drawList = new ArrayList<>();
+		saveDrawLists.set(i, drawList);
+		viewNumber = i;
+		currentSequenceNum = i;
+		// Recount the out of range coordinates of the objects now in the view
+		double[] re = getRangeErrors(i);
+		double reported = re[7];
+		Arrays.fill(re, 0);
+		for (Object object : oldDrawList) {
+    		reDraw(object);
+		}
+		re[7] = Math.min(reported, re[0]);
+    }
+    
+    /**
+     * Reads the objects of a view of a scene file on its first display, adding them
+     * to the saved draw list of the view. A corrupt view is reported and left empty.
+     * 
+     * @param	i	int valued sequence/view number
+     */
+    private void readPendingView(int i) {
+    	try {
+    		ArrayList<Object> objects = pendingViews.read(i);
+    		if (objects != null) {
+    			saveDrawLists.get(i).addAll(objects);
+    		}
+    	}
+    	catch (IOException e) {
+    		System.out.println("Scene error in view " + i + ": " + e.getMessage());
+    	}
+    }
+    
+    /**
+     * Displays the specified view alone, with its saved settings, as when paging
+     * to it with the B and F keys.
+     * 
+     * @param	view	int valued sequence/view number
+     */
+    private void showView(int view) {
+    	for (int i = 0; i < dataGroup.size(); i++) {
+    		dataGroup.get(i).setVisible(false);
+    	}
+    	viewNumber = view;
+    	getCamera(viewNumber);
+    	getOrigin(viewNumber);
+    	getRange(viewNumber);
+    	getViewSettings(viewNumber);
+    	dataGroup.get(viewNumber).setVisible(true);
+    	reBuildAxesTicks();
+    	reDrawList();
+    }
+    
     /**
      * Invoked by reDrawList() to re-draw the respective object types
      */	
@@ -3755,12 +5089,20 @@ public class Draw3D extends Application implements Draw3DDefaults {
     	if      (object instanceof Arrow3D)     drawArrow3D((Arrow3D) object);
         else if (object instanceof Box3D)       drawBox3D((Box3D) object);
         else if (object instanceof Cone3D)      drawCone3D((Cone3D) object);
+        else if (object instanceof Curve3D)     drawCurve3D((Curve3D) object);
+        else if (object instanceof CurveTrace3D) drawCurveTrace3D((CurveTrace3D) object);
         else if (object instanceof Cylinder3D)  drawCylinder3D((Cylinder3D) object);
         else if (object instanceof Drone3D)     drawDrone3D((Drone3D) object);
+        else if (object instanceof Formula3D)   drawFormula3D((Formula3D) object);
+        else if (object instanceof Hull3D)      drawHull3D((Hull3D) object);
+        else if (object instanceof Isosurface3D) drawIsosurface3D((Isosurface3D) object);
         else if (object instanceof Line3D)      drawLine3D((Line3D) object);
         else if (object instanceof Mesh3D)  	drawMesh3D((Mesh3D) object);
         else if (object instanceof Oval3D)      drawOval3D((Oval3D) object);
+        else if (object instanceof ParametricSurface3D) drawParametricSurface3D((ParametricSurface3D) object);
+        else if (object instanceof Patch3D)     drawPatch3D((Patch3D) object);
         else if (object instanceof Plane3D)     drawPlane3D((Plane3D) object);
+        else if (object instanceof PlaneArrangement) drawPlaneArrangement((PlaneArrangement) object);
         else if (object instanceof Point3D)     drawPoint3D((Point3D) object);
         else if (object instanceof Polygon3D)   drawPolygon3D((Polygon3D) object);
         else if (object instanceof Rectangle3D) drawRectangle3D((Rectangle3D) object);
@@ -3773,18 +5115,191 @@ public class Draw3D extends Application implements Draw3DDefaults {
     
     /**
      * Flags coordinates exceeding current x,y,z minimums or maximums.
-     * Drawing of the respective objects continues.
+     * Offending coordinates are counted and their bounding box accumulated
+     * for the current view; nothing is printed here so that large point sets
+     * remain fast. The totals are reported once per view by reportRangeErrors,
+     * and are recounted from the draw list whenever the view is re-drawn.
+     *
+     * @param	x	x coordinate in user space
+     * @param	y	y coordinate in user space
+     * @param	z	z coordinate in user space
+     * @return	true if the object is to be culled (RANGE_CULL or RANGE_CLIP policy), otherwise false
      */	
     private boolean errorCheck(double x, double y, double z) {
     	if (x < minX || x > maxX ||
     		y < minY || y > maxY ||
     		z < minZ || z > maxZ    ) {
-    		System.out.println("Coordinate out of bounds: (x, y, z)= " + "(" + x + ", " + y + ", " + z +  ")\n" +
-    						   "minmaxX= -+" + maxX + ", minmaxY= -+" + maxY  + ", minmaxZ= -+" + maxZ);
+    		double[] re = getRangeErrors(currentSequenceNum);
+    		if (re[0] == 0) {
+    			re[1] = re[4] = x;
+    			re[2] = re[5] = y;
+    			re[3] = re[6] = z;
+    		}
+    		else {
+    			if (x < re[1]) re[1] = x;
+    			if (y < re[2]) re[2] = y;
+    			if (z < re[3]) re[3] = z;
+    			if (x > re[4]) re[4] = x;
+    			if (y > re[5]) re[5] = y;
+    			if (z > re[6]) re[6] = z;
+    		}
+    		re[0]++;
+    		return rangePolicy == RANGE_CULL || rangePolicy == RANGE_CLIP;
     	}
     	return false;
     }
     
+    /**
+     * Limits an x coordinate to the current x range when the RANGE_CLAMP policy is set.
+     *
+     * @param	x	x coordinate in user space
+     * @return	x	clamped x coordinate, or the unchanged value for other policies
+     */
+    private double rangeX(double x) {
+    	return (rangePolicy == RANGE_CLAMP) ? Math.max(minX, Math.min(maxX, x)) : x;
+    }
+    
+    /**
+     * Limits a y coordinate to the current y range when the RANGE_CLAMP policy is set.
+     *
+     * @param	y	y coordinate in user space
+     * @return	y	clamped y coordinate, or the unchanged value for other policies
+     */
+    private double rangeY(double y) {
+    	return (rangePolicy == RANGE_CLAMP) ? Math.max(minY, Math.min(maxY, y)) : y;
+    }
+    
+    /**
+     * Limits a z coordinate to the current z range when the RANGE_CLAMP policy is set.
+     *
+     * @param	z	z coordinate in user space
+     * @return	z	clamped z coordinate, or the unchanged value for other policies
+     */
+    private double rangeZ(double z) {
+    	return (rangePolicy == RANGE_CLAMP) ? Math.max(minZ, Math.min(maxZ, z)) : z;
+    }
+    
+    /**
+     * Sets the handling of objects with coordinates outside the current x,y,z range.
+     * - RANGE_DRAW	 objects are drawn as specified (default)
+     * - RANGE_CLAMP object locations are limited to the range boundary
+     * - RANGE_CULL	 objects are not drawn
+     * - RANGE_CLIP	 lines, triangles, polygons and meshes are clipped to the range box
+     * 				 (again whenever setXYZRange() changes it); other objects are not drawn
+     * In all cases the out of range coordinates of objects that are not clipped are counted for the view.
+     *
+     * @param	policy	int RANGE_DRAW, RANGE_CLAMP, RANGE_CULL, or RANGE_CLIP
+     */
+    public void setRangePolicy(int policy) {
+    	if (policy != RANGE_DRAW && policy != RANGE_CLAMP && policy != RANGE_CULL && policy != RANGE_CLIP) {
+    		System.out.println("setRangePolicy: Unknown policy " + policy + ", using RANGE_DRAW");
+    		policy = RANGE_DRAW;
+    	}
+    	rangePolicy = policy;
+    }
+    
+    /**
+     * Gets the handling of objects with coordinates outside the current x,y,z range.
+     *
+     * @return	rangePolicy	int RANGE_DRAW, RANGE_CLAMP, RANGE_CULL, or RANGE_CLIP
+     */
+    public int getRangePolicy() {
+    	return rangePolicy;
+    }
+    
+    /**
+     * Gets the current x,y,z range as a box for Clip3D.
+     *
+     * @return	double[6] {minX, maxX, minY, maxY, minZ, maxZ}
+     */
+    private double[] rangeBox() {
+    	return new double[] {minX, maxX, minY, maxY, minZ, maxZ};
+    }
+    
+    /**
+     * Clips a mesh drawn by drawMesh3D() to the range box. The box planes are transformed
+     * into the coordinates of the mesh points, undoing the translation to the screen
+     * location x, y, z and the x, y, z rotations of the MeshView.
+     *
+     * @param	mesh	TriangleMesh to be clipped
+     * @return	TriangleMesh clipped mesh, or mesh itself if it is wholly inside the range
+     */
+    private TriangleMesh clipMesh(TriangleMesh mesh, double x, double y, double z,
+    							  double rx, double ry, double rz) {
+    	double[] box;
+    	if (axesZupCheckItem.isSelected()) {
+    		box = new double[] {dX(minX), dX(maxX), dZ(minZ), dZ(maxZ), dY(minY), dY(maxY)};
+    	}
+    	else {
+    		box = new double[] {dX(minX), dX(maxX), dY(minY), dY(maxY), dZ(minZ), dZ(maxZ)};
+    	}
+    	double[] planes = Clip3D.boxPlanes(box);
+    	Transform r = new Rotate(rx, Rotate.X_AXIS)
+    						.createConcatenation(new Rotate(ry, Rotate.Y_AXIS))
+    						.createConcatenation(new Rotate(rz, Rotate.Z_AXIS));
+    	for (int k = 0; k < planes.length; k += 4) {
+    		double a = planes[k], b = planes[k+1], c = planes[k+2];
+    		planes[k]   = r.getMxx()*a + r.getMyx()*b + r.getMzx()*c;
+    		planes[k+1] = r.getMxy()*a + r.getMyy()*b + r.getMzy()*c;
+    		planes[k+2] = r.getMxz()*a + r.getMyz()*b + r.getMzz()*c;
+    		planes[k+3] -= a*x + b*y + c*z;
+    	}
+    	return Clip3D.clipMesh(mesh, planes, 6);
+    }
+    
+    /**
+     * Gets the out of range statistics for the specified sequence/view number.
+     * The returned array contains:
+     * [0] count of out of range coordinates
+     * [1], [2], [3] minimum x, y, z of the out of range coordinates
+     * [4], [5], [6] maximum x, y, z of the out of range coordinates
+     * [7] non-zero once the statistics have been reported
+     *
+     * @param	seqNum	int valued sequence/view number
+     * @return	double array of out of range statistics
+     */
+    private double[] getRangeErrors(int seqNum) {
+    	while (savedRangeErrors.size() <= seqNum) {
+    		savedRangeErrors.add(new double[8]);
+    	}
+    	return savedRangeErrors.get(seqNum);
+    }
+    
+    /**
+     * Gets the number of out of range coordinates encountered in the specified view.
+     *
+     * @param	seqNum	int valued sequence/view number
+     * @return	int count of out of range coordinates
+     */
+    public int getRangeErrorCount(int seqNum) {
+    	return (int) getRangeErrors(seqNum)[0];
+    }
+    
+    /**
+     * Prints, once, the out of range statistics of all views not yet reported.
+     */
+    public void reportRangeErrors() {
+    	for (int i = 0; i < savedRangeErrors.size(); i++) {
+    		reportRangeErrors(i);
+    	}
+    }
+    
+    /**
+     * Prints, once, the out of range statistics for the specified view.
+     * Further out of range coordinates drawn to the view are reported again.
+     *
+     * @param	seqNum	int valued sequence/view number
+     */
+    private void reportRangeErrors(int seqNum) {
+    	double[] re = getRangeErrors(seqNum);
+    	if (re[0] > re[7]) {
+    		System.out.println("View " + seqNum + ": " + (long) (re[0] - re[7]) + " coordinates out of bounds, " +
+    						   "(" + re[1] + ", " + re[2] + ", " + re[3] + ") to (" + re[4] + ", " + re[5] + ", " + re[6] + ")\n" +
+    						   "minmaxX= -+" + maxX + ", minmaxY= -+" + maxY  + ", minmaxZ= -+" + maxZ);
+    		re[7] = re[0];
+    	}
+    }
+    
     /**
      * Creates MenuBar items and defines associated actions.
      */	    
@@ -3803,7 +5318,7 @@ public class Draw3D extends Application implements Draw3DDefaults {
 //        		String currentDirectory = System.getProperty("user.dir");
             	fileChooser.setInitialDirectory(new File(currentDirectory));
             	fileChooser.getExtensionFilters().addAll(
-            	         new FileChooser.ExtensionFilter("Data Files", "*.txt"),
+            	         new FileChooser.ExtensionFilter("Data Files", "*.txt", "*" + DataReader.COMPRESSED_EXTENSION),
             	         new FileChooser.ExtensionFilter("Image Files", "*.png", "*.jpg", "*.gif"),
             	         new FileChooser.ExtensionFilter("Audio Files", "*.wav", "*.mp3", "*.aac"),
             	         new FileChooser.ExtensionFilter("All Files", "*.*"));
@@ -3825,7 +5340,8 @@ public class Draw3D extends Application implements Draw3DDefaults {
 //        		String currentDirectory = System.getProperty("user.dir");
             	fileChooser.setInitialDirectory(new File(currentDirectory));
             	fileChooser.getExtensionFilters().addAll(
-            	         new FileChooser.ExtensionFilter("Data Files", "*.txt"));
+            	         new FileChooser.ExtensionFilter("Data Files", "*.txt", "*" + DataReader.COMPRESSED_EXTENSION),
+            	         new FileChooser.ExtensionFilter("Scene Files", "*" + SceneFile.EXTENSION));
             	File file = fileChooser.showOpenDialog(stage);
                 if (file != null) {
                 	System.out.println("Load file: " + file.toString());
@@ -3834,6 +5350,18 @@ public class Draw3D extends Application implements Draw3DDefaults {
             }
         });
         
+        MenuItem cancelLoadItem = new MenuItem("Cancel Load");
+        cancelLoadItem.setOnAction(new EventHandler<ActionEvent>() {
+            @Override public void handle(ActionEvent e) {
+            	if (dataTask != null) {
+            		dataTask.cancel();
+            	}
+            	if (saveTask != null) {
+            		saveTask.cancel();
+            	}
+            }
+        });
+        
         MenuItem runAlgorithmItem = new MenuItem("Run Algorithm");
         runAlgorithmItem.setOnAction(new EventHandler<ActionEvent>() {
             @Override public void handle(ActionEvent ae) {
@@ -3961,11 +5489,17 @@ public class Draw3D extends Application implements Draw3DDefaults {
 //        		String currentDirectory = System.getProperty("user.dir");
             	fileChooser.setInitialDirectory(new File(currentDirectory));
             	fileChooser.getExtensionFilters().addAll(
-            	         new FileChooser.ExtensionFilter("Data Files", "*.txt"));
+            	         new FileChooser.ExtensionFilter("Data Files", "*.txt", "*" + DataReader.COMPRESSED_EXTENSION),
+            	         new FileChooser.ExtensionFilter("Scene Files", "*" + SceneFile.EXTENSION));
             	File file = fileChooser.showSaveDialog(stage);
                 if (file != null) {
                 	System.out.println("Save file: " + file.toString());
-                	writeData(file);
+                	if (file.getName().endsWith(SceneFile.EXTENSION)) {
+                		writeScene(file);
+                	}
+                	else {
+                		writeData(file);
+                	}
                 }
             }
         });
@@ -4018,7 +5552,7 @@ public class Draw3D extends Application implements Draw3DDefaults {
 	        }
 	    });
         
-        mainMenu.getItems().addAll( openItem, loadDataItem,
+        mainMenu.getItems().addAll( openItem, loadDataItem, cancelLoadItem,
         							runAlgorithmItem, loadAlgorithmsItem, runAlgorithmsItem,
         						    saveDataItem, saveSceneMenu, saveSubSceneMenu);
         
@@ -4126,126 +5660,322 @@ public class Draw3D extends Application implements Draw3DDefaults {
         }
     }
     
+	/**
+	 * Loads a data file in the background. Lines are parsed and their objects built
+	 * by a Task; the objects are drawn on the FX application thread in batches of
+	 * LOAD_BATCH lines and at the end of each DataGroup, so that completed views are
+	 * displayed while the rest of the file loads. Progress is shown in the window title
+	 * and the load, or a save, may be stopped by the Cancel Load selection of the Main Menu.
+	 * Files with the SceneFile extension are loaded from the binary scene format.
+	 * 
+	 * @param	file	File data file or scene file
+	 */
 	private void readData(File file) {
-//		if (!Arrays.equals(origin, originView)) {
-//			origin = Arrays.copyOf(originView, originView.length);
-//			reBuildAxesTicks();
-//	    	dataGroup.get(viewNumber).setVisible(false);
-//	    	Group aGroup = new Group();
-//	    	aGroup.setVisible(true);
-//	    	dataGroup.set(viewNumber,  aGroup);
-//		}
-//		currentSequenceNum = viewNumber;	
-		try {
-			String lineString;
-			String dataType;	
-			BufferedReader in = new BufferedReader(new FileReader(file));
-			
-			while ((lineString = in.readLine()) != null) {
-				StringTokenizer st = new StringTokenizer(lineString, ",;: ");
-				dataType = st.nextToken().trim();
-				
-				if (dataType.equals("//")) {
-					continue;
+		if (dataTask != null) {
+			dataTask.cancel();
+		}
+		Task<Object> task = file.getName().endsWith(SceneFile.EXTENSION) ? buildSceneTask(file) : buildDataTask(file);
+		dataTask = task;
+		runFileTask(task, "Load Data");
+	}
+	
+	/**
+	 * Runs a Task loading or saving a file on a background thread, showing its
+	 * failure in an error dialog. When Draw3D runs as the application, i.e. was
+	 * started by start(), the progress messages are shown in the window title after
+	 * stageTitle; the title of an application that builds its own Stage around
+	 * buildScene() is left unchanged.
+	 * 
+	 * @param	task	Task loading or saving a file
+	 * @param	name	String name of the thread
+	 */
+	private void runFileTask(Task<Object> task, String name) {
+		task.messageProperty().addListener(new ChangeListener<String>() {
+			@Override public void changed(ObservableValue<? extends String> o, String oldValue, String newValue) {
+				if (stage != null) {
+					stage.setTitle(stageTitle + " - " + newValue);
 				}
-				else if (dataType.equals("DataGroup")) {
-					for (int i = 0; i < dataGroup.size(); i++) {
-						dataGroup.get(i).setVisible(false);
-					}
-					currentSequenceNum = dataGroup.size()-1;
-					incrSequence();
-					dataGroup.get(currentSequenceNum).setVisible(true);
-					viewNumber = currentSequenceNum;
+			}
+		});
+		EventHandler<WorkerStateEvent> done = new EventHandler<WorkerStateEvent>() {
+			@Override public void handle(WorkerStateEvent e) {
+				if (stage != null) {
+					stage.setTitle(stageTitle);
 				}
-				else if (dataType.equals("View")) {
-					boolean[] viewSettings = new boolean[st.countTokens()];
-					int i = 0;
-					while (st.hasMoreTokens()) {
-						viewSettings[i++] = Boolean.valueOf(st.nextToken());
-					}
-				setViewSettings(viewSettings);
+				if (task.getState() == Worker.State.FAILED) {
+					System.out.println("File error: " + task.getException());
+					showError(name, String.valueOf(task.getException().getMessage()));
 				}
-				else if (dataType.equals("Camera")) {
-					double xAngle = Double.valueOf(st.nextToken()).doubleValue();
-					double yAngle = Double.valueOf(st.nextToken()).doubleValue();
-					double zDistance = Double.valueOf(st.nextToken()).doubleValue();
-					setCamera(xAngle, yAngle, zDistance);
+				else {
+					System.out.println(name + " " + task.getState().toString().toLowerCase() + ": " + task.getMessage());
 				}
-				else if (dataType.equals("Origin")) {
-					int xOrigin = Integer.valueOf(st.nextToken());
-					int yOrigin = Integer.valueOf(st.nextToken());
-					int zOrigin = Integer.valueOf(st.nextToken());
-					setOriginView(xOrigin, yOrigin, zOrigin);
+				if (dataTask == task) {
+					dataTask = null;
 				}
-				else if (dataType.equals("Range")) {
-					double minmaxX = Double.valueOf(st.nextToken()).doubleValue();
-					double minmaxY = Double.valueOf(st.nextToken()).doubleValue();
-					double minmaxZ = Double.valueOf(st.nextToken()).doubleValue();
-					setXYZRange(minmaxX, minmaxY, minmaxZ);	
+				if (saveTask == task) {
+					saveTask = null;
 				}
-				else if (dataType.equals("Color")) {
-					Color c1 = Color.web(st.nextToken());
-					setDrawColor(c1);
-					if (st.hasMoreTokens()) {
-						Color c2 = Color.web(st.nextToken());
-						setDrawColor(c1, c2);
+			}
+		};
+		task.setOnSucceeded(done);
+		task.setOnCancelled(done);
+		task.setOnFailed(done);
+		Thread thread = new Thread(task, name);
+		thread.setDaemon(true);
+		thread.start();
+	}
+	
+	/**
+	 * Shows an error message in a dialog.
+	 * 
+	 * @param	title	String title of the dialog
+	 * @param	message	String error message
+	 */
+	private void showError(String title, String message) {
+		Alert alert = new Alert(Alert.AlertType.ERROR, message);
+		alert.setTitle(title);
+		alert.setHeaderText(null);
+		alert.initOwner(stage);
+		alert.show();
+	}
+	
+	/**
+	 * Builds the Task that loads a data file: the Task reads the lines and creates
+	 * the objects, and passes them to the FX application thread in order, a batch
+	 * of objects at a time and each View, Camera, Origin, Range or Color setting
+	 * on its own. A batch is passed only when the previous batch has been drawn,
+	 * so that reading does not run ahead of drawing and the progress shown is that
+	 * of the objects drawn.
+	 * 
+	 * @param	file	File data file
+	 * @return	dataTask	Task ready for execution
+	 */
+	private Task<Object> buildDataTask(File file) {
+		Task<Object> task = new Task<Object>() {
+			private final Semaphore drawn = new Semaphore(1);		// released when the last batch is drawn
+			
+			@Override public Object call() throws Exception {
+				long length = file.length();
+				boolean compressed = file.getName().endsWith(DataReader.COMPRESSED_EXTENSION);
+				ArrayList<Object> batch = new ArrayList<>();
+				DataReader in = new DataReader(file);
+				try {
+					updateMessage("Loading " + file.getName());
+					while (in.nextLine()) {
+						if (isCancelled()) {
+							break;
+						}
+						int type = in.getType();
+						try {
+							if (type == DataReader.COMMENT) {
+								continue;
+							}
+							else if (type == DataReader.UNKNOWN) {
+								System.out.println("Unknown data type in line " + in.getLineNumber());
+							}
+							else if (type >= DataReader.ARROW) {
+								batch.add(in.readObject());
+							}
+							else {
+								// Settings apply to the objects that follow them
+								flush(batch);
+								batch = new ArrayList<>();
+								Platform.runLater(buildSetting(this, in));
+							}
+						}
+						catch (IllegalArgumentException | NoSuchElementException e) {
+							System.out.println("Data error in line " + in.getLineNumber() + ": " + e);
+						}
+						if (batch.size() >= LOAD_BATCH || type == DataReader.DATA_GROUP) {
+							flush(batch);
+							batch = new ArrayList<>();
+							if (compressed) {
+								updateMessage("Loading " + file.getName() + " " + in.getLineNumber() + " lines");
+							}
+							else {
+								updateProgress(in.getPosition(), length);
+								updateMessage("Loading " + file.getName() + " " +
+											  (100*in.getPosition()/Math.max(length, 1)) + "%, " +
+											  in.getLineNumber() + " lines");
+							}
+						}
 					}
+					flush(batch);
+					drawn.acquire();
+					drawn.release();
+					updateProgress(length, length);
+					updateMessage(file.getName() + ", " + in.getLineNumber() + " lines");
 				}
-				else if (dataType.equals("Arrow")) {
-					drawArrow3D(new Arrow3D(lineString));
-				}
-				else if (dataType.equals("Box")) {
-					drawBox3D(new Box3D(lineString));
-				}
-				else if (dataType.equals("Cone")) {
-					drawCone3D(new Cone3D(lineString));
-				}
-				else if (dataType.equals("Cylinder")) {
-					drawCylinder3D(new Cylinder3D(lineString));
+				finally {
+					in.close();
 				}
-				else if (dataType.equals("Line")) {
-					drawLine3D(new Line3D(lineString));
-				}
-				else if (dataType.equals("Oval")) {
-					drawOval3D(new Oval3D(lineString));
-				}
-				else if (dataType.equals("Plane")) {
-					drawPlane3D(new Plane3D(lineString));
-				}
-				else if (dataType.equals("Polygon")) {
-					drawPolygon3D(new Polygon3D(lineString));
-				}
-				else if (dataType.equals("Point")) {
-					double x = Double.valueOf(st.nextToken()).doubleValue();
-					double y = Double.valueOf(st.nextToken()).doubleValue();
-					double z = Double.valueOf(st.nextToken()).doubleValue();
-					Point3D p = new Point3D(x, y, z);
-					drawPoint3D(p);
-				}
-				else if (dataType.equals("Rectangle")) {
-					drawRectangle3D(new Rectangle3D(lineString));
-				}
-				else if (dataType.equals("Sphere")) {
-					drawSphere3D(new Sphere3D(lineString));
-				}
-				else if (dataType.equals("Text")) {
-					drawLabel3D(new Text3D(lineString));
-				}
-				else if (dataType.equals("Triangle")) {
-					drawTriangle3D(new Triangle3D(lineString));
-				}
-				else if (dataType.equals("Vector")) {
-					drawVector3D(new Vector3D(lineString));
+				return null;
+			}
+			
+			/**
+			 * Waits for the previous batch to be drawn, then passes the batch to the
+			 * FX application thread.
+			 */
+			private void flush(ArrayList<Object> batch) throws InterruptedException {
+				if (batch.isEmpty()) {
+					return;
 				}
-				else {
-					System.out.println("Unknown data type");
+				Task<Object> task = this;
+				drawn.acquire();
+				Platform.runLater(new Runnable() {
+					@Override public void run() {
+						try {
+							if (task.isCancelled()) {
+								return;
+							}
+							for (Object object : batch) {
+								reDraw(object);
+							}
+						}
+						finally {
+							drawn.release();
+						}
+					}
+				});
+			}
+		};
+		return task;
+	}
+	
+	/**
+	 * Builds the Task that loads a scene file. The views are set up from the view index
+	 * of the file: for each view the Task posts its DataGroup, View, Camera, Origin and
+	 * Range settings to the FX application thread, and the objects of the view are read
+	 * from the file when the view is first displayed, so that the views of earlier
+	 * scene files remain pending. The first view of the scene is displayed when all
+	 * views are set up.
+	 * 
+	 * @param	file	File scene file
+	 * @return	sceneTask	Task ready for execution
+	 */
+	private Task<Object> buildSceneTask(File file) {
+		Task<Object> task = new Task<Object>() {
+			@Override public Object call() throws Exception {
+				SceneFile scene = new SceneFile(file);
+				int views = scene.getViewCount();
+				Task<Object> task = this;
+				int[] firstView = {-1};
+				for (int i = 0; i < views && !isCancelled(); i++) {
+					Platform.runLater(buildSetting(this, DataReader.DATA_GROUP, null, null, null));
+					Platform.runLater(buildSetting(this, DataReader.VIEW, null, scene.getViewSettings(i), null));
+					Platform.runLater(buildSetting(this, DataReader.CAMERA, scene.getCamera(i), null, null));
+					int[] o = scene.getOrigin(i);
+					Platform.runLater(buildSetting(this, DataReader.ORIGIN, new double[] {o[0], o[1], o[2]}, null, null));
+					Platform.runLater(buildSetting(this, DataReader.RANGE, scene.getRange(i), null, null));
+					int sceneView = i;
+					Platform.runLater(new Runnable() {
+						@Override public void run() {
+							if (task.isCancelled()) {
+								return;
+							}
+							pendingViews.put(currentSequenceNum, scene, sceneView);
+							if (firstView[0] < 0) {
+								firstView[0] = currentSequenceNum;
+							}
+						}
+					});
+					updateProgress(i+1, views);
+					updateMessage("Loading " + file.getName() + " view " + (i+1) + " of " + views);
 				}
+				Platform.runLater(new Runnable() {
+					@Override public void run() {
+						if (firstView[0] >= 0 && !task.isCancelled()) {
+							showView(firstView[0]);
+						}
+					}
+				});
+				updateMessage(file.getName() + ", " + views + " views");
+				return null;
 			}
-			in.close();
+		};
+		return task;
+	}
+	
+	/**
+	 * Reads the DataGroup, View, Camera, Origin, Range or Color setting of the current
+	 * line and returns a Runnable applying it on the FX application thread.
+	 * 
+	 * @param	task	Task loading the data, the setting is skipped once it is cancelled
+	 * @param	in		DataReader positioned at a setting line
+	 * @return	Runnable applying the setting
+	 */
+	private Runnable buildSetting(Task<Object> task, DataReader in) {
+		int type = in.getType();
+		double[] values = null;
+		boolean[] viewSettings = null;
+		Color[] colors = null;
+		if (type == DataReader.VIEW) {
+			viewSettings = new boolean[in.countFields()];
+			for (int i = 0; i < viewSettings.length; i++) {
+				viewSettings[i] = in.nextBoolean();
+			}
+		}
+		else if (type == DataReader.CAMERA || type == DataReader.RANGE) {
+			values = new double[] {in.nextDouble(), in.nextDouble(), in.nextDouble()};
 		}
-		catch (IOException e) {
-			System.out.println("File error: " + e);
+		else if (type == DataReader.ORIGIN) {
+			values = new double[] {in.nextInt(), in.nextInt(), in.nextInt()};
 		}
+		else if (type == DataReader.COLOR) {
+			Color c1 = in.nextColor();
+			colors = in.hasMoreFields() ? new Color[] {c1, in.nextColor()} : new Color[] {c1};
+		}
+		return buildSetting(task, type, values, viewSettings, colors);
+	}
+	
+	/**
+	 * Returns a Runnable applying a DataGroup, View, Camera, Origin, Range or Color
+	 * setting on the FX application thread.
+	 * 
+	 * @param	task	Task loading the data, the setting is skipped once it is cancelled
+	 * @param	type	int DataReader type of the setting
+	 * @param	v		double[3] Camera, Origin or Range values, or null
+	 * @param	vs		boolean[] View settings, or null
+	 * @param	c		Color[] one or two Colors, or null
+	 * @return	Runnable applying the setting
+	 */
+	private Runnable buildSetting(Task<Object> task, int type, double[] v, boolean[] vs, Color[] c) {
+		return new Runnable() {
+			@Override public void run() {
+				if (task.isCancelled()) {
+					return;
+				}
+				switch (type) {
+				case DataReader.DATA_GROUP:
+					for (int i = 0; i < dataGroup.size(); i++) {
+						dataGroup.get(i).setVisible(false);
+					}
+					currentSequenceNum = dataGroup.size()-1;
+					incrSequence();
+					dataGroup.get(currentSequenceNum).setVisible(true);
+					viewNumber = currentSequenceNum;
+					break;
+				case DataReader.VIEW:
+					setViewSettings(vs);
+					break;
+				case DataReader.CAMERA:
+					setCamera(v[0], v[1], v[2]);
+					break;
+				case DataReader.ORIGIN:
+					setOriginView((int) v[0], (int) v[1], (int) v[2]);
+					break;
+				case DataReader.RANGE:
+					setXYZRange(v[0], v[1], v[2]);
+					break;
+				case DataReader.COLOR:
+					setDrawColor(c[0]);
+					if (c.length > 1) {
+						setDrawColor(c[0], c[1]);
+					}
+					break;
+				}
+			}
+		};
 	}
 	
 	private void saveScene(Scene scene, String format) {
@@ -4318,100 +6048,136 @@ public class Draw3D extends Application implements Draw3DDefaults {
         }
 	}
 	
+    /**
+     * Saves the visible views in the text data format in the background. The header
+     * lines and copies of the draw lists of the views are captured on the FX application
+     * thread, with the objects that are changed in place, e.g. the control points of a
+     * Patch3D or the parameters of a Formula3D, replaced by their text lines, so that the
+     * file holds the objects as they are drawn. A Task then writes the views with a
+     * DataWriter, which converts the other objects to text in parallel, in chunks of
+     * SAVE_CHUNK objects, compressing them for a .gz file. Objects without a text
+     * format, such as a ParametricSurface3D, fail the save, which is reported in an
+     * error dialog. The save may be stopped by the Cancel Load selection of the Main Menu.
+     * 
+     * @param	file	File data file
+     */
     private void writeData(File file) {
-		try {			
-			PrintWriter out = new PrintWriter(file);
-			
-//			saveDrawLists.add(drawList);
-			if (saveDrawLists.size() > 0) {
-				for (int i = 0; i < saveDrawLists.size(); i++ ) {
-					Group aGroup = dataGroup.get(i);
-					if (!aGroup.isVisible()) {
-						continue;
-					}
-					ArrayList<Object> aDrawList = saveDrawLists.get(i);
-					out.println("DataGroup: " + i);
-					
-					out.println("View: " +
-					        axesCheckItem.isSelected() + ", " +
-			        		tickCheckItem.isSelected() + ", " +
-			        		axesZupCheckItem.isSelected() + ", " +
-			        		cubeCheckItem.isSelected() + ", " +
-			        		alightCheckItem.isSelected() + ", " +
-			        		plightCheckItem.isSelected() + ", " +
-			        		cumulate); 
-					
-					out.println("Camera: " +
-								cameraXform.rx.getAngle() + ", " +
-								cameraXform.ry.getAngle() + ", " +
-								camera.getTranslateZ());
-					
-					out.println("Origin: " + 
-								origin[0] + ", " +
-								origin[1] + ", " +
-								origin[2]);
-					
-					out.println("Range: " +
-								maxX +", " + 
-								maxY +", " + 
-								maxZ);
-					
-					for (int j = 0; j < aDrawList.size(); j++) {
-						Object object = aDrawList.get(j);
-						if (object instanceof Point3D) {
-							Point3D p = (Point3D)object;
-							out.printf("Point: %5.1f,%5.1f,%5.1f%n",
-									p.getX(), p.getY(), p.getZ());
-						}
-						else if (object instanceof Arrow3D) {
-							out.println(((Arrow3D)object).outString());	
-						}
-						else if (object instanceof Box3D) {
-							out.println(((Box3D)object).outString());	
-						}
-						else if (object instanceof Cone3D) {
-							out.println(((Cone3D)object).outString());	
-						}
-						else if (object instanceof Cylinder3D) {
-							out.println(((Cylinder3D)object).outString());	
-						}
-						else if (object instanceof Line3D) {
-							out.println(((Line3D)object).outString());	
-						}
-						else if (object instanceof Oval3D) {
-							out.println(((Oval3D)object).outString());	
-						}
-						else if (object instanceof Plane3D) {
-							out.println(((Plane3D)object).outString());	
-						}
-						else if (object instanceof Polygon3D) {
-							out.println(((Polygon3D)object).outString());	
-						}
-						else if (object instanceof Rectangle3D) {
-							out.println(((Rectangle3D)object).outString());	
-						}
-						else if (object instanceof Sphere3D) {
-							out.println(((Sphere3D)object).outString());	
-						}
-						else if (object instanceof Text3D) {
-							out.println(((Text3D)object).outString());
-						}
-						else if (object instanceof Triangle3D) {
-							out.println(((Triangle3D)object).outString());
-						}
-						else if (object instanceof Vector3D) {
-							out.println(((Vector3D)object).outString());
-						}
-						else
-							System.out.println("writeData: Unknown object: " + object.toString() );
-					}
-				}
-			}
-			out.close();
-		}
-		catch (IOException e) {
-			System.out.println("File error: " + e);
-		}
+    	ArrayList<String> headers = new ArrayList<>();
+    	ArrayList<ArrayList<Object>> drawLists = new ArrayList<>();
+    	String nl = System.lineSeparator();
+    	for (int i = 0; i < saveDrawLists.size(); i++ ) {
+    		Group aGroup = dataGroup.get(i);
+    		if (!aGroup.isVisible()) {
+    			continue;
+    		}
+    		readPendingView(i);
+    		headers.add("DataGroup: " + i + nl +
+    					"View: " +
+    					axesCheckItem.isSelected() + ", " +
+    					tickCheckItem.isSelected() + ", " +
+    					axesZupCheckItem.isSelected() + ", " +
+    					cubeCheckItem.isSelected() + ", " +
+    					alightCheckItem.isSelected() + ", " +
+    					plightCheckItem.isSelected() + ", " +
+    					cumulate + nl +
+    					"Camera: " +
+    					cameraXform.rx.getAngle() + ", " +
+    					cameraXform.ry.getAngle() + ", " +
+    					camera.getTranslateZ() + nl +
+    					"Origin: " +
+    					origin[0] + ", " +
+    					origin[1] + ", " +
+    					origin[2] + nl +
+    					"Range: " +
+    					maxX + ", " +
+    					maxY + ", " +
+    					maxZ + nl);
+    		ArrayList<Object> aDrawList = new ArrayList<>(saveDrawLists.get(i));
+    		for (int j = 0; j < aDrawList.size(); j++) {
+    			Object object = aDrawList.get(j);
+    			if (object instanceof Patch3D || object instanceof Formula3D || object instanceof CurveTrace3D ||
+    				object instanceof Isosurface3D || object instanceof PlaneArrangement) {
+    				aDrawList.set(j, DataWriter.writeLines("", aDrawList, j, j + 1));
+    			}
+    		}
+    		drawLists.add(aDrawList);
+    	}
+    	saveTask = buildSaveTask(file, headers, drawLists);
+    	runFileTask(saveTask, "Save Data");
+    }
+    
+    /**
+     * Builds the Task that writes the saved views with a DataWriter, a group of chunks
+     * at a time, reporting progress and stopping when cancelled between groups.
+     * 
+     * @param	file		File data file
+     * @param	headers		ArrayList of the header lines of each view
+     * @param	drawLists	ArrayList of the copied draw lists of the views
+     * @return	saveTask	Task ready for execution
+     */
+    private Task<Object> buildSaveTask(File file, ArrayList<String> headers, ArrayList<ArrayList<Object>> drawLists) {
+    	Task<Object> task = new Task<Object>() {
+    		@Override public Object call() throws Exception {
+    			DataWriter out = new DataWriter(file, headers, drawLists);
+    			try {
+    				while (out.hasMoreChunks()) {
+    					if (isCancelled()) {
+    						return null;
+    					}
+    					out.writeGroup();
+    					updateProgress(out.getChunksWritten(), out.getChunkCount());
+    					updateMessage("Saving " + file.getName() + " " + (100*out.getChunksWritten()/out.getChunkCount()) + "%");
+    				}
+    				out.commit();
+    			}
+    			finally {
+    				out.close();
+    			}
+    			updateMessage(file.getName() + ", " + drawLists.size() + " views");
+    			return null;
+    		}
+    	};
+    	return task;
+    }
+    
+    /**
+     * Saves the visible views in the binary scene format of SceneFile in the background,
+     * with the same view settings as the Save Data File text format.
+     * 
+     * @param	file	File scene file
+     */
+    private void writeScene(File file) {
+    	ArrayList<double[]> cameras = new ArrayList<>();
+    	ArrayList<double[]> ranges = new ArrayList<>();
+    	ArrayList<int[]> origins = new ArrayList<>();
+    	ArrayList<boolean[]> viewSettings = new ArrayList<>();
+    	ArrayList<ArrayList<Object>> drawLists = new ArrayList<>();
+    	for (int i = 0; i < saveDrawLists.size(); i++ ) {
+    		if (!dataGroup.get(i).isVisible()) {
+    			continue;
+    		}
+    		cameras.add(new double[] {cameraXform.rx.getAngle(), cameraXform.ry.getAngle(), camera.getTranslateZ()});
+    		ranges.add(new double[] {maxX, maxY, maxZ});
+    		origins.add(Arrays.copyOf(origin, origin.length));
+    		viewSettings.add(new boolean[] {
+    				axesCheckItem.isSelected(),
+    				tickCheckItem.isSelected(),
+    				axesZupCheckItem.isSelected(),
+    				cubeCheckItem.isSelected(),
+    				alightCheckItem.isSelected(),
+    				plightCheckItem.isSelected(),
+    				cumulate});
+    		readPendingView(i);
+    		drawLists.add(new ArrayList<>(saveDrawLists.get(i)));
+    	}
+    	runFileTask(new Task<Object>() {
+    		@Override public Object call() throws Exception {
+    			updateMessage("Saving " + file.getName());
+    			SceneFile.write(file, cameras, ranges, origins, viewSettings, drawLists);
+    			updateMessage(file.getName() + ", " + drawLists.size() + " views");
+    			return null;
+    		}
+    	}, "Save Data");
     }
     
     /**
@@ -4477,6 +6243,8 @@ public class Draw3D extends Application implements Draw3DDefaults {
 	                        	if      (t instanceof Arrow3D)     { drawArrow3D((Arrow3D) t); }
 	                            else if (t instanceof Box3D)       { drawBox3D((Box3D) t); }
 	                            else if (t instanceof Cone3D)      { drawCone3D((Cone3D) t); }
+	                            else if (t instanceof Curve3D)     { drawCurve3D((Curve3D) t); }
+	                            else if (t instanceof CurveTrace3D) { drawCurveTrace3D((CurveTrace3D) t); }
 	                            else if (t instanceof Cylinder3D)  { drawCylinder3D((Cylinder3D) t); }
 	                            else if (t instanceof Drone3D)     {
 	                				int view = 0;
@@ -4489,11 +6257,17 @@ public class Draw3D extends Application implements Draw3DDefaults {
 		            				}
 	            					drawDrone3D(view, (Drone3D) t);
 	                            }
+	                            else if (t instanceof Formula3D)   { drawFormula3D((Formula3D) t); }
+	                            else if (t instanceof Hull3D)      { drawHull3D((Hull3D) t); }
+	                            else if (t instanceof Isosurface3D) { drawIsosurface3D((Isosurface3D) t); }
 	                            else if (t instanceof Line3D)      { drawLine3D((Line3D) t); }
 	                            else if (t instanceof Line3D[])    { drawLine3DSet((Line3D[]) t); }
 	                            else if (t instanceof Mesh3D)      { drawMesh3D((Mesh3D) t); }
 	                            else if (t instanceof Oval3D)      { drawOval3D((Oval3D) t); }
+	                            else if (t instanceof ParametricSurface3D) { drawParametricSurface3D((ParametricSurface3D) t); }
+	                            else if (t instanceof Patch3D)     { drawPatch3D((Patch3D) t); }
 	                            else if (t instanceof Plane3D)     { drawPlane3D((Plane3D) t); }
+	                            else if (t instanceof PlaneArrangement) { drawPlaneArrangement((PlaneArrangement) t); }
 	                            else if (t instanceof Point3D)     { drawPoint3D((Point3D) t); }
 	                            else if (t instanceof Point3D[])   { drawPoint3DSet((Point3D[]) t); }
 	                            else if (t instanceof Polygon3D)   { drawPolygon3D((Polygon3D) t); }
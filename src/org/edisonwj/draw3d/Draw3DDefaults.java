@@ -33,6 +33,11 @@ public interface Draw3DDefaults {
     public static final double MIN_MAX_X = 10.0;
     public static final double MIN_MAX_Y = 10.0;
     public static final double MIN_MAX_Z = 10.0;
+    public static final int RANGE_DRAW = 0;			// draw out of range objects as specified
+    public static final int RANGE_CLAMP = 1;		// limit out of range locations to the range boundary
+    public static final int RANGE_CULL = 2;			// do not draw out of range objects
+    public static final int RANGE_CLIP = 3;			// clip lines, polygons and meshes to the range, cull others
+    public static final int RANGE_POLICY = RANGE_DRAW;
     
     public static final int[] DEFAULT_ORIGIN = {0, 0, 0};
     public static final double CAMERA_INITIAL_X_ANGLE = -10.0;
@@ -65,8 +70,21 @@ public interface Draw3DDefaults {
     public static final int CYLINDER_DIVISIONS = 64;
     public static final int OVAL_DIVISIONS = 64;
     public static final int SPHERE_DIVISIONS = 64;
+    public static final int PATCH_DIVISIONS = 16;			// surface patch divisions per parameter span
+    public static final int ISOSURFACE_DIVISIONS = 64;		// isosurface grid divisions along each axis
+    public static final int FORMULA_SAMPLES = 10000;		// maximum number of points sampled on a formula surface
+    public static final int SURFACE_DIVISIONS = 8;			// parametric surface initial cells along u and v
+    public static final double SURFACE_TOLERANCE = 0.5;	// maximum distance in pixels of a surface from its triangles
+    public static final double SURFACE_ANGLE = 15.0;		// maximum angle in degrees between normals within a cell
+    public static final int SURFACE_SAMPLES = 40000;		// maximum number of points sampled on a parametric surface
     public static final Color BACKGROUND_COLOR = Color.WHITE;
     public static final Font LABEL_FONT = Font.font ("Regular", 8);
     public static final double LABEL_FONT_SIZE = 8;
     public static final double EPSILON = .00000001;
+    public static final double CURVE_TOLERANCE = 0.25;		// maximum distance in pixels of a curve from its line segments
+    public static final double TRANSFORM_SECONDS = 2.0;	// duration of an animated transform
+    public static final int PARALLEL_THRESHOLD = 16384;	// minimum number of elements for parallel processing
+    public static final int PARALLEL_GRAIN = 4096;			// minimum number of elements per parallel task
+    public static final int LOAD_BATCH = 1000;				// lines of a data file drawn at a time while loading
+    public static final int SAVE_CHUNK = 16384;			// objects of a view converted to text by one task while saving
 }
\ No newline at end of file
@@ -0,0 +1,762 @@
+package org.edisonwj.draw3d;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import javafx.scene.paint.PhongMaterial;
+import javafx.scene.shape.CullFace;
+import javafx.scene.shape.DrawMode;
+/**
+* Formula3D class captures a function given as a formula string, e.g.
+* "m*cos(sqrt(x^2+y^2))/(2+sqrt(x^2+y^2))", with:
+* - the formula string
+* - the compiled formula
+* - values of the named parameters of the formula
+* - PhongMaterial (optional)
+* - DrawMode setting (optional)
+* - Cullface setting (optional)
+* The Formula3D object is drawn by drawFormula3D() as the surface z = f(x, y), a single
+* TriangleMesh over the x, y range of the user coordinate space, sampled adaptively as a
+* ParametricSurface3D (x, y) -> (x, y, f(x, y)). It is also a Function3D, so the surface
+* f(x, y, z) = 0 can be drawn by drawIsosurface().
+*
+* A formula is built of numbers, the variables x, y and z, the constants pi and e,
+* the operators + - * / ^ (power, right associative), parentheses and the functions
+* sin, cos, tan, asin, acos, atan, sinh, cosh, tanh, exp, log (or ln), log10, sqrt, cbrt,
+* abs, floor, ceil, sign, and atan2, pow, min, max, hypot of two arguments. Any other
+* name is a parameter, 0.0 until set by setParameter(), which allows a formula to be
+* varied without parsing it again.
+*
+* The formula is parsed once, with constant parts folded, and compiled to a flat postfix
+* program of primitive operations on a stack of doubles, with no boxing. value() runs the
+* program on an evaluation stack kept for each thread, so formulas are evaluated in
+* parallel without allocation. grid() evaluates the program one row of x values at a
+* time, each operation running over the whole row, with the rows computed in parallel.
+*
+* The class implements defaults specified in Draw3DDefaults.
+*
+* @author William Edison
+* @version 1.02
+*
+*/
+public class Formula3D implements Function3D, ParametricFunction3D, Draw3DDefaults {
+	// Operations, loads first, then unary, then binary operations
+	private static final int CONST = 0;
+	private static final int X = 1;
+	private static final int Y = 2;
+	private static final int Z = 3;
+	private static final int PARAM = 4;
+	private static final int NEG = 5;
+	private static final int SQR = 6;
+	private static final int SIN = 7;
+	private static final int COS = 8;
+	private static final int TAN = 9;
+	private static final int ASIN = 10;
+	private static final int ACOS = 11;
+	private static final int ATAN = 12;
+	private static final int SINH = 13;
+	private static final int COSH = 14;
+	private static final int TANH = 15;
+	private static final int EXP = 16;
+	private static final int LOG = 17;
+	private static final int LOG10 = 18;
+	private static final int SQRT = 19;
+	private static final int CBRT = 20;
+	private static final int ABS = 21;
+	private static final int FLOOR = 22;
+	private static final int CEIL = 23;
+	private static final int SIGN = 24;
+	private static final int ADD = 25;
+	private static final int SUB = 26;
+	private static final int MUL = 27;
+	private static final int DIV = 28;
+	private static final int POW = 29;
+	private static final int ATAN2 = 30;
+	private static final int MIN = 31;
+	private static final int MAX = 32;
+	private static final int HYPOT = 33;
+	private static final int FIRST_BINARY = ADD;
+
+	private static final String[] FUNCTION_NAMES = {
+		"sin", "cos", "tan", "asin", "acos", "atan", "sinh", "cosh", "tanh",
+		"exp", "log", "ln", "log10", "sqrt", "cbrt", "abs", "floor", "ceil", "sign",
+		"atan2", "pow", "min", "max", "hypot"
+	};
+	private static final int[] FUNCTION_OPS = {
+		SIN, COS, TAN, ASIN, ACOS, ATAN, SINH, COSH, TANH,
+		EXP, LOG, LOG, LOG10, SQRT, CBRT, ABS, FLOOR, CEIL, SIGN,
+		ATAN2, POW, MIN, MAX, HYPOT
+	};
+
+	private final String formula;
+	private final ArrayList<String> names = new ArrayList<String>();	// Parameter names
+	private double[] parameters;		// Parameter values, by index of the name
+	private double[] constants;			// Constants of the program
+	private int[] code;					// Operations of the program
+	private int[] arg;					// Constant or parameter index of each load
+	private int maxStack;				// Stack size required by the program
+	private final ThreadLocal<double[]> stack		// Evaluation stack of each thread
+			= new ThreadLocal<double[]>() {
+		@Override
+		protected double[] initialValue() {
+			return new double[maxStack];
+		}
+	};
+	private int pos;					// Parse position, used only while constructing
+	private PhongMaterial m;
+	private DrawMode dm;
+	private CullFace cf;
+
+	/**
+	 * Node of the parsed formula.
+	 */
+	private static final class Node {
+		final int op;
+		final double value;		// Value of a constant
+		final int index;		// Index of a parameter
+		final Node a;
+		final Node b;
+
+		Node(int op, double value, int index, Node a, Node b) {
+			this.op = op;
+			this.value = value;
+			this.index = index;
+			this.a = a;
+			this.b = b;
+		}
+	}
+
+	/**
+	 * Constructs a Formula3D object by parsing and compiling a formula.
+	 *
+	 * @param	formula	String formula of x, y, z and parameters
+	 * @throws	IllegalArgumentException if the formula is not well formed
+	 */
+	public Formula3D(String formula) {
+		this.formula = formula;
+		pos = 0;
+		Node root = parseSum();
+		skipSpace();
+		if (pos < formula.length()) {
+			throw error("unexpected '" + formula.charAt(pos) + "'");
+		}
+		parameters = new double[names.size()];
+		compile(root);
+	}
+
+	/**
+	 * Constructs a Formula3D object by parsing and compiling a formula, with PhongMaterial.
+	 *
+	 * @param	formula	String formula of x, y, z and parameters
+	 * @param	m		PhongMaterial determining surface color
+	 * @throws	IllegalArgumentException if the formula is not well formed
+	 */
+	public Formula3D(String formula, PhongMaterial m) {
+		this(formula);
+		this.m = m;
+	}
+
+	/**
+	 * Gets the formula string.
+	 *
+	 * @return	String formula
+	 */
+	public String getFormula() {
+		return formula;
+	}
+
+	/**
+	 * Gets the names of the parameters of the formula, in order of first use.
+	 *
+	 * @return	String[] parameter names
+	 */
+	public String[] getParameterNames() {
+		return names.toArray(new String[names.size()]);
+	}
+
+	/**
+	 * Sets the value of a parameter.
+	 *
+	 * @param	name	String parameter name
+	 * @param	value	double parameter value
+	 * @throws	IllegalArgumentException if the formula has no such parameter
+	 */
+	public void setParameter(String name, double value) {
+		int i = names.indexOf(name);
+		if (i < 0) {
+			throw new IllegalArgumentException("Formula3D: no parameter " + name + " in " + formula);
+		}
+		parameters[i] = value;
+	}
+
+	/**
+	 * Gets the value of a parameter.
+	 *
+	 * @param	name	String parameter name
+	 * @return	double parameter value
+	 * @throws	IllegalArgumentException if the formula has no such parameter
+	 */
+	public double getParameter(String name) {
+		int i = names.indexOf(name);
+		if (i < 0) {
+			throw new IllegalArgumentException("Formula3D: no parameter " + name + " in " + formula);
+		}
+		return parameters[i];
+	}
+
+	/**
+	 * Computes the formula value at a point.
+	 *
+	 * @param	x	double x coordinate (in user coordinate space)
+	 * @param	y	double y coordinate (in user coordinate space)
+	 * @param	z	double z coordinate (in user coordinate space)
+	 * @return	double formula value
+	 */
+	@Override
+	public double value(double x, double y, double z) {
+		double[] s = stack.get();
+		int sp = -1;
+		for (int i = 0; i < code.length; i++) {
+			int op = code[i];
+			switch (op) {
+			case CONST:	s[++sp] = constants[arg[i]]; break;
+			case X:		s[++sp] = x; break;
+			case Y:		s[++sp] = y; break;
+			case Z:		s[++sp] = z; break;
+			case PARAM:	s[++sp] = parameters[arg[i]]; break;
+			default:
+				if (op >= FIRST_BINARY) {
+					sp--;
+					s[sp] = apply(op, s[sp], s[sp+1]);
+				}
+				else {
+					s[sp] = apply(op, s[sp], 0.0);
+				}
+			}
+		}
+		return s[0];
+	}
+
+	/**
+	 * Computes the formula value at a point of the plane z = 0.
+	 *
+	 * @param	x	double x coordinate (in user coordinate space)
+	 * @param	y	double y coordinate (in user coordinate space)
+	 * @return	double formula value
+	 */
+	public double value(double x, double y) {
+		return value(x, y, 0.0);
+	}
+
+	/**
+	 * Computes the point (x, y, f(x, y)) of the surface z = f(x, y), with z 0.0 in the formula.
+	 *
+	 * @param	x	double x coordinate (in user coordinate space)
+	 * @param	y	double y coordinate (in user coordinate space)
+	 * @param	p	double[3] x, y, z of the point, set
+	 */
+	@Override
+	public void value(double x, double y, double[] p) {
+		p[0] = x;
+		p[1] = y;
+		p[2] = value(x, y, 0.0);
+	}
+
+	/**
+	 * Computes the points (x, y, f(x, y)) of a grid of nx by ny points spanning the
+	 * specified x, y range, row by row with x varying fastest. Values of z in the
+	 * formula are 0.0. Points where f is not finite have z NaN or infinite.
+	 *
+	 * @param	minX	double minimum x value
+	 * @param	maxX	double maximum x value
+	 * @param	minY	double minimum y value
+	 * @param	maxY	double maximum y value
+	 * @param	nx		int number of points along x, at least 2
+	 * @param	ny		int number of points along y, at least 2
+	 * @return	double[] packed x, y, z of the grid points
+	 */
+	public double[] grid(double minX, double maxX, final double minY, final double maxY,
+						 final int nx, final int ny) {
+		if (nx < 2 || ny < 2) {
+			throw new IllegalArgumentException("Formula3D: grid of " + nx + " x " + ny + " points");
+		}
+		final double[] p = new double[3*nx*ny];
+		final double[] xs = new double[nx];
+		for (int i = 0; i < nx; i++) {
+			xs[i] = (i == nx - 1) ? maxX : minX + i*(maxX - minX)/(nx - 1);
+		}
+		new ParallelRange() {
+			protected void compute(int lo, int hi) {
+				double[][] s = new double[maxStack][nx];
+				for (int j = lo; j < hi; j++) {
+					double y = (j == ny - 1) ? maxY : minY + j*(maxY - minY)/(ny - 1);
+					evaluateRow(xs, y, 0.0, s);
+					double[] z = s[0];
+					for (int i = 0, k = 3*nx*j; i < nx; i++, k += 3) {
+						p[k] = xs[i];
+						p[k+1] = y;
+						p[k+2] = z[i];
+					}
+				}
+			}
+		}.invoke(0, ny, Math.max(2, PARALLEL_THRESHOLD / nx));
+		return p;
+	}
+
+	/**
+	 * Evaluates the program over a row of x values, each operation over the whole row.
+	 * The result is left in s[0].
+	 */
+	private void evaluateRow(double[] xs, double y, double z, double[][] s) {
+		int n = xs.length;
+		int sp = -1;
+		for (int i = 0; i < code.length; i++) {
+			int op = code[i];
+			double[] r;
+			double[] q;
+			switch (op) {
+			case CONST:	Arrays.fill(s[++sp], constants[arg[i]]); break;
+			case X:		System.arraycopy(xs, 0, s[++sp], 0, n); break;
+			case Y:		Arrays.fill(s[++sp], y); break;
+			case Z:		Arrays.fill(s[++sp], z); break;
+			case PARAM:	Arrays.fill(s[++sp], parameters[arg[i]]); break;
+			case NEG:
+				r = s[sp];
+				for (int j = 0; j < n; j++) {
+					r[j] = -r[j];
+				}
+				break;
+			case SQR:
+				r = s[sp];
+				for (int j = 0; j < n; j++) {
+					r[j] = r[j]*r[j];
+				}
+				break;
+			case SQRT:
+				r = s[sp];
+				for (int j = 0; j < n; j++) {
+					r[j] = Math.sqrt(r[j]);
+				}
+				break;
+			case ADD:
+				r = s[--sp];
+				q = s[sp+1];
+				for (int j = 0; j < n; j++) {
+					r[j] += q[j];
+				}
+				break;
+			case SUB:
+				r = s[--sp];
+				q = s[sp+1];
+				for (int j = 0; j < n; j++) {
+					r[j] -= q[j];
+				}
+				break;
+			case MUL:
+				r = s[--sp];
+				q = s[sp+1];
+				for (int j = 0; j < n; j++) {
+					r[j] *= q[j];
+				}
+				break;
+			case DIV:
+				r = s[--sp];
+				q = s[sp+1];
+				for (int j = 0; j < n; j++) {
+					r[j] /= q[j];
+				}
+				break;
+			default:
+				if (op >= FIRST_BINARY) {
+					r = s[--sp];
+					q = s[sp+1];
+					for (int j = 0; j < n; j++) {
+						r[j] = apply(op, r[j], q[j]);
+					}
+				}
+				else {
+					r = s[sp];
+					for (int j = 0; j < n; j++) {
+						r[j] = apply(op, r[j], 0.0);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Applies a unary operation to a, or a binary operation to a and b.
+	 */
+	private static double apply(int op, double a, double b) {
+		switch (op) {
+		case NEG:	return -a;
+		case SQR:	return a*a;
+		case SIN:	return Math.sin(a);
+		case COS:	return Math.cos(a);
+		case TAN:	return Math.tan(a);
+		case ASIN:	return Math.asin(a);
+		case ACOS:	return Math.acos(a);
+		case ATAN:	return Math.atan(a);
+		case SINH:	return Math.sinh(a);
+		case COSH:	return Math.cosh(a);
+		case TANH:	return Math.tanh(a);
+		case EXP:	return Math.exp(a);
+		case LOG:	return Math.log(a);
+		case LOG10:	return Math.log10(a);
+		case SQRT:	return Math.sqrt(a);
+		case CBRT:	return Math.cbrt(a);
+		case ABS:	return Math.abs(a);
+		case FLOOR:	return Math.floor(a);
+		case CEIL:	return Math.ceil(a);
+		case SIGN:	return Math.signum(a);
+		case ADD:	return a + b;
+		case SUB:	return a - b;
+		case MUL:	return a*b;
+		case DIV:	return a/b;
+		case POW:	return Math.pow(a, b);
+		case ATAN2:	return Math.atan2(a, b);
+		case MIN:	return Math.min(a, b);
+		case MAX:	return Math.max(a, b);
+		case HYPOT:	return Math.hypot(a, b);
+		default:	throw new IllegalStateException("Formula3D: operation " + op);
+		}
+	}
+
+	/**
+	 * Compiles the parsed formula to a postfix program.
+	 */
+	private void compile(Node root) {
+		ArrayList<Node> program = new ArrayList<Node>();
+		maxStack = emit(root, program, 0);
+		code = new int[program.size()];
+		arg = new int[program.size()];
+		ArrayList<Double> values = new ArrayList<Double>();
+		for (int i = 0; i < code.length; i++) {
+			Node n = program.get(i);
+			code[i] = n.op;
+			if (n.op == CONST) {
+				arg[i] = values.size();
+				values.add(n.value);
+			}
+			else if (n.op == PARAM) {
+				arg[i] = n.index;
+			}
+		}
+		constants = new double[values.size()];
+		for (int i = 0; i < constants.length; i++) {
+			constants[i] = values.get(i);
+		}
+	}
+
+	/**
+	 * Appends the nodes of a subtree in postfix order, returning the stack size it requires
+	 * above depth entries.
+	 */
+	private static int emit(Node n, ArrayList<Node> program, int depth) {
+		int max = depth + 1;
+		if (n.a != null) {
+			max = Math.max(max, emit(n.a, program, depth));
+		}
+		if (n.b != null) {
+			max = Math.max(max, emit(n.b, program, depth + 1));
+		}
+		program.add(n);
+		return max;
+	}
+
+	/**
+	 * Creates the node of an operation, folding operations on constants and
+	 * simplifying powers of 2, 0.5 and 1.
+	 */
+	private static Node node(int op, Node a, Node b) {
+		if (a.op == CONST && (b == null || b.op == CONST)) {
+			return constant(apply(op, a.value, b == null ? 0.0 : b.value));
+		}
+		if (op == POW && b.op == CONST) {
+			if (b.value == 2.0) {
+				return new Node(SQR, 0.0, 0, a, null);
+			}
+			if (b.value == 0.5) {
+				return new Node(SQRT, 0.0, 0, a, null);
+			}
+			if (b.value == 1.0) {
+				return a;
+			}
+		}
+		return new Node(op, 0.0, 0, a, b);
+	}
+
+	private static Node constant(double value) {
+		return new Node(CONST, value, 0, null, null);
+	}
+
+	/**
+	 * sum := product (('+' | '-') product)*
+	 */
+	private Node parseSum() {
+		Node n = parseProduct();
+		while (true) {
+			if (accept('+')) {
+				n = node(ADD, n, parseProduct());
+			}
+			else if (accept('-')) {
+				n = node(SUB, n, parseProduct());
+			}
+			else {
+				return n;
+			}
+		}
+	}
+
+	/**
+	 * product := unary (('*' | '/') unary)*
+	 */
+	private Node parseProduct() {
+		Node n = parseUnary();
+		while (true) {
+			if (accept('*')) {
+				n = node(MUL, n, parseUnary());
+			}
+			else if (accept('/')) {
+				n = node(DIV, n, parseUnary());
+			}
+			else {
+				return n;
+			}
+		}
+	}
+
+	/**
+	 * unary := ('-' | '+') unary | power
+	 */
+	private Node parseUnary() {
+		if (accept('-')) {
+			return node(NEG, parseUnary(), null);
+		}
+		if (accept('+')) {
+			return parseUnary();
+		}
+		return parsePower();
+	}
+
+	/**
+	 * power := primary ('^' unary)?
+	 */
+	private Node parsePower() {
+		Node n = parsePrimary();
+		if (accept('^')) {
+			n = node(POW, n, parseUnary());
+		}
+		return n;
+	}
+
+	/**
+	 * primary := number | '(' sum ')' | function '(' sum (',' sum)? ')' | name
+	 */
+	private Node parsePrimary() {
+		skipSpace();
+		if (pos >= formula.length()) {
+			throw error("unexpected end");
+		}
+		char c = formula.charAt(pos);
+		if (Character.isDigit(c) || c == '.') {
+			return parseNumber();
+		}
+		if (accept('(')) {
+			Node n = parseSum();
+			expect(')');
+			return n;
+		}
+		if (!Character.isLetter(c)) {
+			throw error("unexpected '" + c + "'");
+		}
+		int start = pos;
+		while (pos < formula.length() && (Character.isLetterOrDigit(formula.charAt(pos)) || formula.charAt(pos) == '_')) {
+			pos++;
+		}
+		String name = formula.substring(start, pos);
+		if (accept('(')) {
+			int f = Arrays.asList(FUNCTION_NAMES).indexOf(name);
+			if (f < 0) {
+				throw error("unknown function " + name);
+			}
+			int op = FUNCTION_OPS[f];
+			Node a = parseSum();
+			Node b = null;
+			if (op >= FIRST_BINARY) {
+				expect(',');
+				b = parseSum();
+			}
+			expect(')');
+			return node(op, a, b);
+		}
+		if (name.equals("x")) {
+			return new Node(X, 0.0, 0, null, null);
+		}
+		if (name.equals("y")) {
+			return new Node(Y, 0.0, 0, null, null);
+		}
+		if (name.equals("z")) {
+			return new Node(Z, 0.0, 0, null, null);
+		}
+		if (name.equals("pi")) {
+			return constant(Math.PI);
+		}
+		if (name.equals("e")) {
+			return constant(Math.E);
+		}
+		int index = names.indexOf(name);
+		if (index < 0) {
+			index = names.size();
+			names.add(name);
+		}
+		return new Node(PARAM, 0.0, index, null, null);
+	}
+
+	private Node parseNumber() {
+		int start = pos;
+		while (pos < formula.length() && (Character.isDigit(formula.charAt(pos)) || formula.charAt(pos) == '.')) {
+			pos++;
+		}
+		if (pos < formula.length() && (formula.charAt(pos) == 'e' || formula.charAt(pos) == 'E')) {
+			int mark = pos++;
+			if (pos < formula.length() && (formula.charAt(pos) == '+' || formula.charAt(pos) == '-')) {
+				pos++;
+			}
+			if (pos < formula.length() && Character.isDigit(formula.charAt(pos))) {
+				while (pos < formula.length() && Character.isDigit(formula.charAt(pos))) {
+					pos++;
+				}
+			}
+			else {
+				pos = mark;			// not an exponent, e.g. "2e" is left to fail as a name
+			}
+		}
+		try {
+			return constant(Double.parseDouble(formula.substring(start, pos)));
+		}
+		catch (NumberFormatException e) {
+			pos = start;
+			throw error("bad number");
+		}
+	}
+
+	private void skipSpace() {
+		while (pos < formula.length() && Character.isWhitespace(formula.charAt(pos))) {
+			pos++;
+		}
+	}
+
+	private boolean accept(char c) {
+		skipSpace();
+		if (pos < formula.length() && formula.charAt(pos) == c) {
+			pos++;
+			return true;
+		}
+		return false;
+	}
+
+	private void expect(char c) {
+		if (!accept(c)) {
+			throw error("'" + c + "' expected");
+		}
+	}
+
+	private IllegalArgumentException error(String message) {
+		return new IllegalArgumentException("Formula3D: " + message + " at position " + pos + " of " + formula);
+	}
+
+	/**
+	 * Gets the PhongMaterial
+	 *
+	 * @return	m	PhongMaterial
+	 */
+	public PhongMaterial getMaterial() {
+		return m;
+	}
+
+	/**
+	 * Sets the PhongMaterial
+	 *
+	 * @param	m	PhongMaterial
+	 */
+	public void setMaterial(PhongMaterial m) {
+		this.m = m;
+	}
+
+	/**
+	 * Gets the DrawMode
+	 *
+	 * @return	dm	DrawMode
+	 */
+	public DrawMode getDrawMode() {
+		return dm;
+	}
+
+	/**
+	 * Sets the DrawMode
+	 *
+	 * @param	dm	DrawMode
+	 */
+	public void setDrawMode(DrawMode dm) {
+		this.dm = dm;
+	}
+
+	/**
+	 * Gets the CullFace
+	 *
+	 * @return	cf	CullFace
+	 */
+	public CullFace getCullFace() {
+		return cf;
+	}
+
+	/**
+	 * Sets the CullFace
+	 *
+	 * @param	cf	CullFace
+	 */
+	public void setCullFace(CullFace cf) {
+		this.cf = cf;
+	}
+
+	/**
+	 * Returns a String containing all Formula3D values for saving to a data file: the
+	 * formula, the value of each parameter in the order of getParameterNames(), and the
+	 * drawing settings, separated by ";" as the formula may contain ",". The String is
+	 * read by DataReader.readObject() to recreate a Formula3D object when reading a saved
+	 * data file.
+	 *
+	 * @return	String capturing all Formula3D field values
+	 */
+	public String outString() {
+		StringBuilder sb = new StringBuilder(formula.length() + 128);
+		sb.append("Formula: ").append(formula);
+		for (int i = 0; i < parameters.length; i++) {
+			sb.append("; ").append(parameters[i]);
+		}
+		sb.append("; ").append(dm).append("; ").append(cf);
+		if (m != null) {
+			sb.append("; ").append(m.getDiffuseColor());
+			if (m.getSpecularColor() != null) {
+				sb.append("; ").append(m.getSpecularColor());
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Returns a String containing the formula, its parameter values and program length.
+	 *
+	 * @return	String representation of the Formula3D
+	 */
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("Formula3D: " + formula);
+		for (int i = 0; i < parameters.length; i++) {
+			sb.append(", " + names.get(i) + "= " + parameters[i]);
+		}
+		sb.append(", operations= " + code.length);
+		return sb.toString();
+	}
+}
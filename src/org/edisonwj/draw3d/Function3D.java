@@ -0,0 +1,25 @@
+package org.edisonwj.draw3d;
+
+/**
+ * Interface Function3D needs to be implemented by any
+ * function of x, y, z that is to be drawn by Draw3D, e.g. as an Isosurface3D.
+ *
+ * The function is evaluated at many points of the user coordinate space,
+ * possibly by several threads at once, so value() must not modify shared state.
+ *
+ * @author William Edison
+ * @version 1.02
+ *
+ */
+public interface Function3D {
+
+	/**
+	 * Computes the function value at a point.
+	 *
+	 * @param	x	double x coordinate (in user coordinate space)
+	 * @param	y	double y coordinate (in user coordinate space)
+	 * @param	z	double z coordinate (in user coordinate space)
+	 * @return	double function value
+	 */
+	public double value(double x, double y, double z);
+}
@@ -0,0 +1,724 @@
+package org.edisonwj.draw3d;
+
+import java.util.Arrays;
+
+import javafx.geometry.Point3D;
+import javafx.scene.paint.PhongMaterial;
+import javafx.scene.shape.CullFace;
+import javafx.scene.shape.DrawMode;
+/**
+* Hull3D class captures information defining the convex hull of a set of points with:
+* - packed double array of the points (in user coordinate scale)
+* - computed triangular faces of the hull, counter clockwise when seen from outside
+* - computed indices of the points that are hull vertices
+* - PhongMaterial (optional)
+* - DrawMode setting (optional)
+* - Cullface setting (optional)
+* The Hull3D object is drawn as a single TriangleMesh by drawHull3D() using drawMesh3D().
+*
+* The hull is computed by the QuickHull algorithm. Points outside the initial tetrahedron
+* are partitioned among its faces, and the points seen by the faces removed in each step
+* are partitioned among the new faces; large partitions are computed in parallel.
+* Adapted from: Barber, Dobkin and Huhdanpaa, The Quickhull Algorithm for Convex Hulls,
+* ACM Transactions on Mathematical Software 22(4), 1996, and John E. Lloyd, QuickHull3D,
+* http://www.cs.ubc.ca/~lloyd/java/quickhull3d.html
+*
+* Coplanar hull faces are not merged, so a flat side of the hull may be represented by
+* several triangles.
+*
+* The class implements defaults specified in Draw3DDefaults.
+*
+* @author William Edison
+* @version 1.02
+*
+*/
+public class Hull3D implements Draw3DDefaults {
+	private double[] p;				// Packed x, y, z coordinates of the points
+	private int n;					// Number of points
+	private int[] faces;			// Point indices of the hull triangles, three per face
+	private int[] vertices;			// Sorted indices of the points that are hull vertices
+	private PhongMaterial m;
+	private DrawMode dm;
+	private CullFace cf;
+
+	// Working storage used while computing the hull
+	private double tolerance;
+	private int nf;					// Number of faces created
+	private int[] fv;				// Vertices of face f at fv[3f], fv[3f+1], fv[3f+2]
+	private int[] adj;				// Neighbour of face f across the edge from vertex k to k+1 at adj[3f+k]
+	private double[] plane;			// Unit normal and offset of face f at plane[4f] .. plane[4f+3]
+	private boolean[] deleted;
+	private int[][] outside;		// Points outside face f
+	private int[] outsideCount;
+	private int[] furthest;			// Point of the outside set furthest from face f
+	private int[] horizon;			// Horizon edges as (face, edge) pairs, found by findHorizon()
+	private int nh;
+	private int[] visible;			// Faces visible from the eye point, found by findHorizon()
+	private int nv;
+	private int[] stack;			// Depth first search stack of findHorizon()
+	private int[] work;				// Points to be partitioned
+	private double[] normal;
+
+	/**
+	 * Constructs a Hull3D object given a Point3D array of points.
+	 *
+	 * @param	pts	Point3D array of points
+	 */
+	public Hull3D(Point3D[] pts) {
+		this(VectorMath.toPacked(pts), pts.length);
+	}
+
+	/**
+	 * Constructs a Hull3D object given a Point3D array of points and a PhongMaterial.
+	 *
+	 * @param	pts	Point3D array of points
+	 * @param	m	PhongMaterial determining hull color
+	 */
+	public Hull3D(Point3D[] pts, PhongMaterial m) {
+		this(pts);
+		this.m = m;
+	}
+
+	/**
+	 * Constructs a Hull3D object given the first n points of a packed array,
+	 * with point i at p[3*i], p[3*i+1], p[3*i+2]. The array is not copied.
+	 *
+	 * @param	p	double[] packed array of points
+	 * @param	n	int number of points
+	 */
+	public Hull3D(double[] p, int n) {
+		this.p = p;
+		this.n = n;
+		computeHull();
+	}
+
+	/**
+	 * Gets the packed array of points
+	 *
+	 * @return	p	double[] packed array of points
+	 */
+	public double[] getPoints() {
+		return p;
+	}
+
+	/**
+	 * Gets the number of points
+	 *
+	 * @return	n	int number of points
+	 */
+	public int getPointCount() {
+		return n;
+	}
+
+	/**
+	 * Gets the hull faces as point indices, three per triangle, ordered counter clockwise
+	 * when seen from outside the hull. The array is empty if the points are coplanar.
+	 *
+	 * @return	faces	int[] array of point indices
+	 */
+	public int[] getFaces() {
+		return faces;
+	}
+
+	/**
+	 * Gets the number of triangular hull faces
+	 *
+	 * @return	int number of faces
+	 */
+	public int getFaceCount() {
+		return faces.length/3;
+	}
+
+	/**
+	 * Gets the sorted indices of the points that are hull vertices
+	 *
+	 * @return	vertices	int[] array of point indices
+	 */
+	public int[] getVertexIndices() {
+		return vertices;
+	}
+
+	/**
+	 * Gets the hull vertices
+	 *
+	 * @return	Point3D array of hull vertices
+	 */
+	public Point3D[] getVertices() {
+		Point3D[] v = new Point3D[vertices.length];
+		for (int i = 0; i < v.length; i++) {
+			v[i] = VectorMath.toPoint3D(p, vertices[i]);
+		}
+		return v;
+	}
+
+	/**
+	 * Gets the centroid of the hull vertices
+	 *
+	 * @return	Point3D centroid
+	 */
+	public Point3D getCentroid() {
+		double x = 0.0, y = 0.0, z = 0.0;
+		for (int i = 0; i < vertices.length; i++) {
+			int k = 3*vertices[i];
+			x += p[k];
+			y += p[k+1];
+			z += p[k+2];
+		}
+		int count = Math.max(vertices.length, 1);
+		return new Point3D(x/count, y/count, z/count);
+	}
+
+	/**
+	 * Computes the volume enclosed by the hull
+	 *
+	 * @return	double volume
+	 */
+	public double getVolume() {
+		double volume = 0.0;
+		for (int f = 0; f < faces.length; f += 3) {
+			int a = 3*faces[f], b = 3*faces[f+1], c = 3*faces[f+2];
+			volume += VectorMath.tripleProduct(p[a], p[a+1], p[a+2],
+											   p[b], p[b+1], p[b+2],
+											   p[c], p[c+1], p[c+2]);
+		}
+		return volume / 6.0;
+	}
+
+	/**
+	 * Computes the surface area of the hull
+	 *
+	 * @return	double area
+	 */
+	public double getArea() {
+		double[] normal = new double[3];
+		double area = 0.0;
+		for (int f = 0; f < faces.length; f += 3) {
+			int a = 3*faces[f], b = 3*faces[f+1], c = 3*faces[f+2];
+			VectorMath.triangleNormal(p[a], p[a+1], p[a+2], p[b], p[b+1], p[b+2], p[c], p[c+1], p[c+2], normal, 0);
+			area += VectorMath.length(normal, 0);
+		}
+		return area / 2.0;
+	}
+
+	/**
+	 * Gets the PhongMaterial
+	 *
+	 * @return	m	PhongMaterial
+	 */
+	public PhongMaterial getMaterial() {
+		return m;
+	}
+
+	/**
+	 * Sets the PhongMaterial
+	 *
+	 * @param	m	PhongMaterial
+	 */
+	public void setMaterial(PhongMaterial m) {
+		this.m = m;
+	}
+
+	/**
+	 * Gets the DrawMode
+	 *
+	 * @return	dm	DrawMode
+	 */
+	public DrawMode getDrawMode() {
+		return dm;
+	}
+
+	/**
+	 * Sets the DrawMode
+	 *
+	 * @param	dm	DrawMode
+	 */
+	public void setDrawMode(DrawMode dm) {
+		this.dm = dm;
+	}
+
+	/**
+	 * Gets the CullFace
+	 *
+	 * @return	cf	CullFace
+	 */
+	public CullFace getCullFace() {
+		return cf;
+	}
+
+	/**
+	 * Sets the CullFace
+	 *
+	 * @param	cf	CullFace
+	 */
+	public void setCullFace(CullFace cf) {
+		this.cf = cf;
+	}
+
+	/**
+	 * Computes the hull faces and vertices, then releases the working storage.
+	 */
+	private void computeHull() {
+		faces = new int[0];
+		vertices = new int[0];
+		if (n < 4) {
+			System.out.println("Hull3D: At least four points are required.");
+			return;
+		}
+
+		int capacity = 64;
+		fv = new int[3*capacity];
+		adj = new int[3*capacity];
+		plane = new double[4*capacity];
+		deleted = new boolean[capacity];
+		outside = new int[capacity][];
+		outsideCount = new int[capacity];
+		furthest = new int[capacity];
+		normal = new double[3];
+
+		if (createInitialSimplex()) {
+			int[] pending = new int[16];
+			int np = 0;
+			for (int f = 0; f < nf; f++) {
+				if (outsideCount[f] > 0) {
+					pending = grow(pending, np+1);
+					pending[np++] = f;
+				}
+			}
+			int[] newFaces = new int[16];
+			horizon = new int[32];
+			visible = new int[16];
+			stack = new int[3*16];
+			work = new int[16];
+			while (np > 0) {
+				int f = pending[--np];
+				if (deleted[f] || outsideCount[f] == 0) {
+					continue;
+				}
+				int eye = furthest[f];
+
+				// Find the faces visible from the eye point and the horizon around them
+				findHorizon(eye, f);
+
+				// Cone of new faces from the horizon to the eye point
+				newFaces = grow(newFaces, nh);
+				for (int i = 0; i < nh; i++) {
+					int g = horizon[2*i];
+					int k = horizon[2*i+1];
+					int u = fv[3*g+k];
+					int w = fv[3*g+(k+1)%3];
+					int h = adj[3*g+k];
+					int nfc = addFace(u, w, eye);
+					adj[3*nfc] = h;
+					adj[3*h+edgeFrom(h, w)] = nfc;
+					newFaces[i] = nfc;
+				}
+				for (int i = 0; i < nh; i++) {
+					int a = newFaces[i];
+					int b = newFaces[(i+1)%nh];
+					adj[3*a+1] = b;
+					adj[3*b+2] = a;
+				}
+
+				// Partition the points seen by the visible faces among the new faces
+				int count = 0;
+				for (int i = 0; i < nv; i++) {
+					count += outsideCount[visible[i]];
+				}
+				work = grow(work, count);
+				int[] pts = work;
+				count = 0;
+				for (int i = 0; i < nv; i++) {
+					int g = visible[i];
+					for (int j = 0; j < outsideCount[g]; j++) {
+						if (outside[g][j] != eye) {
+							pts[count++] = outside[g][j];
+						}
+					}
+					outside[g] = null;
+					outsideCount[g] = 0;
+				}
+				partition(pts, count, newFaces, nh);
+				for (int i = 0; i < nh; i++) {
+					if (outsideCount[newFaces[i]] > 0) {
+						pending = grow(pending, np+1);
+						pending[np++] = newFaces[i];
+					}
+				}
+			}
+
+			// Collect the remaining faces and their vertices
+			int live = 0;
+			for (int f = 0; f < nf; f++) {
+				if (!deleted[f]) {
+					live++;
+				}
+			}
+			faces = new int[3*live];
+			boolean[] isVertex = new boolean[n];
+			int count = 0;
+			for (int f = 0, k = 0; f < nf; f++) {
+				if (!deleted[f]) {
+					for (int j = 0; j < 3; j++) {
+						int v = fv[3*f+j];
+						faces[k++] = v;
+						if (!isVertex[v]) {
+							isVertex[v] = true;
+							count++;
+						}
+					}
+				}
+			}
+			vertices = new int[count];
+			for (int i = 0, k = 0; i < n; i++) {
+				if (isVertex[i]) {
+					vertices[k++] = i;
+				}
+			}
+		}
+
+		fv = null;
+		adj = null;
+		plane = null;
+		deleted = null;
+		outside = null;
+		outsideCount = null;
+		furthest = null;
+		horizon = null;
+		visible = null;
+		stack = null;
+		work = null;
+		normal = null;
+	}
+
+	/**
+	 * Creates the initial tetrahedron from extreme points and partitions all points among its faces.
+	 *
+	 * @return	boolean false if the points are collinear or coplanar
+	 */
+	private boolean createInitialSimplex() {
+		// Extreme points along each axis; b holds {minX, maxX, minY, maxY, minZ, maxZ}
+		int[] min = new int[3];
+		int[] max = new int[3];
+		double[] b = new double[6];
+		for (int a = 0; a < 3; a++) {
+			b[2*a] = b[2*a+1] = p[a];
+		}
+		for (int i = 1; i < n; i++) {
+			for (int a = 0; a < 3; a++) {
+				double c = p[3*i+a];
+				if (c < b[2*a]) {
+					b[2*a] = c;
+					min[a] = i;
+				}
+				else if (c > b[2*a+1]) {
+					b[2*a+1] = c;
+					max[a] = i;
+				}
+			}
+		}
+		tolerance = 3 * Math.ulp(1.0) * (Math.max(Math.abs(b[0]), Math.abs(b[1])) +
+										 Math.max(Math.abs(b[2]), Math.abs(b[3])) +
+										 Math.max(Math.abs(b[4]), Math.abs(b[5])));
+
+		// First two vertices: the extreme pair with the greatest separation
+		int axis = 0;
+		for (int a = 1; a < 3; a++) {
+			if (b[2*a+1] - b[2*a] > b[2*axis+1] - b[2*axis]) {
+				axis = a;
+			}
+		}
+		int v0 = min[axis];
+		int v1 = max[axis];
+		if (b[2*axis+1] - b[2*axis] <= tolerance) {
+			System.out.println("Hull3D: Points are coincident.");
+			return false;
+		}
+
+		// Third vertex: the point furthest from the line v0 v1
+		double[] t = new double[6];
+		VectorMath.subtract(p, v1, p, v0, t, 0);
+		VectorMath.normalize(t, 0, t, 0);
+		int v2 = -1;
+		double maxDist = 0.0;
+		for (int i = 0; i < n; i++) {
+			VectorMath.subtract(p, i, p, v0, t, 1);
+			VectorMath.crossProduct(t, 0, t, 1, t, 1);
+			double d = VectorMath.dotProduct(t, 1, t, 1);
+			if (d > maxDist) {
+				maxDist = d;
+				v2 = i;
+			}
+		}
+		if (Math.sqrt(maxDist) <= 100 * tolerance) {
+			System.out.println("Hull3D: Points are collinear.");
+			return false;
+		}
+
+		// Fourth vertex: the point furthest from the plane v0 v1 v2
+		int base = addFace(v0, v1, v2);
+		int v3 = -1;
+		maxDist = 0.0;
+		for (int i = 0; i < n; i++) {
+			double d = distance(base, i);
+			if (Math.abs(d) > Math.abs(maxDist)) {
+				maxDist = d;
+				v3 = i;
+			}
+		}
+		if (Math.abs(maxDist) <= 100 * tolerance) {
+			System.out.println("Hull3D: Points are coplanar.");
+			nf = 0;
+			return false;
+		}
+
+		// Four outward oriented faces; faces share edges as f: (a b) and adj: (b a)
+		nf = 0;
+		if (maxDist > 0.0) {				// v3 above v0 v1 v2, so the base is v0 v2 v1
+			int tmp = v1;
+			v1 = v2;
+			v2 = tmp;
+		}
+		int f0 = addFace(v0, v1, v2);
+		int f1 = addFace(v0, v3, v1);
+		int f2 = addFace(v1, v3, v2);
+		int f3 = addFace(v2, v3, v0);
+		for (int f = f0; f <= f3; f++) {
+			for (int k = 0; k < 3; k++) {
+				int u = fv[3*f+k];
+				int w = fv[3*f+(k+1)%3];
+				for (int g = f0; g <= f3; g++) {
+					for (int j = 0; j < 3; j++) {
+						if (fv[3*g+j] == w && fv[3*g+(j+1)%3] == u) {
+							adj[3*f+k] = g;
+						}
+					}
+				}
+			}
+		}
+
+		int[] all = new int[n];
+		int count = 0;
+		for (int i = 0; i < n; i++) {
+			if (i != v0 && i != v1 && i != v2 && i != v3) {
+				all[count++] = i;
+			}
+		}
+		partition(all, count, new int[] {f0, f1, f2, f3}, 4);
+		return true;
+	}
+
+	/**
+	 * Marks the faces visible from the eye point as deleted, starting with face f0, and
+	 * finds the horizon edges separating them from the faces that are not visible.
+	 * The horizon edges are returned as (face, edge) pairs in counter clockwise order
+	 * around the eye point. The traversal is a depth first search with an explicit stack.
+	 */
+	private void findHorizon(int eye, int f0) {
+		nh = 0;
+		nv = 0;
+		int sp = 0;						// stack entries are face, next edge, remaining edges
+
+		deleted[f0] = true;
+		visible = grow(visible, nv+1);
+		visible[nv++] = f0;
+		stack[sp++] = f0;
+		stack[sp++] = 0;
+		stack[sp++] = 3;
+
+		while (sp > 0) {
+			int f = stack[sp-3];
+			int k = stack[sp-2];
+			int remaining = stack[sp-1];
+			if (remaining == 0) {
+				sp -= 3;
+				continue;
+			}
+			stack[sp-2] = (k+1)%3;
+			stack[sp-1] = remaining-1;
+
+			int g = adj[3*f+k];
+			if (!deleted[g]) {
+				if (distance(g, eye) > tolerance) {
+					deleted[g] = true;
+					visible = grow(visible, nv+1);
+					visible[nv++] = g;
+					// continue across g starting after the edge shared with f
+					int kg = edgeFrom(g, fv[3*f+(k+1)%3]);
+					stack = grow(stack, sp+3);
+					stack[sp++] = g;
+					stack[sp++] = (kg+1)%3;
+					stack[sp++] = 2;
+				}
+				else {
+					horizon = grow(horizon, 2*nh+2);
+					horizon[2*nh] = f;
+					horizon[2*nh+1] = k;
+					nh++;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Assigns each of the points to the outside set of the first of the faces that
+	 * it is above, discarding points that are above none. Point to face assignment
+	 * is done in parallel for large point sets.
+	 */
+	private void partition(final int[] pts, int count, final int[] fcs, final int nfc) {
+		if (count < PARALLEL_THRESHOLD) {
+			for (int i = 0; i < count; i++) {
+				for (int j = 0; j < nfc; j++) {
+					int f = fcs[j];
+					double d = distance(f, pts[i]);
+					if (d > tolerance) {
+						if (outsideCount[f] == 0) {
+							outside[f] = new int[4];
+							furthest[f] = pts[i];
+						}
+						else {
+							outside[f] = grow(outside[f], outsideCount[f]+1);
+							if (d > distance(f, furthest[f])) {
+								furthest[f] = pts[i];
+							}
+						}
+						outside[f][outsideCount[f]++] = pts[i];
+						break;
+					}
+				}
+			}
+			return;
+		}
+
+		final int[] assign = new int[count];
+		final double[] dist = new double[count];
+		new ParallelRange() {
+			protected void compute(int lo, int hi) {
+				for (int i = lo; i < hi; i++) {
+					assign[i] = -1;
+					for (int j = 0; j < nfc; j++) {
+						double d = distance(fcs[j], pts[i]);
+						if (d > tolerance) {
+							assign[i] = j;
+							dist[i] = d;
+							break;
+						}
+					}
+				}
+			}
+		}.invoke(0, count);
+
+		int[] sizes = new int[nfc];
+		for (int i = 0; i < count; i++) {
+			if (assign[i] >= 0) {
+				sizes[assign[i]]++;
+			}
+		}
+		double[] maxDist = new double[nfc];
+		for (int j = 0; j < nfc; j++) {
+			int f = fcs[j];
+			outside[f] = (sizes[j] > 0) ? new int[sizes[j]] : null;
+			outsideCount[f] = 0;
+		}
+		for (int i = 0; i < count; i++) {
+			int j = assign[i];
+			if (j >= 0) {
+				int f = fcs[j];
+				outside[f][outsideCount[f]++] = pts[i];
+				if (dist[i] > maxDist[j]) {
+					maxDist[j] = dist[i];
+					furthest[f] = pts[i];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds a face with vertices a, b, c and computes its plane.
+	 *
+	 * @return	int index of the new face
+	 */
+	private int addFace(int a, int b, int c) {
+		if (nf == deleted.length) {
+			int capacity = 2*nf;
+			fv = Arrays.copyOf(fv, 3*capacity);
+			adj = Arrays.copyOf(adj, 3*capacity);
+			plane = Arrays.copyOf(plane, 4*capacity);
+			deleted = Arrays.copyOf(deleted, capacity);
+			outside = Arrays.copyOf(outside, capacity);
+			outsideCount = Arrays.copyOf(outsideCount, capacity);
+			furthest = Arrays.copyOf(furthest, capacity);
+		}
+		int f = nf++;
+		fv[3*f] = a;
+		fv[3*f+1] = b;
+		fv[3*f+2] = c;
+		deleted[f] = false;
+		outside[f] = null;
+		outsideCount[f] = 0;
+
+		int ka = 3*a, kb = 3*b, kc = 3*c;
+		VectorMath.triangleNormal(p[ka], p[ka+1], p[ka+2], p[kb], p[kb+1], p[kb+2], p[kc], p[kc+1], p[kc+2], normal, 0);
+		VectorMath.normalize(normal, 0, normal, 0);
+		plane[4*f]   = normal[0];
+		plane[4*f+1] = normal[1];
+		plane[4*f+2] = normal[2];
+		plane[4*f+3] = (normal[0]*(p[ka] + p[kb] + p[kc]) +
+						normal[1]*(p[ka+1] + p[kb+1] + p[kc+1]) +
+						normal[2]*(p[ka+2] + p[kb+2] + p[kc+2])) / 3.0;
+		return f;
+	}
+
+	/**
+	 * Returns the signed distance of point i above the plane of face f.
+	 */
+	private double distance(int f, int i) {
+		int k = 3*i;
+		int j = 4*f;
+		return plane[j]*p[k] + plane[j+1]*p[k+1] + plane[j+2]*p[k+2] - plane[j+3];
+	}
+
+	/**
+	 * Returns the edge index k of face f whose edge starts at vertex v.
+	 */
+	private int edgeFrom(int f, int v) {
+		return (fv[3*f] == v) ? 0 : (fv[3*f+1] == v) ? 1 : 2;
+	}
+
+	private static int[] grow(int[] a, int size) {
+		return (size <= a.length) ? a : Arrays.copyOf(a, Math.max(size, 2*a.length));
+	}
+
+	/**
+	 * Returns a String containing all Hull3D values for saving to a data file: the hull
+	 * vertices and the drawing settings. The String is read by DataReader.readObject()
+	 * to recreate a Hull3D object, the hull of the vertices, when reading a saved data file.
+	 *
+	 * @return	String capturing all Hull3D field values
+	 */
+	public String outString() {
+		StringBuilder sb = new StringBuilder(64*vertices.length);
+		sb.append("Hull: ");
+		for (int i = 0; i < vertices.length; i++) {
+			int k = 3*vertices[i];
+			sb.append("( ").append(p[k]).append(", ").append(p[k+1]).append(", ").append(p[k+2]).append(" ), ");
+		}
+		sb.append("#");
+		sb.append(", ").append(dm).append(", ").append(cf);
+		if (m != null) {
+			sb.append(", ").append(m.getDiffuseColor());
+			if (m.getSpecularColor() != null) {
+				sb.append(", ").append(m.getSpecularColor());
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Returns a String with the number of points, hull vertices and faces
+	 *
+	 * @return	String description of the Hull3D object
+	 */
+	public String toString() {
+		return "Hull3D: points= " + n + ", vertices= " + vertices.length + ", faces= " + getFaceCount();
+	}
+}
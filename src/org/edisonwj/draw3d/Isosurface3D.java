@@ -0,0 +1,555 @@
+package org.edisonwj.draw3d;
+
+import java.util.Arrays;
+
+import javafx.scene.paint.PhongMaterial;
+import javafx.scene.shape.CullFace;
+import javafx.scene.shape.DrawMode;
+/**
+* Isosurface3D class captures the surface F(x, y, z) = level of a function within the
+* boundary of the user coordinate space:
+* - Function3D F, e.g. a quadric, and the level, 0 by default
+* - number of grid divisions along each axis
+* - boundary box {minX, maxX, minY, maxY, minZ, maxZ} (user coordinate scale)
+* - computed vertices and triangles of the surface, counter clockwise when seen from
+*   the side where F is greater than the level
+* - PhongMaterial (optional)
+* - DrawMode setting (optional)
+* - Cullface setting (optional)
+* The Isosurface3D object is drawn by drawIsosurface3D() as a single TriangleMesh.
+*
+* F is sampled at the grid points and the triangles of each grid cell are found by
+* marching cubes. The triangle table is generated from the cube faces: on each face the
+* edges where F crosses the level are joined so as to separate the corners below the
+* level, which is decided by the face alone and so agrees between neighbouring cells,
+* and the joins of the six faces are followed into closed polygons. The surface is
+* therefore free of cracks.
+*
+* The grid is split into slabs along z that are processed in parallel by ParallelRange,
+* each sampling F one layer of grid points at a time. A vertex is identified by its grid
+* edge, and the vertices of a slab are welded by a hash map of edge to vertex index with
+* primitive long keys; vertices on the plane shared by two slabs are welded when the
+* slabs are joined.
+* See also: William E. Lorensen and Harvey E. Cline, Marching Cubes: A High Resolution
+* 3D Surface Construction Algorithm, Computer Graphics 21(4), 1987.
+*
+* The class implements defaults specified in Draw3DDefaults.
+*
+* @author William Edison
+* @version 1.02
+*
+*/
+public class Isosurface3D implements Draw3DDefaults {
+	// Cube corner c is at (c & 1, c >> 1 & 1, c >> 2 & 1); edges 0-3 are along x, 4-7 along y, 8-11 along z
+	private static final int[] EDGE_CORNER = new int[12];	// Lower corner of each edge
+	private static final int[] EDGE_AXIS = new int[12];		// Axis of each edge, 0, 1 or 2
+	private static final int[][] TRIANGLES = new int[256][];	// Edges of the triangles of each corner configuration
+
+	static {
+		int[][] edgeOf = new int[8][8];
+		int e = 0;
+		for (int axis = 0; axis < 3; axis++) {
+			for (int c = 0; c < 8; c++) {
+				if ((c & (1 << axis)) == 0) {
+					EDGE_CORNER[e] = c;
+					EDGE_AXIS[e] = axis;
+					edgeOf[c][c | (1 << axis)] = e;
+					edgeOf[c | (1 << axis)][c] = e;
+					e++;
+				}
+			}
+		}
+
+		// Corners of each face, counter clockwise when seen from outside the cube
+		int[][] faces = new int[6][];
+		for (int axis = 0; axis < 3; axis++) {
+			int u = 1 << ((axis + 1) % 3);
+			int v = 1 << ((axis + 2) % 3);
+			int b = 1 << axis;
+			faces[2*axis]   = new int[] {0, v, u | v, u};
+			faces[2*axis+1] = new int[] {b, b | u, b | u | v, b | v};
+		}
+
+		boolean[][] sameFace = new boolean[12][12];
+		for (int[] f : faces) {
+			for (int r = 0; r < 4; r++) {
+				for (int s = 0; s < 4; s++) {
+					sameFace[edgeOf[f[r]][f[(r+1) % 4]]][edgeOf[f[s]][f[(s+1) % 4]]] = true;
+				}
+			}
+		}
+
+		int[] next = new int[12];
+		int[] loop = new int[12];
+		int[] tris = new int[36];
+		for (int cube = 0; cube < 256; cube++) {
+			// On each face join the edge entering each run of corners below the level to the edge leaving it
+			Arrays.fill(next, -1);
+			for (int[] f : faces) {
+				for (int r = 0; r < 4; r++) {
+					if ((cube >> f[r] & 1) == 0 && (cube >> f[(r+1) % 4] & 1) == 1) {
+						int s = (r + 1) % 4;
+						while ((cube >> f[(s+1) % 4] & 1) == 1) {
+							s = (s + 1) % 4;
+						}
+						next[edgeOf[f[r]][f[(r+1) % 4]]] = edgeOf[f[s]][f[(s+1) % 4]];
+					}
+				}
+			}
+			// Follow the joins into closed polygons and split each into a fan of triangles, from a
+			// vertex whose diagonals do not lie on a cube face, where they would meet the neighbouring cell
+			int nt = 0;
+			for (int e0 = 0; e0 < 12; e0++) {
+				int nl = 0;
+				for (int k = e0; next[k] >= 0; ) {
+					loop[nl++] = k;
+					int t = next[k];
+					next[k] = -1;
+					k = t;
+				}
+				int apex = 0;
+				for (int a = 0; a < nl; a++) {
+					boolean inFace = false;
+					for (int i = 2; i < nl - 1; i++) {
+						inFace |= sameFace[loop[a]][loop[(a+i) % nl]];
+					}
+					if (!inFace) {
+						apex = a;
+						break;
+					}
+				}
+				for (int i = 1; i < nl - 1; i++) {
+					tris[nt++] = loop[apex];
+					tris[nt++] = loop[(apex+i) % nl];
+					tris[nt++] = loop[(apex+i+1) % nl];
+				}
+			}
+			TRIANGLES[cube] = Arrays.copyOf(tris, nt);
+		}
+	}
+
+	private Function3D f;
+	private double level;
+	private int divisions;
+	private double[] box;			// Boundary {minX, maxX, minY, maxY, minZ, maxZ}
+	private double[] points;		// Packed x, y, z of the vertices
+	private int[] triangles;		// Vertex indices, three per triangle
+	private PhongMaterial m;
+	private DrawMode dm;
+	private CullFace cf;
+
+	/**
+	 * Constructs an Isosurface3D object for the surface F(x, y, z) = 0 within the specified
+	 * boundary, sampled on a grid of the specified number of divisions along each axis.
+	 *
+	 * @param	f			Function3D F
+	 * @param	divisions	int number of grid divisions along each axis
+	 * @param	minX		double minimum value of the x axis (in user coordinate space)
+	 * @param	maxX		double maximum value of the x axis (in user coordinate space)
+	 * @param	minY		double minimum value of the y axis (in user coordinate space)
+	 * @param	maxY		double maximum value of the y axis (in user coordinate space)
+	 * @param	minZ		double minimum value of the z axis (in user coordinate space)
+	 * @param	maxZ		double maximum value of the z axis (in user coordinate space)
+	 */
+	public Isosurface3D(Function3D f, int divisions, double minX, double maxX,
+						double minY, double maxY, double minZ, double maxZ) {
+		this(f, 0.0, divisions, minX, maxX, minY, maxY, minZ, maxZ);
+	}
+
+	/**
+	 * Constructs an Isosurface3D object for the surface F(x, y, z) = level within the
+	 * specified boundary, sampled on a grid of the specified number of divisions along each axis.
+	 *
+	 * @param	f			Function3D F
+	 * @param	level		double value of F on the surface
+	 * @param	divisions	int number of grid divisions along each axis
+	 * @param	minX		double minimum value of the x axis (in user coordinate space)
+	 * @param	maxX		double maximum value of the x axis (in user coordinate space)
+	 * @param	minY		double minimum value of the y axis (in user coordinate space)
+	 * @param	maxY		double maximum value of the y axis (in user coordinate space)
+	 * @param	minZ		double minimum value of the z axis (in user coordinate space)
+	 * @param	maxZ		double maximum value of the z axis (in user coordinate space)
+	 */
+	public Isosurface3D(Function3D f, double level, int divisions, double minX, double maxX,
+						double minY, double maxY, double minZ, double maxZ) {
+		this.f = f;
+		this.level = level;
+		this.divisions = Math.max(divisions, 1);
+		findSurface(minX, maxX, minY, maxY, minZ, maxZ);
+	}
+
+	/**
+	 * Constructs an Isosurface3D object for the surface F(x, y, z) = level within the
+	 * specified boundary, with the PhongMaterial of the surface.
+	 *
+	 * @param	f			Function3D F
+	 * @param	level		double value of F on the surface
+	 * @param	divisions	int number of grid divisions along each axis
+	 * @param	minX		double minimum value of the x axis (in user coordinate space)
+	 * @param	maxX		double maximum value of the x axis (in user coordinate space)
+	 * @param	minY		double minimum value of the y axis (in user coordinate space)
+	 * @param	maxY		double maximum value of the y axis (in user coordinate space)
+	 * @param	minZ		double minimum value of the z axis (in user coordinate space)
+	 * @param	maxZ		double maximum value of the z axis (in user coordinate space)
+	 * @param	m			PhongMaterial determining surface color
+	 */
+	public Isosurface3D(Function3D f, double level, int divisions, double minX, double maxX,
+						double minY, double maxY, double minZ, double maxZ, PhongMaterial m) {
+		this(f, level, divisions, minX, maxX, minY, maxY, minZ, maxZ);
+		this.m = m;
+	}
+
+	/**
+	 * Finds the vertices and triangles of the surface within the specified boundary,
+	 * replacing those of any previous boundary.
+	 *
+	 * @param	minX	double minimum value of the x axis (in user coordinate space)
+	 * @param	maxX	double maximum value of the x axis (in user coordinate space)
+	 * @param	minY	double minimum value of the y axis (in user coordinate space)
+	 * @param	maxY	double maximum value of the y axis (in user coordinate space)
+	 * @param	minZ	double minimum value of the z axis (in user coordinate space)
+	 * @param	maxZ	double maximum value of the z axis (in user coordinate space)
+	 */
+	public void findSurface(double minX, double maxX, double minY, double maxY,
+							double minZ, double maxZ) {
+		box = new double[] {minX, maxX, minY, maxY, minZ, maxZ};
+		final int n = divisions;
+		final int nslabs = Math.min(n, 4 * Runtime.getRuntime().availableProcessors());
+		final Slab[] slabs = new Slab[nslabs];
+		new ParallelRange() {
+			protected void compute(int lo, int hi) {
+				for (int s = lo; s < hi; s++) {
+					slabs[s] = march(s * n / nslabs, (s + 1) * n / nslabs);
+				}
+			}
+		}.invoke(0, nslabs, 2);
+
+		// Join the slabs, welding the vertices on the plane shared with the previous slab
+		long layer = 3L * (n + 1) * (n + 1);
+		int[][] index = new int[nslabs][];
+		int nv = 0;
+		int nt = 0;
+		for (int s = 0; s < nslabs; s++) {
+			Slab sl = slabs[s];
+			index[s] = new int[sl.nv];
+			for (int v = 0; v < sl.nv; v++) {
+				long key = sl.keys[v];
+				int pv = (s > 0 && key / layer == sl.k0) ? slabs[s-1].map.get(key) : -1;
+				index[s][v] = (pv >= 0) ? index[s-1][pv] : nv++;
+			}
+			nt += sl.nt;
+		}
+		points = new double[3*nv];
+		triangles = new int[3*nt];
+		nt = 0;
+		for (int s = 0; s < nslabs; s++) {
+			Slab sl = slabs[s];
+			int[] ix = index[s];
+			for (int v = 0; v < sl.nv; v++) {
+				System.arraycopy(sl.p, 3*v, points, 3*ix[v], 3);
+			}
+			for (int k = 0; k < 3*sl.nt; k++) {
+				triangles[nt++] = ix[sl.t[k]];
+			}
+		}
+	}
+
+	/**
+	 * Finds the vertices and triangles of the cells of grid layers k0 to k1 - 1.
+	 */
+	private Slab march(int k0, int k1) {
+		int n = divisions;
+		int n1 = n + 1;
+		double x0 = box[0], y0 = box[2], z0 = box[4];
+		double hx = (box[1] - box[0]) / n;
+		double hy = (box[3] - box[2]) / n;
+		double hz = (box[5] - box[4]) / n;
+		Slab sl = new Slab(k0, n*n);
+		double[] below = new double[n1*n1];
+		double[] above = new double[n1*n1];
+		double[] cv = new double[8];
+		sample(below, k0, hx, hy, hz);
+		for (int k = k0; k < k1; k++) {
+			sample(above, k + 1, hx, hy, hz);
+			for (int j = 0; j < n; j++) {
+				for (int i = 0; i < n; i++) {
+					int g = j*n1 + i;
+					cv[0] = below[g];
+					cv[1] = below[g+1];
+					cv[2] = below[g+n1];
+					cv[3] = below[g+n1+1];
+					cv[4] = above[g];
+					cv[5] = above[g+1];
+					cv[6] = above[g+n1];
+					cv[7] = above[g+n1+1];
+					int cube = 0;
+					for (int c = 0; c < 8; c++) {
+						if (cv[c] < level) {
+							cube |= 1 << c;
+						}
+					}
+					int[] tri = TRIANGLES[cube];
+					if (tri.length == 0) {
+						continue;
+					}
+					for (int e : tri) {
+						int a = EDGE_CORNER[e];
+						int axis = EDGE_AXIS[e];
+						int gi = i + (a & 1);
+						int gj = j + (a >> 1 & 1);
+						int gk = k + (a >> 2 & 1);
+						long key = 3L*(((long) gk*n1 + gj)*n1 + gi) + axis;
+						int v = sl.map.get(key);
+						if (v < 0) {
+							double va = cv[a];
+							double t = (level - va) / (cv[a | (1 << axis)] - va);
+							v = sl.addVertex(key, x0 + (gi + (axis == 0 ? t : 0.0)) * hx,
+												  y0 + (gj + (axis == 1 ? t : 0.0)) * hy,
+												  z0 + (gk + (axis == 2 ? t : 0.0)) * hz);
+						}
+						sl.addIndex(v);
+					}
+				}
+			}
+			double[] tmp = below;
+			below = above;
+			above = tmp;
+		}
+		return sl;
+	}
+
+	/**
+	 * Samples F on grid layer k. Values that are not a number are taken to be above the
+	 * level and infinite values are limited, so that vertices stay within their cells.
+	 */
+	private void sample(double[] values, int k, double hx, double hy, double hz) {
+		int n1 = divisions + 1;
+		double z = box[4] + k * hz;
+		for (int j = 0; j < n1; j++) {
+			double y = box[2] + j * hy;
+			for (int i = 0; i < n1; i++) {
+				double v = f.value(box[0] + i * hx, y, z);
+				if (Double.isNaN(v)) {
+					v = Double.MAX_VALUE;
+				}
+				values[j*n1 + i] = Math.max(Math.min(v, Double.MAX_VALUE), -Double.MAX_VALUE);
+			}
+		}
+	}
+
+	/**
+	 * Vertices and triangles of a slab of grid cells, with vertex indices local to the slab.
+	 */
+	private static class Slab {
+		final int k0;				// First grid layer
+		final LongIntMap map;		// Grid edge to vertex index
+		long[] keys;				// Grid edge of each vertex
+		double[] p;					// Packed x, y, z of each vertex
+		int nv;
+		int[] t;					// Vertex indices, three per triangle
+		int nt;
+		private int ni;
+
+		Slab(int k0, int capacity) {
+			this.k0 = k0;
+			capacity = Math.max(capacity, 16);
+			map = new LongIntMap(capacity);
+			keys = new long[capacity];
+			p = new double[3*capacity];
+			t = new int[3*capacity];
+		}
+
+		int addVertex(long key, double x, double y, double z) {
+			if (nv == keys.length) {
+				keys = Arrays.copyOf(keys, 2*nv);
+				p = Arrays.copyOf(p, 6*nv);
+			}
+			keys[nv] = key;
+			p[3*nv]   = x;
+			p[3*nv+1] = y;
+			p[3*nv+2] = z;
+			map.put(key, nv);
+			return nv++;
+		}
+
+		void addIndex(int v) {
+			if (ni == t.length) {
+				t = Arrays.copyOf(t, 2*ni);
+			}
+			t[ni++] = v;
+			nt = ni / 3;
+		}
+	}
+
+	/**
+	 * Gets the function F
+	 *
+	 * @return	f	Function3D
+	 */
+	public Function3D getFunction() {
+		return f;
+	}
+
+	/**
+	 * Gets the value of F on the surface
+	 *
+	 * @return	level	double level
+	 */
+	public double getLevel() {
+		return level;
+	}
+
+	/**
+	 * Gets the number of grid divisions along each axis
+	 *
+	 * @return	divisions	int number of divisions
+	 */
+	public int getDivisions() {
+		return divisions;
+	}
+
+	/**
+	 * Gets the boundary of the surface
+	 *
+	 * @return	box	double[6] {minX, maxX, minY, maxY, minZ, maxZ}
+	 */
+	public double[] getBox() {
+		return box;
+	}
+
+	/**
+	 * Gets the vertices of the surface
+	 *
+	 * @return	points	double array of packed x, y, z vertices
+	 */
+	public double[] getPoints() {
+		return points;
+	}
+
+	/**
+	 * Gets the number of vertices of the surface
+	 *
+	 * @return	int number of vertices
+	 */
+	public int getPointCount() {
+		return points.length/3;
+	}
+
+	/**
+	 * Gets the triangles of the surface, counter clockwise when seen from the side where
+	 * F is greater than the level
+	 *
+	 * @return	triangles	int array of vertex indices, three per triangle
+	 */
+	public int[] getTriangles() {
+		return triangles;
+	}
+
+	/**
+	 * Gets the number of triangles of the surface
+	 *
+	 * @return	int number of triangles
+	 */
+	public int getTriangleCount() {
+		return triangles.length/3;
+	}
+
+	/**
+	 * Gets the PhongMaterial
+	 *
+	 * @return	m	PhongMaterial
+	 */
+	public PhongMaterial getMaterial() {
+		return m;
+	}
+
+	/**
+	 * Sets the PhongMaterial
+	 *
+	 * @param	m	PhongMaterial
+	 */
+	public void setMaterial(PhongMaterial m) {
+		this.m = m;
+	}
+
+	/**
+	 * Gets the DrawMode
+	 *
+	 * @return	dm	DrawMode
+	 */
+	public DrawMode getDrawMode() {
+		return dm;
+	}
+
+	/**
+	 * Sets the DrawMode
+	 *
+	 * @param	dm	DrawMode
+	 */
+	public void setDrawMode(DrawMode dm) {
+		this.dm = dm;
+	}
+
+	/**
+	 * Gets the CullFace
+	 *
+	 * @return	cf	CullFace
+	 */
+	public CullFace getCullFace() {
+		return cf;
+	}
+
+	/**
+	 * Sets the CullFace
+	 *
+	 * @param	cf	CullFace
+	 */
+	public void setCullFace(CullFace cf) {
+		this.cf = cf;
+	}
+
+	/**
+	 * Returns a String containing all Isosurface3D values for saving to a data file: the
+	 * formula and parameter values of the function, the level, divisions and boundary, and
+	 * the drawing settings, separated by ";" as the formula may contain ",". The String is
+	 * read by DataReader.readObject() to recreate an Isosurface3D object when reading a
+	 * saved data file. Only the isosurface of a Formula3D can be saved.
+	 *
+	 * @return	String capturing all Isosurface3D field values
+	 * @throws	IllegalStateException if the function is not a Formula3D
+	 */
+	public String outString() {
+		if (!(f instanceof Formula3D)) {
+			throw new IllegalStateException("Isosurface3D: only the isosurface of a Formula3D can be saved");
+		}
+		Formula3D fm = (Formula3D) f;
+		StringBuilder sb = new StringBuilder(256);
+		sb.append("Isosurface: ").append(fm.getFormula());
+		for (String name : fm.getParameterNames()) {
+			sb.append("; ").append(fm.getParameter(name));
+		}
+		sb.append("; ").append(level).append("; ").append(divisions);
+		for (int i = 0; i < box.length; i++) {
+			sb.append("; ").append(box[i]);
+		}
+		sb.append("; ").append(dm).append("; ").append(cf);
+		if (m != null) {
+			sb.append("; ").append(m.getDiffuseColor());
+			if (m.getSpecularColor() != null) {
+				sb.append("; ").append(m.getSpecularColor());
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Returns a String containing the level, grid and size of the surface
+	 *
+	 * @return	String representation of the Isosurface3D
+	 */
+	@Override
+	public String toString() {
+		return "Isosurface3D: level= " + level + ", divisions= " + divisions +
+			   ", vertices= " + getPointCount() + ", triangles= " + getTriangleCount();
+	}
+}
@@ -221,9 +221,8 @@ public class Line3D implements Draw3DDefaults {
      * @return	length	Double value of the Line length
      */
 	public double length() {
-		return Math.sqrt((p1.getX()-p2.getX())*(p1.getX()-p2.getX())
-						+ (p1.getY()-p2.getY())*(p1.getY()-p2.getY())
-						+ (p1.getZ()-p2.getZ())*(p1.getZ()-p2.getZ()));
+		return VectorMath.distance(p1.getX(), p1.getY(), p1.getZ(),
+								   p2.getX(), p2.getY(), p2.getZ());
 	}
 	
     /**
@@ -269,7 +268,7 @@ public class Line3D implements Draw3DDefaults {
 		z = p2.getZ() - p1.getZ();
 		
 		// Compute phi
-		double rho = Math.sqrt(x*x + y*y + z*z);
+		double rho = VectorMath.length(x, y, z);
 		return Math.acos(-y/rho);
 	}
 		
@@ -277,7 +276,8 @@ public class Line3D implements Draw3DDefaults {
      * Returns a two point array specifying the intersection of the line determined
      * by points p1 and p2 with the boundary of the current user coordinate space as 
      * determined by minX, maxX, minY, maxY, minZ, maxZ.
-     * See: Dan Sunday, Intersections of Lines and Planes, http://geomalgorithms.com/a05-_intersect-1.html
+     * The line is clipped by Clip3D.clipLines(), the Liang-Barsky algorithm; a line
+     * touching the boundary in a single point returns that point twice.
      *
      * @param	minX	Double minimum x user coordinate value
      * @param	maxX	Double maximum x user coordinate value
@@ -286,103 +286,24 @@ public class Line3D implements Draw3DDefaults {
      * @param	minZ	Double minimum z user coordinate value
      * @param	maxZ	Double maximum z user coordinate value
      * @return	intersectionPoints	Point3D[2] array specifying the intersection points
-     * 					of this.Line3D with the boundary user space
+     * 					of this.Line3D with the boundary user space, or null if there are none
      */
 	public Point3D[] findLineBoundaryIntersections(double minX, double maxX,
 												   double minY, double maxY,
 												   double minZ, double maxZ) {
-		
-		// Define boundary vertices, edges and planes
-		Point3D[] vtx = {
-				new Point3D(minX,  minY,  minZ),
-				new Point3D(minX,  minY,  maxZ),
-				new Point3D(minX,  maxY,  maxZ),
-				new Point3D(minX,  maxY,  minZ),
-				new Point3D(maxX,  minY,  minZ),
-				new Point3D(maxX,  minY,  maxZ),
-				new Point3D(maxX,  maxY,  maxZ),
-				new Point3D(maxX,  maxY,  minZ) };
-		
-		Plane3D[] plane = {
-				new Plane3D(vtx[0], vtx[1], vtx[2]),
-				new Plane3D(vtx[3], vtx[2], vtx[6]),
-				new Plane3D(vtx[7], vtx[6], vtx[5]),
-				new Plane3D(vtx[4], vtx[5], vtx[1]),
-				new Plane3D(vtx[0], vtx[3], vtx[7]),
-				new Plane3D(vtx[1], vtx[2], vtx[6]) };
-		
-		Point3D[] intersectionPoints = new Point3D[2];
-		int intersectionCount = 0;
-		for (int i = 0; i < plane.length; i++) {
-			Point3D v0 = plane[i].getP1();
-			Vector3D n = plane[i].getNormal();
-			Vector3D V0 = new Vector3D(v0);
-			Vector3D P1 = new Vector3D(p1);
-			Vector3D P2 = new Vector3D(p2);
-
-			Vector3D u = Vector3D.subtract(P2,  P1);  // P2 - P1
-			Vector3D w = Vector3D.subtract(P1,  V0);  // P1 - V0
-			
-			double D =  Vector3D.dotProduct(n, u);
-			double N = -Vector3D.dotProduct(n, w);
-			
-			System.out.println("D= " + D + ", N= " + N);
-			
-			if (Math.abs(D) < EPSILON) {
-				if (N == 0)
-					System.out.println("plane i= " + i + " Line segment is in boundary plane: " + plane[i].toString());
-				else
-					System.out.println("plane i= " + i + " No line segment plane intersection");
-			}
-			else {
-			
-				double s = N / D;
-				Vector3D su = Vector3D.multiply(s, u);
-				
-				Point3D pi = new Point3D(p1.getX() + su.getX(), p1.getY() + su.getY(), p1.getZ() + su.getZ());
-				
-				System.out.println("plane i= " + i + " intersection= " + pi);
-				
-				if (intersectionCount > 0 && pi.equals(intersectionPoints[0]))
-					continue;
-
-				if (pi.getX() <= maxX && pi.getX() >= minX &&
-					pi.getY() <= maxY && pi.getY() >= minY &&
-					pi.getZ() <= maxZ && pi.getZ() >= minZ  ) {
-					intersectionPoints[intersectionCount++] = pi;
-					if (intersectionCount == 2)
-						return intersectionPoints;
-				}
-				else {
-					System.out.println("Intersection point out of range");
-				}
-			}
-			
-		}
-		if (intersectionCount == 1 && isCorner(vtx, intersectionPoints[0])) {
-			intersectionPoints[1] = intersectionPoints[0];
-		}
-		else {
-			intersectionPoints = null;
-		}
-
-		return intersectionPoints;
-	}
-	
-	/**
-	 * Checks to see whether an intersection point is a corner of the boundary
-	 * 
-	 * @param vtx			Point3D array of boundary corner vertices
-	 * @param intersection	Point3D intersection point of line with boundary
-	 * @return
-	 */
-	private boolean isCorner(Point3D[] vtx, Point3D intersection) {
-		for (int i = 0; i < vtx.length; i++) {
-			if (intersection.equals(vtx[i])) {
-				return true;
-			}
+		double[] out = new double[6];
+		int n = Clip3D.clipLines(new double[] {p1.getX()},
+								 new double[] {p1.getY()},
+								 new double[] {p1.getZ()},
+								 new double[] {p2.getX() - p1.getX()},
+								 new double[] {p2.getY() - p1.getY()},
+								 new double[] {p2.getZ() - p1.getZ()},
+								 1, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY,
+								 new double[] {minX, maxX, minY, maxY, minZ, maxZ}, out, null);
+		if (n == 0) {
+			return null;
 		}
-		return false;
+		return VectorMath.toPoint3DArray(out, 2);
 	}
 		
     /**
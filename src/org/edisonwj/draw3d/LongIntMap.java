@@ -0,0 +1,81 @@
+package org.edisonwj.draw3d;
+
+import java.util.Arrays;
+/**
+* LongIntMap class is an open addressing hash map of non-negative long keys to int
+* values with linear probing, without the boxing of a HashMap<Long, Integer>. It is
+* used to weld mesh vertices identified by grid or lattice coordinates. Reads may be
+* made by several threads at once while the map is not being modified.
+*
+* @author William Edison
+* @version 1.02
+*
+*/
+class LongIntMap {
+	private long[] keys;
+	private int[] values;
+	private int size;
+	private int mask;
+
+	/**
+	 * Constructs a LongIntMap object for about the specified number of keys.
+	 *
+	 * @param	capacity	int expected number of keys
+	 */
+	LongIntMap(int capacity) {
+		int c = Integer.highestOneBit(Math.max(2*capacity - 1, 2)) << 1;
+		keys = new long[c];
+		values = new int[c];
+		Arrays.fill(keys, -1L);
+		mask = c - 1;
+	}
+
+	private static int hash(long key) {
+		return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32);
+	}
+
+	/**
+	 * Gets the value of a key.
+	 *
+	 * @param	key	long non-negative key
+	 * @return	int value of the key, or -1 if the key is not present
+	 */
+	int get(long key) {
+		for (int h = hash(key) & mask; keys[h] != -1L; h = (h + 1) & mask) {
+			if (keys[h] == key) {
+				return values[h];
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Puts a key that is not present.
+	 *
+	 * @param	key		long non-negative key
+	 * @param	value	int value of the key
+	 */
+	void put(long key, int value) {
+		if (2*(size + 1) > keys.length) {
+			long[] oldKeys = keys;
+			int[] oldValues = values;
+			keys = new long[2*oldKeys.length];
+			values = new int[2*oldKeys.length];
+			Arrays.fill(keys, -1L);
+			mask = keys.length - 1;
+			size = 0;
+			for (int i = 0; i < oldKeys.length; i++) {
+				if (oldKeys[i] != -1L) {
+					put(oldKeys[i], oldValues[i]);
+				}
+			}
+		}
+		int h = hash(key) & mask;
+		while (keys[h] != -1L) {
+			h = (h + 1) & mask;
+		}
+		keys[h] = key;
+		values[h] = value;
+		size++;
+	}
+}
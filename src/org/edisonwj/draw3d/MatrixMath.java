@@ -0,0 +1,404 @@
+package org.edisonwj.draw3d;
+
+/**
+* MatrixMath class provides static bulk transformation of packed coordinate arrays
+* by a 3x3 or 4x4 matrix, in place and without allocation per point.
+*
+* The matrix convention is that of Vector3D.transform(): a point is a row vector
+* multiplied on the left of the matrix, i.e.
+*	x' = x*m[0][0] + y*m[1][0] + z*m[2][0] (+ m[3][0])
+* so that for a 4x4 matrix the translation is held in row 3. When column 3 of a
+* 4x4 matrix is not (0, 0, 0, 1) the result is divided by the homogeneous w.
+*
+* Arrays with at least PARALLEL_THRESHOLD points are transformed in parallel.
+*
+* The class implements defaults specified in Draw3DDefaults.
+*
+* @author William Edison
+* @version 1.02
+*
+*/
+public final class MatrixMath implements Draw3DDefaults {
+
+	private MatrixMath() {
+	}
+
+	/**
+	 * Returns a new n x n identity matrix.
+	 *
+	 * @param	n	int matrix size, 3 or 4
+	 * @return	double[n][n] identity matrix
+	 */
+	public static double[][] identity(int n) {
+		double[][] m = new double[n][n];
+		for (int i = 0; i < n; i++) {
+			m[i][i] = 1.0;
+		}
+		return m;
+	}
+
+	/**
+	 * Returns the matrix product a * b, i.e. the transformation a followed by b
+	 * in the row vector convention.
+	 *
+	 * @param	a	double[n][n] matrix
+	 * @param	b	double[n][n] matrix
+	 * @return	double[n][n] product matrix
+	 */
+	public static double[][] multiply(double[][] a, double[][] b) {
+		int n = a.length;
+		double[][] r = new double[n][n];
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < n; j++) {
+				double s = 0.0;
+				for (int k = 0; k < n; k++) {
+					s += a[i][k] * b[k][j];
+				}
+				r[i][j] = s;
+			}
+		}
+		return r;
+	}
+
+	/**
+	 * Computes the 3x3 matrix product a * b into out, which must not be a or b.
+	 *
+	 * @param	a	double[3][3] matrix
+	 * @param	b	double[3][3] matrix
+	 * @param	out	double[3][3] product matrix
+	 */
+	public static void multiply(double[][] a, double[][] b, double[][] out) {
+		for (int i = 0; i < 3; i++) {
+			for (int j = 0; j < 3; j++) {
+				out[i][j] = a[i][0]*b[0][j] + a[i][1]*b[1][j] + a[i][2]*b[2][j];
+			}
+		}
+	}
+
+	/**
+	 * Returns the determinant of the upper left 3x3 part of matrix m.
+	 *
+	 * @param	m	double[3][3] or double[4][4] matrix
+	 * @return	double determinant
+	 */
+	public static double determinant(double[][] m) {
+		return m[0][0]*(m[1][1]*m[2][2] - m[1][2]*m[2][1])
+			 - m[0][1]*(m[1][0]*m[2][2] - m[1][2]*m[2][0])
+			 + m[0][2]*(m[1][0]*m[2][1] - m[1][1]*m[2][0]);
+	}
+
+	/**
+	 * Computes the polar decomposition m = r * s of the upper left 3x3 part of m,
+	 * with r orthogonal and s symmetric, using the Newton iteration
+	 *	r = (r + inverse(transpose(r))) / 2
+	 * When m contains a reflection, r is made a proper rotation and the reflection
+	 * is carried by s.
+	 *
+	 * @param	m	double[3][3] or double[4][4] matrix
+	 * @param	r	double[3][3] rotation result
+	 * @param	s	double[3][3] symmetric result
+	 * @return	boolean false if m is singular and no decomposition was computed
+	 */
+	public static boolean polarDecompose(double[][] m, double[][] r, double[][] s) {
+		double det = determinant(m);
+		if (Math.abs(det) < EPSILON) {
+			return false;
+		}
+		for (int i = 0; i < 3; i++) {
+			for (int j = 0; j < 3; j++) {
+				r[i][j] = m[i][j];
+			}
+		}
+		double[][] it = new double[3][3];
+		for (int iteration = 0; iteration < 100; iteration++) {
+			// inverse of the transpose is the cofactor matrix divided by the determinant
+			double d = determinant(r);
+			it[0][0] =  (r[1][1]*r[2][2] - r[1][2]*r[2][1]) / d;
+			it[0][1] = -(r[1][0]*r[2][2] - r[1][2]*r[2][0]) / d;
+			it[0][2] =  (r[1][0]*r[2][1] - r[1][1]*r[2][0]) / d;
+			it[1][0] = -(r[0][1]*r[2][2] - r[0][2]*r[2][1]) / d;
+			it[1][1] =  (r[0][0]*r[2][2] - r[0][2]*r[2][0]) / d;
+			it[1][2] = -(r[0][0]*r[2][1] - r[0][1]*r[2][0]) / d;
+			it[2][0] =  (r[0][1]*r[1][2] - r[0][2]*r[1][1]) / d;
+			it[2][1] = -(r[0][0]*r[1][2] - r[0][2]*r[1][0]) / d;
+			it[2][2] =  (r[0][0]*r[1][1] - r[0][1]*r[1][0]) / d;
+			double change = 0.0;
+			for (int i = 0; i < 3; i++) {
+				for (int j = 0; j < 3; j++) {
+					double v = 0.5 * (r[i][j] + it[i][j]);
+					change += Math.abs(v - r[i][j]);
+					r[i][j] = v;
+				}
+			}
+			if (change < EPSILON) {
+				break;
+			}
+		}
+		if (det < 0.0) {
+			for (int i = 0; i < 3; i++) {
+				for (int j = 0; j < 3; j++) {
+					r[i][j] = -r[i][j];
+				}
+			}
+		}
+		// s = transpose(r) * m
+		for (int i = 0; i < 3; i++) {
+			for (int j = 0; j < 3; j++) {
+				s[i][j] = r[0][i]*m[0][j] + r[1][i]*m[1][j] + r[2][i]*m[2][j];
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Computes the unit quaternion {w, x, y, z} of rotation matrix r.
+	 *
+	 * @param	r	double[3][3] rotation matrix
+	 * @param	q	double[4] quaternion result
+	 */
+	public static void toQuaternion(double[][] r, double[] q) {
+		double trace = r[0][0] + r[1][1] + r[2][2];
+		if (trace > 0.0) {
+			double s = 0.5 / Math.sqrt(trace + 1.0);
+			q[0] = 0.25 / s;
+			q[1] = (r[2][1] - r[1][2]) * s;
+			q[2] = (r[0][2] - r[2][0]) * s;
+			q[3] = (r[1][0] - r[0][1]) * s;
+		}
+		else if (r[0][0] > r[1][1] && r[0][0] > r[2][2]) {
+			double s = 2.0 * Math.sqrt(1.0 + r[0][0] - r[1][1] - r[2][2]);
+			q[0] = (r[2][1] - r[1][2]) / s;
+			q[1] = 0.25 * s;
+			q[2] = (r[0][1] + r[1][0]) / s;
+			q[3] = (r[0][2] + r[2][0]) / s;
+		}
+		else if (r[1][1] > r[2][2]) {
+			double s = 2.0 * Math.sqrt(1.0 + r[1][1] - r[0][0] - r[2][2]);
+			q[0] = (r[0][2] - r[2][0]) / s;
+			q[1] = (r[0][1] + r[1][0]) / s;
+			q[2] = 0.25 * s;
+			q[3] = (r[1][2] + r[2][1]) / s;
+		}
+		else {
+			double s = 2.0 * Math.sqrt(1.0 + r[2][2] - r[0][0] - r[1][1]);
+			q[0] = (r[1][0] - r[0][1]) / s;
+			q[1] = (r[0][2] + r[2][0]) / s;
+			q[2] = (r[1][2] + r[2][1]) / s;
+			q[3] = 0.25 * s;
+		}
+	}
+
+	/**
+	 * Computes the rotation matrix of unit quaternion q {w, x, y, z}.
+	 *
+	 * @param	q	double[4] quaternion
+	 * @param	r	double[3][3] rotation matrix result
+	 */
+	public static void fromQuaternion(double[] q, double[][] r) {
+		double w = q[0], x = q[1], y = q[2], z = q[3];
+		r[0][0] = 1.0 - 2.0*(y*y + z*z);
+		r[0][1] = 2.0*(x*y - w*z);
+		r[0][2] = 2.0*(x*z + w*y);
+		r[1][0] = 2.0*(x*y + w*z);
+		r[1][1] = 1.0 - 2.0*(x*x + z*z);
+		r[1][2] = 2.0*(y*z - w*x);
+		r[2][0] = 2.0*(x*z - w*y);
+		r[2][1] = 2.0*(y*z + w*x);
+		r[2][2] = 1.0 - 2.0*(x*x + y*y);
+	}
+
+	/**
+	 * Computes the spherical linear interpolation of unit quaternions q0 and q1,
+	 * taking the shorter path.
+	 *
+	 * @param	q0	double[4] quaternion at t = 0
+	 * @param	q1	double[4] quaternion at t = 1
+	 * @param	t	double interpolation parameter, 0 to 1
+	 * @param	q	double[4] interpolated quaternion result
+	 */
+	public static void slerp(double[] q0, double[] q1, double t, double[] q) {
+		double dot = q0[0]*q1[0] + q0[1]*q1[1] + q0[2]*q1[2] + q0[3]*q1[3];
+		double sign = 1.0;
+		if (dot < 0.0) {
+			dot = -dot;
+			sign = -1.0;
+		}
+		double w0, w1;
+		if (dot > 1.0 - EPSILON) {
+			w0 = 1.0 - t;
+			w1 = t;
+		}
+		else {
+			double theta = Math.acos(dot);
+			double sin = Math.sin(theta);
+			w0 = Math.sin((1.0 - t) * theta) / sin;
+			w1 = Math.sin(t * theta) / sin;
+		}
+		double len = 0.0;
+		for (int i = 0; i < 4; i++) {
+			q[i] = w0*q0[i] + sign*w1*q1[i];
+			len += q[i]*q[i];
+		}
+		len = Math.sqrt(len);
+		for (int i = 0; i < 4; i++) {
+			q[i] /= len;
+		}
+	}
+
+	/**
+	 * Transforms in place the first n points of packed double array p.
+	 *
+	 * @param	m	double[3][3] or double[4][4] transform matrix
+	 * @param	p	double[] packed x, y, z array
+	 * @param	n	int number of points
+	 */
+	public static void transformPoints(double[][] m, double[] p, int n) {
+		transform(flatten(m, true), p, n);
+	}
+
+	/**
+	 * Transforms in place the first n vectors of packed double array p.
+	 * Vectors are directions, so the translation of a 4x4 matrix is not applied.
+	 *
+	 * @param	m	double[3][3] or double[4][4] transform matrix
+	 * @param	p	double[] packed x, y, z array
+	 * @param	n	int number of vectors
+	 */
+	public static void transformVectors(double[][] m, double[] p, int n) {
+		transform(flatten(m, false), p, n);
+	}
+
+	/**
+	 * Transforms in place the first n points of packed float array p,
+	 * e.g. the points of a TriangleMesh.
+	 *
+	 * @param	m	double[3][3] or double[4][4] transform matrix
+	 * @param	p	float[] packed x, y, z array
+	 * @param	n	int number of points
+	 */
+	public static void transformPoints(double[][] m, float[] p, int n) {
+		transform(flatten(m, true), p, n);
+	}
+
+	/**
+	 * Transforms in place the first n points of the struct of arrays x, y, z.
+	 *
+	 * @param	m	double[3][3] or double[4][4] transform matrix
+	 * @param	x	double[] x coordinates
+	 * @param	y	double[] y coordinates
+	 * @param	z	double[] z coordinates
+	 * @param	n	int number of points
+	 */
+	public static void transformPoints(double[][] m, final double[] x, final double[] y, final double[] z, int n) {
+		final double[] f = flatten(m, true);
+		new ParallelRange() {
+			protected void compute(int lo, int hi) {
+				for (int i = lo; i < hi; i++) {
+					double px = x[i];
+					double py = y[i];
+					double pz = z[i];
+					double tx = px*f[0] + py*f[3] + pz*f[6] + f[9];
+					double ty = px*f[1] + py*f[4] + pz*f[7] + f[10];
+					double tz = px*f[2] + py*f[5] + pz*f[8] + f[11];
+					if (f[16] != 0.0) {
+						double w = px*f[12] + py*f[13] + pz*f[14] + f[15];
+						tx /= w;
+						ty /= w;
+						tz /= w;
+					}
+					x[i] = tx;
+					y[i] = ty;
+					z[i] = tz;
+				}
+			}
+		}.invoke(0, n);
+	}
+
+	/**
+	 * Transforms packed double points with a flattened matrix.
+	 */
+	private static void transform(final double[] f, final double[] p, int n) {
+		new ParallelRange() {
+			protected void compute(int lo, int hi) {
+				for (int k = 3*lo; k < 3*hi; k += 3) {
+					double px = p[k];
+					double py = p[k+1];
+					double pz = p[k+2];
+					double tx = px*f[0] + py*f[3] + pz*f[6] + f[9];
+					double ty = px*f[1] + py*f[4] + pz*f[7] + f[10];
+					double tz = px*f[2] + py*f[5] + pz*f[8] + f[11];
+					if (f[16] != 0.0) {
+						double w = px*f[12] + py*f[13] + pz*f[14] + f[15];
+						tx /= w;
+						ty /= w;
+						tz /= w;
+					}
+					p[k]   = tx;
+					p[k+1] = ty;
+					p[k+2] = tz;
+				}
+			}
+		}.invoke(0, n);
+	}
+
+	/**
+	 * Transforms packed float points with a flattened matrix.
+	 */
+	private static void transform(final double[] f, final float[] p, int n) {
+		new ParallelRange() {
+			protected void compute(int lo, int hi) {
+				for (int k = 3*lo; k < 3*hi; k += 3) {
+					double px = p[k];
+					double py = p[k+1];
+					double pz = p[k+2];
+					double tx = px*f[0] + py*f[3] + pz*f[6] + f[9];
+					double ty = px*f[1] + py*f[4] + pz*f[7] + f[10];
+					double tz = px*f[2] + py*f[5] + pz*f[8] + f[11];
+					if (f[16] != 0.0) {
+						double w = px*f[12] + py*f[13] + pz*f[14] + f[15];
+						tx /= w;
+						ty /= w;
+						tz /= w;
+					}
+					p[k]   = (float) tx;
+					p[k+1] = (float) ty;
+					p[k+2] = (float) tz;
+				}
+			}
+		}.invoke(0, n);
+	}
+
+	/**
+	 * Flattens a 3x3 or 4x4 matrix into the array
+	 *	{m00, m01, m02, m10, m11, m12, m20, m21, m22, m30, m31, m32, m03, m13, m23, m33, projective}
+	 * where a 3x3 matrix, or the vector case, has zero translation and projective is
+	 * non-zero only when the homogeneous w must be divided out.
+	 *
+	 * @param	m			double[3][3] or double[4][4] transform matrix
+	 * @param	translate	boolean true to include the translation row of a 4x4 matrix
+	 * @return	double[17] flattened matrix
+	 */
+	private static double[] flatten(double[][] m, boolean translate) {
+		if (m.length != 3 && m.length != 4) {
+			throw new IllegalArgumentException("MatrixMath: matrix must be 3x3 or 4x4, size= " + m.length);
+		}
+		double[] f = new double[17];
+		for (int i = 0; i < 3; i++) {
+			for (int j = 0; j < 3; j++) {
+				f[3*i + j] = m[i][j];
+			}
+		}
+		f[15] = 1.0;
+		if (m.length == 4 && translate) {
+			f[9]  = m[3][0];
+			f[10] = m[3][1];
+			f[11] = m[3][2];
+			f[12] = m[0][3];
+			f[13] = m[1][3];
+			f[14] = m[2][3];
+			f[15] = m[3][3];
+			f[16] = (f[12] != 0.0 || f[13] != 0.0 || f[14] != 0.0 || f[15] != 1.0) ? 1.0 : 0.0;
+		}
+		return f;
+	}
+}
@@ -31,6 +31,7 @@ public class Mesh3D implements Draw3DDefaults {
 	private PhongMaterial m;
 	private DrawMode dm;
 	private CullFace cf;
+	private float[] pointBuffer;	// reused by transform()
 	
 	/**
 	 * Constructs a Mesh3D object given a Mesh3D and its location.
@@ -183,6 +184,23 @@ public class Mesh3D implements Draw3DDefaults {
 		this.cf = cf;
 	}
 	
+    /**
+     * Applies the supplied transform matrix, in place, to every vertex of the TriangleMesh.
+     * The matrix convention is that of Vector3D.transform(); see MatrixMath.
+     * Meshes with many vertices are transformed in parallel.
+     *
+     * @param	tmatrix	double[3][3] or double[4][4] transform matrix
+     */
+	public void transform(double[][] tmatrix) {
+		int size = mesh.getPoints().size();
+		if (pointBuffer == null || pointBuffer.length < size) {
+			pointBuffer = new float[size];
+		}
+		mesh.getPoints().toArray(0, pointBuffer, size);
+		MatrixMath.transformPoints(tmatrix, pointBuffer, size/3);
+		mesh.getPoints().set(0, pointBuffer, 0, size);
+	}
+	
     /**
      * Returns a String for printing all Mesh3D values
      *
@@ -0,0 +1,84 @@
+package org.edisonwj.draw3d;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+/**
+* ParallelRange class splits an index range [lo, hi) into sub ranges that are
+* processed in parallel by the common ForkJoinPool. Ranges with fewer than
+* PARALLEL_THRESHOLD elements are processed directly in the calling thread.
+* 
+* Subclasses implement compute(lo, hi) for a sub range; each index must be
+* independent of all others.
+* 
+* The class implements defaults specified in Draw3DDefaults.
+* 
+* @author William Edison
+* @version 1.02
+* 
+*/
+public abstract class ParallelRange implements Draw3DDefaults {
+	private int grain;
+	
+	/**
+	 * Processes the sub range [lo, hi).
+	 * 
+	 * @param	lo	int first index of the sub range
+	 * @param	hi	int index following the last index of the sub range
+	 */
+	protected abstract void compute(int lo, int hi);
+	
+	/**
+	 * Processes the range [lo, hi), in parallel when the range has at least
+	 * PARALLEL_THRESHOLD elements.
+	 * 
+	 * @param	lo	int first index of the range
+	 * @param	hi	int index following the last index of the range
+	 */
+	public void invoke(int lo, int hi) {
+		invoke(lo, hi, PARALLEL_THRESHOLD);
+	}
+	
+	/**
+	 * Processes the range [lo, hi), in parallel when the range has at least
+	 * threshold elements. A small threshold suits ranges whose elements are
+	 * individually expensive, e.g. slabs of a volume.
+	 * 
+	 * @param	lo			int first index of the range
+	 * @param	hi			int index following the last index of the range
+	 * @param	threshold	int minimum range size for parallel processing
+	 */
+	public void invoke(int lo, int hi, int threshold) {
+		if (hi - lo < Math.max(threshold, 2) || ForkJoinPool.getCommonPoolParallelism() < 2) {
+			compute(lo, hi);
+			return;
+		}
+		this.grain = Math.max(Math.min(threshold, PARALLEL_GRAIN),
+							  (hi - lo) / (4 * ForkJoinPool.getCommonPoolParallelism()));
+		ForkJoinPool.commonPool().invoke(new Split(lo, hi));
+	}
+	
+	/**
+	 * Recursive splitting of the range into halves down to the grain size.
+	 */
+	private class Split extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final int lo;
+		private final int hi;
+		
+		Split(int lo, int hi) {
+			this.lo = lo;
+			this.hi = hi;
+		}
+		
+		@Override
+		protected void compute() {
+			if (hi - lo <= grain) {
+				ParallelRange.this.compute(lo, hi);
+			}
+			else {
+				int mid = (lo + hi) >>> 1;
+				invokeAll(new Split(lo, mid), new Split(mid, hi));
+			}
+		}
+	}
+}
@@ -0,0 +1,25 @@
+package org.edisonwj.draw3d;
+
+/**
+ * Interface ParametricFunction3D needs to be implemented by any
+ * parametric surface (u, v) -> (x, y, z) that is to be drawn by Draw3D,
+ * e.g. as a ParametricSurface3D.
+ *
+ * The function is evaluated at many parameter values, possibly by several
+ * threads at once, so value() must not modify shared state.
+ *
+ * @author William Edison
+ * @version 1.02
+ *
+ */
+public interface ParametricFunction3D {
+
+	/**
+	 * Computes the surface point of the parameters u, v.
+	 *
+	 * @param	u	double first parameter
+	 * @param	v	double second parameter
+	 * @param	p	double[3] x, y, z of the point (in user coordinate space), set
+	 */
+	public void value(double u, double v, double[] p);
+}
@@ -0,0 +1,611 @@
+package org.edisonwj.draw3d;
+
+import java.util.Arrays;
+
+import javafx.scene.paint.PhongMaterial;
+import javafx.scene.shape.CullFace;
+import javafx.scene.shape.DrawMode;
+/**
+* ParametricSurface3D class captures information defining a parametric surface with specified:
+* - ParametricFunction3D (u, v) -> (x, y, z), e.g. a torus, helicoid or saddle
+* - parameter range [u0, u1] x [v0, v1], and whether the surface is closed in u or v,
+*   i.e. the points of u0 and u1, or of v0 and v1, are the same
+* - initial grid of nu x nv cells of the parameter range
+* - computed vertices and triangles, counter clockwise in u, v
+* - PhongMaterial (optional)
+* - DrawMode setting (optional)
+* - Cullface setting (optional)
+* The ParametricSurface3D object is drawn by drawParametricSurface3D() as a single TriangleMesh.
+*
+* The cells of the initial grid are the roots of quadtrees. refine() splits a cell into
+* four when, measured in screen coordinates, its center is further than a tolerance from
+* the mean of its corners or the surface normal at a corner or the center deviates from
+* that at the center by more than an angle. Each pass splits the cells of one more level,
+* those deviating most first, and refine() may be given a budget of vertices at which it
+* stops, so that a limited number of samples is spent where the surface bends most.
+* Normals are computed from the derivatives of each vertex, estimated by central
+* differences when the vertex is created. Neighbouring cells are kept within one level
+* of each other, and a cell is drawn as a fan of triangles about its center through its
+* corners and the mid points of any edges shared with smaller cells, so there are no
+* cracks between cells of different levels.
+*
+* Vertices are identified by their coordinates on a lattice of the finest cells, mapped to
+* their index by a LongIntMap. The cells to split are found, and the vertices created by
+* splitting are evaluated, in parallel by ParallelRange. Cells and vertices are kept between
+* calls, so that refine() with a smaller tolerance, e.g. after zooming in, only splits
+* further cells rather than recomputing the whole surface.
+*
+* The class implements defaults specified in Draw3DDefaults.
+*
+* @author William Edison
+* @version 1.02
+*
+*/
+public class ParametricSurface3D implements Draw3DDefaults {
+	private static final int MAX_DEPTH = 10;		// maximum number of splits of an initial cell
+	private static final double DIFFERENCE = 1e-6;	// central difference step, relative to the parameter range
+
+	private ParametricFunction3D f;
+	private double u0, u1, v0, v1;
+	private int nu, nv;							// Initial grid
+	private boolean closedU, closedV;
+	private int lu, lv;							// Lattice points along u and v, less one
+	private PhongMaterial m;
+	private DrawMode dm;
+	private CullFace cf;
+
+	// Vertices
+	private int nvert;
+	private int[] la = new int[0], lb = new int[0];	// Lattice coordinates
+	private double[] p = new double[0];				// Packed x, y, z
+	private double[] pu = new double[0];			// Packed derivatives in u
+	private double[] pv = new double[0];			// Packed derivatives in v
+	private LongIntMap vertexMap;
+
+	// Cells, those of the initial grid first
+	private int ncell;
+	private int[] level = new int[0], ci = new int[0], cj = new int[0];
+	private int[] child = new int[0];				// First of four children, or -1 for a leaf
+	private int[] center = new int[0];				// Center vertex
+	private LongIntMap cellMap;
+
+	private int[] triangles;						// Vertex indices, three per triangle, of the leaves
+
+	/**
+	 * Constructs a ParametricSurface3D object given the function and parameter range,
+	 * with an initial grid of SURFACE_DIVISIONS x SURFACE_DIVISIONS cells.
+	 *
+	 * @param	f	ParametricFunction3D (u, v) -> (x, y, z)
+	 * @param	u0	double start of the u range
+	 * @param	u1	double end of the u range
+	 * @param	v0	double start of the v range
+	 * @param	v1	double end of the v range
+	 */
+	public ParametricSurface3D(ParametricFunction3D f, double u0, double u1, double v0, double v1) {
+		this(f, u0, u1, v0, v1, SURFACE_DIVISIONS, SURFACE_DIVISIONS, false, false);
+	}
+
+	/**
+	 * Constructs a ParametricSurface3D object given the function, parameter range and PhongMaterial,
+	 * with an initial grid of SURFACE_DIVISIONS x SURFACE_DIVISIONS cells.
+	 *
+	 * @param	f	ParametricFunction3D (u, v) -> (x, y, z)
+	 * @param	u0	double start of the u range
+	 * @param	u1	double end of the u range
+	 * @param	v0	double start of the v range
+	 * @param	v1	double end of the v range
+	 * @param	m	PhongMaterial determining surface color
+	 */
+	public ParametricSurface3D(ParametricFunction3D f, double u0, double u1, double v0, double v1,
+							   PhongMaterial m) {
+		this(f, u0, u1, v0, v1);
+		this.m = m;
+	}
+
+	/**
+	 * Constructs a ParametricSurface3D object given the function, parameter range, initial
+	 * grid and whether the surface is closed in u or v, e.g. both for a torus.
+	 *
+	 * @param	f		ParametricFunction3D (u, v) -> (x, y, z)
+	 * @param	u0		double start of the u range
+	 * @param	u1		double end of the u range
+	 * @param	v0		double start of the v range
+	 * @param	v1		double end of the v range
+	 * @param	nu		int number of initial cells along u
+	 * @param	nv		int number of initial cells along v
+	 * @param	closedU	boolean flag, true if the points of u0 and u1 are the same
+	 * @param	closedV	boolean flag, true if the points of v0 and v1 are the same
+	 */
+	public ParametricSurface3D(ParametricFunction3D f, double u0, double u1, double v0, double v1,
+							   int nu, int nv, boolean closedU, boolean closedV) {
+		if (nu < 1 || nv < 1 || nu > (1 << 16) || nv > (1 << 16) || !(u0 < u1) || !(v0 < v1)) {
+			throw new IllegalArgumentException("ParametricSurface3D: range " + u0 + ", " + u1 + " x " +
+												v0 + ", " + v1 + " with " + nu + " x " + nv + " cells");
+		}
+		this.f = f;
+		this.u0 = u0;
+		this.u1 = u1;
+		this.v0 = v0;
+		this.v1 = v1;
+		this.nu = nu;
+		this.nv = nv;
+		this.closedU = closedU;
+		this.closedV = closedV;
+		lu = nu << MAX_DEPTH;
+		lv = nv << MAX_DEPTH;
+		reset();
+	}
+
+	/**
+	 * Constructs a ParametricSurface3D object given the function, parameter range, initial
+	 * grid, whether the surface is closed in u or v, and PhongMaterial.
+	 *
+	 * @param	f		ParametricFunction3D (u, v) -> (x, y, z)
+	 * @param	u0		double start of the u range
+	 * @param	u1		double end of the u range
+	 * @param	v0		double start of the v range
+	 * @param	v1		double end of the v range
+	 * @param	nu		int number of initial cells along u
+	 * @param	nv		int number of initial cells along v
+	 * @param	closedU	boolean flag, true if the points of u0 and u1 are the same
+	 * @param	closedV	boolean flag, true if the points of v0 and v1 are the same
+	 * @param	m		PhongMaterial determining surface color
+	 */
+	public ParametricSurface3D(ParametricFunction3D f, double u0, double u1, double v0, double v1,
+							   int nu, int nv, boolean closedU, boolean closedV, PhongMaterial m) {
+		this(f, u0, u1, v0, v1, nu, nv, closedU, closedV);
+		this.m = m;
+	}
+
+	/**
+	 * Discards all refinement, returning to the initial grid.
+	 */
+	public synchronized void reset() {
+		nvert = 0;
+		ncell = 0;
+		vertexMap = new LongIntMap(4*nu*nv);
+		cellMap = new LongIntMap(4*nu*nv);
+		for (int i = 0; i < nu; i++) {
+			for (int j = 0; j < nv; j++) {
+				addCell(0, i, j);
+			}
+		}
+		evaluate(0);
+		triangles = null;
+	}
+
+	/**
+	 * Splits cells until, measured in screen coordinates, every cell is within the
+	 * tolerance of its center and its normals are within the angle of each other, or
+	 * the cells reach the maximum depth. Cells already split are kept.
+	 *
+	 * @param	tolerance	double maximum distance in pixels of a cell center from the mean of its corners
+	 * @param	angle		double maximum angle in degrees between the normals of a cell
+	 * @param	sx			double screen scale of x
+	 * @param	sy			double screen scale of y
+	 * @param	sz			double screen scale of z
+	 * @return	boolean true if any cell was split
+	 */
+	public boolean refine(double tolerance, double angle, double sx, double sy, double sz) {
+		return refine(tolerance, angle, sx, sy, sz, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Splits cells as refine(tolerance, angle, sx, sy, sz), but stops splitting once the
+	 * surface has maxPoints vertices. The cells of each level that deviate most are split first.
+	 *
+	 * @param	tolerance	double maximum distance in pixels of a cell center from the mean of its corners
+	 * @param	angle		double maximum angle in degrees between the normals of a cell
+	 * @param	sx			double screen scale of x
+	 * @param	sy			double screen scale of y
+	 * @param	sz			double screen scale of z
+	 * @param	maxPoints	int budget of vertices
+	 * @return	boolean true if any cell was split
+	 */
+	public synchronized boolean refine(final double tolerance, double angle,
+									   final double sx, final double sy, final double sz, int maxPoints) {
+		final double cos = Math.cos(Math.toRadians(angle));
+		boolean changed = false;
+		while (nvert < maxPoints) {
+			final int[] leaves = new int[ncell];
+			int nl = 0;
+			for (int c = 0; c < ncell; c++) {
+				if (child[c] < 0 && level[c] < MAX_DEPTH) {
+					leaves[nl++] = c;
+				}
+			}
+			final double[] deviation = new double[nl];
+			new ParallelRange() {
+				protected void compute(int lo, int hi) {
+					for (int k = lo; k < hi; k++) {
+						deviation[k] = deviation(leaves[k], tolerance, cos, sx, sy, sz);
+					}
+				}
+			}.invoke(0, nl, 256);
+
+			// Order the cells to split by deviation, as float bits above the leaf index
+			long[] order = new long[nl];
+			int ns = 0;
+			for (int k = 0; k < nl; k++) {
+				if (deviation[k] > 1.0) {
+					order[ns++] = ((long) Float.floatToIntBits((float) deviation[k]) << 32) | k;
+				}
+			}
+			Arrays.sort(order, 0, ns);
+
+			int first = nvert;
+			for (int k = ns - 1; k >= 0 && nvert < maxPoints; k--) {
+				int c = leaves[(int) order[k]];
+				if (child[c] < 0) {
+					split(c);
+				}
+			}
+			if (nvert == first) {
+				break;
+			}
+			evaluate(first);
+			changed = true;
+		}
+		if (changed) {
+			triangles = null;
+		}
+		return changed;
+	}
+
+	/**
+	 * Measures how far cell c deviates from flat: the larger of the distance of its center
+	 * from the mean of its corners relative to the tolerance, and of 1 - cos of the angle
+	 * between its normals relative to that of the angle. The cell is to be split when the
+	 * measure exceeds 1; it is NaN where the surface is not defined.
+	 */
+	private double deviation(int c, double tolerance, double cos, double sx, double sy, double sz) {
+		int s = 1 << (MAX_DEPTH - level[c]);
+		int a = ci[c] * s;
+		int b = cj[c] * s;
+		int[] corners = {vertex(a, b), vertex(a + s, b), vertex(a + s, b + s), vertex(a, b + s)};
+		int o = center[c];
+
+		double mx = 0.0, my = 0.0, mz = 0.0;
+		for (int v : corners) {
+			mx += p[3*v];
+			my += p[3*v+1];
+			mz += p[3*v+2];
+		}
+		double dx = (p[3*o]   - mx/4) * sx;
+		double dy = (p[3*o+1] - my/4) * sy;
+		double dz = (p[3*o+2] - mz/4) * sz;
+		double e = Math.sqrt(dx*dx + dy*dy + dz*dz) / tolerance;
+
+		double[] n0 = normal(o, sx, sy, sz);
+		if (n0 == null) {
+			return e;
+		}
+		for (int v : corners) {
+			double[] n = normal(v, sx, sy, sz);
+			if (n != null) {
+				double d = (1.0 - (n[0]*n0[0] + n[1]*n0[1] + n[2]*n0[2])) / (1.0 - cos);
+				if (d > e) {
+					e = d;
+				}
+			}
+		}
+		return e;
+	}
+
+	/**
+	 * Computes the unit normal of vertex v in screen coordinates, or null where the
+	 * derivatives are parallel, e.g. at the pole of a sphere.
+	 */
+	private double[] normal(int v, double sx, double sy, double sz) {
+		double ax = pu[3*v] * sx, ay = pu[3*v+1] * sy, az = pu[3*v+2] * sz;
+		double bx = pv[3*v] * sx, by = pv[3*v+1] * sy, bz = pv[3*v+2] * sz;
+		double nx = ay*bz - az*by;
+		double ny = az*bx - ax*bz;
+		double nz = ax*by - ay*bx;
+		double d = Math.sqrt(nx*nx + ny*ny + nz*nz);
+		if (!(d > EPSILON * Math.sqrt((ax*ax + ay*ay + az*az) * (bx*bx + by*by + bz*bz)))) {
+			return null;
+		}
+		return new double[] {nx/d, ny/d, nz/d};
+	}
+
+	/**
+	 * Splits leaf cell c into four, first splitting any coarser neighbour so that
+	 * neighbouring cells stay within one level of each other.
+	 */
+	private void split(int c) {
+		int l = level[c];
+		int i = ci[c];
+		int j = cj[c];
+		int[][] neighbours = {{i - 1, j}, {i + 1, j}, {i, j - 1}, {i, j + 1}};
+		for (int[] q : neighbours) {
+			int qi = wrap(q[0], nu << l, closedU);
+			int qj = wrap(q[1], nv << l, closedV);
+			if (qi < 0 || qj < 0 || cellMap.get(cellKey(l, qi, qj)) >= 0) {
+				continue;
+			}
+			int parent = cellMap.get(cellKey(l - 1, qi >> 1, qj >> 1));
+			if (parent >= 0 && child[parent] < 0) {
+				split(parent);
+			}
+		}
+		child[c] = ncell;
+		for (int di = 0; di < 2; di++) {
+			for (int dj = 0; dj < 2; dj++) {
+				addCell(l + 1, 2*i + di, 2*j + dj);
+			}
+		}
+	}
+
+	/**
+	 * Adds the cell at level l and position i, j, creating its corner and center vertices.
+	 */
+	private void addCell(int l, int i, int j) {
+		if (ncell == level.length) {
+			int size = Math.max(2*ncell, 16);
+			level = Arrays.copyOf(level, size);
+			ci = Arrays.copyOf(ci, size);
+			cj = Arrays.copyOf(cj, size);
+			child = Arrays.copyOf(child, size);
+			center = Arrays.copyOf(center, size);
+		}
+		int s = 1 << (MAX_DEPTH - l);
+		level[ncell] = l;
+		ci[ncell] = i;
+		cj[ncell] = j;
+		child[ncell] = -1;
+		addVertex(i*s, j*s);
+		addVertex(i*s + s, j*s);
+		addVertex(i*s + s, j*s + s);
+		addVertex(i*s, j*s + s);
+		center[ncell] = addVertex(i*s + s/2, j*s + s/2);
+		cellMap.put(cellKey(l, i, j), ncell);
+		ncell++;
+	}
+
+	/**
+	 * Gets the index of the vertex at lattice point a, b, adding the vertex, to be
+	 * evaluated later, if it is not present.
+	 */
+	private int addVertex(int a, int b) {
+		a = wrap(a, lu, closedU);
+		b = wrap(b, lv, closedV);
+		long key = (long) a * (lv + 1) + b;
+		int v = vertexMap.get(key);
+		if (v >= 0) {
+			return v;
+		}
+		if (nvert == la.length) {
+			int size = Math.max(2*nvert, 64);
+			la = Arrays.copyOf(la, size);
+			lb = Arrays.copyOf(lb, size);
+			p = Arrays.copyOf(p, 3*size);
+			pu = Arrays.copyOf(pu, 3*size);
+			pv = Arrays.copyOf(pv, 3*size);
+		}
+		la[nvert] = a;
+		lb[nvert] = b;
+		vertexMap.put(key, nvert);
+		return nvert++;
+	}
+
+	/**
+	 * Gets the index of the vertex at lattice point a, b, or -1 if it is not present.
+	 */
+	private int vertex(int a, int b) {
+		return vertexMap.get((long) wrap(a, lu, closedU) * (lv + 1) + wrap(b, lv, closedV));
+	}
+
+	/**
+	 * Wraps an index of a closed direction into [0, n), or returns -1 for an index
+	 * outside [0, n] of an open direction.
+	 */
+	private static int wrap(int i, int n, boolean closed) {
+		if (closed) {
+			return ((i % n) + n) % n;
+		}
+		return (i < 0 || i > n) ? -1 : i;
+	}
+
+	private static long cellKey(int l, int i, int j) {
+		return ((long) l << 56) | ((long) i << 28) | j;
+	}
+
+	/**
+	 * Evaluates the points and derivatives of the vertices from index first on.
+	 */
+	private void evaluate(int first) {
+		final double hu = DIFFERENCE * (u1 - u0);
+		final double hv = DIFFERENCE * (v1 - v0);
+		new ParallelRange() {
+			protected void compute(int lo, int hi) {
+				double[] q0 = new double[3];
+				double[] q1 = new double[3];
+				for (int v = lo; v < hi; v++) {
+					double u = u0 + (u1 - u0) * la[v] / lu;
+					double w = v0 + (v1 - v0) * lb[v] / lv;
+					f.value(u, w, q0);
+					p[3*v]   = q0[0];
+					p[3*v+1] = q0[1];
+					p[3*v+2] = q0[2];
+					double ua = closedU ? u - hu : Math.max(u - hu, u0);
+					double ub = closedU ? u + hu : Math.min(u + hu, u1);
+					f.value(ua, w, q0);
+					f.value(ub, w, q1);
+					for (int k = 0; k < 3; k++) {
+						pu[3*v+k] = (q1[k] - q0[k]) / (ub - ua);
+					}
+					double wa = closedV ? w - hv : Math.max(w - hv, v0);
+					double wb = closedV ? w + hv : Math.min(w + hv, v1);
+					f.value(u, wa, q0);
+					f.value(u, wb, q1);
+					for (int k = 0; k < 3; k++) {
+						pv[3*v+k] = (q1[k] - q0[k]) / (wb - wa);
+					}
+				}
+			}
+		}.invoke(first, nvert, 1024);
+	}
+
+	/**
+	 * Gets the vertices of the surface
+	 *
+	 * @return	double array of packed x, y, z vertices
+	 */
+	public synchronized double[] getPoints() {
+		return Arrays.copyOf(p, 3*nvert);
+	}
+
+	/**
+	 * Gets the number of vertices of the surface
+	 *
+	 * @return	int number of vertices
+	 */
+	public synchronized int getPointCount() {
+		return nvert;
+	}
+
+	/**
+	 * Gets the texture coordinates of the vertices, u and v scaled to [0, 1]
+	 *
+	 * @return	float array of packed texture coordinates for a TriangleMesh
+	 */
+	public synchronized float[] getTexCoords() {
+		float[] t = new float[2*nvert];
+		for (int v = 0; v < nvert; v++) {
+			t[2*v]   = (float) la[v] / lu;
+			t[2*v+1] = (float) lb[v] / lv;
+		}
+		return t;
+	}
+
+	/**
+	 * Gets the triangles of the surface, counter clockwise in u, v. Each leaf cell is a fan
+	 * about its center through its corners and the mid points of its edges that are vertices.
+	 *
+	 * @return	triangles	int array of vertex indices, three per triangle
+	 */
+	public synchronized int[] getTriangles() {
+		if (triangles != null) {
+			return triangles;
+		}
+		int[] t = new int[24*ncell];
+		int nt = 0;
+		int[] ring = new int[8];
+		for (int c = 0; c < ncell; c++) {
+			if (child[c] >= 0) {
+				continue;
+			}
+			int s = 1 << (MAX_DEPTH - level[c]);
+			int h = s/2;
+			int a = ci[c] * s;
+			int b = cj[c] * s;
+			int[] lattice = {a, b, a + h, b, a + s, b, a + s, b + h,
+							 a + s, b + s, a + h, b + s, a, b + s, a, b + h};
+			int nr = 0;
+			for (int k = 0; k < 16; k += 2) {
+				int v = (h > 0 || k % 4 == 0) ? vertex(lattice[k], lattice[k+1]) : -1;
+				if (v >= 0) {
+					ring[nr++] = v;
+				}
+			}
+			for (int k = 0; k < nr; k++) {
+				t[nt++] = center[c];
+				t[nt++] = ring[k];
+				t[nt++] = ring[(k+1) % nr];
+			}
+		}
+		triangles = Arrays.copyOf(t, nt);
+		return triangles;
+	}
+
+	/**
+	 * Gets the number of triangles of the surface
+	 *
+	 * @return	int number of triangles
+	 */
+	public int getTriangleCount() {
+		return getTriangles().length/3;
+	}
+
+	/**
+	 * Gets the number of cells that are not split
+	 *
+	 * @return	int number of leaf cells
+	 */
+	public synchronized int getCellCount() {
+		int n = 0;
+		for (int c = 0; c < ncell; c++) {
+			if (child[c] < 0) {
+				n++;
+			}
+		}
+		return n;
+	}
+
+	/**
+	 * Gets the PhongMaterial
+	 *
+	 * @return	m	PhongMaterial
+	 */
+	public PhongMaterial getMaterial() {
+		return m;
+	}
+
+	/**
+	 * Sets the PhongMaterial
+	 *
+	 * @param	m	PhongMaterial
+	 */
+	public void setMaterial(PhongMaterial m) {
+		this.m = m;
+	}
+
+	/**
+	 * Gets the DrawMode
+	 *
+	 * @return	dm	DrawMode
+	 */
+	public DrawMode getDrawMode() {
+		return dm;
+	}
+
+	/**
+	 * Sets the DrawMode
+	 *
+	 * @param	dm	DrawMode
+	 */
+	public void setDrawMode(DrawMode dm) {
+		this.dm = dm;
+	}
+
+	/**
+	 * Gets the CullFace
+	 *
+	 * @return	cf	CullFace
+	 */
+	public CullFace getCullFace() {
+		return cf;
+	}
+
+	/**
+	 * Sets the CullFace
+	 *
+	 * @param	cf	CullFace
+	 */
+	public void setCullFace(CullFace cf) {
+		this.cf = cf;
+	}
+
+	/**
+	 * Returns a String containing the parameter range and the size of the surface
+	 *
+	 * @return	String representation of the ParametricSurface3D
+	 */
+	@Override
+	public String toString() {
+		return "ParametricSurface3D: u= " + u0 + ", " + u1 + ", v= " + v0 + ", " + v1 +
+			   ", cells= " + getCellCount() + ", vertices= " + getPointCount() +
+			   ", triangles= " + getTriangleCount();
+	}
+}
@@ -0,0 +1,522 @@
+package org.edisonwj.draw3d;
+
+import javafx.geometry.Point3D;
+import javafx.scene.paint.PhongMaterial;
+import javafx.scene.shape.CullFace;
+import javafx.scene.shape.DrawMode;
+/**
+* Patch3D class captures information defining a tensor product surface patch with specified:
+* - type BEZIER or BSPLINE (uniform B-spline), as for Curve3D
+* - grid of control points p[i][j] (user coordinate scale), i along u and j along v
+* - degree in u and v, the grid size less one for a Bezier patch, e.g. 3 (bicubic) for a 4 x 4 grid
+* - number of divisions of the parameter range, per knot span for a B-spline patch
+* - PhongMaterial (optional)
+* - DrawMode setting (optional)
+* - Cullface setting (optional)
+* The Patch3D object is drawn by drawPatch3D() as a single TriangleMesh over a grid of
+* surface points with shared vertices, texture coordinates u, v and one smoothing group.
+*
+* The basis functions of each u and each v grid value do not depend on the control points,
+* so they are computed once, with the first and the degree + 1 non-zero values per value.
+* tessellate() then evaluates each grid row in two passes: the control points are combined
+* along u into degree + 1 weighted sums per column, which are then combined along v for each
+* point of the row. Rows are evaluated in parallel for dense patches.
+*
+* Control points may be replaced in place with setControlPoint(), e.g. by an Algorithm,
+* and drawPatch3D() then updates the mesh points of the patch already drawn rather than
+* building a new mesh.
+*
+* The class implements defaults specified in Draw3DDefaults.
+*
+* @author William Edison
+* @version 1.02
+*
+*/
+public class Patch3D implements Draw3DDefaults {
+	public static final int BEZIER = Curve3D.BEZIER;
+	public static final int BSPLINE = Curve3D.BSPLINE;
+
+	private int type;
+	private int nu, nv;					// Number of control points in u and v
+	private int du, dv;					// Degree in u and v
+	private int divisions;
+	private double[] cp;				// Packed control points x, y, z, row i at 3*i*nv
+	private int modCount;				// Number of control point changes
+	private PhongMaterial m;
+	private DrawMode dm;
+	private CullFace cf;
+
+	// Basis functions of the grid values, recomputed when the divisions change
+	private int su, sv;					// Number of grid values in u and v
+	private int[] uStart, vStart;		// Index of the first non-zero basis function
+	private double[] uBasis, vBasis;	// du + 1 or dv + 1 non-zero basis functions per value
+
+	/**
+	 * Constructs a Bezier Patch3D object given a grid of control points.
+	 *
+	 * @param	p	Point3D[][] grid of at least 2 x 2 control points
+	 */
+	public Patch3D(Point3D[][] p) {
+		this(BEZIER, p, p.length - 1, p[0].length - 1);
+	}
+
+	/**
+	 * Constructs a Bezier Patch3D object given a grid of control points and PhongMaterial.
+	 *
+	 * @param	p	Point3D[][] grid of at least 2 x 2 control points
+	 * @param	m	PhongMaterial determining patch color
+	 */
+	public Patch3D(Point3D[][] p, PhongMaterial m) {
+		this(p);
+		this.m = m;
+	}
+
+	/**
+	 * Constructs a uniform B-spline Patch3D object given a grid of control points and the
+	 * degree in u and v. The knots are 0, 1, 2, ... in each direction, so the patch does not
+	 * in general pass through the edge control points.
+	 *
+	 * @param	p		Point3D[][] grid of more than degree control points in each direction
+	 * @param	degree	int degree in u and v, e.g. 3 for a bicubic B-spline patch
+	 */
+	public Patch3D(Point3D[][] p, int degree) {
+		this(BSPLINE, p, degree, degree);
+	}
+
+	/**
+	 * Constructs a uniform B-spline Patch3D object given a grid of control points, the
+	 * degree in u and v and PhongMaterial.
+	 *
+	 * @param	p		Point3D[][] grid of more than degree control points in each direction
+	 * @param	degree	int degree in u and v, e.g. 3 for a bicubic B-spline patch
+	 * @param	m		PhongMaterial determining patch color
+	 */
+	public Patch3D(Point3D[][] p, int degree, PhongMaterial m) {
+		this(p, degree);
+		this.m = m;
+	}
+
+	private Patch3D(int type, Point3D[][] p, int du, int dv) {
+		nu = p.length;
+		nv = (nu > 0) ? p[0].length : 0;
+		if (du < 1 || dv < 1 || nu <= du || nv <= dv) {
+			throw new IllegalArgumentException("Patch3D: " + nu + " x " + nv + " control points for degree " + du + ", " + dv);
+		}
+		this.type = type;
+		this.du = du;
+		this.dv = dv;
+		cp = new double[3*nu*nv];
+		setControlPoints(p);
+		setDivisions(PATCH_DIVISIONS);
+	}
+
+	/**
+	 * Gets the type, BEZIER or BSPLINE
+	 *
+	 * @return	type	int type of the patch
+	 */
+	public int getType() {
+		return type;
+	}
+
+	/**
+	 * Gets the number of control points in u
+	 *
+	 * @return	nu	int number of control points in u
+	 */
+	public int getUCount() {
+		return nu;
+	}
+
+	/**
+	 * Gets the number of control points in v
+	 *
+	 * @return	nv	int number of control points in v
+	 */
+	public int getVCount() {
+		return nv;
+	}
+
+	/**
+	 * Gets the degree in u, the same as in v for a B-spline patch
+	 *
+	 * @return	du	int degree in u
+	 */
+	public int getDegree() {
+		return du;
+	}
+
+	/**
+	 * Gets the control point i, j
+	 *
+	 * @param	i	int index in u
+	 * @param	j	int index in v
+	 * @return	Point3D control point
+	 */
+	public synchronized Point3D getControlPoint(int i, int j) {
+		int k = 3*(i*nv + j);
+		return new Point3D(cp[k], cp[k+1], cp[k+2]);
+	}
+
+	/**
+	 * Sets the control point i, j
+	 *
+	 * @param	i	int index in u
+	 * @param	j	int index in v
+	 * @param	x	double x coordinate
+	 * @param	y	double y coordinate
+	 * @param	z	double z coordinate
+	 */
+	public synchronized void setControlPoint(int i, int j, double x, double y, double z) {
+		int k = 3*(i*nv + j);
+		cp[k]   = x;
+		cp[k+1] = y;
+		cp[k+2] = z;
+		modCount++;
+	}
+
+	/**
+	 * Sets the control point i, j
+	 *
+	 * @param	i	int index in u
+	 * @param	j	int index in v
+	 * @param	p	Point3D control point
+	 */
+	public void setControlPoint(int i, int j, Point3D p) {
+		setControlPoint(i, j, p.getX(), p.getY(), p.getZ());
+	}
+
+	/**
+	 * Sets all control points from a grid of the same size
+	 *
+	 * @param	p	Point3D[][] grid of nu x nv control points
+	 */
+	public synchronized void setControlPoints(Point3D[][] p) {
+		if (p.length != nu) {
+			throw new IllegalArgumentException("Patch3D: " + p.length + " rows of control points, " + nu + " required");
+		}
+		for (int i = 0; i < nu; i++) {
+			if (p[i].length != nv) {
+				throw new IllegalArgumentException("Patch3D: " + p[i].length + " control points in row " + i + ", " + nv + " required");
+			}
+			for (int j = 0; j < nv; j++) {
+				int k = 3*(i*nv + j);
+				cp[k]   = p[i][j].getX();
+				cp[k+1] = p[i][j].getY();
+				cp[k+2] = p[i][j].getZ();
+			}
+		}
+		modCount++;
+	}
+
+	/**
+	 * Gets the number of control point changes, so that a drawn patch can tell whether
+	 * its mesh points are current
+	 *
+	 * @return	modCount	int number of changes
+	 */
+	public synchronized int getModCount() {
+		return modCount;
+	}
+
+	/**
+	 * Gets the number of divisions of the parameter range, per knot span for a B-spline patch
+	 *
+	 * @return	divisions	int number of divisions
+	 */
+	public int getDivisions() {
+		return divisions;
+	}
+
+	/**
+	 * Sets the number of divisions of the parameter range, per knot span for a B-spline
+	 * patch, and computes the basis functions of the grid values.
+	 *
+	 * @param	divisions	int number of divisions, at least 1
+	 */
+	public synchronized void setDivisions(int divisions) {
+		this.divisions = Math.max(divisions, 1);
+		int spansU = (type == BEZIER) ? 1 : nu - du;
+		int spansV = (type == BEZIER) ? 1 : nv - dv;
+		su = this.divisions * spansU + 1;
+		sv = this.divisions * spansV + 1;
+		uStart = new int[su];
+		vStart = new int[sv];
+		uBasis = basisTable(su, nu, du, uStart);
+		vBasis = basisTable(sv, nv, dv, vStart);
+		modCount++;
+	}
+
+	/**
+	 * Gets the number of grid values in u, the number of rows of the tessellation
+	 *
+	 * @return	su	int number of grid values in u
+	 */
+	public synchronized int getGridU() {
+		return su;
+	}
+
+	/**
+	 * Gets the number of grid values in v, the number of points per row of the tessellation
+	 *
+	 * @return	sv	int number of grid values in v
+	 */
+	public synchronized int getGridV() {
+		return sv;
+	}
+
+	/**
+	 * Computes the non-zero basis functions of s equally spaced parameter values.
+	 * Bezier values are in [0, 1], B-spline values in [d, n] for knots 0, 1, 2, ...
+	 *
+	 * @param	s		int number of parameter values
+	 * @param	n		int number of control points
+	 * @param	d		int degree
+	 * @param	start	int array of s indices of the first non-zero basis function, set
+	 * @return	double array of d + 1 basis functions per parameter value
+	 */
+	private double[] basisTable(int s, int n, int d, int[] start) {
+		double[] basis = new double[s*(d + 1)];
+		double[] left = new double[d + 1];
+		double[] right = new double[d + 1];
+		for (int i = 0; i < s; i++) {
+			int b = i*(d + 1);
+			basis[b] = 1.0;
+			if (type == BEZIER) {
+				// Bernstein polynomials by repeated linear interpolation
+				double t = (double) i / (s - 1);
+				for (int j = 1; j <= d; j++) {
+					double saved = 0.0;
+					for (int r = 0; r < j; r++) {
+						double tmp = basis[b+r];
+						basis[b+r] = saved + (1.0 - t) * tmp;
+						saved = t * tmp;
+					}
+					basis[b+j] = saved;
+				}
+				start[i] = 0;
+			}
+			else {
+				// Cox-de Boor recursion for knot span [span, span + 1], knots equal to their index
+				double t = d + (double) i * (n - d) / (s - 1);
+				int span = Math.min((int) t, n - 1);
+				for (int j = 1; j <= d; j++) {
+					left[j] = t - (span + 1 - j);
+					right[j] = (span + j) - t;
+					double saved = 0.0;
+					for (int r = 0; r < j; r++) {
+						double tmp = basis[b+r] / (right[r+1] + left[j-r]);
+						basis[b+r] = saved + right[r+1] * tmp;
+						saved = left[j-r] * tmp;
+					}
+					basis[b+j] = saved;
+				}
+				start[i] = span - d;
+			}
+		}
+		return basis;
+	}
+
+	/**
+	 * Computes the grid of su x sv surface points, row by row along u, scaled to screen
+	 * coordinates relative to the origin.
+	 *
+	 * @param	out	float array of at least 3*su*sv packed x, y, z points, set
+	 * @param	sx	double screen scale of x
+	 * @param	sy	double screen scale of y
+	 * @param	sz	double screen scale of z
+	 * @param	zUp	boolean flag exchanging screen y and z, for z-up axes
+	 */
+	public synchronized void tessellate(final float[] out, final double sx, final double sy, final double sz,
+										final boolean zUp) {
+		new ParallelRange() {
+			protected void compute(int lo, int hi) {
+				double[] q = new double[3*nv];
+				for (int i = lo; i < hi; i++) {
+					// Combine the control points along u for each column
+					int ub = i*(du + 1);
+					int row = 3*uStart[i]*nv;
+					for (int k = 0; k < 3*nv; k++) {
+						double sum = 0.0;
+						for (int r = 0, c = row + k; r <= du; r++, c += 3*nv) {
+							sum += uBasis[ub+r] * cp[c];
+						}
+						q[k] = sum;
+					}
+					// Combine the column sums along v for each point of the row
+					for (int j = 0; j < sv; j++) {
+						int vb = j*(dv + 1);
+						double x = 0.0, y = 0.0, z = 0.0;
+						for (int r = 0, c = 3*vStart[j]; r <= dv; r++, c += 3) {
+							double w = vBasis[vb+r];
+							x += w * q[c];
+							y += w * q[c+1];
+							z += w * q[c+2];
+						}
+						int k = 3*(i*sv + j);
+						out[k] = (float)(x * sx);
+						if (zUp) {
+							out[k+1] = (float)(z * sz);
+							out[k+2] = (float)(y * sy);
+						}
+						else {
+							out[k+1] = (float)(y * sy);
+							out[k+2] = (float)(z * sz);
+						}
+					}
+				}
+			}
+		}.invoke(0, su, Math.max(PARALLEL_THRESHOLD / (sv*(du + 1)), 2));
+	}
+
+	/**
+	 * Computes the surface point at grid value i, j in user coordinates
+	 *
+	 * @param	i	int grid index in u, 0 to su - 1
+	 * @param	j	int grid index in v, 0 to sv - 1
+	 * @return	Point3D surface point
+	 */
+	public synchronized Point3D point(int i, int j) {
+		double x = 0.0, y = 0.0, z = 0.0;
+		for (int a = 0; a <= du; a++) {
+			for (int b = 0; b <= dv; b++) {
+				double w = uBasis[i*(du + 1) + a] * vBasis[j*(dv + 1) + b];
+				int k = 3*((uStart[i] + a)*nv + vStart[j] + b);
+				x += w * cp[k];
+				y += w * cp[k+1];
+				z += w * cp[k+2];
+			}
+		}
+		return new Point3D(x, y, z);
+	}
+
+	/**
+	 * Gets the triangle faces of the su x sv grid, as point and texture coordinate index pairs
+	 *
+	 * @return	int array of faces for a TriangleMesh
+	 */
+	public synchronized int[] getFaces() {
+		int[] faces = new int[12*(su - 1)*(sv - 1)];
+		int f = 0;
+		for (int i = 0; i < su - 1; i++) {
+			for (int j = 0; j < sv - 1; j++) {
+				int a = i*sv + j;
+				int b = a + sv;
+				int[] t = {a, b, b + 1, a, b + 1, a + 1};
+				for (int k = 0; k < 6; k++) {
+					faces[f++] = t[k];
+					faces[f++] = t[k];
+				}
+			}
+		}
+		return faces;
+	}
+
+	/**
+	 * Gets the texture coordinates u, v in [0, 1] of the su x sv grid points
+	 *
+	 * @return	float array of packed texture coordinates for a TriangleMesh
+	 */
+	public synchronized float[] getTexCoords() {
+		float[] t = new float[2*su*sv];
+		for (int i = 0; i < su; i++) {
+			for (int j = 0; j < sv; j++) {
+				t[2*(i*sv + j)]   = (float) i / (su - 1);
+				t[2*(i*sv + j)+1] = (float) j / (sv - 1);
+			}
+		}
+		return t;
+	}
+
+	/**
+	 * Gets the PhongMaterial
+	 *
+	 * @return	m	PhongMaterial
+	 */
+	public PhongMaterial getMaterial() {
+		return m;
+	}
+
+	/**
+	 * Sets the PhongMaterial
+	 *
+	 * @param	m	PhongMaterial
+	 */
+	public void setMaterial(PhongMaterial m) {
+		this.m = m;
+	}
+
+	/**
+	 * Gets the DrawMode
+	 *
+	 * @return	dm	DrawMode
+	 */
+	public DrawMode getDrawMode() {
+		return dm;
+	}
+
+	/**
+	 * Sets the DrawMode
+	 *
+	 * @param	dm	DrawMode
+	 */
+	public void setDrawMode(DrawMode dm) {
+		this.dm = dm;
+	}
+
+	/**
+	 * Gets the CullFace
+	 *
+	 * @return	cf	CullFace
+	 */
+	public CullFace getCullFace() {
+		return cf;
+	}
+
+	/**
+	 * Sets the CullFace
+	 *
+	 * @param	cf	CullFace
+	 */
+	public void setCullFace(CullFace cf) {
+		this.cf = cf;
+	}
+
+	/**
+	 * Returns a String containing all Patch3D values for saving to a data file: the type,
+	 * degree, grid size, divisions and control points, and the drawing settings. The String
+	 * is read by DataReader.readObject() to recreate a Patch3D object when reading a saved
+	 * data file.
+	 *
+	 * @return	String capturing all Patch3D field values
+	 */
+	public synchronized String outString() {
+		StringBuilder sb = new StringBuilder(64*nu*nv);
+		sb.append("Patch: ").append((type == BEZIER) ? "BEZIER" : "BSPLINE").append(", ").append(du)
+		  .append(", ").append(nu).append(", ").append(nv).append(", ").append(divisions).append(", ");
+		for (int k = 0; k < cp.length; k += 3) {
+			sb.append("( ").append(cp[k]).append(", ").append(cp[k+1]).append(", ").append(cp[k+2]).append(" ), ");
+		}
+		sb.append("#");
+		sb.append(", ").append(dm).append(", ").append(cf);
+		if (m != null) {
+			sb.append(", ").append(m.getDiffuseColor());
+			if (m.getSpecularColor() != null) {
+				sb.append(", ").append(m.getSpecularColor());
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Returns a String containing the type, degree and number of control points
+	 *
+	 * @return	String representation of the Patch3D
+	 */
+	@Override
+	public String toString() {
+		String[] names = {"Bezier", "B-spline"};
+		return "Patch3D: " + names[type] + ", degree= " + du + " x " + dv +
+			   ", control points= " + nu + " x " + nv + ", divisions= " + divisions;
+	}
+}
@@ -0,0 +1,90 @@
+package org.edisonwj.draw3d;
+
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+/**
+* PendingViews class keeps the views of loaded scene files whose objects have not yet
+* been read. Each Draw3D view number is mapped to its scene file and the view in that
+* file, so that the views of several scene files may be pending at once. A scene file
+* is dropped when none of its views are pending. It is used on the FX application
+* thread only.
+*
+* @author William Edison
+* @version 1.02
+*
+*/
+class PendingViews {
+	private HashMap<Integer, Map.Entry<SceneFile, Integer>> views = new HashMap<>();
+	private IdentityHashMap<SceneFile, Integer> pending = new IdentityHashMap<>();	// number of pending views of each scene
+
+	/**
+	 * Adds a view of a scene file, read when the view is first displayed.
+	 *
+	 * @param	view		int Draw3D sequence/view number
+	 * @param	scene		SceneFile scene file holding the objects of the view
+	 * @param	sceneView	int view number in the scene file, counting from 0
+	 */
+	void put(int view, SceneFile scene, int sceneView) {
+		remove(view);
+		views.put(view, new AbstractMap.SimpleImmutableEntry<>(scene, sceneView));
+		Integer n = pending.get(scene);
+		pending.put(scene, (n == null) ? 1 : n + 1);
+	}
+
+	/**
+	 * Reads the objects of a pending view, which is then no longer pending.
+	 *
+	 * @param	view	int Draw3D sequence/view number
+	 * @return	ArrayList of the drawing objects of the view, or null if it is not pending
+	 * @throws	IOException if the view is corrupt in its scene file
+	 */
+	ArrayList<Object> read(int view) throws IOException {
+		Map.Entry<SceneFile, Integer> entry = remove(view);
+		return (entry == null) ? null : entry.getKey().getObjects(entry.getValue());
+	}
+
+	/**
+	 * Tests whether a view is pending.
+	 *
+	 * @param	view	int Draw3D sequence/view number
+	 * @return	boolean true if the objects of the view have not been read
+	 */
+	boolean contains(int view) {
+		return views.containsKey(view);
+	}
+
+	/**
+	 * Gets the number of scene files with pending views.
+	 *
+	 * @return	int number of scene files
+	 */
+	int getSceneCount() {
+		return pending.size();
+	}
+
+	/**
+	 * Drops all pending views and their scene files.
+	 */
+	void clear() {
+		views.clear();
+		pending.clear();
+	}
+
+	private Map.Entry<SceneFile, Integer> remove(int view) {
+		Map.Entry<SceneFile, Integer> entry = views.remove(view);
+		if (entry != null) {
+			int n = pending.get(entry.getKey()) - 1;
+			if (n == 0) {
+				pending.remove(entry.getKey());
+			}
+			else {
+				pending.put(entry.getKey(), n);
+			}
+		}
+		return entry;
+	}
+}
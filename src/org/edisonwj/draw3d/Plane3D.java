@@ -43,6 +43,9 @@ public class Plane3D implements Draw3DDefaults {
 	private double p;				// distance to origin from associated plane
 	private Vector3D normal;		// normal vector
 	private Vector3D unitNormal;	// unit normal vector
+	private double ux;				// unit normal components used in intersection loops
+	private double uy;
+	private double uz;
 	private PhongMaterial m;
 	private DrawMode dm;
 	private CullFace cf;
@@ -296,14 +299,15 @@ public class Plane3D implements Draw3DDefaults {
      * ax + by + cz = d 
      */
     private void findNormals() {
-    	// Derived normal
-    	Vector3D v1 = Vector3D.subtract(p1, p2);
-    	Vector3D v2 = Vector3D.subtract(p1, p3);
-    	normal = Vector3D.crossProduct(v1, v2);
-    	a = normal.getX();
-    	b = normal.getY();
-    	c = normal.getZ();
-    	d = normal.getX()*(p1.getX()) + normal.getY()*(p1.getY()) + normal.getZ()*(p1.getZ());
+    	// Derived normal, (p1 - p3) x (p1 - p2)
+    	double[] n = new double[3];
+    	VectorMath.crossProduct(p1.getX()-p3.getX(), p1.getY()-p3.getY(), p1.getZ()-p3.getZ(),
+    							p1.getX()-p2.getX(), p1.getY()-p2.getY(), p1.getZ()-p2.getZ(), n, 0);
+    	a = n[0];
+    	b = n[1];
+    	c = n[2];
+    	d = VectorMath.dotProduct(a, b, c, p1.getX(), p1.getY(), p1.getZ());
+    	normal = new Vector3D(a, b, c);
     	setUnitNormal();
     }
     
@@ -311,8 +315,11 @@ public class Plane3D implements Draw3DDefaults {
      * Computes the unit normal vector of the Plane.
      */
     private void setUnitNormal() {
-    	double denom = Math.sqrt(a*a + b*b + c*c);
-    	unitNormal = new Vector3D(a/denom, b/denom, c/denom);
+    	double denom = VectorMath.length(a, b, c);
+    	ux = a/denom;
+    	uy = b/denom;
+    	uz = c/denom;
+    	unitNormal = new Vector3D(ux, uy, uz);
     	p = d/denom;
     	if (normal == null) {
     		normal = unitNormal;
@@ -386,15 +393,15 @@ public class Plane3D implements Draw3DDefaults {
     											double minY, double maxY,
     											double minZ, double maxZ) {
 			
-    	// Define box vertices 
-		double[][] vtx = {  {maxX,  maxY,  maxZ},
-				   			{maxX,  minY,  maxZ},
-				   			{maxX,  maxY,  minZ},
-				   			{minX,  maxY,  maxZ},
-				   			{minX,  minY,  maxZ},
-				   			{maxX,  minY,  minZ},
-				   			{minX,  maxY,  minZ},
-				   			{minX,  minY,  minZ} };
+    	// Define box vertices, packed x, y, z
+		double[] vtx = {  maxX,  maxY,  maxZ,
+				   		  maxX,  minY,  maxZ,
+				   		  maxX,  maxY,  minZ,
+				   		  minX,  maxY,  maxZ,
+				   		  minX,  minY,  maxZ,
+				   		  maxX,  minY,  minZ,
+				   		  minX,  maxY,  minZ,
+				   		  minX,  minY,  minZ };
 		
 		// Define intersection search paths from vertex 0 to 7	
 		int[][] edges =  { {0, 1},
@@ -413,12 +420,8 @@ public class Plane3D implements Draw3DDefaults {
 		// Search for intersections
 		Set<Point3D> intersections = new HashSet<Point3D>();
 		Point3D[] finalIntersections = null;
-//		System.out.println("edges.length= " + edges.length);
 		for(int i = 0; i < edges.length; i++) {
-//			System.out.println("edge[" + i + "]= " + "(v" + edges[i][0] + " v" + edges[i][1] + ")");
-			double[] v1 = vtx[edges[i][0]];
-			double[] v2 = vtx[edges[i][1]];
-			Point3D vi = checkIntersection(v1, v2);
+			Point3D vi = checkIntersection(vtx, edges[i][0], edges[i][1]);
 			if (vi != null) {
 					intersections.add(vi);
 			}
@@ -427,7 +430,7 @@ public class Plane3D implements Draw3DDefaults {
 		// Trim and sort array
 			finalIntersections = intersections.toArray(new Point3D[intersections.size()]);
 			if (finalIntersections.length > 3) {
-				sortIntersections(finalIntersections);
+				finalIntersections = sortIntersections(finalIntersections);
 			}
 		}
 		else {
@@ -458,22 +461,24 @@ public class Plane3D implements Draw3DDefaults {
      * Adapted from: Gernot Hoffman, Cube Plane Intersection, http://docs-hoffmann.de/cubeplane12112006.pdf
      * See also:	 Dan Sunday, Intersections of Lines and Planes, http://geomalgorithms.com/a05-_intersect-1.html 
      * 
-     * @param	v1	Point3D corner point of the boundary cube
-     * @param	v2	Point3D corner point of the boundary cube
+     * @param	vtx	double[] packed array of the boundary cube corner points
+     * @param	i1	int index of the first corner point of the edge
+     * @param	i2	int index of the second corner point of the edge
      * @return	result	Point3d Plane/Boundary intersection point or null if no intersection
      */
-	private Point3D checkIntersection(double[] p1, double[] p2) {		
-//		System.out.println("Check Intersection:\n" + new Point3D(p1[0], p1[1], p1[2]) +
-//				  							  "\n" + new Point3D(p2[0], p2[1], p2[2]));	
-		Vector3D v1 = new Vector3D(p1);
-		Vector3D v2 = new Vector3D(p2);
-		double lambda = ( p - Vector3D.dotProduct(unitNormal, v1) ) / 
-						( Vector3D.dotProduct(unitNormal, Vector3D.subtract(v2, v1)));
-//	  	System.out.println("lambda= " + lambda);
+	private Point3D checkIntersection(double[] vtx, int i1, int i2) {		
+		int k1 = 3*i1;
+		int k2 = 3*i2;
+		double x1 = vtx[k1];
+		double y1 = vtx[k1+1];
+		double z1 = vtx[k1+2];
+		double ex = vtx[k2]   - x1;
+		double ey = vtx[k2+1] - y1;
+		double ez = vtx[k2+2] - z1;
+		double lambda = ( p - VectorMath.dotProduct(ux, uy, uz, x1, y1, z1) ) / 
+						( VectorMath.dotProduct(ux, uy, uz, ex, ey, ez) );
 		if (lambda >= 0.0 && lambda <= 1.0) {		
-			Vector3D v3 = Vector3D.add(v1, Vector3D.multiply(lambda, Vector3D.subtract(v2, v1))); 
-//			System.out.println("Intersection found:\n" + v3.getX() + ", " + v3.getY() + ", " + v3.getZ());
-			return new Point3D(v3.getX(), v3.getY(), v3.getZ());
+			return new Point3D(x1 + lambda*ex, y1 + lambda*ey, z1 + lambda*ez);
 		}
 		else {
 			return null;
@@ -487,86 +492,15 @@ public class Plane3D implements Draw3DDefaults {
 	 * if ny = max then use the xz plane
 	 * if nz = max then use the xy plane
 	 * Adapted from: Gernot Hoffman, Cube Plane Intersection, http://docs-hoffmann.de/cubeplane12112006.pdf
+	 * The sort is done by VertexOrder. Duplicate points, as found when the plane passes through
+	 * a corner of the boundary cube, are removed.
 	 * 
 	 * @param	vi	Point3D array of Plane/Boundary intersection points
-	 * @return	vi	Point3D array of sorted Plane/Boundary intersection points	
+	 * @return	Point3D array of sorted, distinct Plane/Boundary intersection points	
 	 */
 	private Point3D[] sortIntersections(Point3D[] vi) {
-		
-//		System.out.println("Sort Input");
-//		for (int i = 0; i < vi.length; i++) {
-//			System.out.println("vi[" + i + "]: " + vi[i]);
-//		}
-    	
-		if ( Math.abs(unitNormal.getX()) >= Math.abs(unitNormal.getY()) &&
-				Math.abs(unitNormal.getX()) >= Math.abs(unitNormal.getZ()) ) {
-//			System.out.println("X is longest component.");
-			double my = meanY(vi);
-			double mz = meanZ(vi);
-			double ai = 0.0;
-			double aj = 0.0;
-			for (int i = 0; i < vi.length-1; i++) {
-				ai = Math.atan2(vi[i].getY()-my, vi[i].getZ()-mz);
-				for (int j = i+1; j < vi.length; j++) {
-					aj = Math.atan2(vi[j].getY()-my, vi[j].getZ()-mz);
-					if (aj < ai) {
-						Point3D t = vi[i];
-						vi[i] = vi[j];
-						vi[j] = t;
-						ai = aj;
-					}
-				}
-			}
-		}
-		else if ( Math.abs(unitNormal.getY()) >= Math.abs(unitNormal.getX()) &&
-			Math.abs(unitNormal.getY()) >= Math.abs(unitNormal.getZ()) ) {
-//			System.out.println("Y is longest component.");
-			double mx = meanX(vi);
-			double mz = meanZ(vi);
-			double ai = 0.0;
-			double aj = 0.0;
-			for (int i = 0; i < vi.length-1; i++) {
-				ai = Math.atan2(vi[i].getZ()-mz, vi[i].getX()-mx);
-				for (int j = i+1; j < vi.length; j++) {
-					aj = Math.atan2(vi[j].getZ()-mz, vi[j].getX()-mx);
-					if (aj < ai) {
-						Point3D t = vi[i];
-						vi[i] = vi[j];
-						vi[j] = t;
-						ai = aj;
-					}
-				}	
-			}
-		}
-		else if ( Math.abs(unitNormal.getZ()) >= Math.abs(unitNormal.getX()) &&
-				Math.abs(unitNormal.getZ()) >= Math.abs(unitNormal.getY()) ) {
-//			System.out.println("Z is longest component.");
-			double mx = meanX(vi);
-			double my = meanY(vi);
-			double ai = 0.0;
-			double aj = 0.0;
-			for (int i = 0; i < vi.length-1; i++) {
-				ai = Math.atan2(vi[i].getY()-my, vi[i].getX()-mx);
-				for (int j = i+1; j < vi.length; j++) {
-					aj = Math.atan2(vi[j].getY()-my, vi[j].getX()-mx);
-					if (aj < ai) {
-						Point3D t = vi[i];
-						vi[i] = vi[j];
-						vi[j] = t;
-						ai = aj;
-					}	
-				}
-			}
-		}
-		else {
-			System.out.println("No sort performed");
-		}
-//		System.out.println("Sort Output");
-//    	for (int i = 0; i < vi.length; i++) {
-//			System.out.println("vi[" + i + "]: " + vi[i]);
-//		}
-		
-		return vi;
+		VertexOrder order = new VertexOrder(vi, findLongestComponent());
+		return order.getDistinct(vi);
 	}
 	
 	/**
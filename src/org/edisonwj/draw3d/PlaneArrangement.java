@@ -0,0 +1,541 @@
+package org.edisonwj.draw3d;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import javafx.geometry.Point3D;
+import javafx.scene.paint.PhongMaterial;
+import javafx.scene.shape.CullFace;
+import javafx.scene.shape.DrawMode;
+/**
+* PlaneArrangement class captures the intersections of a set of Plane3D objects within
+* the boundary of the user coordinate space:
+* - Plane3D array of the planes
+* - boundary box {minX, maxX, minY, maxY, minZ, maxZ} (user coordinate scale)
+* - computed line segments where two planes intersect, clipped to the boundary
+* - computed points where three planes intersect, within the boundary
+* - PhongMaterial of the segments and of the points (optional)
+* - DrawMode setting (optional)
+* - Cullface setting (optional)
+* The PlaneArrangement object is drawn by drawPlaneArrangement() as one TriangleMesh of
+* thin prisms for the segments and one TriangleMesh of small octahedra for the points.
+*
+* Two planes can only intersect within the boundary where the bounding boxes of their
+* boundary intersection polygons overlap. Candidate pairs are found by sorting the
+* planes on the minimum x of their bounding boxes and sweeping, so pairs of planes
+* that do not meet within the boundary are not examined. The intersection lines of
+* the candidate pairs are clipped together by Clip3D.clipLines(). A triple point of
+* planes i < j < k is found on the segment of planes i and j, testing only planes k
+* whose bounding boxes overlap the segment; the segments are processed in parallel.
+*
+* The class implements defaults specified in Draw3DDefaults.
+*
+* @author William Edison
+* @version 1.02
+*
+*/
+public class PlaneArrangement implements Draw3DDefaults {
+	private Plane3D[] planes;
+	private double[] box;			// Boundary {minX, maxX, minY, maxY, minZ, maxZ}
+	private double[] segments;		// Packed end points x1, y1, z1, x2, y2, z2 of the segments
+	private int[] segmentPlanes;	// Plane indices i < j of segment s at 2s, 2s+1
+	private int ns;					// Number of segments
+	private double[] points;		// Packed x, y, z of the triple points
+	private int[] pointPlanes;		// Plane indices i < j < k of point q at 3q .. 3q+2
+	private int nq;					// Number of triple points
+	private int candidates;			// Number of plane pairs examined after pruning
+	private PhongMaterial m;
+	private PhongMaterial pm;
+	private DrawMode dm;
+	private CullFace cf;
+
+	/**
+	 * Constructs a PlaneArrangement object for the planes within the specified boundary.
+	 *
+	 * @param	planes	Plane3D array of planes
+	 * @param	minX	double minimum value of the x axis (in user coordinate space)
+	 * @param	maxX	double maximum value of the x axis (in user coordinate space)
+	 * @param	minY	double minimum value of the y axis (in user coordinate space)
+	 * @param	maxY	double maximum value of the y axis (in user coordinate space)
+	 * @param	minZ	double minimum value of the z axis (in user coordinate space)
+	 * @param	maxZ	double maximum value of the z axis (in user coordinate space)
+	 */
+	public PlaneArrangement(Plane3D[] planes, double minX, double maxX,
+							double minY, double maxY, double minZ, double maxZ) {
+		this.planes = planes;
+		findIntersections(minX, maxX, minY, maxY, minZ, maxZ);
+	}
+
+	/**
+	 * Constructs a PlaneArrangement object for the planes within the specified boundary,
+	 * with the PhongMaterial of its segments and points.
+	 *
+	 * @param	planes	Plane3D array of planes
+	 * @param	minX	double minimum value of the x axis (in user coordinate space)
+	 * @param	maxX	double maximum value of the x axis (in user coordinate space)
+	 * @param	minY	double minimum value of the y axis (in user coordinate space)
+	 * @param	maxY	double maximum value of the y axis (in user coordinate space)
+	 * @param	minZ	double minimum value of the z axis (in user coordinate space)
+	 * @param	maxZ	double maximum value of the z axis (in user coordinate space)
+	 * @param	m		PhongMaterial determining segment and point color
+	 */
+	public PlaneArrangement(Plane3D[] planes, double minX, double maxX,
+							double minY, double maxY, double minZ, double maxZ, PhongMaterial m) {
+		this(planes, minX, maxX, minY, maxY, minZ, maxZ);
+		this.m = m;
+	}
+
+	/**
+	 * Finds the segments and triple points of the planes within the specified boundary,
+	 * replacing those of any previous boundary.
+	 *
+	 * @param	minX	double minimum value of the x axis (in user coordinate space)
+	 * @param	maxX	double maximum value of the x axis (in user coordinate space)
+	 * @param	minY	double minimum value of the y axis (in user coordinate space)
+	 * @param	maxY	double maximum value of the y axis (in user coordinate space)
+	 * @param	minZ	double minimum value of the z axis (in user coordinate space)
+	 * @param	maxZ	double maximum value of the z axis (in user coordinate space)
+	 */
+	public void findIntersections(double minX, double maxX, double minY, double maxY,
+								  double minZ, double maxZ) {
+		box = new double[] {minX, maxX, minY, maxY, minZ, maxZ};
+		int n = planes.length;
+		double tol = EPSILON * Math.max(Math.max(maxX - minX, maxY - minY), Math.max(maxZ - minZ, 1.0));
+
+		// Unit normals and distances, u . x = p, and bounding boxes of the boundary polygons
+		final double[] u = new double[3*n];
+		final double[] p = new double[n];
+		final double[] bounds = new double[6*n];
+		Integer[] live = new Integer[n];
+		int nl = 0;
+		for (int i = 0; i < n; i++) {
+			Vector3D un = planes[i].getUnitNormal();
+			u[3*i]   = un.getX();
+			u[3*i+1] = un.getY();
+			u[3*i+2] = un.getZ();
+			p[i] = planes[i].getP();
+			if (polygonBounds(u, p, i, box, tol, bounds)) {
+				live[nl++] = i;
+			}
+		}
+
+		// Sweep the planes in order of minimum x for pairs with overlapping bounding boxes
+		Arrays.sort(live, 0, nl, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer i, Integer j) {
+				return Double.compare(bounds[6*i], bounds[6*j]);
+			}
+		});
+		int[] pairs = new int[2*Math.max(nl, 1)];
+		int np = 0;
+		for (int a = 0; a < nl; a++) {
+			int i = live[a];
+			for (int b = a+1; b < nl && bounds[6*live[b]] <= bounds[6*i+1] + tol; b++) {
+				int j = live[b];
+				if (overlap(bounds, 6*i, bounds, 6*j, tol)) {
+					if (2*np+2 > pairs.length) {
+						pairs = Arrays.copyOf(pairs, 2*pairs.length);
+					}
+					pairs[2*np]   = Math.min(i, j);
+					pairs[2*np+1] = Math.max(i, j);
+					np++;
+				}
+			}
+		}
+		candidates = np;
+
+		// Intersection lines of the candidate pairs, x = x0 + t*(ui x uj), clipped together
+		double[] x = new double[np];
+		double[] y = new double[np];
+		double[] z = new double[np];
+		double[] dx = new double[np];
+		double[] dy = new double[np];
+		double[] dz = new double[np];
+		double[] d = new double[3];
+		for (int k = 0; k < np; k++) {
+			int i = 3*pairs[2*k];
+			int j = 3*pairs[2*k+1];
+			VectorMath.crossProduct(u[i], u[i+1], u[i+2], u[j], u[j+1], u[j+2], d, 0);
+			double dd = VectorMath.dotProduct(d[0], d[1], d[2], d[0], d[1], d[2]);
+			if (dd < EPSILON) {
+				x[k] = Double.POSITIVE_INFINITY;	// parallel planes, culled by clipping
+				continue;
+			}
+			// x0 = (pi (uj x d) + pj (d x ui)) / |d|^2
+			double pi = p[i/3];
+			double pj = p[j/3];
+			x[k] = (pi*(u[j+1]*d[2] - u[j+2]*d[1]) + pj*(d[1]*u[i+2] - d[2]*u[i+1])) / dd;
+			y[k] = (pi*(u[j+2]*d[0] - u[j]*d[2])   + pj*(d[2]*u[i]   - d[0]*u[i+2])) / dd;
+			z[k] = (pi*(u[j]*d[1]   - u[j+1]*d[0]) + pj*(d[0]*u[i+1] - d[1]*u[i]))   / dd;
+			dx[k] = d[0];
+			dy[k] = d[1];
+			dz[k] = d[2];
+		}
+		final double[] seg = new double[6*np];
+		int[] index = new int[np];
+		ns = Clip3D.clipLines(x, y, z, dx, dy, dz, np,
+							  Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, box, seg, index);
+		segments = Arrays.copyOf(seg, 6*ns);
+		segmentPlanes = new int[2*ns];
+		for (int s = 0; s < ns; s++) {
+			segmentPlanes[2*s]   = pairs[2*index[s]];
+			segmentPlanes[2*s+1] = pairs[2*index[s]+1];
+		}
+
+		// Triple points: count on each segment, then fill at the prefix sum offsets
+		final int[] count = new int[ns+1];
+		final double[] bx = box;
+		final double tolerance = tol;
+		new ParallelRange() {
+			@Override
+			protected void compute(int lo, int hi) {
+				for (int s = lo; s < hi; s++) {
+					count[s+1] = triplePoints(s, u, p, bounds, bx, tolerance, null, null, 0);
+				}
+			}
+		}.invoke(0, ns, 64);
+		for (int s = 0; s < ns; s++) {
+			count[s+1] += count[s];
+		}
+		nq = count[ns];
+		final double[] pts = new double[3*nq];
+		final int[] ppl = new int[3*nq];
+		new ParallelRange() {
+			@Override
+			protected void compute(int lo, int hi) {
+				for (int s = lo; s < hi; s++) {
+					triplePoints(s, u, p, bounds, bx, tolerance, pts, ppl, count[s]);
+				}
+			}
+		}.invoke(0, ns, 64);
+		points = pts;
+		pointPlanes = ppl;
+	}
+
+	/**
+	 * Finds the triple points on segment s of planes i < j with the planes k > j, storing
+	 * them from position q of pts and ppl when pts is not null.
+	 *
+	 * @return	int number of triple points on the segment
+	 */
+	private int triplePoints(int s, double[] u, double[] p, double[] bounds, double[] bx,
+							 double tol, double[] pts, int[] ppl, int q) {
+		int o = 6*s;
+		double x1 = segments[o],   y1 = segments[o+1], z1 = segments[o+2];
+		double ex = segments[o+3] - x1;
+		double ey = segments[o+4] - y1;
+		double ez = segments[o+5] - z1;
+		double el = VectorMath.length(ex, ey, ez);
+		double[] sb = {Math.min(x1, x1 + ex), Math.max(x1, x1 + ex),
+					   Math.min(y1, y1 + ey), Math.max(y1, y1 + ey),
+					   Math.min(z1, z1 + ez), Math.max(z1, z1 + ez)};
+		int count = 0;
+		for (int k = segmentPlanes[2*s+1] + 1; k < p.length; k++) {
+			if (Double.isNaN(bounds[6*k]) || !overlap(bounds, 6*k, sb, 0, tol)) {
+				continue;
+			}
+			double ue = u[3*k]*ex + u[3*k+1]*ey + u[3*k+2]*ez;
+			if (Math.abs(ue) < EPSILON * el || el == 0.0) {
+				continue;							// segment parallel to plane k
+			}
+			double t = (p[k] - (u[3*k]*x1 + u[3*k+1]*y1 + u[3*k+2]*z1)) / ue;
+			if (t < -EPSILON || t > 1.0 + EPSILON) {
+				continue;
+			}
+			t = Math.min(Math.max(t, 0.0), 1.0);
+			if (pts != null) {
+				int r = 3*(q + count);
+				pts[r]   = x1 + t*ex;
+				pts[r+1] = y1 + t*ey;
+				pts[r+2] = z1 + t*ez;
+				ppl[r]   = segmentPlanes[2*s];
+				ppl[r+1] = segmentPlanes[2*s+1];
+				ppl[r+2] = k;
+			}
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Finds the bounding box of the intersection polygon of plane i with the boundary
+	 * box from the crossings of the box edges, storing it at bounds[6i]. Planes that
+	 * miss the boundary are marked by NaN.
+	 *
+	 * @return	boolean true if plane i intersects the boundary
+	 */
+	private static boolean polygonBounds(double[] u, double[] p, int i, double[] box,
+										 double tol, double[] bounds) {
+		double[] s = new double[8];				// Signed distances of the corners
+		double[] c = new double[24];			// Corners, corner k at x = box[k&1], y = box[2+(k>>1&1)], z = box[4+(k>>2&1)]
+		for (int k = 0; k < 8; k++) {
+			c[3*k]   = box[k & 1];
+			c[3*k+1] = box[2 + (k >> 1 & 1)];
+			c[3*k+2] = box[4 + (k >> 2 & 1)];
+			s[k] = u[3*i]*c[3*k] + u[3*i+1]*c[3*k+1] + u[3*i+2]*c[3*k+2] - p[i];
+		}
+		int o = 6*i;
+		bounds[o] = bounds[o+2] = bounds[o+4] = Double.POSITIVE_INFINITY;
+		bounds[o+1] = bounds[o+3] = bounds[o+5] = Double.NEGATIVE_INFINITY;
+		boolean found = false;
+		for (int a = 0; a < 8; a++) {
+			if (Math.abs(s[a]) <= tol) {
+				found = true;
+				include(bounds, o, c[3*a], c[3*a+1], c[3*a+2]);
+			}
+			for (int bit = 1; bit < 8; bit <<= 1) {
+				int b = a | bit;
+				if (b == a || (s[a] > tol && s[b] > tol) || (s[a] < -tol && s[b] < -tol) ||
+					Math.abs(s[a]) <= tol || Math.abs(s[b]) <= tol) {
+					continue;						// no crossing inside the edge
+				}
+				double t = s[a] / (s[a] - s[b]);
+				found = true;
+				include(bounds, o, c[3*a]   + t*(c[3*b]   - c[3*a]),
+								   c[3*a+1] + t*(c[3*b+1] - c[3*a+1]),
+								   c[3*a+2] + t*(c[3*b+2] - c[3*a+2]));
+			}
+		}
+		if (!found) {
+			Arrays.fill(bounds, o, o+6, Double.NaN);
+		}
+		return found;
+	}
+
+	private static void include(double[] bounds, int o, double x, double y, double z) {
+		bounds[o]   = Math.min(bounds[o], x);
+		bounds[o+1] = Math.max(bounds[o+1], x);
+		bounds[o+2] = Math.min(bounds[o+2], y);
+		bounds[o+3] = Math.max(bounds[o+3], y);
+		bounds[o+4] = Math.min(bounds[o+4], z);
+		bounds[o+5] = Math.max(bounds[o+5], z);
+	}
+
+	/**
+	 * Indicates whether two boxes {minX, maxX, minY, maxY, minZ, maxZ} overlap within tol
+	 */
+	private static boolean overlap(double[] a, int i, double[] b, int j, double tol) {
+		return a[i]   <= b[j+1] + tol && b[j]   <= a[i+1] + tol &&
+			   a[i+2] <= b[j+3] + tol && b[j+2] <= a[i+3] + tol &&
+			   a[i+4] <= b[j+5] + tol && b[j+4] <= a[i+5] + tol;
+	}
+
+	/**
+	 * Gets the planes
+	 *
+	 * @return	planes	Plane3D array of the planes
+	 */
+	public Plane3D[] getPlanes() {
+		return planes;
+	}
+
+	/**
+	 * Gets the boundary of the intersections
+	 *
+	 * @return	box	double[6] {minX, maxX, minY, maxY, minZ, maxZ}
+	 */
+	public double[] getBox() {
+		return box;
+	}
+
+	/**
+	 * Gets the segments where two planes intersect within the boundary
+	 *
+	 * @return	segments	double array of packed end points x1, y1, z1, x2, y2, z2
+	 */
+	public double[] getSegments() {
+		return segments;
+	}
+
+	/**
+	 * Gets the indices of the planes of each segment
+	 *
+	 * @return	segmentPlanes	int array of packed plane indices i < j
+	 */
+	public int[] getSegmentPlanes() {
+		return segmentPlanes;
+	}
+
+	/**
+	 * Gets the number of segments
+	 *
+	 * @return	ns	int number of segments
+	 */
+	public int getSegmentCount() {
+		return ns;
+	}
+
+	/**
+	 * Gets the segments as Line3D objects
+	 *
+	 * @return	Line3D array of the segments
+	 */
+	public Line3D[] getLines() {
+		Line3D[] ln = new Line3D[ns];
+		for (int s = 0, o = 0; s < ns; s++, o += 6) {
+			ln[s] = new Line3D(segments[o],   segments[o+1], segments[o+2],
+							   segments[o+3], segments[o+4], segments[o+5]);
+		}
+		return ln;
+	}
+
+	/**
+	 * Gets the points where three planes intersect within the boundary
+	 *
+	 * @return	points	double array of packed x, y, z coordinates
+	 */
+	public double[] getPoints() {
+		return points;
+	}
+
+	/**
+	 * Gets the indices of the planes of each triple point
+	 *
+	 * @return	pointPlanes	int array of packed plane indices i < j < k
+	 */
+	public int[] getPointPlanes() {
+		return pointPlanes;
+	}
+
+	/**
+	 * Gets the number of triple points
+	 *
+	 * @return	nq	int number of triple points
+	 */
+	public int getPointCount() {
+		return nq;
+	}
+
+	/**
+	 * Gets the triple points as Point3D objects
+	 *
+	 * @return	Point3D array of the triple points
+	 */
+	public Point3D[] getPoint3DArray() {
+		return VectorMath.toPoint3DArray(points, nq);
+	}
+
+	/**
+	 * Gets the number of plane pairs examined after pruning by bounding boxes
+	 *
+	 * @return	candidates	int number of candidate plane pairs
+	 */
+	public int getCandidatePairs() {
+		return candidates;
+	}
+
+	/**
+	 * Gets the PhongMaterial of the segments
+	 *
+	 * @return	m	PhongMaterial
+	 */
+	public PhongMaterial getMaterial() {
+		return m;
+	}
+
+	/**
+	 * Sets the PhongMaterial of the segments
+	 *
+	 * @param	m	PhongMaterial
+	 */
+	public void setMaterial(PhongMaterial m) {
+		this.m = m;
+	}
+
+	/**
+	 * Gets the PhongMaterial of the triple points
+	 *
+	 * @return	pm	PhongMaterial
+	 */
+	public PhongMaterial getPointMaterial() {
+		return pm;
+	}
+
+	/**
+	 * Sets the PhongMaterial of the triple points
+	 *
+	 * @param	pm	PhongMaterial
+	 */
+	public void setPointMaterial(PhongMaterial pm) {
+		this.pm = pm;
+	}
+
+	/**
+	 * Gets the DrawMode
+	 *
+	 * @return	dm	DrawMode
+	 */
+	public DrawMode getDrawMode() {
+		return dm;
+	}
+
+	/**
+	 * Sets the DrawMode
+	 *
+	 * @param	dm	DrawMode
+	 */
+	public void setDrawMode(DrawMode dm) {
+		this.dm = dm;
+	}
+
+	/**
+	 * Gets the CullFace
+	 *
+	 * @return	cf	CullFace
+	 */
+	public CullFace getCullFace() {
+		return cf;
+	}
+
+	/**
+	 * Sets the CullFace
+	 *
+	 * @param	cf	CullFace
+	 */
+	public void setCullFace(CullFace cf) {
+		this.cf = cf;
+	}
+
+	/**
+	 * Returns a String containing all PlaneArrangement values for saving to a data file:
+	 * the boundary, the number of planes, the unit normal and distance from the origin of
+	 * each plane, the drawing settings, the point color and the material. The String is
+	 * read by DataReader.readObject() to recreate a PlaneArrangement object when reading
+	 * a saved data file.
+	 *
+	 * @return	String capturing all PlaneArrangement field values
+	 */
+	public String outString() {
+		StringBuilder sb = new StringBuilder(64*planes.length + 128);
+		sb.append("Arrangement: ").append(box[0]);
+		for (int i = 1; i < box.length; i++) {
+			sb.append(", ").append(box[i]);
+		}
+		sb.append(", ").append(planes.length);
+		for (int i = 0; i < planes.length; i++) {
+			Vector3D u = planes[i].getUnitNormal();
+			sb.append(", ").append(u.getX()).append(", ").append(u.getY()).append(", ").append(u.getZ())
+			  .append(", ").append(planes[i].getP());
+		}
+		sb.append(", ").append(dm).append(", ").append(cf)
+		  .append(", ").append((pm != null) ? pm.getDiffuseColor() : null);
+		if (m != null) {
+			sb.append(", ").append(m.getDiffuseColor());
+			if (m.getSpecularColor() != null) {
+				sb.append(", ").append(m.getSpecularColor());
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Returns a String containing the PlaneArrangement counts
+	 *
+	 * @return	String representation of the PlaneArrangement
+	 */
+	@Override
+	public String toString() {
+		return "PlaneArrangement: planes= " + planes.length + ", candidate pairs= " + candidates +
+			   ", segments= " + ns + ", points= " + nq;
+	}
+}
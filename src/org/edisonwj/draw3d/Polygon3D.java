@@ -287,15 +287,17 @@ public class Polygon3D implements Draw3DDefaults {
      * ax + by + cz = d 
      */
     private void findNormals() {
-    	// Derive unit normal
-    	Vector3D v1 = Vector3D.subtract(v[1], v[0]);
-    	Vector3D v2 = Vector3D.subtract(v[2], v[0]);
-    	normal = Vector3D.crossProduct(v1, v2);
+    	// Derive normal, (v2 - v0) x (v1 - v0)
+    	double[] n = new double[3];
+    	VectorMath.triangleNormal(v[0].getX(), v[0].getY(), v[0].getZ(),
+    							  v[2].getX(), v[2].getY(), v[2].getZ(),
+    							  v[1].getX(), v[1].getY(), v[1].getZ(), n, 0);
     	// Set unit normal coordinates
-    	d = normal.getX()*(v[0].getX()) + normal.getY()*(v[0].getY()) + normal.getZ()*(v[0].getZ());
-    	a = normal.getX();
-    	b = normal.getY();
-    	c = normal.getZ();
+    	a = n[0];
+    	b = n[1];
+    	c = n[2];
+    	d = VectorMath.dotProduct(a, b, c, v[0].getX(), v[0].getY(), v[0].getZ());
+    	normal = new Vector3D(a, b, c);
     	setUnitNormal();
     }
     
@@ -303,7 +305,7 @@ public class Polygon3D implements Draw3DDefaults {
      * Computes the unit normal vector of the plane of the Polygon.
      */
     private void setUnitNormal() {
-    	double denom = Math.sqrt(a*a + b*b + c*c);
+    	double denom = VectorMath.length(a, b, c);
     	unitNormal = new Vector3D(a/denom, b/denom, c/denom);
     	p = d/denom;
     }
@@ -493,90 +495,12 @@ public class Polygon3D implements Draw3DDefaults {
 	}
 	
 	/**
-	 * Sorts the array of vertices v
+	 * Sorts the array of vertices v by angle about their centroid in the main plane.
 	 * Adapted from: Gernot Hoffman, Cube Plane Intersection, http://docs-hoffmann.de/cubeplane12112006.pdf
+	 * Use VertexOrder directly to also identify duplicate and collinear vertices.
 	 */
 	public void sortVertices() {
-		
-		System.out.println("Sort Input");
-		for (int i = 0; i < v.length; i++) {
-			System.out.println("v[" + i + "]: " + v[i]);
-		}
-		
-		// Find temporary unit normal
-    	Vector3D v1 = Vector3D.subtract(v[0], v[2]);
-    	Vector3D v2 = Vector3D.subtract(v[0], v[1]);
-    	Vector3D tempNormal = Vector3D.crossProduct(v1, v2);
-    	double a = tempNormal.getX();
-    	double b = tempNormal.getY();
-    	double c = tempNormal.getZ();
-    	double denom = Math.sqrt(a*a + b*b + c*c);
-    	Vector3D tempUnitNormal = new Vector3D(a/denom, b/denom, c/denom);
-    	
-		if ( Math.abs(tempUnitNormal.getX()) >= Math.abs(tempUnitNormal.getY()) &&
-				Math.abs(tempUnitNormal.getX()) >= Math.abs(tempUnitNormal.getZ()) ) {
-			System.out.println("X is longest component.");
-			double my = meanY(v);
-			double mz = meanZ(v);
-			double ai = 0.0;
-			double aj = 0.0;
-			for (int i = 0; i < v.length-1; i++) {
-				ai = Math.atan2(v[i].getY()-my, v[i].getZ()-mz);
-				for (int j = i+1; j < v.length; j++) {
-					aj = Math.atan2(v[j].getY()-my, v[j].getZ()-mz);
-					if (aj < ai) {
-						Point3D t = v[i];
-						v[i] = v[j];
-						v[j] = t;
-						ai = aj;
-					}
-				}
-			}
-		}
-		else if ( Math.abs(tempUnitNormal.getY()) >= Math.abs(tempUnitNormal.getX()) &&
-			Math.abs(tempUnitNormal.getY()) >= Math.abs(tempUnitNormal.getZ()) ) {
-			System.out.println("Y is longest component.");
-			double mx = meanX(v);
-			double mz = meanZ(v);
-			double ai = 0.0;
-			double aj = 0.0;
-			for (int i = 0; i < v.length-1; i++) {
-				ai = Math.atan2(v[i].getZ()-mz, v[i].getX()-mx);
-				for (int j = i+1; j < v.length; j++) {
-					aj = Math.atan2(v[j].getZ()-mz, v[j].getX()-mx);
-					if (aj < ai) {
-						Point3D t = v[i];
-						v[i] = v[j];
-						v[j] = t;
-						ai = aj;
-					}
-				}	
-			}
-		}
-		else if ( Math.abs(tempUnitNormal.getZ()) >= Math.abs(tempUnitNormal.getX()) &&
-				Math.abs(tempUnitNormal.getZ()) >= Math.abs(tempUnitNormal.getY()) ) {
-			System.out.println("Z is longest component.");
-			double mx = meanX(v);
-			double my = meanY(v);
-			double ai = 0.0;
-			double aj = 0.0;
-			for (int i = 0; i < v.length-1; i++) {
-				ai = Math.atan2(v[i].getY()-my, v[i].getX()-mx);
-				for (int j = i+1; j < v.length; j++) {
-					aj = Math.atan2(v[j].getY()-my, v[j].getX()-mx);
-					if (aj < ai) {
-						Point3D t = v[i];
-						v[i] = v[j];
-						v[j] = t;
-						ai = aj;
-					}	
-				}
-			}
-		}
-		System.out.println("Sort Output");
-		for (int i = 0; i < v.length; i++) {
-			System.out.println("v[" + i + "]: " + v[i]);
-		}
+		new VertexOrder(v).apply(v);
 	}
 	
 	/**
@@ -708,8 +632,9 @@ public class Polygon3D implements Draw3DDefaults {
 	 * @return	boolean false	if Polygon is not convex
 	 */
 	public boolean isConvexPoly() {
+		int plane = isInAxisPlane();
 		for (int i = 0; i < v.length-2; i++) {
-			if (!checkLeft(v[i], v[(i+1)%v.length], v[(i+2)%v.length])) {
+			if (!checkLeft(v[i], v[(i+1)%v.length], v[(i+2)%v.length], plane)) {
 				return false;
 			} 
 		}
@@ -730,7 +655,15 @@ public class Polygon3D implements Draw3DDefaults {
 	 * @return	boolean false	if right turn
 	 */
 	public boolean checkLeft(Point3D a, Point3D b, Point3D c) { 
-		if (isInAxisPlane() == 0) {			// not in axis plane
+		return checkLeft(a, b, c, isInAxisPlane());
+	}
+	
+	/**
+	 * Provides the checkLeft() indication given the precomputed isInAxisPlane() value,
+	 * so that loops over the vertices do not repeat the O(n) axis plane test.
+	 */
+	private boolean checkLeft(Point3D a, Point3D b, Point3D c, int plane) { 
+		if (plane == 0) {			// not in axis plane
 //			System.out.println("checkLeft: not in axis plane");
 //			System.out.println("checkLeft: a= " + a + ", b= " + b + ", c= " + c);
 			double vol = volume(a, b, c);
@@ -738,17 +671,17 @@ public class Polygon3D implements Draw3DDefaults {
 //			System.out.println("checkLeft: volume= " + vol + ", result= " + result);
 			return result;
 		}
-		else if (isInAxisPlane() == 1) {	// in yz plane
+		else if (plane == 1) {	// in yz plane
 //			System.out.println("in axis plane yz");
 			double a2 = (a.getZ() - c.getZ()) * (b.getY() - c.getY()) - (a.getY() - c.getY()) * (b.getZ() - c.getZ());
 			return a2 >= 0.0;
 		}
-		else if (isInAxisPlane() == 2) {	// in xz plane
+		else if (plane == 2) {	// in xz plane
 //			System.out.println("in axis plane xz");
 			double a2 = (a.getX() - c.getX()) * (b.getZ() - c.getZ()) - (a.getZ() - c.getZ()) * (b.getX() - c.getX());
 			return a2 >= 0.0;
 		}
-		else if (isInAxisPlane() == 3) {	// in xy plane
+		else if (plane == 3) {	// in xy plane
 //			System.out.println("in axis plane xy");
 			double a2 = (a.getX() - c.getX()) * (b.getY() - c.getY()) - (a.getY() - c.getY()) * (b.getX() - c.getX());
 			return a2 >= 0.0;
@@ -782,26 +715,6 @@ public class Polygon3D implements Draw3DDefaults {
 		return a2;
 	}
 	
-	/**
-	 * Indicates whether a point p is inside a triangle defined by vertices a, b, c.
-	 * Adpapted from Ammeraal and Zang, Computer Graphics for Java Programmers, p. 44-45.
-	 * 
-	 * @param a	Point3D Triangle vertex	
-	 * @param b	Point3D Triangle vertex
-	 * @param c	Point3D Triangle vertex
-	 * @param p Point3D point to be tested for being in the Triangle determined by points a, b, c
-	 * 
-	 * @return	boolean true	if point p is in Triangle abc
-	 *			boolean false	if point p is not in Triangle abc 
-	 */
-	private boolean insideTriangle(Point3D a, Point3D b, Point3D c, Point3D p) { // ABC is assumed to be counter-clockwise
-		boolean result = checkLeft(a, b, p) &&
-						 checkLeft(b, c, p) && 
-						 checkLeft(c, a, p) ;
-//				System.out.println("insideTriangle a= " + a + ", b= " + b + ", c= " + c + ", result= " + result);
-				return result;
-	}
-	
     /**
      * Returns the volume of the tetrahedron with vertices a, b, c, and d (the origin
      * at 0,0,0). The volume is signed and is positive if (a,b,c) form
@@ -819,30 +732,17 @@ public class Polygon3D implements Draw3DDefaults {
      * @return	volume	Double signed value of the volume as described above
      */
 	public double volume(Point3D a, Point3D b, Point3D c) {
-		double a0 = a.getX();
-		double a1 = a.getY();
-		double a2 = a.getZ();
-		double b0 = b.getX();
-		double b1 = b.getY();
-		double b2 = b.getZ();
-		double c0 = c.getX();
-		double c1 = c.getY();
-		double c2 = c.getZ();
-		double d0 = 0.0;
-		double d1 = 0.0;
-		double d2 = 0.0;
-		double volume = - b0*c1*d2 + a0*c1*d2 + b1*c0*d2 - a1*c0*d2 - a0*b1*d2
-						+ a1*b0*d2 + b0*c2*d1 - a0*c2*d1 - b2*c0*d1 + a2*c0*d1
-						+ a0*b2*d1 - a2*b0*d1 - b1*c2*d0 + a1*c2*d0 - b2*c1*d0
-						- a2*c1*d0 - a1*b2*d0 + a2*b1*d0 + a0*b1*c2 - a1*b0*c2
-						- a0*b2*c1 + a2*b0*c1 + a1*b2*c0 - a2*b1*c0;
+		// With d at the origin the determinant reduces to the triple product a . (b x c)
+		double volume = VectorMath.tripleProduct(a.getX(), a.getY(), a.getZ(),
+												 b.getX(), b.getY(), b.getZ(),
+												 c.getX(), c.getY(), c.getZ());
 		double result = volumeSign * volume;
 		return result;
 	}
 	
 	public Triangle3D[] findPolygonTriangles(int[][] tri) {
-		Triangle3D[] t = new Triangle3D[v.length-2];
-		for (int i = 0; i < v.length-2; i++) {
+		Triangle3D[] t = new Triangle3D[tri.length];
+		for (int i = 0; i < tri.length; i++) {
 			t[i] = new Triangle3D(v[tri[i][0]], v[tri[i][1]], v[tri[i][2]]);
 		}
 		return t;
@@ -868,63 +768,15 @@ public class Polygon3D implements Draw3DDefaults {
 	}
 	
 	/**
-	 * Triangulate polygon defined by the Point3D[] v array of polygon vertices in counter clockwise order.
-	 * Adpapted from Ammeraal and Zang, Computer Graphics for Java Programmers, p. 44-45.
+	 * Triangulate polygon defined by the Point3D[] v array of polygon vertices in clockwise or
+	 * counter clockwise order. The triangles have the orientation of the vertex sequence.
+	 * Collinear and duplicate vertices are allowed. See Triangulator for the algorithm.
 	 * 
-	 * @return	tri	int[v.length-2][3] array of indices of vertices forming the trianglulation of the polygon
+	 * @return	tri	int[][3] array of indices of vertices forming the trianglulation of the polygon
+	 * @throws	IllegalArgumentException if the polygon is not simple
 	 */
-	
 	public int[][] triangulatePolygon() {
-		int [][] tri = new int[v.length-2][3];
-	    int n = v.length, j = n - 1, iA=0, iB, iC;
-	    int[] next = new int[n];
-	    for (int i = 0; i < n; i++) { 
-	    	next[j] = i;
-	        j = i;
-	    }
-	    for (int k = 0; k < n-2; k++) {
-	    	// Find a suitable triangle, consisting of two edges
-	    	// and an internal diagonal:
-	    	Point3D a, b, c;
-	    	boolean triaFound = false;
-	    	int count = 0;
-	    	while (!triaFound && ++count < n) {
-	    		iB = next[iA]; iC = next[iB];
-	            a = v[iA]; b = v[iB]; c = v[iC];
-//	            System.out.println("k= " + k + ", iA= " + iA + ", iB= " + iB + ", iC= " + iC);
-//            	System.out.println("checkLeft= " + checkLeft(a, b, c) + ", a= " + a + ", b= " + b + ", c= " + c);
-//	            if (checkTurn(a, b, c) >= 0.0) {
-            	if (checkLeft(a, b, c)) {
-	            	// Edges AB and BC; diagonal AC.;
-	                // Test to see if no other polygon vertex
-	                // lies within triangle ABC:
-	                j = next[iC];
-	                while (j != iA && !insideTriangle(a, b, c, v[j])) {
-	                    j = next[j];
-	                }
-                	if (j == iA) {
-                		// Triangle ABC contains no other vertex:
-                		tri[k][0] = iA;
-                		tri[k][1] = iB;
-                		tri[k][2] = iC;
-                		next[iA] = iC; 
-                		triaFound = true;
-//                		System.out.println("triangulatePolygon(): k= " + k + ", " +
-//                							tri[k][0] + ", " + tri[k][1] + ", " + tri[k][2]);
-//                		System.out.println("triangulatePolygon(): k= " + k + ", " +
-//                							v[tri[k][0]] + ", " + v[tri[k][1]] + ", " + v[tri[k][2]]);
-                	}
-	            }
-	            iA = next[iA];
-	    	}
-            if (count == n) {
-            	System.out.println("Polygon3D: Not a simple polygon" +
-            						" or vertex sequence not counter-clockwise.");
-            	System.exit(1);
-            	
-            }
-	    }
-	    return tri;
+		return Triangulator.triangulate(v);
 	}
 	
     /**
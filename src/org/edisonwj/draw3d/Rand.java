@@ -1,16 +1,39 @@
 package org.edisonwj.draw3d;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.IntSupplier;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
 /**
  * Rand provides a variety of random number generators.
  * 
+ * All are based on the Lehmer generator x = a * x mod m, of period m - 1. The state
+ * is updated atomically, so a Rand may be shared by threads, and the bulk methods,
+ * e.g. uniform(double[], double, double), reserve the values they need with a single
+ * update by jumping ahead a^n mod m. Large arrays are filled in parallel, each part
+ * starting at its own jump ahead, with the same values as filling them one by one.
+ * 
+ * The arrival generators mmppStream(), poissonArrivals() and poissonStream() return
+ * lazy streams in time order, so that simulations can consume long traces without
+ * keeping them in memory.
+ * 
+ * split() returns a Rand for a separate part of the period, so that parallel workers
+ * each draw from their own stream, reproducibly for a given seed. The streams do not
+ * overlap while each draws fewer values than its part of the period. split() halves the
+ * remaining part of this Rand, and split(n) divides it into n + 1 equal parts, one kept
+ * by this Rand, e.g. (m - 1) / 9, about 238 million values, for each of 8 streams split
+ * from a new Rand.
+ * 
  * @author Rahul Simha
  * 
  */
 public class Rand {
 	public static final int DEBUG = 1;
 	public static final double DEFAULTEPSILON = 0.0000000000001;
-	public static final long   DEFAULTSEED = Math.abs(System.currentTimeMillis());
+	public static final long   DEFAULTSEED = Math.abs(System.currentTimeMillis());	// class load time, no longer used by Rand()
 	public static final double BOUNDED_EXP_PARAM = 5.0;
 	
 	private static final long m = 2147483647L;
@@ -23,21 +46,119 @@ public class Rand {
 	private static final long P = 4294967296L;
 	private static final long b = 7;
 
-	private long r_seed;
+	private static final AtomicLong seedUniquifier = new AtomicLong(8682522807148012L);
+
+	private final AtomicLong r_seed;
+	private long streamStart;		/* First state of the part of the period of this Rand */
+	private long streamLength;		/* Length of the part of the period */
+
+/* Seeds outside 1 to m-1 are reduced into that range, as the generator requires */
 
 	public Rand(long s)
 	{
-		r_seed = s;
+		if (s < 1 || s >= m)
+			s = 1 + Math.floorMod(s, m - 1);
+		r_seed = new AtomicLong(s);
+		streamStart = s;
+		streamLength = m - 1;
 	}
 
+/* Each Rand constructed without a seed is given a different one */
+
 	public Rand()
 	{
-		this(DEFAULTSEED);
+		this(uniqueSeed());
+	}
+
+	private static long uniqueSeed()
+	{
+		long current, next;
+		do {
+			current = seedUniquifier.get();
+			next = current * 181783497276652981L;
+		} while (!seedUniquifier.compareAndSet(current, next));
+		return next ^ System.nanoTime();
+	}
+
+	private Rand(long s, long length)
+	{
+		this(s);
+		streamLength = length;
 	}
 
 	public long getSeed()
 	{
-		return r_seed;
+		return r_seed.get();
+	}
+
+/* Returns a Rand for the second half of the remaining part of the period of this Rand, */
+/* which keeps the first half                                                            */
+
+	public synchronized Rand split()
+	{
+		long half = streamLength / 2;
+		if (half < 1) {
+			System.out.println("ERR: in split(): period exhausted");
+			return new Rand();
+		}
+		long start = jump(streamStart, streamLength - half);
+		streamLength -= half;
+		return new Rand(start, half);
+	}
+
+/* Returns n Rands for successive equal parts of the remaining period of this Rand, */
+/* which keeps the first part, of the same length                                    */
+
+	public synchronized Rand[] split(int n)
+	{
+		Rand[] streams = new Rand[n];
+		long part = streamLength / (n + 1);
+		if (part < 1) {
+			System.out.println("ERR: in split(int): period exhausted");
+			for (int i = 0; i < n; i++)
+				streams[i] = new Rand();
+			return streams;
+		}
+		long offset = streamLength - n * part;
+		for (int i = 0; i < n; i++)
+			streams[i] = new Rand(jump(streamStart, offset + i * part), part);
+		streamLength = offset;
+		return streams;
+	}
+
+/* State following state x */
+
+	private static long next(long x)
+	{
+		return (a * x) % m;
+	}
+
+/* State n steps after state x: x * a^n mod m */
+
+	private static long jump(long x, long n)
+	{
+		long f = 1;
+		long g = a;
+		n = Math.floorMod(n, m - 1);
+		while (n > 0) {
+			if ((n & 1) != 0)
+				f = (f * g) % m;
+			g = (g * g) % m;
+			n >>= 1;
+		}
+		return (x * f) % m;
+	}
+
+/* Reserves the next n states, returning the state preceding them */
+
+	private long reserve(int n)
+	{
+		long s;
+		long t = jump(1, n);
+		do {
+			s = r_seed.get();
+		} while (!r_seed.compareAndSet(s, (s * t) % m));
+		return s;
 	}
 
 /* Basic Lehmer generator - See Knuth, Vol. II                      */
@@ -51,19 +172,74 @@ public class Rand {
 //	}
 
 	{
-		double result;
-		do
-		{
-			long hi = r_seed / q;
- 			long lo = r_seed - q * hi;
- 			long t = a * lo - r * hi;
- 			if (t > 0)
- 				r_seed = t;
- 			else
- 				r_seed = t + m;
- 			result = ( (double) r_seed / (double) m );
-		} while (result < 0.0 || result > 1.0);
-		return result;
+		long s, t;
+		do {
+			s = r_seed.get();
+			t = next(s);
+		} while (!r_seed.compareAndSet(s, t));
+		return ( (double) t / (double) m );
+	}
+
+/* Fills u with the next u.length uniform random numbers between 0 and 1, */
+/* filling parts of a large array in parallel                              */
+
+	private void uniform (final double[] u)
+	{
+		final long s = reserve(u.length);
+		new ParallelRange() {
+			protected void compute(int lo, int hi) {
+				long x = jump(s, lo);
+				for (int i = lo; i < hi; i++) {
+					x = next(x);
+					u[i] = (double) x / (double) m;
+				}
+			}
+		}.invoke(0, u.length);
+	}
+
+/* Bulk uniform random number generator - fills out with numbers between a and b */
+
+	public void uniform (double[] out, double a, double b)
+	{
+		if (b > a) {
+			uniform(out);
+			for (int i = 0; i < out.length; i++)
+				out[i] = a + (b-a) * out[i];
+		}
+		else
+			System.out.println("ERR: in uniform(double[], double, double):a= " + a + " b= " + b);
+	}
+
+/* Bulk discrete uniform random generator - fills out with integers between a and b */
+
+	public void uniform (int[] out, int a, int b)
+	{
+		if (b >= a) {
+			double[] x = new double[out.length];
+			uniform(x);
+			for (int i = 0; i < out.length; i++)
+				out[i] = ( a + (int) Math.floor((b-a+1.0)*x[i]) );
+		}
+		else
+			System.out.println("ERR: in uniform(int[], int, int):a= " + a  + " b= " + b);
+	}
+
+/* Bulk exponential random number generator - fills out with mean mu values */
+
+	public void exponential(double[] out, double mu)
+	{
+		uniform(out);
+		for (int i = 0; i < out.length; i++)
+			out[i] = (-1) * mu * Math.log( out[i] );
+	}
+
+/* Bulk normal random number generator - fills out with mean m, standard deviation s values */
+
+	public void normal(double[] out, double m, double s)
+	{
+		uniform(out);
+		for (int i = 0; i < out.length; i++)
+			out[i] = normalIdf(out[i], m, s);
 	}
 
 /* Uniform random number generator - returns a number between a and b */
@@ -201,9 +377,15 @@ public class Rand {
  * ========================================================================
  */
 	{
-		double u, t, p, q, z;
+		return normalIdf(this.uniform(), m, s);
+	}
+
+/* Normal inverse distribution function of u, 0 < u < 1 */
+
+	private static double normalIdf(double u, double m, double s)
+	{
+		double t, p, q, z;
 
-		u   = this.uniform();
 		if (u < 0.5)
 			t = Math.sqrt(-2.0 * Math.log(u));
 		else
@@ -251,67 +433,76 @@ public class Rand {
 	 */
 	public int[] poisson2(int n, double m)
 	{
-		int[] rva = new int[n];		/* Poisson random variable array */
-		int rvc = 0;				/* Poisson random varialbe count */
-
-		int i, j, k;
-		double a, b, cum, f, p, pp, s, u;
-		a = 0.0;
-		b = 0.0;
-		cum = 0.0;
-		f = 0.0;
-		p = 0.0;
-		pp = 0.0;
-		s = 0.0;
-		u = 0.0;
-
-		i = (int)Math.floor(m);
-		b = 1/m;
+		return poissonStream(m).limit(n).toArray();
+	}
 
-		for (k = 1; k <= i; k++)
+	/*
+	 * Lazy stream of Poisson random variables of mean m, by inversion starting from
+	 * the mode, with the constants computed once for the stream.
+	 * Ross, A Course in Simulation, 1990, p. 49.
+	 */
+	public IntStream poissonStream(final double m)
+	{
+		final int mode = (int)Math.floor(m);
+		final double b = 1/m;
+		double s = 0.0;
+		for (int k = 1; k <= mode; k++)
 			s = s + Math.log(k);
-
-		s = -s -m +i*Math.log(m);
-		pp = Math.exp(s);
-		f = 1;
-
-		for (k = 1; k <= i; k++)
+		s = -s -m +mode*Math.log(m);
+		final double pp = Math.exp(s);
+		double f = 1;
+		double cum = 0.0;
+		for (int k = 1; k <= mode; k++)
 		{
-			f = f*(i+1-k)*b;
+			f = f*(mode+1-k)*b;
 			cum = cum + f;
 		}
+		final double cdfMode = (cum+1)*pp;
 
-		cum = (cum+1)*pp;
-
-		for (j=1; j <= n; j++)
-		{
-			i = (int)Math.floor(m);
-			a = cum;
-			p = pp;
-			u = this.uniform();
-			if (u >= a)
+		return IntStream.generate(new IntSupplier() {
+			public int getAsInt()
 			{
-				do
+				int i = mode;
+				double a = cdfMode;
+				double p = pp;
+				double u = uniform();
+				if (u >= a)
 				{
-					i = i + 1;
-					p = m*p/i;
-					a = a + p;
-				} while (u >= a);
-				rva[rvc++] = i;
-				continue;
-			}
-			else
-			{
-				while (u <= a)
+					do
+					{
+						i = i + 1;
+						p = m*p/i;
+						a = a + p;
+					} while (u >= a);
+				}
+				else
 				{
-					a = a - p;
-					p = i*p*b;
-					i = i - 1;
+					/* Step down while u is within the cdf below i; i is then the first */
+					/* value whose cdf reaches u                                         */
+					while (u <= a - p)
+					{
+						a = a - p;
+						p = i*p*b;
+						i = i - 1;
+					}
 				}
+				return i;
 			}
-			rva[rvc++] = i;
-		}
-		return rva;
+		});
+	}
+
+	/*
+	 * Lazy stream of the arrival times of a Poisson process of the specified rate,
+	 * in time order, starting from time 0.
+	 */
+	public DoubleStream poissonArrivals(final double rate)
+	{
+		return DoubleStream.iterate(exponential(1/rate), new DoubleUnaryOperator() {
+			public double applyAsDouble(double t)
+			{
+				return t + exponential(1/rate);
+			}
+		});
 	}
 
 	public double[] mmpp        /* Return an array of arrival times, sorted. */
@@ -324,228 +515,116 @@ public class Rand {
 	    double upper_bound      /* Overall length of interval */
 	  )
 	{
-		int debug=DEBUG;			 /* Debug level */
-
-	   double [] Y;				 /* Array of values returned; */
-	   double [] X;             /* Working array to generate values returned */
-	   double [] A_int;         /* Generate A-interval values in this cdf */
-	   double [] B_int;         /* Generate A-interval values in this cdf */
-	   double [] A_arrivals;    /* Generate A-arrivals in here */
-	   double [] B_arrivals;    /* Generate B-arrivals in here */
-	   double total_int;        /* Overall length of intervals, A and B */
-	   double frac_A, frac_B;   /* Fraction of A, B arrivals */
-	   double ex_A, ex_B;       /* Expectations of A, B arrivals */
-	   double A_lower, A_upper;    /* Used in scanning */
-	   double B_lower, B_upper;
-
-		int i, j, k, m;          /* Indices */
-		int num_A, num_B;        /* Number of A, B arrivals (or points) */
-	   int A_start, B_start;    /* Used in scanning */
-	   int [] which_A_int;      /* which_A_int[i] tells you which A-interval */
-	   int [] which_B_int;      /*  the i-th A arrival occured. Same for B */
-
-		X = new double [num_items+1];
-
-		if (debug >= 3)
-		{
-		    System.out.println("D3: MMPP: n= " + num_items
-								+ ", ndiv= " + ndiv
-								+ ", a_A= " + alpha_A
-								+ ", a_B= " + alpha_B);
-		    System.out.println(" l_A= " + lambda_A
-								+ ", l_B= " + lambda_B);
-		}
-
-		A_int = new double [ndiv+1];
-		B_int = new double [ndiv+1];
+		/* X[0] is 0, followed by the arrivals of mmppStream() */
+		double [] X = new double [num_items+1];
+		PrimitiveIterator.OfDouble arrivals =
+			mmppStream(num_items, ndiv, alpha_A, alpha_B, lambda_A, lambda_B, upper_bound).iterator();
+		for (int i=1; i<=num_items; i++)
+			X[i] = arrivals.nextDouble();
+		return X;
+	}
 
-	 /* Create the A and B intervals */
-		A_int[0] = B_int[0] = 0;
-		for (i=1; i<=ndiv; i++) {
-			A_int[i] = A_int[i-1] + exponential(alpha_A);
-			B_int[i] = B_int[i-1] + exponential(alpha_B);
+	/*
+	 * Lazy stream of num_items MMPP arrival times, in time order, over ndiv pairs of A and B
+	 * intervals scaled to a total length of upper_bound, using O(ndiv) memory.
+	 *
+	 * The intervals and the cumulative arrival intensity at their ends are drawn first. Given
+	 * their number, the arrivals are distributed as num_items independent points of that
+	 * intensity, so they are found in order as the ascending order statistics of uniform
+	 * numbers, X(k+1) = 1 - (1 - X(k)) * U^(1/(n-k)), mapped through the inverse of the
+	 * cumulative intensity.
+	 */
+	public DoubleStream mmppStream
+	  ( final int num_items,    /* Number of points or arrivals */
+	    int ndiv,               /* Number of A (or B) intervals to use */
+	    double alpha_A,         /* Exponential length parameter for A-intervals */
+	    double alpha_B,         /* Exponential length parameter for B-intervals */
+	    double lambda_A,        /* Exponential rate parameter for A-intervals */
+	    double lambda_B,        /* Exponential rate parameter for B-intervals */
+	    double upper_bound      /* Overall length of interval */
+	  )
+	{
+		final int nint = 2*ndiv;
+		final double[] time = new double[nint+1];	/* End times of the intervals A1, B1, A2, ... */
+		final double[] mass = new double[nint+1];	/* Cumulative intensity at the ends */
+		for (int i=1; i<=nint; i++) {
+			boolean A = (i % 2 == 1);
+			double len = exponential(A ? alpha_A : alpha_B);
+			time[i] = time[i-1] + len;
+			mass[i] = mass[i-1] + len * (A ? lambda_A : lambda_B);
+		}
+		for (int i=1; i<=nint; i++) {
+			time[i] = time[i] / time[nint] * upper_bound;
+			mass[i] = mass[i] / mass[nint];
 		}
 
-	  /* Compute how many A and how many B arrivals (points) */
-		total_int = A_int[ndiv] + B_int[ndiv];
-		ex_A = lambda_A * A_int[ndiv];
-		ex_B = lambda_B * B_int[ndiv];
-		frac_A = (ex_A) / (ex_A + ex_B);
-		frac_B = (ex_B) / (ex_A + ex_B);
-		num_A = (int)Math.ceil(frac_A * num_items);
-		num_B = (int)(num_items - num_A);
-
-	  /* Now distribute the A arrivals uniformly in the A intervals */
-		A_arrivals = new double [num_A+1];
-		B_arrivals = new double [num_B+1];
-		which_A_int = new int [num_A+1];
-		which_B_int = new int [num_B+1];
-
-		A_arrivals[0] = B_arrivals[0] = 0;
-		for (i=1; i<=num_A; i++)
-	    	A_arrivals[i] = uniform (0, A_int[ndiv]);
-	  	for (i=1; i<=num_B; i++)
-	  		B_arrivals[i] = uniform (0, B_int[ndiv]);
-
-	   if (debug >= 3)
-		{
-	   	System.out.println("D3:mmpp:A= " + A_int[ndiv]
-							+ ", B= " + B_int[ndiv]
-							+ ", ex_A = " + ex_A
-							+ ", ex_B = " + ex_B
-							+ ", n_A= " + num_A
-							+ ", n_B= " + num_B);
-	   	System.out.println("A_int:");
-	   	for (i=0; i<=ndiv; i++) System.out.println (A_int[i]);
-	   		System.out.println();
-	   	System.out.println("B_int:");
-	   	for (i=0; i<=ndiv; i++) System.out.println(B_int[i]);
-	   		System.out.println();
-	   	System.out.println("A_arr:");
-	   	for (i=0; i<=num_A; i++) System.out.println(A_arrivals[i]);
-	   		System.out.println();
-	   	System.out.println("B_arr:");
-	   	for (i=0; i<=num_B; i++) System.out.println(B_arrivals[i]);
-	   		System.out.println();
-	  }
-
-	  /* Next, sort the arrivals: see qsort.c for documentation on quicksort. */
-		Arrays.sort(A_arrivals);
-		Arrays.sort(B_arrivals);
-
-	   if (debug >= 3)
-		{
-	   	System.out.println("D3:mmpp:after sort:");
-	   	System.out.println ("A_arr:");
-	   	for (i=0; i<=num_A; i++)
-				System.out.println (A_arrivals[i]);
-	   	System.out.println ();
-	   	System.out.println ("B_arr:");
-	   	for (i=0; i<=num_B; i++)
-				System.out.println (B_arrivals[i]);
-	   	System.out.println ();
-	   }
-
-	  /* Now find out which interval each arrival belongs to */
-
-		for (i=1; i<=num_A; i++)
-			which_A_int[i] = Math.abs(Arrays.binarySearch(A_int, A_arrivals[i]))-1;
-		for (i=1; i<=num_B; i++)
-			which_B_int[i] = Math.abs(Arrays.binarySearch(B_int, B_arrivals[i]))-1;
-
-	   if (debug >= 3)
-		{
-	   	System.out.println("D3:mmpp:after interval ident:");
-	   	System.out.println("A_whi:");
-	   	for (i=0; i<=num_A; i++)
-				System.out.println(which_A_int[i]);
-	   	System.out.println();
-	   	System.out.println("B_whi:");
-	   	for (i=0; i<=num_B; i++)
-				System.out.println(which_B_int[i]);
-	   	System.out.println ();
-	  }
-
-	  /* Now, do each pair of intervals. Basically, we scan past the
-	     A arrivals in order and determine their interval. While we
-	     are on the i-th interval, we only pick off those A-arrivals
-	     that occurred in the i-th interval. For this interval, we
-	     need the lower end and upper end. After the i-th A interval
-	     is processed, we process the i-th B-interval similarly.
-	     In this way, arrivals from the A and B intervals are interleaved. */
-
-		A_start = 1;  B_start = 1;
-		A_lower = A_upper = 0;    B_lower = B_upper = 0;
-		X[0] = 0;   m = 1;
-		for (i=1; i<=ndiv; i++) {
-	      /* First, the i-th A-interval */
-			k = A_start;
-		   A_upper = A_lower + (A_int[i] - A_int[i-1]);
-
-	      if (debug >= 3)
+		PrimitiveIterator.OfDouble arrivals = new PrimitiveIterator.OfDouble() {
+			private int k = 0;			/* Arrivals so far */
+			private int j = 1;			/* Interval of the last arrival */
+			private double x = 0.0;		/* Cumulative intensity of the last arrival */
+
+			public boolean hasNext()
 			{
-	      	System.out.println("D3:mmpp:1:i= " + i
-		  					+ ", A_st= " + A_start
-							+ ", A_l= " + A_lower
-							+ ", A_u= " + A_upper
-							+ ", m= " + m
-							+ ", k= " + k);
-	      	System.out.println("X:");
-				for (j=1; j<m; j++)
-		  			System.out.println(X[j]);
-	      	System.out.println();
-	    	}
-
-			while ( (k <= num_A) && (which_A_int[k] == i) )
+				return k < num_items;
+			}
+
+			public double nextDouble()
 			{
-				X[m] = X[m-1] + (A_arrivals[k] - A_arrivals[k-1]);
+				if (k >= num_items)
+					throw new NoSuchElementException();
+				x = 1.0 - (1.0 - x) * Math.pow(uniform(), 1.0/(num_items - k));
 				k++;
-				m++;
-	   	 }
-	   	 A_lower = A_upper;  A_start = k;
+				while (j < nint && mass[j] < x)
+					j++;
+				double dm = mass[j] - mass[j-1];
+				double f = (dm > 0) ? Math.min((x - mass[j-1]) / dm, 1.0) : 0.0;
+				return time[j-1] + f * (time[j] - time[j-1]);
+			}
+		};
+		return StreamSupport.doubleStream(Spliterators.spliterator(arrivals, num_items,
+			Spliterator.ORDERED | Spliterator.SORTED | Spliterator.NONNULL), false);
+	}
 
-	   	 /* Next, the i-th B-interval */
-	   	 k = B_start;
-	   	 B_upper = B_lower + (B_int[i] - B_int[i-1]);
+	/*
+	 * Lazy, unbounded stream of MMPP arrival times in time order, starting from time 0 in
+	 * an A-interval. A and B intervals alternate with exponential lengths of mean alpha_A
+	 * and alpha_B, and arrivals occur at rate lambda_A or lambda_B within them. Only the
+	 * current time and interval are kept, so arbitrarily long traces can be consumed.
+	 */
+	public DoubleStream mmppStream
+	  ( final double alpha_A,   /* Exponential length parameter for A-intervals */
+	    final double alpha_B,   /* Exponential length parameter for B-intervals */
+	    final double lambda_A,  /* Exponential rate parameter for A-intervals */
+	    final double lambda_B   /* Exponential rate parameter for B-intervals */
+	  )
+	{
+		PrimitiveIterator.OfDouble arrivals = new PrimitiveIterator.OfDouble() {
+			private double t = 0.0;						/* Time of the last arrival */
+			private boolean A = true;					/* In an A-interval */
+			private double end = exponential(alpha_A);	/* End of the current interval */
 
-	   	if (debug >= 3)
+			public boolean hasNext()
 			{
-	   		System.out.println("D3:mmpp:1:i= " + i
-		  					+ ", B_st= " + B_start
-							+ ", B_l= " + B_lower
-							+ ", B_u= " + B_upper
-							+ ", m= " + m
-							+ ", k= " + k);
-				System.out.println("X:");
-	   		for (j=1; j<m; j++)
-			  		System.out.println(X[j]);
-	   	   System.out.println();
+				return true;
 			}
 
-			while ( (k <= num_B) && (which_B_int[k] == i) ){
-		      X[m] = X[m-1] + (B_arrivals[k] - B_arrivals[k-1]);
-		      k++;
-		      m++;
+			public double nextDouble()
+			{
+				while (true) {
+					double gap = exponential(1.0 / (A ? lambda_A : lambda_B));
+					if (t + gap < end) {
+						t = t + gap;
+						return t;
+					}
+					/* No arrival before the end of the interval: by the memoryless */
+					/* property, restart at the start of the next interval          */
+					t = end;
+					A = !A;
+					end = t + exponential(A ? alpha_A : alpha_B);
+				}
 			}
-			B_lower = B_upper;  B_start = k;
-		}
-		m--;
-
-	   if (debug >= 3)
-		{
-	   	System.out.println("D3: mmpp: after assign: m= " + m);
-			System.out.println("X:");
-	   	for (i=0; i<X.length; i++)
-				System.out.println(X[i]);
-	   	System.out.println ();
-	   }
-
-	  /* Finally, scale up/down to specified interval */
-		for (i=1; i<=num_items; i++)
-			X[i] = (X[i] / total_int) * upper_bound;
-
-		if (debug >= 4)
-		{
-			System.out.println("X:");
-			for (i=0; i<X.length; i++)
-				System.out.println("X[" + i + "]=" + X[i]);
-			System.out.println();
-		}
-
-//		Y = new double [num_items];
-//		System.arraycopy(X,1,Y,0,num_items);
-//
-//		if (debug >= 3)
-//		{
-//			System.out.println("Y:");
-//			for (i=0; i<num_items; i++)
-//				System.out.println("Y[" + i + "]=" + Y[i]);
-//			System.out.println();
-//		System.out.println("End of mmpp:");
-//		}
-//
-//	   return Y;
-
-		return X;
+		};
+		return StreamSupport.doubleStream(Spliterators.spliteratorUnknownSize(arrivals,
+			Spliterator.ORDERED | Spliterator.SORTED | Spliterator.NONNULL), false);
 	}
-}
\ No newline at end of file
+}
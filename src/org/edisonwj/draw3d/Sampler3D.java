@@ -0,0 +1,500 @@
+package org.edisonwj.draw3d;
+
+import java.util.Arrays;
+
+import javafx.geometry.Point3D;
+import javafx.scene.shape.TriangleMesh;
+/**
+* Sampler3D class generates uniformly distributed random points on and inside simple shapes,
+* written as packed x, y, z values (in user coordinate space) to a double or float array:
+* - on and inside a sphere
+* - on and inside a box
+* - inside a triangle
+* - on a set of triangles or a TriangleMesh, weighted by triangle area
+* - on a plane, clipped to a range box
+* The number of points generated is one third of the length of the output array, so the
+* arrays can be passed directly to methods taking packed points, e.g. Hull3D(double[], int).
+*
+* The uniform random numbers are drawn in bulk from a Rand, in chunks of CHUNK points, and mapped
+* to points in parallel. The bulk draw gives each parallel part its own jump ahead part of the
+* Rand period, so a seeded Sampler3D produces the same points for any number of threads.
+* Samplers for separate threads, each with its own part of the period, are created by split().
+* Adapted from: Arvo, Stratified Sampling of 2-Manifolds, SIGGRAPH 2001 Course Notes, and
+* Osada, Funkhouser, Chazelle and Dobkin, Shape Distributions, ACM TOG 21(4), 2002.
+*
+* The class implements defaults specified in Draw3DDefaults.
+*
+* @author William Edison
+* @version 1.02
+*
+*/
+public class Sampler3D implements Draw3DDefaults {
+	private static final int CHUNK = 65536;	// Points per bulk draw of uniform random numbers
+	private final Rand rand;
+
+	/**
+	 * Maps dim uniform random numbers to a point.
+	 */
+	private static abstract class Mapping {
+		final int dim;
+
+		Mapping(int dim) {
+			this.dim = dim;
+		}
+
+		/**
+		 * Computes the point of the uniform random numbers u[k] .. u[k+dim-1].
+		 *
+		 * @param	u	double[] uniform random numbers in (0, 1)
+		 * @param	k	int index of the first number
+		 * @param	q	double[3] x, y, z of the point, set
+		 */
+		abstract void map(double[] u, int k, double[] q);
+	}
+
+	/**
+	 * Constructs a Sampler3D object with a new unseeded Rand.
+	 */
+	public Sampler3D() {
+		this(new Rand());
+	}
+
+	/**
+	 * Constructs a Sampler3D object with a new Rand of the given seed.
+	 *
+	 * @param	seed	long seed of the Rand
+	 */
+	public Sampler3D(long seed) {
+		this(new Rand(seed));
+	}
+
+	/**
+	 * Constructs a Sampler3D object drawing from the given Rand.
+	 *
+	 * @param	rand	Rand source of uniform random numbers
+	 */
+	public Sampler3D(Rand rand) {
+		this.rand = rand;
+	}
+
+	/**
+	 * Gets the Rand of the sampler.
+	 *
+	 * @return	Rand source of uniform random numbers
+	 */
+	public Rand getRand() {
+		return rand;
+	}
+
+	/**
+	 * Creates n samplers, each drawing from its own part of the period of the Rand of this sampler,
+	 * for use by separate threads.
+	 *
+	 * @param	n	int number of samplers
+	 * @return	Sampler3D[] samplers
+	 */
+	public Sampler3D[] split(int n) {
+		Rand[] streams = rand.split(n);
+		Sampler3D[] s = new Sampler3D[n];
+		for (int i = 0; i < n; i++) {
+			s[i] = new Sampler3D(streams[i]);
+		}
+		return s;
+	}
+
+	/**
+	 * Generates points uniformly distributed on the surface of a sphere.
+	 *
+	 * @param	out		double[] packed x, y, z of the points, set
+	 * @param	cx		double x coordinate of the center
+	 * @param	cy		double y coordinate of the center
+	 * @param	cz		double z coordinate of the center
+	 * @param	r		double radius
+	 */
+	public void onSphere(double[] out, double cx, double cy, double cz, double r) {
+		fill(sphere(cx, cy, cz, r, false), out, null);
+	}
+
+	/**
+	 * Generates points uniformly distributed on the surface of a sphere.
+	 *
+	 * @param	out		float[] packed x, y, z of the points, set
+	 * @param	cx		double x coordinate of the center
+	 * @param	cy		double y coordinate of the center
+	 * @param	cz		double z coordinate of the center
+	 * @param	r		double radius
+	 */
+	public void onSphere(float[] out, double cx, double cy, double cz, double r) {
+		fill(sphere(cx, cy, cz, r, false), null, out);
+	}
+
+	/**
+	 * Generates points uniformly distributed inside a sphere.
+	 *
+	 * @param	out		double[] packed x, y, z of the points, set
+	 * @param	cx		double x coordinate of the center
+	 * @param	cy		double y coordinate of the center
+	 * @param	cz		double z coordinate of the center
+	 * @param	r		double radius
+	 */
+	public void inSphere(double[] out, double cx, double cy, double cz, double r) {
+		fill(sphere(cx, cy, cz, r, true), out, null);
+	}
+
+	/**
+	 * Generates points uniformly distributed inside a sphere.
+	 *
+	 * @param	out		float[] packed x, y, z of the points, set
+	 * @param	cx		double x coordinate of the center
+	 * @param	cy		double y coordinate of the center
+	 * @param	cz		double z coordinate of the center
+	 * @param	r		double radius
+	 */
+	public void inSphere(float[] out, double cx, double cy, double cz, double r) {
+		fill(sphere(cx, cy, cz, r, true), null, out);
+	}
+
+	/**
+	 * Generates points uniformly distributed on the surface of a box.
+	 *
+	 * @param	out		double[] packed x, y, z of the points, set
+	 * @param	box		double[6] {minX, maxX, minY, maxY, minZ, maxZ}
+	 */
+	public void onBox(double[] out, double[] box) {
+		fill(box(box, false), out, null);
+	}
+
+	/**
+	 * Generates points uniformly distributed on the surface of a box.
+	 *
+	 * @param	out		float[] packed x, y, z of the points, set
+	 * @param	box		double[6] {minX, maxX, minY, maxY, minZ, maxZ}
+	 */
+	public void onBox(float[] out, double[] box) {
+		fill(box(box, false), null, out);
+	}
+
+	/**
+	 * Generates points uniformly distributed inside a box.
+	 *
+	 * @param	out		double[] packed x, y, z of the points, set
+	 * @param	box		double[6] {minX, maxX, minY, maxY, minZ, maxZ}
+	 */
+	public void inBox(double[] out, double[] box) {
+		fill(box(box, true), out, null);
+	}
+
+	/**
+	 * Generates points uniformly distributed inside a box.
+	 *
+	 * @param	out		float[] packed x, y, z of the points, set
+	 * @param	box		double[6] {minX, maxX, minY, maxY, minZ, maxZ}
+	 */
+	public void inBox(float[] out, double[] box) {
+		fill(box(box, true), null, out);
+	}
+
+	/**
+	 * Generates points uniformly distributed inside a triangle.
+	 *
+	 * @param	out		double[] packed x, y, z of the points, set
+	 * @param	p1		Point3D first vertex
+	 * @param	p2		Point3D second vertex
+	 * @param	p3		Point3D third vertex
+	 */
+	public void inTriangle(double[] out, Point3D p1, Point3D p2, Point3D p3) {
+		fill(triangles(trianglePoints(p1, p2, p3), new int[] {0, 1, 2}), out, null);
+	}
+
+	/**
+	 * Generates points uniformly distributed inside a triangle.
+	 *
+	 * @param	out		float[] packed x, y, z of the points, set
+	 * @param	p1		Point3D first vertex
+	 * @param	p2		Point3D second vertex
+	 * @param	p3		Point3D third vertex
+	 */
+	public void inTriangle(float[] out, Point3D p1, Point3D p2, Point3D p3) {
+		fill(triangles(trianglePoints(p1, p2, p3), new int[] {0, 1, 2}), null, out);
+	}
+
+	/**
+	 * Generates points uniformly distributed on a set of triangles, e.g. the faces of a Hull3D
+	 * or an Isosurface3D. Each triangle receives points in proportion to its area.
+	 *
+	 * @param	out			double[] packed x, y, z of the points, set
+	 * @param	points		double[] packed x, y, z of the triangle vertices
+	 * @param	triangles	int[] vertex indices, three per triangle
+	 */
+	public void onTriangles(double[] out, double[] points, int[] triangles) {
+		fill(triangles(points, triangles), out, null);
+	}
+
+	/**
+	 * Generates points uniformly distributed on a set of triangles, e.g. the faces of a Hull3D
+	 * or an Isosurface3D. Each triangle receives points in proportion to its area.
+	 *
+	 * @param	out			float[] packed x, y, z of the points, set
+	 * @param	points		double[] packed x, y, z of the triangle vertices
+	 * @param	triangles	int[] vertex indices, three per triangle
+	 */
+	public void onTriangles(float[] out, double[] points, int[] triangles) {
+		fill(triangles(points, triangles), null, out);
+	}
+
+	/**
+	 * Generates points uniformly distributed on the faces of a TriangleMesh, in the coordinates
+	 * of the mesh points. Each face receives points in proportion to its area.
+	 *
+	 * @param	out		double[] packed x, y, z of the points, set
+	 * @param	mesh	TriangleMesh mesh
+	 */
+	public void onMesh(double[] out, TriangleMesh mesh) {
+		fill(mesh(mesh), out, null);
+	}
+
+	/**
+	 * Generates points uniformly distributed on the faces of a TriangleMesh, in the coordinates
+	 * of the mesh points. Each face receives points in proportion to its area.
+	 *
+	 * @param	out		float[] packed x, y, z of the points, set
+	 * @param	mesh	TriangleMesh mesh
+	 */
+	public void onMesh(float[] out, TriangleMesh mesh) {
+		fill(mesh(mesh), null, out);
+	}
+
+	/**
+	 * Generates points uniformly distributed on the part of the plane ax + by + cz = d
+	 * inside a range box.
+	 *
+	 * @param	out		double[] packed x, y, z of the points, set
+	 * @param	a		double coefficient a of the plane equation
+	 * @param	b		double coefficient b of the plane equation
+	 * @param	c		double coefficient c of the plane equation
+	 * @param	d		double coefficient d of the plane equation
+	 * @param	box		double[6] {minX, maxX, minY, maxY, minZ, maxZ}
+	 */
+	public void onPlane(double[] out, double a, double b, double c, double d, double[] box) {
+		fill(plane(a, b, c, d, box), out, null);
+	}
+
+	/**
+	 * Generates points uniformly distributed on the part of the plane ax + by + cz = d
+	 * inside a range box.
+	 *
+	 * @param	out		float[] packed x, y, z of the points, set
+	 * @param	a		double coefficient a of the plane equation
+	 * @param	b		double coefficient b of the plane equation
+	 * @param	c		double coefficient c of the plane equation
+	 * @param	d		double coefficient d of the plane equation
+	 * @param	box		double[6] {minX, maxX, minY, maxY, minZ, maxZ}
+	 */
+	public void onPlane(float[] out, double a, double b, double c, double d, double[] box) {
+		fill(plane(a, b, c, d, box), null, out);
+	}
+
+	/**
+	 * Fills one of the output arrays with points of the mapping, drawing the uniform
+	 * random numbers for each chunk of points in bulk.
+	 */
+	private void fill(final Mapping f, final double[] dOut, final float[] fOut) {
+		final int n = (dOut != null ? dOut.length : fOut.length) / 3;
+		final int dim = f.dim;
+		double[] u = new double[dim * Math.min(n, CHUNK)];
+		for (int start = 0; start < n; start += CHUNK) {
+			final int count = Math.min(CHUNK, n - start);
+			final double[] uc = (dim * count == u.length) ? u : new double[dim * count];
+			rand.uniform(uc, 0.0, 1.0);
+			final int base = 3 * start;
+			new ParallelRange() {
+				protected void compute(int lo, int hi) {
+					double[] q = new double[3];
+					for (int i = lo, k = base + 3*lo; i < hi; i++, k += 3) {
+						f.map(uc, dim*i, q);
+						if (dOut != null) {
+							dOut[k] = q[0];
+							dOut[k+1] = q[1];
+							dOut[k+2] = q[2];
+						}
+						else {
+							fOut[k] = (float) q[0];
+							fOut[k+1] = (float) q[1];
+							fOut[k+2] = (float) q[2];
+						}
+					}
+				}
+			}.invoke(0, count);
+		}
+	}
+
+	/**
+	 * Creates the mapping of a sphere surface or volume. The height is uniform on the
+	 * surface (Archimedes), and the cube root of a uniform number gives the radius inside.
+	 */
+	private static Mapping sphere(final double cx, final double cy, final double cz,
+								  final double r, final boolean inside) {
+		return new Mapping(inside ? 3 : 2) {
+			void map(double[] u, int k, double[] q) {
+				double z = 1.0 - 2.0*u[k];
+				double s = Math.sqrt(Math.max(0.0, 1.0 - z*z));
+				double phi = 2.0*Math.PI*u[k+1];
+				double rr = inside ? r*Math.cbrt(u[k+2]) : r;
+				q[0] = cx + rr*s*Math.cos(phi);
+				q[1] = cy + rr*s*Math.sin(phi);
+				q[2] = cz + rr*z;
+			}
+		};
+	}
+
+	/**
+	 * Creates the mapping of a box surface or volume. On the surface, the first number
+	 * selects a face in proportion to its area.
+	 */
+	private static Mapping box(double[] box, final boolean inside) {
+		final double x0 = box[0], y0 = box[2], z0 = box[4];
+		final double dx = box[1] - box[0];
+		final double dy = box[3] - box[2];
+		final double dz = box[5] - box[4];
+		final double axy = dx*dy;
+		final double axz = dx*dz;
+		final double area = axy + axz + dy*dz;
+		return new Mapping(3) {
+			void map(double[] u, int k, double[] q) {
+				if (inside) {
+					q[0] = x0 + dx*u[k];
+					q[1] = y0 + dy*u[k+1];
+					q[2] = z0 + dz*u[k+2];
+					return;
+				}
+				// Select one of three face pairs by area, then one face of the pair
+				double t = 2.0*area*u[k];
+				double side = 0.0;
+				if (t >= area) {
+					t -= area;
+					side = 1.0;
+				}
+				if (t < axy) {
+					q[0] = x0 + dx*u[k+1];
+					q[1] = y0 + dy*u[k+2];
+					q[2] = z0 + dz*side;
+				}
+				else if (t < axy + axz) {
+					q[0] = x0 + dx*u[k+1];
+					q[1] = y0 + dy*side;
+					q[2] = z0 + dz*u[k+2];
+				}
+				else {
+					q[0] = x0 + dx*side;
+					q[1] = y0 + dy*u[k+1];
+					q[2] = z0 + dz*u[k+2];
+				}
+			}
+		};
+	}
+
+	/**
+	 * Creates the mapping of a set of triangles. The first number selects a triangle by
+	 * binary search of the cumulative areas, and the other two give the barycentric
+	 * coordinates 1 - sqrt(u1), sqrt(u1)(1 - u2), sqrt(u1)u2, uniform over the triangle.
+	 */
+	private static Mapping triangles(final double[] p, final int[] t) {
+		final int nt = t.length / 3;
+		final double[] cumulative = new double[nt];
+		double sum = 0.0;
+		for (int i = 0; i < nt; i++) {
+			int a = 3*t[3*i], b = 3*t[3*i+1], c = 3*t[3*i+2];
+			double ux = p[b] - p[a], uy = p[b+1] - p[a+1], uz = p[b+2] - p[a+2];
+			double vx = p[c] - p[a], vy = p[c+1] - p[a+1], vz = p[c+2] - p[a+2];
+			double nx = uy*vz - uz*vy;
+			double ny = uz*vx - ux*vz;
+			double nz = ux*vy - uy*vx;
+			sum += 0.5*Math.sqrt(nx*nx + ny*ny + nz*nz);
+			cumulative[i] = sum;
+		}
+		if (!(sum > 0.0)) {
+			throw new IllegalArgumentException("Sampler3D: " + nt + " triangles with zero area");
+		}
+		final double total = sum;
+		return new Mapping(3) {
+			void map(double[] u, int k, double[] q) {
+				int i = Arrays.binarySearch(cumulative, total*u[k]);
+				if (i < 0) {
+					i = -i - 1;
+				}
+				i = Math.min(i, nt - 1);
+				int a = 3*t[3*i], b = 3*t[3*i+1], c = 3*t[3*i+2];
+				double s = Math.sqrt(u[k+1]);
+				double wa = 1.0 - s;
+				double wb = s*(1.0 - u[k+2]);
+				double wc = s*u[k+2];
+				q[0] = wa*p[a] + wb*p[b] + wc*p[c];
+				q[1] = wa*p[a+1] + wb*p[b+1] + wc*p[c+1];
+				q[2] = wa*p[a+2] + wb*p[b+2] + wc*p[c+2];
+			}
+		};
+	}
+
+	/**
+	 * Creates the mapping of the faces of a TriangleMesh, whose faces hold a point index
+	 * followed by the other indices of the vertex format for each vertex.
+	 */
+	private static Mapping mesh(TriangleMesh mesh) {
+		float[] fp = mesh.getPoints().toArray(null);
+		double[] p = new double[fp.length];
+		for (int i = 0; i < fp.length; i++) {
+			p[i] = fp[i];
+		}
+		int[] faces = mesh.getFaces().toArray(null);
+		int stride = mesh.getFaceElementSize();
+		int nf = faces.length / stride;
+		int[] t = new int[3*nf];
+		for (int i = 0; i < nf; i++) {
+			for (int j = 0; j < 3; j++) {
+				t[3*i+j] = faces[i*stride + j*(stride/3)];
+			}
+		}
+		return triangles(p, t);
+	}
+
+	/**
+	 * Creates the mapping of the polygon of a plane inside a range box, as a fan of triangles.
+	 */
+	private static Mapping plane(double a, double b, double c, double d, double[] box) {
+		Point3D[] v = new Plane3D(a, b, c, d).findPlaneBoxIntersections(box[0], box[1],
+																		  box[2], box[3],
+																		  box[4], box[5]);
+		if (v == null || v.length < 3) {
+			throw new IllegalArgumentException("Sampler3D: plane " + a + ", " + b + ", " + c + ", " + d +
+											   " does not cross the range box");
+		}
+		double[] p = new double[3*v.length];
+		for (int i = 0; i < v.length; i++) {
+			p[3*i] = v[i].getX();
+			p[3*i+1] = v[i].getY();
+			p[3*i+2] = v[i].getZ();
+		}
+		int[] t = new int[3*(v.length - 2)];
+		for (int i = 0; i < v.length - 2; i++) {
+			t[3*i+1] = i + 1;
+			t[3*i+2] = i + 2;
+		}
+		return triangles(p, t);
+	}
+
+	private static double[] trianglePoints(Point3D p1, Point3D p2, Point3D p3) {
+		return new double[] {
+			p1.getX(), p1.getY(), p1.getZ(),
+			p2.getX(), p2.getY(), p2.getZ(),
+			p3.getX(), p3.getY(), p3.getZ()
+		};
+	}
+
+	/**
+	 * Returns a String containing the sampler's Rand seed.
+	 */
+	@Override
+	public String toString() {
+		return "Sampler3D[seed= " + rand.getSeed() + "]";
+	}
+}
@@ -0,0 +1,1033 @@
+package org.edisonwj.draw3d;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import javafx.geometry.Point3D;
+import javafx.scene.paint.Color;
+import javafx.scene.paint.PhongMaterial;
+import javafx.scene.shape.CullFace;
+import javafx.scene.shape.DrawMode;
+import javafx.scene.text.Font;
+/**
+* SceneFile class reads and writes Draw3D scenes in a compact binary format, an
+* alternative to the text format of Save Data File. The file holds, in little endian order:
+*   header:		magic "D3DS", version, number of views, materials and strings, and
+*				the file position of each view
+*   materials:	diffuse and specular colors of each distinct PhongMaterial
+*   strings:	text and font names of Text3D objects, in UTF-8
+*   views:		camera, range, origin and view settings of the view, followed by blocks,
+*				each holding a run of objects of one type as a column of packed float
+*				coordinates and sizes and a column of int divisions, settings and
+*				material table indices
+* The file is read into memory in one piece and closed, so that it may be saved over
+* while views of the scene are still to be read; each block is copied into float and
+* int arrays in bulk and its objects are constructed directly from the arrays.
+*
+* Coordinates are kept as floats, Colors as 8 bit RGBA as in the text format, and the
+* parameters of a Formula3D as doubles, each a pair of ints holding its bits, low
+* half first. Version 1 files, which held the parameters as floats, are also read.
+* The object types are those of the text format: Arrow3D, Box3D, Cone3D, Cylinder3D,
+* Line3D, Oval3D, Plane3D, Point3D, Polygon3D, Rectangle3D, Sphere3D, Text3D,
+* Triangle3D, Vector3D, Curve3D, Hull3D, Patch3D, PlaneArrangement, CurveTrace3D,
+* Formula3D, and Isosurface3D of a Formula3D. Objects defined by code, such as a
+* ParametricSurface3D, cannot be saved, and write() fails on them.
+*
+* Counts and positions read from the file are checked against its size, so that a
+* corrupt or truncated file fails with an IOException.
+* A file is written to a temporary file in the same directory, then moved in place of
+* the file, so that a failed save leaves any previous file unchanged.
+*
+* The class implements defaults specified in Draw3DDefaults.
+*
+* @author William Edison
+* @version 1.02
+*
+*/
+public class SceneFile implements Draw3DDefaults {
+	public static final String EXTENSION = ".d3s";
+	public static final int MAGIC = 0x53443344;				// "D3DS" in little endian order
+	public static final int VERSION = 2;
+	private static final int HEADER_SIZE = 24;
+	private static final int VIEW_SETTINGS = 7;
+	private static final int VIEW_SIZE = 72;
+	private static final int MAX_DIVISIONS = 1024;			// divisions beyond this are taken as corrupt
+
+	private final ByteBuffer buffer;
+	private final int version;
+	private final long[] viewOffsets;
+	private final PhongMaterial[] materials;
+	private final String[] strings;
+
+	/**
+	 * Constructs a SceneFile object reading the specified scene file.
+	 *
+	 * @param	file	File scene file
+	 * @throws	IOException if the file cannot be read or is not a scene file
+	 */
+	public SceneFile(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("SceneFile: scene file too large: " + file);
+			}
+			buffer = ByteBuffer.allocate((int) channel.size());
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer) < 0) {
+					throw new IOException("SceneFile: scene file truncated while reading: " + file);
+				}
+			}
+		}
+		finally {
+			raf.close();
+		}
+		buffer.flip();
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+			throw new IOException("SceneFile: not a Draw3D scene file: " + file);
+		}
+		version = buffer.getInt(4);
+		if (version < 1 || version > VERSION) {
+			throw new IOException("SceneFile: unsupported version " + version + ": " + file);
+		}
+		int viewCount = buffer.getInt(8);
+		int materialCount = buffer.getInt(12);
+		int stringCount = buffer.getInt(16);
+		if (viewCount < 0 || materialCount < 0 || stringCount < 0 ||
+			HEADER_SIZE + 8L*viewCount + 12L*materialCount + 4L*stringCount > buffer.limit()) {
+			throw new IOException("SceneFile: corrupt or truncated scene file: " + file);
+		}
+
+		viewOffsets = new long[viewCount];
+		int pos = HEADER_SIZE;
+		for (int i = 0; i < viewCount; i++) {
+			viewOffsets[i] = buffer.getLong(pos);
+			if (viewOffsets[i] < HEADER_SIZE || viewOffsets[i] > buffer.limit() - VIEW_SIZE) {
+				throw new IOException("SceneFile: corrupt or truncated scene file: " + file);
+			}
+			pos += 8;
+		}
+		materials = new PhongMaterial[materialCount];
+		for (int i = 0; i < materialCount; i++) {
+			materials[i] = new PhongMaterial();
+			materials[i].setDiffuseColor(toColor(buffer.getInt(pos)));
+			if (buffer.getInt(pos+8) != 0) {
+				materials[i].setSpecularColor(toColor(buffer.getInt(pos+4)));
+			}
+			pos += 12;
+		}
+		strings = new String[stringCount];
+		for (int i = 0; i < stringCount; i++) {
+			int length = buffer.getInt(pos);
+			if (length < 0 || pos + 4L + length > buffer.limit()) {
+				throw new IOException("SceneFile: corrupt or truncated scene file: " + file);
+			}
+			byte[] b = new byte[length];
+			ByteBuffer s = buffer.duplicate();
+			s.position(pos+4);
+			s.get(b);
+			strings[i] = new String(b, StandardCharsets.UTF_8);
+			pos += 4 + length;
+		}
+	}
+
+	/**
+	 * Gets the number of views in the scene.
+	 *
+	 * @return	int number of views
+	 */
+	public int getViewCount() {
+		return viewOffsets.length;
+	}
+
+	/**
+	 * Gets the camera x angle, y angle and z distance of a view.
+	 *
+	 * @param	view	int view number, counting from 0
+	 * @return	double[3] camera settings
+	 */
+	public double[] getCamera(int view) {
+		int pos = viewPosition(view);
+		return new double[] {buffer.getDouble(pos), buffer.getDouble(pos+8), buffer.getDouble(pos+16)};
+	}
+
+	/**
+	 * Gets the x, y, z minimum/maximum values of the user coordinate range of a view.
+	 *
+	 * @param	view	int view number, counting from 0
+	 * @return	double[3] range
+	 */
+	public double[] getRange(int view) {
+		int pos = viewPosition(view) + 24;
+		return new double[] {buffer.getDouble(pos), buffer.getDouble(pos+8), buffer.getDouble(pos+16)};
+	}
+
+	/**
+	 * Gets the x, y, z origin in screen space (pixels) of a view.
+	 *
+	 * @param	view	int view number, counting from 0
+	 * @return	int[3] origin
+	 */
+	public int[] getOrigin(int view) {
+		int pos = viewPosition(view) + 48;
+		return new int[] {buffer.getInt(pos), buffer.getInt(pos+4), buffer.getInt(pos+8)};
+	}
+
+	/**
+	 * Gets the View Menu settings of a view, in the order of the View line of the text format.
+	 *
+	 * @param	view	int view number, counting from 0
+	 * @return	boolean[] view settings
+	 */
+	public boolean[] getViewSettings(int view) {
+		int bits = buffer.getInt(viewPosition(view) + 60);
+		boolean[] viewSettings = new boolean[VIEW_SETTINGS];
+		for (int i = 0; i < viewSettings.length; i++) {
+			viewSettings[i] = (bits & (1 << i)) != 0;
+		}
+		return viewSettings;
+	}
+
+	/**
+	 * Gets the drawing objects of a view, in the order in which they were drawn.
+	 *
+	 * @param	view	int view number, counting from 0
+	 * @return	ArrayList of the drawing objects
+	 * @throws	IOException if a block of the view is corrupt or truncated
+	 */
+	public ArrayList<Object> getObjects(int view) throws IOException {
+		int pos = viewPosition(view) + 64;
+		int blockCount = buffer.getInt(pos);
+		pos += 8;
+		ArrayList<Object> objects = new ArrayList<>();
+		ByteBuffer b = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		for (int i = 0; i < blockCount; i++) {
+			if (pos + 16L > buffer.limit()) {
+				throw new IOException("SceneFile: truncated block " + i + " of view " + view);
+			}
+			int type = buffer.getInt(pos);
+			int count = buffer.getInt(pos+4);
+			int nf = buffer.getInt(pos+8);
+			int nn = buffer.getInt(pos+12);
+			// Each object has at least one value
+			if (count < 0 || nf < 0 || nn < 0 || count > (long) nf + nn ||
+				pos + 16L + 4L*nf + 4L*nn > buffer.limit()) {
+				throw new IOException("SceneFile: corrupt or truncated block " + i + " of view " + view);
+			}
+			float[] f = new float[nf];
+			int[] n = new int[nn];
+			pos += 16;
+			b.position(pos);
+			b.asFloatBuffer().get(f);
+			pos += 4*f.length;
+			b.position(pos);
+			b.asIntBuffer().get(n);
+			pos += 4*n.length;
+			objects.ensureCapacity(objects.size() + count);
+			try {
+				readBlock(type, count, f, n, objects);
+			}
+			catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+				throw new IOException("SceneFile: corrupt block " + i + " of view " + view + ": " + e.getMessage(), e);
+			}
+		}
+		return objects;
+	}
+
+	private int viewPosition(int view) {
+		return (int) viewOffsets[view];
+	}
+
+	/**
+	 * Constructs the objects of a block from its float and int columns.
+	 */
+	private void readBlock(int type, int count, float[] f, int[] n, ArrayList<Object> objects) {
+		int j = 0;
+		int k = 0;
+		for (int i = 0; i < count; i++) {
+			switch (type) {
+			case DataReader.POINT:
+				objects.add(new Point3D(f[j], f[j+1], f[j+2]));
+				j += 3;
+				break;
+			case DataReader.ARROW: {
+				Arrow3D a = new Arrow3D(new Point3D(f[j], f[j+1], f[j+2]),
+										new Point3D(f[j+3], f[j+4], f[j+5]), material(n[k]));
+				a.setArrowRadius(f[j+6]);
+				objects.add(a);
+				j += 7;
+				k += 1;
+				break;
+			}
+			case DataReader.LINE: {
+				Line3D l = new Line3D(new Point3D(f[j], f[j+1], f[j+2]),
+									  new Point3D(f[j+3], f[j+4], f[j+5]));
+				l.setLineRadius(f[j+6]);
+				l.setMaterial(material(n[k]));
+				objects.add(l);
+				j += 7;
+				k += 1;
+				break;
+			}
+			case DataReader.VECTOR: {
+				Vector3D v = new Vector3D(new Point3D(f[j], f[j+1], f[j+2]), material(n[k]));
+				v.setVectorRadius(f[j+3]);
+				objects.add(v);
+				j += 4;
+				k += 1;
+				break;
+			}
+			case DataReader.BOX: {
+				Box3D b = new Box3D(new Point3D(f[j], f[j+1], f[j+2]), f[j+3], f[j+4], f[j+5],
+									f[j+6], f[j+7], f[j+8], material(n[k]));
+				b.setDrawMode(drawMode(n[k+1]));
+				b.setCullFace(cullFace(n[k+2]));
+				objects.add(b);
+				j += 9;
+				k += 3;
+				break;
+			}
+			case DataReader.CONE: {
+				Cone3D c = new Cone3D(new Point3D(f[j], f[j+1], f[j+2]), f[j+3], f[j+4],
+									  f[j+5], f[j+6], f[j+7], material(n[k+1]));
+				c.setConeDivisions(n[k]);
+				c.setDrawMode(drawMode(n[k+2]));
+				c.setCullFace(cullFace(n[k+3]));
+				objects.add(c);
+				j += 8;
+				k += 4;
+				break;
+			}
+			case DataReader.CYLINDER: {
+				Cylinder3D c = new Cylinder3D(new Point3D(f[j], f[j+1], f[j+2]), f[j+3], f[j+4],
+											  f[j+5], f[j+6], f[j+7], material(n[k+1]));
+				c.setCylinderDivisions(n[k]);
+				c.setDrawMode(drawMode(n[k+2]));
+				c.setCullFace(cullFace(n[k+3]));
+				objects.add(c);
+				j += 8;
+				k += 4;
+				break;
+			}
+			case DataReader.OVAL: {
+				Oval3D o = new Oval3D(new Point3D(f[j], f[j+1], f[j+2]), f[j+3], f[j+4],
+									  f[j+5], f[j+6], f[j+7], material(n[k+1]));
+				o.setOvalDivisions(n[k]);
+				o.setDrawMode(drawMode(n[k+2]));
+				o.setCullFace(cullFace(n[k+3]));
+				objects.add(o);
+				j += 8;
+				k += 4;
+				break;
+			}
+			case DataReader.SPHERE: {
+				Sphere3D s = new Sphere3D(new Point3D(f[j], f[j+1], f[j+2]), f[j+3],
+										  f[j+4], f[j+5], f[j+6], material(n[k+1]));
+				s.setSphereDivisions(n[k]);
+				s.setDrawMode(drawMode(n[k+2]));
+				s.setCullFace(cullFace(n[k+3]));
+				objects.add(s);
+				j += 7;
+				k += 4;
+				break;
+			}
+			case DataReader.RECTANGLE: {
+				Rectangle3D r = new Rectangle3D(new Point3D(f[j], f[j+1], f[j+2]), f[j+3], f[j+4],
+												f[j+5], f[j+6], f[j+7], material(n[k]));
+				r.setDrawMode(drawMode(n[k+1]));
+				r.setCullFace(cullFace(n[k+2]));
+				objects.add(r);
+				j += 8;
+				k += 3;
+				break;
+			}
+			case DataReader.PLANE: {
+				Plane3D p = new Plane3D(f[j], f[j+1], f[j+2], f[j+3], material(n[k]));
+				p.setDrawMode(drawMode(n[k+1]));
+				p.setCullFace(cullFace(n[k+2]));
+				objects.add(p);
+				j += 4;
+				k += 3;
+				break;
+			}
+			case DataReader.POLYGON: {
+				Point3D[] v = points(f, j, count(n[k], 3, j, f.length));
+				j += 3*v.length;
+				Polygon3D p = new Polygon3D(v, material(n[k+2]));
+				p.setDrawEdges((n[k+1] & 1) != 0);
+				p.setDrawVertices((n[k+1] & 2) != 0);
+				p.setDrawVertexLabels((n[k+1] & 4) != 0);
+				p.setDrawMode(drawMode(n[k+3]));
+				p.setCullFace(cullFace(n[k+4]));
+				objects.add(p);
+				k += 5;
+				break;
+			}
+			case DataReader.TRIANGLE: {
+				Triangle3D t = new Triangle3D(new Point3D(f[j], f[j+1], f[j+2]),
+											  new Point3D(f[j+3], f[j+4], f[j+5]),
+											  new Point3D(f[j+6], f[j+7], f[j+8]), material(n[k]));
+				t.setDrawMode(drawMode(n[k+1]));
+				t.setCullFace(cullFace(n[k+2]));
+				objects.add(t);
+				j += 9;
+				k += 3;
+				break;
+			}
+			case DataReader.TEXT: {
+				Color c = (n[k+2] != 0) ? toColor(n[k+3]) : null;
+				Text3D t = new Text3D(new Point3D(f[j], f[j+1], f[j+2]), f[j+3], f[j+4], f[j+5],
+									  strings[n[k]], c);
+				t.setLabelFont(new Font(strings[n[k+1]], f[j+6]));
+				objects.add(t);
+				j += 7;
+				k += 4;
+				break;
+			}
+			case DataReader.CURVE: {
+				Point3D[] v = points(f, j, count(n[k+2], 3, j, f.length));
+				j += 3*v.length;
+				Curve3D c;
+				if (n[k] == Curve3D.NURBS) {
+					double[] w = doubles(f, j, count(v.length, 1, j, f.length));
+					j += w.length;
+					double[] knots = doubles(f, j, count(v.length + n[k+1] + 1, 1, j, f.length));
+					j += knots.length;
+					c = new Curve3D(v, w, knots, n[k+1], material(n[k+3]));
+				}
+				else if (n[k] == Curve3D.BSPLINE) {
+					c = new Curve3D(v, n[k+1], material(n[k+3]));
+				}
+				else {
+					c = new Curve3D(v, material(n[k+3]));
+				}
+				c.setDrawMode(drawMode(n[k+4]));
+				c.setCullFace(cullFace(n[k+5]));
+				objects.add(c);
+				k += 6;
+				break;
+			}
+			case DataReader.HULL: {
+				Point3D[] v = points(f, j, count(n[k], 3, j, f.length));
+				j += 3*v.length;
+				Hull3D h = new Hull3D(v, material(n[k+1]));
+				h.setDrawMode(drawMode(n[k+2]));
+				h.setCullFace(cullFace(n[k+3]));
+				objects.add(h);
+				k += 4;
+				break;
+			}
+			case DataReader.PATCH: {
+				int nu = count(n[k+2], 3, j, f.length);
+				int nv = count(n[k+3], 3*nu, j, f.length);
+				Point3D[][] v = new Point3D[nu][];
+				for (int u = 0; u < nu; u++, j += 3*nv) {
+					v[u] = points(f, j, nv);
+				}
+				Patch3D p = (n[k] == Patch3D.BSPLINE) ? new Patch3D(v, n[k+1], material(n[k+5]))
+													  : new Patch3D(v, material(n[k+5]));
+				p.setDivisions(count(n[k+4], 1, 0, MAX_DIVISIONS));
+				p.setDrawMode(drawMode(n[k+6]));
+				p.setCullFace(cullFace(n[k+7]));
+				objects.add(p);
+				k += 8;
+				break;
+			}
+			case DataReader.ARRANGEMENT: {
+				Plane3D[] planes = new Plane3D[count(n[k], 4, j + 6, f.length)];
+				for (int q = 0, r = j + 6; q < planes.length; q++, r += 4) {
+					planes[q] = new Plane3D(f[r], f[r+1], f[r+2], f[r+3]);
+				}
+				PlaneArrangement a = new PlaneArrangement(planes, f[j], f[j+1], f[j+2], f[j+3],
+														  f[j+4], f[j+5], material(n[k+1]));
+				a.setPointMaterial(material(n[k+2]));
+				a.setDrawMode(drawMode(n[k+3]));
+				a.setCullFace(cullFace(n[k+4]));
+				objects.add(a);
+				j += 6 + 4*planes.length;
+				k += 5;
+				break;
+			}
+			case DataReader.TRACE: {
+				int polylines = count(n[k], 2, k + 5, n.length);
+				CurveTrace3D t = new CurveTrace3D(polylines, material(n[k+2]));
+				int np = count(n[k+1], 3, j, f.length);
+				for (int q = 0; q < np; q++, j += 3) {
+					t.addPoint(f[j], f[j+1], f[j+2]);
+				}
+				for (int q = 0; q < polylines; q++) {
+					int c = count(n[k+5+2*q], 3, j, f.length);
+					t.setPolyline(q, doubles(f, j, 3*c), c);
+					t.setPolylineMaterial(q, material(n[k+6+2*q]));
+					j += 3*c;
+				}
+				t.setDrawMode(drawMode(n[k+3]));
+				t.setCullFace(cullFace(n[k+4]));
+				objects.add(t);
+				k += 5 + 2*polylines;
+				break;
+			}
+			case DataReader.FORMULA: {
+				Formula3D fm = (version == 1) ? formula(strings[n[k]], n[k+1], f, j)
+											  : formula(strings[n[k]], n[k+1], n, k + 5);
+				fm.setMaterial(material(n[k+2]));
+				fm.setDrawMode(drawMode(n[k+3]));
+				fm.setCullFace(cullFace(n[k+4]));
+				objects.add(fm);
+				if (version == 1) {
+					j += n[k+1];
+					k += 5;
+				}
+				else {
+					k += 5 + 2*n[k+1];
+				}
+				break;
+			}
+			case DataReader.ISOSURFACE: {
+				Formula3D fm = (version == 1) ? formula(strings[n[k]], n[k+1], f, j + 7)
+											  : formula(strings[n[k]], n[k+1], n, k + 6);
+				int divisions = count(n[k+2], 1, 0, MAX_DIVISIONS);
+				Isosurface3D s = new Isosurface3D(fm, f[j], divisions, f[j+1], f[j+2], f[j+3],
+												  f[j+4], f[j+5], f[j+6], material(n[k+3]));
+				s.setDrawMode(drawMode(n[k+4]));
+				s.setCullFace(cullFace(n[k+5]));
+				objects.add(s);
+				if (version == 1) {
+					j += 7 + n[k+1];
+					k += 6;
+				}
+				else {
+					j += 7;
+					k += 6 + 2*n[k+1];
+				}
+				break;
+			}
+			default:
+				throw new IllegalArgumentException("SceneFile: unknown block type " + type);
+			}
+		}
+	}
+
+	/**
+	 * Checks that c items of size values each fit in a block column of length values
+	 * from index from, returning c.
+	 */
+	private static int count(int c, int size, int from, int length) {
+		if (c < 0 || (long) c*size > length - from) {
+			throw new IllegalArgumentException("SceneFile: count " + c + " exceeds the block");
+		}
+		return c;
+	}
+
+	private static Point3D[] points(float[] f, int j, int count) {
+		Point3D[] v = new Point3D[count];
+		for (int i = 0; i < count; i++, j += 3) {
+			v[i] = new Point3D(f[j], f[j+1], f[j+2]);
+		}
+		return v;
+	}
+
+	private static double[] doubles(float[] f, int j, int count) {
+		double[] v = new double[count];
+		for (int i = 0; i < count; i++) {
+			v[i] = f[j+i];
+		}
+		return v;
+	}
+
+	/**
+	 * Parses a formula and sets its parameters from the float column of a version 1
+	 * block, in the order of getParameterNames().
+	 */
+	private static Formula3D formula(String s, int parameters, float[] f, int j) {
+		Formula3D fm = new Formula3D(s);
+		String[] names = fm.getParameterNames();
+		if (names.length != count(parameters, 1, j, f.length)) {
+			throw new IllegalArgumentException("SceneFile: " + parameters + " parameters for " + s);
+		}
+		for (int i = 0; i < names.length; i++) {
+			fm.setParameter(names[i], f[j+i]);
+		}
+		return fm;
+	}
+
+	/**
+	 * Parses a formula and sets its parameters from pairs of ints of the int column of
+	 * a block, in the order of getParameterNames().
+	 */
+	private static Formula3D formula(String s, int parameters, int[] n, int k) {
+		Formula3D fm = new Formula3D(s);
+		String[] names = fm.getParameterNames();
+		if (names.length != count(parameters, 2, k, n.length)) {
+			throw new IllegalArgumentException("SceneFile: " + parameters + " parameters for " + s);
+		}
+		for (int i = 0; i < names.length; i++, k += 2) {
+			long bits = (n[k] & 0xffffffffL) | ((long) n[k+1] << 32);
+			fm.setParameter(names[i], Double.longBitsToDouble(bits));
+		}
+		return fm;
+	}
+
+	private PhongMaterial material(int i) {
+		return (i < 0) ? null : materials[i];
+	}
+
+	private static DrawMode drawMode(int i) {
+		return (i < 0) ? null : DrawMode.values()[i];
+	}
+
+	private static CullFace cullFace(int i) {
+		return (i < 0) ? null : CullFace.values()[i];
+	}
+
+	private static Color toColor(int rgba) {
+		return Color.rgb(rgba >>> 24, (rgba >>> 16) & 0xff, (rgba >>> 8) & 0xff, (rgba & 0xff)/255.0);
+	}
+
+	private static int toRGBA(Color c) {
+		return ((int) Math.round(c.getRed()*255) << 24) |
+			   ((int) Math.round(c.getGreen()*255) << 16) |
+			   ((int) Math.round(c.getBlue()*255) << 8) |
+			    (int) Math.round(c.getOpacity()*255);
+	}
+
+	/**
+	 * Writes a scene file. The lists hold the settings and drawing objects of each view,
+	 * all of the same length. The file is replaced only when it has been written completely.
+	 *
+	 * @param	file			File scene file
+	 * @param	cameras			ArrayList of double[3] camera x angle, y angle and z distance
+	 * @param	ranges			ArrayList of double[3] x, y, z minimum/maximum values
+	 * @param	origins			ArrayList of int[3] x, y, z origin in pixels
+	 * @param	viewSettings	ArrayList of boolean[] View Menu settings
+	 * @param	drawLists		ArrayList of the drawing objects of each view
+	 * @throws	IOException if the file cannot be written or an object cannot be saved
+	 */
+	public static void write(File file,
+							 ArrayList<double[]> cameras,
+							 ArrayList<double[]> ranges,
+							 ArrayList<int[]> origins,
+							 ArrayList<boolean[]> viewSettings,
+							 ArrayList<ArrayList<Object>> drawLists) throws IOException {
+		Writer w = new Writer();
+		int viewCount = drawLists.size();
+		long[] offsets = new long[viewCount];
+		for (int i = 0; i < viewCount; i++) {
+			offsets[i] = w.body.position();
+			w.writeView(cameras.get(i), ranges.get(i), origins.get(i), viewSettings.get(i), drawLists.get(i));
+		}
+
+		// Header, view index, materials and strings, padded to align the views
+		int size = HEADER_SIZE + 8*viewCount + 12*w.materialList.size();
+		ArrayList<byte[]> stringBytes = new ArrayList<>();
+		for (String s : w.stringList) {
+			byte[] b = s.getBytes(StandardCharsets.UTF_8);
+			stringBytes.add(b);
+			size += 4 + b.length;
+		}
+		size = (size + 7) & ~7;
+		ByteBuffer head = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+		head.putInt(MAGIC).putInt(VERSION).putInt(viewCount);
+		head.putInt(w.materialList.size()).putInt(stringBytes.size()).putInt(0);
+		for (int i = 0; i < viewCount; i++) {
+			head.putLong(size + offsets[i]);
+		}
+		for (int[] m : w.materialList) {
+			head.putInt(m[0]).putInt(m[1]).putInt(m[2]);
+		}
+		for (byte[] b : stringBytes) {
+			head.putInt(b.length).put(b);
+		}
+		head.position(0);
+		w.body.flip();
+
+		File temp = File.createTempFile(file.getName(), ".tmp", file.getAbsoluteFile().getParentFile());
+		try {
+			FileOutputStream out = new FileOutputStream(temp);
+			try {
+				FileChannel channel = out.getChannel();
+				ByteBuffer[] buffers = {head, w.body};
+				while (head.hasRemaining() || w.body.hasRemaining()) {
+					channel.write(buffers);
+				}
+			}
+			finally {
+				out.close();
+			}
+			Files.move(temp.toPath(), file.toPath(),
+					   StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		}
+		finally {
+			Files.deleteIfExists(temp.toPath());
+		}
+	}
+
+	/**
+	 * Gets the block type of a drawing object, one of the DataReader type constants.
+	 */
+	private static int typeOf(Object object) {
+		if      (object instanceof Point3D)     return DataReader.POINT;
+		else if (object instanceof Arrow3D)     return DataReader.ARROW;
+		else if (object instanceof Box3D)       return DataReader.BOX;
+		else if (object instanceof Cone3D)      return DataReader.CONE;
+		else if (object instanceof Cylinder3D)  return DataReader.CYLINDER;
+		else if (object instanceof Line3D)      return DataReader.LINE;
+		else if (object instanceof Oval3D)      return DataReader.OVAL;
+		else if (object instanceof Plane3D)     return DataReader.PLANE;
+		else if (object instanceof Polygon3D)   return DataReader.POLYGON;
+		else if (object instanceof Rectangle3D) return DataReader.RECTANGLE;
+		else if (object instanceof Sphere3D)    return DataReader.SPHERE;
+		else if (object instanceof Text3D)      return DataReader.TEXT;
+		else if (object instanceof Triangle3D)  return DataReader.TRIANGLE;
+		else if (object instanceof Vector3D)    return DataReader.VECTOR;
+		else if (object instanceof Curve3D)     return DataReader.CURVE;
+		else if (object instanceof Hull3D)      return DataReader.HULL;
+		else if (object instanceof Patch3D)     return DataReader.PATCH;
+		else if (object instanceof PlaneArrangement) return DataReader.ARRANGEMENT;
+		else if (object instanceof CurveTrace3D) return DataReader.TRACE;
+		else if (object instanceof Formula3D)   return DataReader.FORMULA;
+		else if (object instanceof Isosurface3D &&
+				 ((Isosurface3D) object).getFunction() instanceof Formula3D) return DataReader.ISOSURFACE;
+		else return DataReader.UNKNOWN;
+	}
+
+	/**
+	 * Writer collects the views of a scene in a growing buffer, with the
+	 * material and string tables they refer to.
+	 */
+	private static class Writer {
+		private ByteBuffer body = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+		private ArrayList<int[]> materialList = new ArrayList<>();
+		private HashMap<String, Integer> materialIndex = new HashMap<>();
+		private ArrayList<String> stringList = new ArrayList<>();
+		private HashMap<String, Integer> stringIndex = new HashMap<>();
+		private float[] f = new float[1024];
+		private int nf;
+		private int[] n = new int[256];
+		private int nn;
+
+		private void writeView(double[] camera, double[] range, int[] origin,
+							   boolean[] viewSettings, ArrayList<Object> drawList) throws IOException {
+			ensure(72);
+			body.putDouble(camera[0]).putDouble(camera[1]).putDouble(camera[2]);
+			body.putDouble(range[0]).putDouble(range[1]).putDouble(range[2]);
+			body.putInt(origin[0]).putInt(origin[1]).putInt(origin[2]);
+			int bits = 0;
+			for (int i = 0; i < viewSettings.length && i < 32; i++) {
+				if (viewSettings[i]) {
+					bits |= 1 << i;
+				}
+			}
+			body.putInt(bits);
+			int blockCountPosition = body.position();
+			body.putInt(0).putInt(0);
+
+			// Runs of objects of one type, keeping the drawing order
+			int blockCount = 0;
+			int i = 0;
+			while (i < drawList.size()) {
+				int type = typeOf(drawList.get(i));
+				int j = i;
+				while (j < drawList.size() && typeOf(drawList.get(j)) == type) {
+					j++;
+				}
+				if (type == DataReader.UNKNOWN) {
+					throw new IOException("SceneFile: cannot save " + drawList.get(i) +
+										  ", only objects defined by data can be saved");
+				}
+				writeBlock(type, drawList, i, j);
+				blockCount++;
+				i = j;
+			}
+			body.putInt(blockCountPosition, blockCount);
+			ensure(8);
+			while ((body.position() & 7) != 0) {
+				body.put((byte) 0);
+			}
+		}
+
+		private void writeBlock(int type, ArrayList<Object> drawList, int from, int to) {
+			nf = 0;
+			nn = 0;
+			for (int i = from; i < to; i++) {
+				Object object = drawList.get(i);
+				switch (type) {
+				case DataReader.POINT:
+					point((Point3D) object);
+					break;
+				case DataReader.ARROW: {
+					Arrow3D a = (Arrow3D) object;
+					point(a.getp1());
+					point(a.getp2());
+					floats(a.getArrowRadius());
+					ints(material(a.getMaterial()));
+					break;
+				}
+				case DataReader.LINE: {
+					Line3D l = (Line3D) object;
+					point(l.getp1());
+					point(l.getp2());
+					floats(l.getLineRadius());
+					ints(material(l.getMaterial()));
+					break;
+				}
+				case DataReader.VECTOR: {
+					Vector3D v = (Vector3D) object;
+					floats(v.getX(), v.getY(), v.getZ(), v.getVectorRadius());
+					ints(material(v.getMaterial()));
+					break;
+				}
+				case DataReader.BOX: {
+					Box3D b = (Box3D) object;
+					point(b.getP());
+					floats(b.getWidth(), b.getHeight(), b.getDepth(), b.getXr(), b.getYr(), b.getZr());
+					ints(material(b.getMaterial()), ordinal(b.getDrawMode()), ordinal(b.getCullFace()));
+					break;
+				}
+				case DataReader.CONE: {
+					Cone3D c = (Cone3D) object;
+					point(c.getP());
+					floats(c.getRadius(), c.getHeight(), c.getXr(), c.getYr(), c.getZr());
+					ints(c.getConeDivisions(), material(c.getMaterial()),
+						 ordinal(c.getDrawMode()), ordinal(c.getCullFace()));
+					break;
+				}
+				case DataReader.CYLINDER: {
+					Cylinder3D c = (Cylinder3D) object;
+					point(c.getP());
+					floats(c.getRadius(), c.getHeight(), c.getXr(), c.getYr(), c.getZr());
+					ints(c.getCylinderDivisions(), material(c.getMaterial()),
+						 ordinal(c.getDrawMode()), ordinal(c.getCullFace()));
+					break;
+				}
+				case DataReader.OVAL: {
+					Oval3D o = (Oval3D) object;
+					point(o.getP());
+					floats(o.getMajorRadius(), o.getMinorRadius(), o.getXr(), o.getYr(), o.getZr());
+					ints(o.getOvalDivisions(), material(o.getMaterial()),
+						 ordinal(o.getDrawMode()), ordinal(o.getCullFace()));
+					break;
+				}
+				case DataReader.SPHERE: {
+					Sphere3D s = (Sphere3D) object;
+					point(s.getP());
+					floats(s.getRadius(), s.getXr(), s.getYr(), s.getZr());
+					ints(s.getSphereDivisions(), material(s.getMaterial()),
+						 ordinal(s.getDrawMode()), ordinal(s.getCullFace()));
+					break;
+				}
+				case DataReader.RECTANGLE: {
+					Rectangle3D r = (Rectangle3D) object;
+					point(r.getP());
+					floats(r.getWidth(), r.getHeight(), r.getXr(), r.getYr(), r.getZr());
+					ints(material(r.getMaterial()), ordinal(r.getDrawMode()), ordinal(r.getCullFace()));
+					break;
+				}
+				case DataReader.PLANE: {
+					// The unit normal and distance from the origin define the same plane
+					Plane3D p = (Plane3D) object;
+					Vector3D u = p.getUnitNormal();
+					floats(u.getX(), u.getY(), u.getZ(), p.getP());
+					ints(material(p.getMaterial()), ordinal(p.getDrawMode()), ordinal(p.getCullFace()));
+					break;
+				}
+				case DataReader.POLYGON: {
+					Polygon3D p = (Polygon3D) object;
+					Point3D[] v = p.getV();
+					for (int k = 0; k < v.length; k++) {
+						point(v[k]);
+					}
+					int flags = (p.getDrawEdges() ? 1 : 0) | (p.getDrawVertices() ? 2 : 0) |
+								(p.getDrawVertexLabels() ? 4 : 0);
+					ints(v.length, flags, material(p.getMaterial()),
+						 ordinal(p.getDrawMode()), ordinal(p.getCullFace()));
+					break;
+				}
+				case DataReader.TRIANGLE: {
+					Triangle3D t = (Triangle3D) object;
+					Point3D[] v = t.getV();
+					point(v[0]);
+					point(v[1]);
+					point(v[2]);
+					ints(material(t.getMaterial()), ordinal(t.getDrawMode()), ordinal(t.getCullFace()));
+					break;
+				}
+				case DataReader.TEXT: {
+					Text3D t = (Text3D) object;
+					Font font = t.getLabelFont();
+					point(t.getP());
+					floats(t.getXr(), t.getYr(), t.getZr(), font.getSize());
+					Color c = t.getColor();
+					ints(string(t.getText()), string(font.getName()),
+						 (c != null) ? 1 : 0, (c != null) ? toRGBA(c) : 0);
+					break;
+				}
+				case DataReader.CURVE: {
+					Curve3D c = (Curve3D) object;
+					Point3D[] v = c.getControlPoints();
+					for (int k = 0; k < v.length; k++) {
+						point(v[k]);
+					}
+					if (c.getType() == Curve3D.NURBS) {
+						floats(c.getWeights());
+						floats(c.getKnots());
+					}
+					ints(c.getType(), c.getDegree(), v.length, material(c.getMaterial()),
+						 ordinal(c.getDrawMode()), ordinal(c.getCullFace()));
+					break;
+				}
+				case DataReader.HULL: {
+					Hull3D h = (Hull3D) object;
+					Point3D[] v = h.getVertices();
+					for (int k = 0; k < v.length; k++) {
+						point(v[k]);
+					}
+					ints(v.length, material(h.getMaterial()), ordinal(h.getDrawMode()), ordinal(h.getCullFace()));
+					break;
+				}
+				case DataReader.PATCH: {
+					Patch3D p = (Patch3D) object;
+					for (int u = 0; u < p.getUCount(); u++) {
+						for (int v = 0; v < p.getVCount(); v++) {
+							point(p.getControlPoint(u, v));
+						}
+					}
+					ints(p.getType(), p.getDegree(), p.getUCount(), p.getVCount(), p.getDivisions(),
+						 material(p.getMaterial()), ordinal(p.getDrawMode()), ordinal(p.getCullFace()));
+					break;
+				}
+				case DataReader.ARRANGEMENT: {
+					PlaneArrangement a = (PlaneArrangement) object;
+					Plane3D[] planes = a.getPlanes();
+					floats(a.getBox());
+					for (int k = 0; k < planes.length; k++) {
+						Vector3D u = planes[k].getUnitNormal();
+						floats(u.getX(), u.getY(), u.getZ(), planes[k].getP());
+					}
+					ints(planes.length, material(a.getMaterial()), material(a.getPointMaterial()),
+						 ordinal(a.getDrawMode()), ordinal(a.getCullFace()));
+					break;
+				}
+				case DataReader.TRACE: {
+					CurveTrace3D t = (CurveTrace3D) object;
+					double[] p = t.getPoints(0);
+					floats(p);
+					ints(t.getPolylineCount(), p.length/3, material(t.getMaterial()),
+						 ordinal(t.getDrawMode()), ordinal(t.getCullFace()));
+					for (int k = 0; k < t.getPolylineCount(); k++) {
+						double[] v = t.getPolyline(k);
+						floats(v);
+						ints(v.length/3, material(t.getPolylineMaterial(k)));
+					}
+					break;
+				}
+				case DataReader.FORMULA: {
+					Formula3D fm = (Formula3D) object;
+					ints(string(fm.getFormula()), fm.getParameterNames().length, material(fm.getMaterial()),
+						 ordinal(fm.getDrawMode()), ordinal(fm.getCullFace()));
+					parameters(fm);
+					break;
+				}
+				case DataReader.ISOSURFACE: {
+					Isosurface3D s = (Isosurface3D) object;
+					Formula3D fm = (Formula3D) s.getFunction();
+					floats(s.getLevel());
+					floats(s.getBox());
+					ints(string(fm.getFormula()), fm.getParameterNames().length, s.getDivisions(),
+						 material(s.getMaterial()), ordinal(s.getDrawMode()), ordinal(s.getCullFace()));
+					parameters(fm);
+					break;
+				}
+				}
+			}
+			ensure(16 + 4*(nf + nn));
+			body.putInt(type).putInt(to - from).putInt(nf).putInt(nn);
+			body.asFloatBuffer().put(f, 0, nf);
+			body.position(body.position() + 4*nf);
+			body.asIntBuffer().put(n, 0, nn);
+			body.position(body.position() + 4*nn);
+		}
+
+		private void point(Point3D p) {
+			floats(p.getX(), p.getY(), p.getZ());
+		}
+
+		private void parameters(Formula3D fm) {
+			for (String name : fm.getParameterNames()) {
+				long bits = Double.doubleToRawLongBits(fm.getParameter(name));
+				ints((int) bits, (int) (bits >>> 32));
+			}
+		}
+
+		private void floats(double... v) {
+			if (nf + v.length > f.length) {
+				f = Arrays.copyOf(f, Math.max(2*f.length, nf + v.length));
+			}
+			for (int i = 0; i < v.length; i++) {
+				f[nf++] = (float) v[i];
+			}
+		}
+
+		private void ints(int... v) {
+			if (nn + v.length > n.length) {
+				n = Arrays.copyOf(n, Math.max(2*n.length, nn + v.length));
+			}
+			for (int i = 0; i < v.length; i++) {
+				n[nn++] = v[i];
+			}
+		}
+
+		private int material(PhongMaterial m) {
+			if (m == null || m.getDiffuseColor() == null) {
+				return -1;
+			}
+			int diffuse = toRGBA(m.getDiffuseColor());
+			Color sc = m.getSpecularColor();
+			int specular = (sc != null) ? toRGBA(sc) : 0;
+			String key = diffuse + (sc != null ? ":" + specular : "");
+			Integer i = materialIndex.get(key);
+			if (i == null) {
+				i = materialList.size();
+				materialList.add(new int[] {diffuse, specular, (sc != null) ? 1 : 0});
+				materialIndex.put(key, i);
+			}
+			return i;
+		}
+
+		private int string(String s) {
+			Integer i = stringIndex.get(s);
+			if (i == null) {
+				i = stringList.size();
+				stringList.add(s);
+				stringIndex.put(s, i);
+			}
+			return i;
+		}
+
+		private static int ordinal(Enum<?> e) {
+			return (e == null) ? -1 : e.ordinal();
+		}
+
+		private void ensure(int bytes) {
+			if (body.remaining() < bytes) {
+				ByteBuffer b = ByteBuffer.allocate(Math.max(2*body.capacity(), body.position() + bytes))
+										 .order(ByteOrder.LITTLE_ENDIAN);
+				body.flip();
+				b.put(body);
+				body = b;
+			}
+		}
+	}
+}
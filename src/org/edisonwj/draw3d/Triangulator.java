@@ -0,0 +1,929 @@
+package org.edisonwj.draw3d;
+
+/*
+ * Portions of this file are derived from Mapbox earcut, https://github.com/mapbox/earcut,
+ * which is available under the following license:
+ *
+ * ISC License
+ *
+ * Copyright (c) 2016, Mapbox
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any purpose
+ * with or without fee is hereby granted, provided that the above copyright notice
+ * and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES WITH
+ * REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY SPECIAL, DIRECT,
+ * INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING FROM LOSS
+ * OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER
+ * TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR PERFORMANCE OF
+ * THIS SOFTWARE.
+ */
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import javafx.geometry.Point3D;
+/**
+* Triangulator class triangulates simple polygons, optionally with holes, by ear clipping
+* accelerated with a z-order (Morton) curve index, so that the search for vertices inside
+* a candidate ear only visits nearby vertices. Typical cost is O(n log n) for the sort
+* of the curve index plus near linear clipping, so polygons with tens of thousands of
+* vertices can be triangulated interactively.
+*
+* Adapted from: Mapbox earcut, https://github.com/mapbox/earcut (ISC license, see above), after
+* Eberly, Triangulation by Ear Clipping, and Held, FIST: Fast Industrial-Strength
+* Triangulation of Polygons.
+*
+* Vertices may be given in clockwise or counterclockwise order; the returned triangles
+* have the winding of the outer boundary as given. Collinear and duplicate vertices
+* are tolerated. Polygons that are not simple cannot be triangulated reliably and
+* cause an IllegalArgumentException.
+*
+* Three dimensional planar polygons are projected onto the coordinate plane most nearly
+* parallel to them before triangulation.
+*
+* The class implements defaults specified in Draw3DDefaults.
+*
+* @author William Edison
+* @version 1.02
+*
+*/
+public final class Triangulator implements Draw3DDefaults {
+
+	private static final int HASH_MIN_VERTICES = 80;	// z-order index used for polygons larger than this
+
+	private Triangulator() {
+	}
+
+	/**
+	 * Triangulates a planar polygon given by its vertices.
+	 *
+	 * @param	v	Point3D array of polygon vertices in boundary order
+	 * @return	tri	int[][3] array of indices of vertices forming the triangulation
+	 * @throws	IllegalArgumentException if the polygon is not simple
+	 */
+	public static int[][] triangulate(Point3D[] v) {
+		return triangulate(v, null);
+	}
+
+	/**
+	 * Triangulates a planar polygon with holes. Vertices are indexed in the order of
+	 * the outer boundary followed by each of the holes.
+	 *
+	 * @param	outer	Point3D array of outer boundary vertices
+	 * @param	holes	Point3D[][] array of hole boundaries, may be null
+	 * @return	tri		int[][3] array of indices of vertices forming the triangulation
+	 * @throws	IllegalArgumentException if the polygon is not simple
+	 */
+	public static int[][] triangulate(Point3D[] outer, Point3D[][] holes) {
+		int n = outer.length;
+		int nh = (holes == null) ? 0 : holes.length;
+		int[] holeIndices = new int[nh];
+		for (int h = 0; h < nh; h++) {
+			holeIndices[h] = n;
+			n += holes[h].length;
+		}
+
+		// Newell normal of the outer boundary determines the projection plane
+		double nx = 0.0, ny = 0.0, nz = 0.0;
+		for (int i = 0, j = outer.length-1; i < outer.length; j = i++) {
+			nx += (outer[j].getY() - outer[i].getY()) * (outer[j].getZ() + outer[i].getZ());
+			ny += (outer[j].getZ() - outer[i].getZ()) * (outer[j].getX() + outer[i].getX());
+			nz += (outer[j].getX() - outer[i].getX()) * (outer[j].getY() + outer[i].getY());
+		}
+		double[] b = new double[6];
+		VectorMath.bounds(VectorMath.toPacked(outer), outer.length, b);
+		double ex = b[1] - b[0], ey = b[3] - b[2], ez = b[5] - b[4];
+		double emax = Math.max(ex, Math.max(ey, ez));
+		if (VectorMath.length(nx, ny, nz) <= EPSILON * emax * emax) {
+			// self-intersecting boundary whose areas cancel; use the extent of the vertices
+			nx = emax - ex;
+			ny = emax - ey;
+			nz = emax - ez;
+		}
+		int drop = 2;
+		if (Math.abs(nx) >= Math.abs(ny) && Math.abs(nx) >= Math.abs(nz)) {
+			drop = 0;
+		}
+		else if (Math.abs(ny) >= Math.abs(nz)) {
+			drop = 1;
+		}
+
+		double[] xy = new double[2*n];
+		int k = 0;
+		for (int h = -1; h < nh; h++) {
+			Point3D[] ring = (h < 0) ? outer : holes[h];
+			for (int i = 0; i < ring.length; i++) {
+				Point3D p = ring[i];
+				xy[k++] = (drop == 0) ? p.getY() : p.getX();
+				xy[k++] = (drop == 2) ? p.getY() : p.getZ();
+			}
+		}
+
+		int[] t = triangulate(xy, holeIndices);
+		int[][] tri = new int[t.length/3][3];
+		for (int i = 0; i < tri.length; i++) {
+			tri[i][0] = t[3*i];
+			tri[i][1] = t[3*i+1];
+			tri[i][2] = t[3*i+2];
+		}
+		return tri;
+	}
+
+	/**
+	 * Triangulates a two dimensional polygon with holes.
+	 *
+	 * @param	xy			double[] packed x, y vertex coordinates of the outer boundary
+	 * 						followed by those of each hole
+	 * @param	holeIndices	int[] vertex index of the start of each hole, may be null
+	 * @return	int[] indices of vertices, three per triangle
+	 * @throws	IllegalArgumentException if the polygon is not simple
+	 */
+	public static int[] triangulate(double[] xy, int[] holeIndices) {
+		boolean hasHoles = holeIndices != null && holeIndices.length > 0;
+		int outerLen = hasHoles ? 2*holeIndices[0] : xy.length;
+		IntList triangles = new IntList(xy.length/2 * 3);
+
+		Node outerNode = linkedList(xy, 0, outerLen, true);
+		if (outerNode == null || outerNode.next == outerNode.prev) {
+			return triangles.toArray();
+		}
+		if (hasHoles) {
+			outerNode = eliminateHoles(xy, holeIndices, outerNode);
+		}
+
+		double minX = 0.0, minY = 0.0, invSize = 0.0;
+		if (xy.length/2 > HASH_MIN_VERTICES) {
+			minX = Double.POSITIVE_INFINITY;
+			minY = Double.POSITIVE_INFINITY;
+			double maxX = Double.NEGATIVE_INFINITY;
+			double maxY = Double.NEGATIVE_INFINITY;
+			for (int i = 0; i < outerLen; i += 2) {
+				minX = Math.min(minX, xy[i]);
+				minY = Math.min(minY, xy[i+1]);
+				maxX = Math.max(maxX, xy[i]);
+				maxY = Math.max(maxY, xy[i+1]);
+			}
+			invSize = Math.max(maxX - minX, maxY - minY);
+			invSize = (invSize != 0.0) ? 1.0 / invSize : 0.0;
+		}
+
+		earcutLinked(outerNode, triangles, minX, minY, invSize, 0);
+
+		int[] t = triangles.toArray();
+		checkArea(xy, holeIndices, outerLen, t);
+		orient(xy, outerLen, t);
+		return t;
+	}
+
+	/**
+	 * Verifies that the triangles cover the area of the polygon. Triangulation of a
+	 * polygon that is not simple leaves part of its area uncovered or covered twice.
+	 */
+	private static void checkArea(double[] xy, int[] holeIndices, int outerLen, int[] t) {
+		double polygonArea = Math.abs(signedArea(xy, 0, outerLen));
+		int nh = (holeIndices == null) ? 0 : holeIndices.length;
+		for (int h = 0; h < nh; h++) {
+			int start = 2*holeIndices[h];
+			int end = (h < nh-1) ? 2*holeIndices[h+1] : xy.length;
+			polygonArea -= Math.abs(signedArea(xy, start, end));
+		}
+		double trianglesArea = 0.0;
+		for (int i = 0; i < t.length; i += 3) {
+			int a = 2*t[i], b = 2*t[i+1], c = 2*t[i+2];
+			trianglesArea += Math.abs((xy[a] - xy[c]) * (xy[b+1] - xy[c+1]) -
+									  (xy[a+1] - xy[c+1]) * (xy[b] - xy[c]));
+		}
+		trianglesArea /= 2.0;
+		polygonArea /= 2.0;
+		double scale = Math.max(Math.abs(polygonArea), trianglesArea);
+		if (Math.abs(trianglesArea - polygonArea) > 1.0e-6 * scale + EPSILON) {
+			throw new IllegalArgumentException("Triangulator: Not a simple polygon (polygon area= " +
+											   polygonArea + ", triangulated area= " + trianglesArea + ")");
+		}
+	}
+
+	/**
+	 * Reverses the triangles if required so that they have the winding of the outer boundary.
+	 */
+	private static void orient(double[] xy, int outerLen, int[] t) {
+		if (t.length == 0) {
+			return;
+		}
+		double outer = signedArea(xy, 0, outerLen);
+		for (int i = 0; i < t.length; i += 3) {
+			int a = 2*t[i], b = 2*t[i+1], c = 2*t[i+2];
+			double area = (xy[b] - xy[a]) * (xy[c+1] - xy[a+1]) - (xy[c] - xy[a]) * (xy[b+1] - xy[a+1]);
+			if (area != 0.0) {
+				// signedArea() is positive for counterclockwise, as is area
+				if ((area > 0.0) != (outer > 0.0)) {
+					for (int j = 0; j < t.length; j += 3) {
+						int tmp = t[j+1];
+						t[j+1] = t[j+2];
+						t[j+2] = tmp;
+					}
+				}
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Creates a circular doubly linked list from the polygon points in the specified winding order.
+	 */
+	private static Node linkedList(double[] xy, int start, int end, boolean clockwise) {
+		Node last = null;
+		if (clockwise == (signedArea(xy, start, end) > 0)) {
+			for (int i = start; i < end; i += 2) {
+				last = insertNode(i/2, xy[i], xy[i+1], last);
+			}
+		}
+		else {
+			for (int i = end-2; i >= start; i -= 2) {
+				last = insertNode(i/2, xy[i], xy[i+1], last);
+			}
+		}
+		if (last != null && equals(last, last.next)) {
+			removeNode(last);
+			last = last.next;
+		}
+		return last;
+	}
+
+	/**
+	 * Eliminates colinear or duplicate points.
+	 */
+	private static Node filterPoints(Node start, Node end) {
+		if (start == null) {
+			return start;
+		}
+		if (end == null) {
+			end = start;
+		}
+		Node p = start;
+		boolean again;
+		do {
+			again = false;
+			if (!p.steiner && (equals(p, p.next) || area(p.prev, p, p.next) == 0)) {
+				removeNode(p);
+				p = end = p.prev;
+				if (p == p.next) {
+					break;
+				}
+				again = true;
+			}
+			else {
+				p = p.next;
+			}
+		} while (again || p != end);
+		return end;
+	}
+
+	/**
+	 * Main ear slicing loop which triangulates a polygon given as a linked list.
+	 */
+	private static void earcutLinked(Node ear, IntList triangles, double minX, double minY, double invSize, int pass) {
+		if (ear == null) {
+			return;
+		}
+
+		// interlink polygon nodes in z-order
+		if (pass == 0 && invSize != 0.0) {
+			indexCurve(ear, minX, minY, invSize);
+		}
+
+		Node stop = ear;
+		Node prev, next;
+
+		// iterate through ears, slicing them one by one
+		while (ear.prev != ear.next) {
+			prev = ear.prev;
+			next = ear.next;
+
+			if (invSize != 0.0 ? isEarHashed(ear, minX, minY, invSize) : isEar(ear)) {
+				// cut off the triangle
+				triangles.add(prev.i);
+				triangles.add(ear.i);
+				triangles.add(next.i);
+				removeNode(ear);
+
+				// skipping the next vertex leads to less sliver triangles
+				ear = next.next;
+				stop = next.next;
+				continue;
+			}
+
+			ear = next;
+
+			// if we looped through the whole remaining polygon and can't find any more ears
+			if (ear == stop) {
+				if (pass == 0) {
+					// try filtering points and slicing again
+					earcutLinked(filterPoints(ear, null), triangles, minX, minY, invSize, 1);
+				}
+				else if (pass == 1) {
+					// if this didn't work, try curing all small self-intersections locally
+					ear = cureLocalIntersections(filterPoints(ear, null), triangles);
+					earcutLinked(ear, triangles, minX, minY, invSize, 2);
+				}
+				else if (pass == 2) {
+					// as a last resort, try splitting the remaining polygon into two
+					splitEarcut(ear, triangles, minX, minY, invSize);
+				}
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Checks whether a polygon node forms a valid ear with adjacent nodes.
+	 */
+	private static boolean isEar(Node ear) {
+		Node a = ear.prev, b = ear, c = ear.next;
+
+		if (area(a, b, c) >= 0) {
+			return false;		// reflex, can't be an ear
+		}
+
+		// now make sure we don't have other points inside the potential ear
+		Node p = ear.next.next;
+		while (p != ear.prev) {
+			if (pointInTriangle(a.x, a.y, b.x, b.y, c.x, c.y, p.x, p.y) &&
+				area(p.prev, p, p.next) >= 0) {
+				return false;
+			}
+			p = p.next;
+		}
+		return true;
+	}
+
+	/**
+	 * Checks whether a polygon node forms a valid ear, examining only the nodes
+	 * whose z-order lies within the bounding box of the ear.
+	 */
+	private static boolean isEarHashed(Node ear, double minX, double minY, double invSize) {
+		Node a = ear.prev, b = ear, c = ear.next;
+
+		if (area(a, b, c) >= 0) {
+			return false;		// reflex, can't be an ear
+		}
+
+		// triangle bbox; min & max are calculated like this for speed
+		double minTX = a.x < b.x ? (a.x < c.x ? a.x : c.x) : (b.x < c.x ? b.x : c.x);
+		double minTY = a.y < b.y ? (a.y < c.y ? a.y : c.y) : (b.y < c.y ? b.y : c.y);
+		double maxTX = a.x > b.x ? (a.x > c.x ? a.x : c.x) : (b.x > c.x ? b.x : c.x);
+		double maxTY = a.y > b.y ? (a.y > c.y ? a.y : c.y) : (b.y > c.y ? b.y : c.y);
+
+		// z-order range for the current triangle bbox;
+		int minZ = zOrder(minTX, minTY, minX, minY, invSize);
+		int maxZ = zOrder(maxTX, maxTY, minX, minY, invSize);
+
+		Node p = ear.prevZ;
+		Node n = ear.nextZ;
+
+		// look for points inside the triangle in both directions
+		while (p != null && p.z >= minZ && n != null && n.z <= maxZ) {
+			if (p != ear.prev && p != ear.next &&
+				pointInTriangle(a.x, a.y, b.x, b.y, c.x, c.y, p.x, p.y) &&
+				area(p.prev, p, p.next) >= 0) {
+				return false;
+			}
+			p = p.prevZ;
+
+			if (n != ear.prev && n != ear.next &&
+				pointInTriangle(a.x, a.y, b.x, b.y, c.x, c.y, n.x, n.y) &&
+				area(n.prev, n, n.next) >= 0) {
+				return false;
+			}
+			n = n.nextZ;
+		}
+
+		// look for remaining points in decreasing z-order
+		while (p != null && p.z >= minZ) {
+			if (p != ear.prev && p != ear.next &&
+				pointInTriangle(a.x, a.y, b.x, b.y, c.x, c.y, p.x, p.y) &&
+				area(p.prev, p, p.next) >= 0) {
+				return false;
+			}
+			p = p.prevZ;
+		}
+
+		// look for remaining points in increasing z-order
+		while (n != null && n.z <= maxZ) {
+			if (n != ear.prev && n != ear.next &&
+				pointInTriangle(a.x, a.y, b.x, b.y, c.x, c.y, n.x, n.y) &&
+				area(n.prev, n, n.next) >= 0) {
+				return false;
+			}
+			n = n.nextZ;
+		}
+		return true;
+	}
+
+	/**
+	 * Goes through all polygon nodes and cures small local self-intersections.
+	 */
+	private static Node cureLocalIntersections(Node start, IntList triangles) {
+		Node p = start;
+		do {
+			Node a = p.prev;
+			Node b = p.next.next;
+
+			if (!equals(a, b) && intersects(a, p, p.next, b) && locallyInside(a, b) && locallyInside(b, a)) {
+				triangles.add(a.i);
+				triangles.add(p.i);
+				triangles.add(b.i);
+
+				// remove two nodes involved
+				removeNode(p);
+				removeNode(p.next);
+
+				p = start = b;
+			}
+			p = p.next;
+		} while (p != start);
+
+		return filterPoints(p, null);
+	}
+
+	/**
+	 * Tries splitting the polygon into two and triangulating them independently.
+	 */
+	private static void splitEarcut(Node start, IntList triangles, double minX, double minY, double invSize) {
+		// look for a valid diagonal that divides the polygon into two
+		Node a = start;
+		do {
+			Node b = a.next.next;
+			while (b != a.prev) {
+				if (a.i != b.i && isValidDiagonal(a, b)) {
+					// split the polygon in two by the diagonal
+					Node c = splitPolygon(a, b);
+
+					// filter colinear points around the cuts
+					a = filterPoints(a, a.next);
+					c = filterPoints(c, c.next);
+
+					// run earcut on each half
+					earcutLinked(a, triangles, minX, minY, invSize, 0);
+					earcutLinked(c, triangles, minX, minY, invSize, 0);
+					return;
+				}
+				b = b.next;
+			}
+			a = a.next;
+		} while (a != start);
+	}
+
+	/**
+	 * Links every hole into the outer loop, producing a single-ring polygon without holes.
+	 */
+	private static Node eliminateHoles(double[] xy, int[] holeIndices, Node outerNode) {
+		Node[] queue = new Node[holeIndices.length];
+		int count = 0;
+		for (int h = 0; h < holeIndices.length; h++) {
+			int start = 2*holeIndices[h];
+			int end = (h < holeIndices.length-1) ? 2*holeIndices[h+1] : xy.length;
+			Node list = linkedList(xy, start, end, false);
+			if (list == null) {
+				continue;
+			}
+			if (list == list.next) {
+				list.steiner = true;
+			}
+			queue[count++] = getLeftmost(list);
+		}
+
+		Arrays.sort(queue, 0, count, new Comparator<Node>() {
+			public int compare(Node a, Node b) {
+				return Double.compare(a.x, b.x);
+			}
+		});
+
+		// process holes from left to right
+		for (int i = 0; i < count; i++) {
+			eliminateHole(queue[i], outerNode);
+			outerNode = filterPoints(outerNode, outerNode.next);
+		}
+		return outerNode;
+	}
+
+	/**
+	 * Finds a bridge between vertices that connects a hole with an outer ring and links it.
+	 */
+	private static void eliminateHole(Node hole, Node outerNode) {
+		outerNode = findHoleBridge(hole, outerNode);
+		if (outerNode != null) {
+			Node b = splitPolygon(outerNode, hole);
+
+			// filter collinear points around the cuts
+			filterPoints(outerNode, outerNode.next);
+			filterPoints(b, b.next);
+		}
+	}
+
+	/**
+	 * David Eberly's algorithm for finding a bridge between a hole and the outer polygon.
+	 */
+	private static Node findHoleBridge(Node hole, Node outerNode) {
+		Node p = outerNode;
+		double hx = hole.x;
+		double hy = hole.y;
+		double qx = Double.NEGATIVE_INFINITY;
+		Node m = null;
+
+		// find a segment intersected by a ray from the hole's leftmost point to the left;
+		// segment's endpoint with lesser x will be potential connection point
+		do {
+			if (hy <= p.y && hy >= p.next.y && p.next.y != p.y) {
+				double x = p.x + (hy - p.y) * (p.next.x - p.x) / (p.next.y - p.y);
+				if (x <= hx && x > qx) {
+					qx = x;
+					if (x == hx) {
+						if (hy == p.y) {
+							return p;
+						}
+						if (hy == p.next.y) {
+							return p.next;
+						}
+					}
+					m = p.x < p.next.x ? p : p.next;
+				}
+			}
+			p = p.next;
+		} while (p != outerNode);
+
+		if (m == null) {
+			return null;
+		}
+
+		if (hx == qx) {
+			return m;		// hole touches outer segment; pick leftmost endpoint
+		}
+
+		// look for points inside the triangle of hole point, segment intersection and endpoint;
+		// if there are no points found, we have a valid connection;
+		// otherwise choose the point of the minimum angle with the ray as connection point
+		Node stop = m;
+		double mx = m.x;
+		double my = m.y;
+		double tanMin = Double.POSITIVE_INFINITY;
+
+		p = m;
+		do {
+			if (hx >= p.x && p.x >= mx && hx != p.x &&
+				pointInTriangle(hy < my ? hx : qx, hy, mx, my, hy < my ? qx : hx, hy, p.x, p.y)) {
+
+				double tan = Math.abs(hy - p.y) / (hx - p.x);		// tangential
+
+				if (locallyInside(p, hole) &&
+					(tan < tanMin || (tan == tanMin && (p.x > m.x || (p.x == m.x && sectorContainsSector(m, p)))))) {
+					m = p;
+					tanMin = tan;
+				}
+			}
+			p = p.next;
+		} while (p != stop);
+
+		return m;
+	}
+
+	/**
+	 * Checks whether sector in vertex m contains sector in vertex p in the same coordinates.
+	 */
+	private static boolean sectorContainsSector(Node m, Node p) {
+		return area(m.prev, m, p.prev) < 0 && area(p.next, m, m.next) < 0;
+	}
+
+	/**
+	 * Interlinks polygon nodes in z-order.
+	 */
+	private static void indexCurve(Node start, double minX, double minY, double invSize) {
+		Node p = start;
+		do {
+			p.z = zOrder(p.x, p.y, minX, minY, invSize);
+			p.prevZ = p.prev;
+			p.nextZ = p.next;
+			p = p.next;
+		} while (p != start);
+
+		p.prevZ.nextZ = null;
+		p.prevZ = null;
+
+		sortLinked(p);
+	}
+
+	/**
+	 * Simon Tatham's linked list merge sort algorithm, O(n log n).
+	 * http://www.chiark.greenend.org.uk/~sgtatham/algorithms/listsort.html
+	 */
+	private static Node sortLinked(Node list) {
+		int inSize = 1;
+		int numMerges;
+		do {
+			Node p = list;
+			Node tail = null;
+			list = null;
+			numMerges = 0;
+
+			while (p != null) {
+				numMerges++;
+				Node q = p;
+				int pSize = 0;
+				for (int i = 0; i < inSize; i++) {
+					pSize++;
+					q = q.nextZ;
+					if (q == null) {
+						break;
+					}
+				}
+				int qSize = inSize;
+
+				while (pSize > 0 || (qSize > 0 && q != null)) {
+					Node e;
+					if (pSize != 0 && (qSize == 0 || q == null || p.z <= q.z)) {
+						e = p;
+						p = p.nextZ;
+						pSize--;
+					}
+					else {
+						e = q;
+						q = q.nextZ;
+						qSize--;
+					}
+
+					if (tail != null) {
+						tail.nextZ = e;
+					}
+					else {
+						list = e;
+					}
+					e.prevZ = tail;
+					tail = e;
+				}
+				p = q;
+			}
+			tail.nextZ = null;
+			inSize *= 2;
+		} while (numMerges > 1);
+
+		return list;
+	}
+
+	/**
+	 * Computes the z-order of a point given the coordinates and inverse size of the bounding box.
+	 */
+	private static int zOrder(double px, double py, double minX, double minY, double invSize) {
+		// coords are transformed into non-negative 15-bit integer range
+		int x = (int) (32767 * (px - minX) * invSize);
+		int y = (int) (32767 * (py - minY) * invSize);
+
+		x = (x | (x << 8)) & 0x00FF00FF;
+		x = (x | (x << 4)) & 0x0F0F0F0F;
+		x = (x | (x << 2)) & 0x33333333;
+		x = (x | (x << 1)) & 0x55555555;
+
+		y = (y | (y << 8)) & 0x00FF00FF;
+		y = (y | (y << 4)) & 0x0F0F0F0F;
+		y = (y | (y << 2)) & 0x33333333;
+		y = (y | (y << 1)) & 0x55555555;
+
+		return x | (y << 1);
+	}
+
+	/**
+	 * Finds the leftmost node of a polygon ring.
+	 */
+	private static Node getLeftmost(Node start) {
+		Node p = start;
+		Node leftmost = start;
+		do {
+			if (p.x < leftmost.x || (p.x == leftmost.x && p.y < leftmost.y)) {
+				leftmost = p;
+			}
+			p = p.next;
+		} while (p != start);
+		return leftmost;
+	}
+
+	/**
+	 * Checks if a point lies within a convex triangle.
+	 */
+	private static boolean pointInTriangle(double ax, double ay, double bx, double by,
+										   double cx, double cy, double px, double py) {
+		return (cx - px) * (ay - py) - (ax - px) * (cy - py) >= 0 &&
+			   (ax - px) * (by - py) - (bx - px) * (ay - py) >= 0 &&
+			   (bx - px) * (cy - py) - (cx - px) * (by - py) >= 0;
+	}
+
+	/**
+	 * Checks if a diagonal between two polygon nodes is valid (lies in polygon interior).
+	 */
+	private static boolean isValidDiagonal(Node a, Node b) {
+		return a.next.i != b.i && a.prev.i != b.i && !intersectsPolygon(a, b) &&		// doesn't intersect other edges
+			   (locallyInside(a, b) && locallyInside(b, a) && middleInside(a, b) &&		// locally visible
+				(area(a.prev, a, b.prev) != 0 || area(a, b.prev, b) != 0) ||			// does not create opposite-facing sectors
+				equals(a, b) && area(a.prev, a, a.next) > 0 && area(b.prev, b, b.next) > 0);	// special zero-length case
+	}
+
+	/**
+	 * Signed area of a triangle.
+	 */
+	private static double area(Node p, Node q, Node r) {
+		return (q.y - p.y) * (r.x - q.x) - (q.x - p.x) * (r.y - q.y);
+	}
+
+	/**
+	 * Checks if two points are equal.
+	 */
+	private static boolean equals(Node p1, Node p2) {
+		return p1.x == p2.x && p1.y == p2.y;
+	}
+
+	/**
+	 * Checks if two segments intersect.
+	 */
+	private static boolean intersects(Node p1, Node q1, Node p2, Node q2) {
+		int o1 = sign(area(p1, q1, p2));
+		int o2 = sign(area(p1, q1, q2));
+		int o3 = sign(area(p2, q2, p1));
+		int o4 = sign(area(p2, q2, q1));
+
+		if (o1 != o2 && o3 != o4) return true;		// general case
+
+		if (o1 == 0 && onSegment(p1, p2, q1)) return true;		// p1, q1 and p2 are collinear and p2 lies on p1q1
+		if (o2 == 0 && onSegment(p1, q2, q1)) return true;		// p1, q1 and q2 are collinear and q2 lies on p1q1
+		if (o3 == 0 && onSegment(p2, p1, q2)) return true;		// p2, q2 and p1 are collinear and p1 lies on p2q2
+		if (o4 == 0 && onSegment(p2, q1, q2)) return true;		// p2, q2 and q1 are collinear and q1 lies on p2q2
+
+		return false;
+	}
+
+	/**
+	 * For collinear points p, q, r, checks if point q lies on segment pr.
+	 */
+	private static boolean onSegment(Node p, Node q, Node r) {
+		return q.x <= Math.max(p.x, r.x) && q.x >= Math.min(p.x, r.x) &&
+			   q.y <= Math.max(p.y, r.y) && q.y >= Math.min(p.y, r.y);
+	}
+
+	private static int sign(double num) {
+		return num > 0 ? 1 : num < 0 ? -1 : 0;
+	}
+
+	/**
+	 * Checks if a polygon diagonal intersects any polygon segments.
+	 */
+	private static boolean intersectsPolygon(Node a, Node b) {
+		Node p = a;
+		do {
+			if (p.i != a.i && p.next.i != a.i && p.i != b.i && p.next.i != b.i &&
+				intersects(p, p.next, a, b)) {
+				return true;
+			}
+			p = p.next;
+		} while (p != a);
+		return false;
+	}
+
+	/**
+	 * Checks if a polygon diagonal is locally inside the polygon.
+	 */
+	private static boolean locallyInside(Node a, Node b) {
+		return area(a.prev, a, a.next) < 0 ?
+			   area(a, b, a.next) >= 0 && area(a, a.prev, b) >= 0 :
+			   area(a, b, a.prev) < 0 || area(a, a.next, b) < 0;
+	}
+
+	/**
+	 * Checks if the middle point of a polygon diagonal is inside the polygon.
+	 */
+	private static boolean middleInside(Node a, Node b) {
+		Node p = a;
+		boolean inside = false;
+		double px = (a.x + b.x) / 2;
+		double py = (a.y + b.y) / 2;
+		do {
+			if (((p.y > py) != (p.next.y > py)) && p.next.y != p.y &&
+				(px < (p.next.x - p.x) * (py - p.y) / (p.next.y - p.y) + p.x)) {
+				inside = !inside;
+			}
+			p = p.next;
+		} while (p != a);
+		return inside;
+	}
+
+	/**
+	 * Links two polygon vertices with a bridge; if the vertices belong to the same ring,
+	 * it splits the polygon into two; if one belongs to the outer ring and another to a hole,
+	 * it merges it into a single ring.
+	 */
+	private static Node splitPolygon(Node a, Node b) {
+		Node a2 = new Node(a.i, a.x, a.y);
+		Node b2 = new Node(b.i, b.x, b.y);
+		Node an = a.next;
+		Node bp = b.prev;
+
+		a.next = b;
+		b.prev = a;
+
+		a2.next = an;
+		an.prev = a2;
+
+		b2.next = a2;
+		a2.prev = b2;
+
+		bp.next = b2;
+		b2.prev = bp;
+
+		return b2;
+	}
+
+	/**
+	 * Creates a node and optionally links it with the previous one (in a circular doubly linked list).
+	 */
+	private static Node insertNode(int i, double x, double y, Node last) {
+		Node p = new Node(i, x, y);
+		if (last == null) {
+			p.prev = p;
+			p.next = p;
+		}
+		else {
+			p.next = last.next;
+			p.prev = last;
+			last.next.prev = p;
+			last.next = p;
+		}
+		return p;
+	}
+
+	private static void removeNode(Node p) {
+		p.next.prev = p.prev;
+		p.prev.next = p.next;
+
+		if (p.prevZ != null) {
+			p.prevZ.nextZ = p.nextZ;
+		}
+		if (p.nextZ != null) {
+			p.nextZ.prevZ = p.prevZ;
+		}
+	}
+
+	/**
+	 * Signed area of the ring between start and end (packed x, y offsets);
+	 * positive for counterclockwise order.
+	 */
+	private static double signedArea(double[] xy, int start, int end) {
+		double sum = 0.0;
+		for (int i = start, j = end - 2; i < end; i += 2) {
+			sum += (xy[j] - xy[i]) * (xy[i+1] + xy[j+1]);
+			j = i;
+		}
+		return sum;
+	}
+
+	/**
+	 * Vertex node of the circular polygon ring.
+	 */
+	private static final class Node {
+		final int i;			// vertex index
+		final double x;
+		final double y;
+		Node prev;				// previous and next vertex nodes in the polygon ring
+		Node next;
+		int z;					// z-order curve value
+		Node prevZ;				// previous and next nodes in z-order
+		Node nextZ;
+		boolean steiner;		// indicates whether this is a steiner point
+
+		Node(int i, double x, double y) {
+			this.i = i;
+			this.x = x;
+			this.y = y;
+		}
+	}
+
+	/**
+	 * Growable int array for the triangle indices.
+	 */
+	private static final class IntList {
+		int[] a;
+		int size;
+
+		IntList(int capacity) {
+			a = new int[Math.max(capacity, 3)];
+		}
+
+		void add(int v) {
+			if (size == a.length) {
+				a = Arrays.copyOf(a, 2*a.length);
+			}
+			a[size++] = v;
+		}
+
+		int[] toArray() {
+			return Arrays.copyOf(a, size);
+		}
+	}
+}
@@ -240,28 +240,25 @@ public class Vector3D implements Draw3DDefaults {
      * @return	Vector3D transformed vector
      */
     public Vector3D transform(double[][] tmatrix) {
-    	double[] v1 = new double[3];
-    	v1[0] = p.getX();
-    	v1[1] = p.getY();
-    	v1[2] = p.getZ();
-    	double[] v2 = matrixMultiply(v1, tmatrix);
-    	return new Vector3D(v2[0], v2[1], v2[2], this.m);
+    	double x = p.getX();
+    	double y = p.getY();
+    	double z = p.getZ();
+    	return new Vector3D(x*tmatrix[0][0] + y*tmatrix[1][0] + z*tmatrix[2][0],
+    						x*tmatrix[0][1] + y*tmatrix[1][1] + z*tmatrix[2][1],
+    						x*tmatrix[0][2] + y*tmatrix[1][2] + z*tmatrix[2][2],
+    						this.m);
     }
     
     /**
-     * Performs matrix multiplication to compute vector transformation
+     * Applies the supplied transform matrix, in place, to each vector of a packed
+     * x, y, z array. See MatrixMath for the matrix convention; large arrays are
+     * transformed in parallel.
      *
-     * @param	v	double[] 	defining input vector
-     * @param	m	double[][]	matrix defining vector transformation
-     * 				m must be of size v.length x v.length
-     * @return	t	double[]	transformed vector
+     * @param	tmatrix	Double[][] 3x3 transform matrix
+     * @param	v		double[] packed x, y, z array of vectors
      */
-    private double[] matrixMultiply(double[] v, double[][] m) {
-    	double[] t = new double[3];
-    	t[0] = v[0]*m[0][0] + v[1]*m[1][0] + v[2]*m[2][0];
-    	t[1] = v[0]*m[0][1] + v[1]*m[1][1] + v[2]*m[2][1];
-    	t[2] = v[0]*m[0][2] + v[1]*m[1][2] + v[2]*m[2][2];
-    	return t;
+    static public void transform(double[][] tmatrix, double[] v) {
+    	MatrixMath.transformVectors(tmatrix, v, v.length/3);
     }
     
     /**
@@ -0,0 +1,317 @@
+package org.edisonwj.draw3d;
+
+import javafx.geometry.Point3D;
+/**
+* VectorMath class provides static, allocation free vector operations on double
+* scalar values and on packed double arrays, for use in geometric loops where
+* creating Vector3D or Point3D objects for intermediate results is too costly.
+*
+* Two array layouts are supported:
+* - packed: x, y, z of point i stored at p[3*i], p[3*i+1], p[3*i+2]
+* - struct of arrays: x, y, z of point i stored at x[i], y[i], z[i]
+*
+* Methods taking an array and an index address point i of a packed array.
+* Results are written to caller supplied arrays, which may be the same as the inputs.
+*
+* Note that crossProduct(u, v) computes the standard u x v, whereas
+* Vector3D.crossProduct(v1, v2) computes v2 x v1.
+*
+* The class implements defaults specified in Draw3DDefaults.
+*
+* @author William Edison
+* @version 1.02
+*
+*/
+public final class VectorMath implements Draw3DDefaults {
+
+	private VectorMath() {
+	}
+
+    /**
+     * Returns the dot product of vectors u and v
+     *
+     * @return	double	u . v
+     */
+	public static double dotProduct(double ux, double uy, double uz,
+									double vx, double vy, double vz) {
+		return ux*vx + uy*vy + uz*vz;
+	}
+
+    /**
+     * Returns the length of vector v
+     *
+     * @return	double	|v|
+     */
+	public static double length(double vx, double vy, double vz) {
+		return Math.sqrt(vx*vx + vy*vy + vz*vz);
+	}
+
+    /**
+     * Returns the distance between points p and q
+     *
+     * @return	double	|p - q|
+     */
+	public static double distance(double px, double py, double pz,
+								  double qx, double qy, double qz) {
+		double dx = px - qx;
+		double dy = py - qy;
+		double dz = pz - qz;
+		return Math.sqrt(dx*dx + dy*dy + dz*dz);
+	}
+
+    /**
+     * Returns the scalar triple product u . (v x w), i.e. six times the signed volume
+     * of the tetrahedron u, v, w, origin.
+     *
+     * @return	double	u . (v x w)
+     */
+	public static double tripleProduct(double ux, double uy, double uz,
+									   double vx, double vy, double vz,
+									   double wx, double wy, double wz) {
+		return ux*(vy*wz - vz*wy) + uy*(vz*wx - vx*wz) + uz*(vx*wy - vy*wx);
+	}
+
+    /**
+     * Computes the cross product u x v into point i of packed array out
+     *
+     * @param	out	double[] packed result array
+     * @param	i	int index of the result point
+     */
+	public static void crossProduct(double ux, double uy, double uz,
+									double vx, double vy, double vz,
+									double[] out, int i) {
+		int k = 3*i;
+		out[k]   = uy*vz - uz*vy;
+		out[k+1] = uz*vx - ux*vz;
+		out[k+2] = ux*vy - uy*vx;
+	}
+
+    /**
+     * Computes the normal (b - a) x (c - a) of triangle a, b, c into point i of packed array out
+     *
+     * @param	out	double[] packed result array
+     * @param	i	int index of the result point
+     */
+	public static void triangleNormal(double ax, double ay, double az,
+									  double bx, double by, double bz,
+									  double cx, double cy, double cz,
+									  double[] out, int i) {
+		crossProduct(bx-ax, by-ay, bz-az, cx-ax, cy-ay, cz-az, out, i);
+	}
+
+    /**
+     * Sets point i of packed array p
+     *
+     * @param	p	double[] packed array
+     * @param	i	int index of the point
+     */
+	public static void set(double[] p, int i, double x, double y, double z) {
+		int k = 3*i;
+		p[k]   = x;
+		p[k+1] = y;
+		p[k+2] = z;
+	}
+
+    /**
+     * Computes p[i] + q[j] into out[k]
+     */
+	public static void add(double[] p, int i, double[] q, int j, double[] out, int k) {
+		i *= 3; j *= 3; k *= 3;
+		out[k]   = p[i]   + q[j];
+		out[k+1] = p[i+1] + q[j+1];
+		out[k+2] = p[i+2] + q[j+2];
+	}
+
+    /**
+     * Computes p[i] - q[j] into out[k]
+     */
+	public static void subtract(double[] p, int i, double[] q, int j, double[] out, int k) {
+		i *= 3; j *= 3; k *= 3;
+		out[k]   = p[i]   - q[j];
+		out[k+1] = p[i+1] - q[j+1];
+		out[k+2] = p[i+2] - q[j+2];
+	}
+
+    /**
+     * Computes t * p[i] into out[k]
+     */
+	public static void multiply(double t, double[] p, int i, double[] out, int k) {
+		i *= 3; k *= 3;
+		out[k]   = t*p[i];
+		out[k+1] = t*p[i+1];
+		out[k+2] = t*p[i+2];
+	}
+
+    /**
+     * Computes p[i] + t * q[j] into out[k]
+     */
+	public static void addScaled(double[] p, int i, double t, double[] q, int j, double[] out, int k) {
+		i *= 3; j *= 3; k *= 3;
+		out[k]   = p[i]   + t*q[j];
+		out[k+1] = p[i+1] + t*q[j+1];
+		out[k+2] = p[i+2] + t*q[j+2];
+	}
+
+    /**
+     * Computes the linear interpolation p[i] + t * (q[j] - p[i]) into out[k]
+     */
+	public static void interpolate(double[] p, int i, double[] q, int j, double t, double[] out, int k) {
+		i *= 3; j *= 3; k *= 3;
+		out[k]   = p[i]   + t*(q[j]   - p[i]);
+		out[k+1] = p[i+1] + t*(q[j+1] - p[i+1]);
+		out[k+2] = p[i+2] + t*(q[j+2] - p[i+2]);
+	}
+
+    /**
+     * Returns the dot product p[i] . q[j]
+     */
+	public static double dotProduct(double[] p, int i, double[] q, int j) {
+		i *= 3; j *= 3;
+		return p[i]*q[j] + p[i+1]*q[j+1] + p[i+2]*q[j+2];
+	}
+
+    /**
+     * Computes the cross product p[i] x q[j] into out[k]
+     */
+	public static void crossProduct(double[] p, int i, double[] q, int j, double[] out, int k) {
+		i *= 3; j *= 3;
+		crossProduct(p[i], p[i+1], p[i+2], q[j], q[j+1], q[j+2], out, k);
+	}
+
+    /**
+     * Returns the length of p[i]
+     */
+	public static double length(double[] p, int i) {
+		i *= 3;
+		return Math.sqrt(p[i]*p[i] + p[i+1]*p[i+1] + p[i+2]*p[i+2]);
+	}
+
+    /**
+     * Returns the distance between p[i] and q[j]
+     */
+	public static double distance(double[] p, int i, double[] q, int j) {
+		i *= 3; j *= 3;
+		return distance(p[i], p[i+1], p[i+2], q[j], q[j+1], q[j+2]);
+	}
+
+    /**
+     * Normalizes p[i] into out[k]. A zero length vector is left unchanged.
+     *
+     * @return	double	length of p[i] before normalization
+     */
+	public static double normalize(double[] p, int i, double[] out, int k) {
+		double len = length(p, i);
+		if (len > EPSILON) {
+			multiply(1.0/len, p, i, out, k);
+		}
+		else if (p != out || i != k) {
+			i *= 3; k *= 3;
+			out[k]   = p[i];
+			out[k+1] = p[i+1];
+			out[k+2] = p[i+2];
+		}
+		return len;
+	}
+
+    /**
+     * Computes the signed values a*x + b*y + c*z - d for the first n points of packed array p.
+     * For a unit normal (a, b, c) these are the signed distances of the points to the plane
+     * ax + by + cz = d.
+     *
+     * @param	p	double[] packed array of points
+     * @param	n	int number of points
+     * @param	out	double[n] result array
+     */
+	public static void planeDistances(double[] p, int n, double a, double b, double c, double d, double[] out) {
+		for (int i = 0, k = 0; i < n; i++, k += 3) {
+			out[i] = a*p[k] + b*p[k+1] + c*p[k+2] - d;
+		}
+	}
+
+    /**
+     * Computes the signed values a*x + b*y + c*z - d for the first n points
+     * of struct of arrays x, y, z.
+     *
+     * @param	n	int number of points
+     * @param	out	double[n] result array
+     */
+	public static void planeDistances(double[] x, double[] y, double[] z, int n,
+									  double a, double b, double c, double d, double[] out) {
+		for (int i = 0; i < n; i++) {
+			out[i] = a*x[i] + b*y[i] + c*z[i] - d;
+		}
+	}
+
+    /**
+     * Adds the translation (tx, ty, tz) to the first n points of packed array p
+     */
+	public static void translate(double[] p, int n, double tx, double ty, double tz) {
+		for (int k = 0; k < 3*n; k += 3) {
+			p[k]   += tx;
+			p[k+1] += ty;
+			p[k+2] += tz;
+		}
+	}
+
+    /**
+     * Multiplies the first n points of packed array p by the scalar t
+     */
+	public static void scale(double[] p, int n, double t) {
+		for (int k = 0; k < 3*n; k++) {
+			p[k] *= t;
+		}
+	}
+
+    /**
+     * Computes the minimum and maximum coordinates of the first n points of packed array p.
+     *
+     * @param	out	double[6] result array {minX, maxX, minY, maxY, minZ, maxZ}
+     */
+	public static void bounds(double[] p, int n, double[] out) {
+		out[0] = out[2] = out[4] = Double.POSITIVE_INFINITY;
+		out[1] = out[3] = out[5] = Double.NEGATIVE_INFINITY;
+		for (int k = 0; k < 3*n; k += 3) {
+			if (p[k]   < out[0]) out[0] = p[k];
+			if (p[k]   > out[1]) out[1] = p[k];
+			if (p[k+1] < out[2]) out[2] = p[k+1];
+			if (p[k+1] > out[3]) out[3] = p[k+1];
+			if (p[k+2] < out[4]) out[4] = p[k+2];
+			if (p[k+2] > out[5]) out[5] = p[k+2];
+		}
+	}
+
+    /**
+     * Copies an array of Point3D into a new packed array
+     *
+     * @param	v	Point3D array
+     * @return	double[3*v.length] packed array
+     */
+	public static double[] toPacked(Point3D[] v) {
+		double[] p = new double[3*v.length];
+		for (int i = 0, k = 0; i < v.length; i++, k += 3) {
+			p[k]   = v[i].getX();
+			p[k+1] = v[i].getY();
+			p[k+2] = v[i].getZ();
+		}
+		return p;
+	}
+
+    /**
+     * Returns point i of packed array p as a Point3D
+     */
+	public static Point3D toPoint3D(double[] p, int i) {
+		i *= 3;
+		return new Point3D(p[i], p[i+1], p[i+2]);
+	}
+
+    /**
+     * Copies the first n points of packed array p into a new Point3D array
+     */
+	public static Point3D[] toPoint3DArray(double[] p, int n) {
+		Point3D[] v = new Point3D[n];
+		for (int i = 0; i < n; i++) {
+			v[i] = toPoint3D(p, i);
+		}
+		return v;
+	}
+}
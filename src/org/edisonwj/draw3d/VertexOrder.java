@@ -0,0 +1,272 @@
+package org.edisonwj.draw3d;
+
+import java.util.Arrays;
+
+import javafx.geometry.Point3D;
+/**
+* VertexOrder class orders the vertices of a planar point set by angle about their centroid,
+* as required to form a convex or star shaped polygon from an unordered set of vertices.
+* The vertices are projected once onto the "main plane", which is orthogonal to the longest
+* component of the normal vector, i.e.
+* if nx = max then use the yz plane
+* if ny = max then use the xz plane
+* if nz = max then use the xy plane
+*
+* The sort key of each vertex is a pseudo-angle, a value monotone in the angle that needs
+* no trigonometric function, and the vertices are sorted in O(n log n) time. Vertices at the
+* same angle are ordered by distance from the centroid, so that duplicate vertices are adjacent.
+*
+* After ordering, duplicate vertices (within EPSILON of the preceding vertex) and collinear
+* vertices (lying on the line through their neighbours) are identified.
+*
+* The resulting order matches that of sorting by Math.atan2 as in:
+* Gernot Hoffman, Cube Plane Intersection, http://docs-hoffmann.de/cubeplane12112006.pdf
+*
+* The class implements defaults specified in Draw3DDefaults.
+*
+* @author William Edison
+* @version 1.02
+*
+*/
+public final class VertexOrder implements Draw3DDefaults {
+	private int[] order;			// Indices of the vertices in angular order
+	private int[] duplicates;		// Positions in order of vertices duplicating their predecessor
+	private int[] collinear;		// Positions in order of vertices collinear with their neighbours
+
+	/**
+	 * Constructs a VertexOrder object for the Point3D array of vertices, using the main plane
+	 * of the normal computed from the first three vertices.
+	 *
+	 * @param	v	Point3D array of unordered planar vertices
+	 */
+	public VertexOrder(Point3D[] v) {
+		this(v, mainPlane(v));
+	}
+
+	/**
+	 * Constructs a VertexOrder object for the Point3D array of vertices in the specified main plane.
+	 *
+	 * @param	v		Point3D array of unordered planar vertices
+	 * @param	axis	int longest component of the normal vector: 1 = x, 2 = y, 3 = z,
+	 * 					as returned by findLongestComponent()
+	 */
+	public VertexOrder(Point3D[] v, int axis) {
+		int n = v.length;
+
+		// Project onto the main plane; s and t are the atan2(t, s) arguments
+		double[] s = new double[n];
+		double[] t = new double[n];
+		double ms = 0.0;
+		double mt = 0.0;
+		for (int i = 0; i < n; i++) {
+			if (axis == 1) {
+				s[i] = v[i].getZ();
+				t[i] = v[i].getY();
+			}
+			else if (axis == 2) {
+				s[i] = v[i].getX();
+				t[i] = v[i].getZ();
+			}
+			else {
+				s[i] = v[i].getX();
+				t[i] = v[i].getY();
+			}
+			ms += s[i];
+			mt += t[i];
+		}
+		if (n > 0) {
+			ms /= n;
+			mt /= n;
+		}
+
+		// Sort keys: pseudo-angle and distance about the centroid
+		double[] key = new double[n];
+		double[] radius = new double[n];
+		for (int i = 0; i < n; i++) {
+			s[i] -= ms;
+			t[i] -= mt;
+			key[i] = pseudoAngle(s[i], t[i]);
+			radius[i] = Math.abs(s[i]) + Math.abs(t[i]);
+		}
+
+		order = new int[n];
+		for (int i = 0; i < n; i++) {
+			order[i] = i;
+		}
+		sort(order, new int[n], 0, n, key, radius);
+
+		// Identify duplicate and collinear vertices around the ordered ring
+		int[] dup = new int[n];
+		int[] col = new int[n];
+		int nd = 0;
+		int nc = 0;
+		for (int k = 0; k < n && n > 1; k++) {
+			int a = order[(k+n-1)%n];
+			int b = order[k];
+			int c = order[(k+1)%n];
+			double abs = s[b] - s[a];
+			double abt = t[b] - t[a];
+			double bcs = s[c] - s[b];
+			double bct = t[c] - t[b];
+			if (VectorMath.distance(v[a].getX(), v[a].getY(), v[a].getZ(),
+									v[b].getX(), v[b].getY(), v[b].getZ()) <= EPSILON) {
+				dup[nd++] = k;
+			}
+			else if (n > 2 && Math.abs(bcs) + Math.abs(bct) > 0.0 && Math.abs(abs*bct - abt*bcs) <=
+					 EPSILON * (Math.abs(abs) + Math.abs(abt)) * (Math.abs(bcs) + Math.abs(bct))) {
+				col[nc++] = k;
+			}
+		}
+		duplicates = Arrays.copyOf(dup, nd);
+		collinear = Arrays.copyOf(col, nc);
+	}
+
+	/**
+	 * Gets the vertex indices in angular order
+	 *
+	 * @return	order	int array of indices into the vertex array
+	 */
+	public int[] getOrder() {
+		return order;
+	}
+
+	/**
+	 * Gets the positions in getOrder() of vertices that duplicate the preceding vertex
+	 *
+	 * @return	duplicates	int array of positions, empty if there are no duplicates
+	 */
+	public int[] getDuplicates() {
+		return duplicates;
+	}
+
+	/**
+	 * Gets the positions in getOrder() of vertices that are collinear with the preceding
+	 * and following vertices
+	 *
+	 * @return	collinear	int array of positions, empty if there are no collinear vertices
+	 */
+	public int[] getCollinear() {
+		return collinear;
+	}
+
+	/**
+	 * Indicates whether duplicate vertices were found
+	 *
+	 * @return	boolean true	if there are duplicate vertices
+	 */
+	public boolean hasDuplicates() {
+		return duplicates.length > 0;
+	}
+
+	/**
+	 * Indicates whether collinear vertices were found
+	 *
+	 * @return	boolean true	if there are collinear vertices
+	 */
+	public boolean hasCollinear() {
+		return collinear.length > 0;
+	}
+
+	/**
+	 * Reorders the vertex array in place into angular order
+	 *
+	 * @param	v	Point3D array from which this VertexOrder was constructed
+	 */
+	public void apply(Point3D[] v) {
+		Point3D[] w = v.clone();
+		for (int k = 0; k < order.length; k++) {
+			v[k] = w[order[k]];
+		}
+	}
+
+	/**
+	 * Returns a new array of the vertices in angular order with duplicate vertices removed
+	 *
+	 * @param	v	Point3D array from which this VertexOrder was constructed
+	 * @return	Point3D array of distinct vertices in angular order
+	 */
+	public Point3D[] getDistinct(Point3D[] v) {
+		Point3D[] w = new Point3D[order.length - duplicates.length];
+		for (int k = 0, j = 0, m = 0; k < order.length; k++) {
+			if (j < duplicates.length && duplicates[j] == k) {
+				j++;
+			}
+			else {
+				w[m++] = v[order[k]];
+			}
+		}
+		return w;
+	}
+
+	/**
+	 * Finds the main plane from the normal (v0 - v1) x (v0 - v2) of the first three vertices
+	 *
+	 * @return	axis	int longest component of the normal: 1 = x, 2 = y, 3 = z
+	 */
+	private static int mainPlane(Point3D[] v) {
+		if (v.length < 3) {
+			return 3;
+		}
+		double[] normal = new double[3];
+		VectorMath.crossProduct(v[0].getX()-v[1].getX(), v[0].getY()-v[1].getY(), v[0].getZ()-v[1].getZ(),
+								v[0].getX()-v[2].getX(), v[0].getY()-v[2].getY(), v[0].getZ()-v[2].getZ(),
+								normal, 0);
+		double nx = Math.abs(normal[0]);
+		double ny = Math.abs(normal[1]);
+		double nz = Math.abs(normal[2]);
+		if (nx >= ny && nx >= nz) {
+			return 1;
+		}
+		else if (ny >= nx && ny >= nz) {
+			return 2;
+		}
+		return 3;
+	}
+
+	/**
+	 * Returns a pseudo-angle in (-2, 2] that increases monotonically with Math.atan2(t, s)
+	 * in (-pi, pi]. The point (0, 0) has pseudo-angle 0, as atan2(0, 0) = 0.
+	 */
+	private static double pseudoAngle(double s, double t) {
+		double d = Math.abs(s) + Math.abs(t);
+		if (d == 0.0) {
+			return 0.0;
+		}
+		double r = t / d;					// in [-1, 1]
+		if (s >= 0.0) {
+			return r;						// -pi/2 .. pi/2
+		}
+		else if (t >= 0.0) {
+			return 2.0 - r;					// pi/2 .. pi
+		}
+		return -2.0 - r;					// -pi .. -pi/2
+	}
+
+	/**
+	 * Merge sorts idx[lo..hi) by key, then by radius, using tmp as work space
+	 */
+	private static void sort(int[] idx, int[] tmp, int lo, int hi, double[] key, double[] radius) {
+		if (hi - lo < 2) {
+			return;
+		}
+		int mid = (lo + hi) >>> 1;
+		sort(idx, tmp, lo, mid, key, radius);
+		sort(idx, tmp, mid, hi, key, radius);
+		if (!less(idx[mid], idx[mid-1], key, radius)) {
+			return;							// already in order
+		}
+		System.arraycopy(idx, lo, tmp, lo, hi - lo);
+		for (int k = lo, i = lo, j = mid; k < hi; k++) {
+			if (j >= hi || (i < mid && !less(tmp[j], tmp[i], key, radius))) {
+				idx[k] = tmp[i++];
+			}
+			else {
+				idx[k] = tmp[j++];
+			}
+		}
+	}
+
+	private static boolean less(int a, int b, double[] key, double[] radius) {
+		return key[a] < key[b] || (key[a] == key[b] && radius[a] < radius[b]);
+	}
+}
@@ -2,7 +2,7 @@ package org.edisonwj.draw3dtest;
 
 import org.edisonwj.draw3d.Draw3D;
 import org.edisonwj.draw3d.Line3D;
-import org.edisonwj.draw3d.Rand;
+import org.edisonwj.draw3d.Sampler3D;
 import org.edisonwj.draw3d.Sphere3D;
 
 import javafx.application.Application;
@@ -26,7 +26,8 @@ import javafx.stage.Stage;
 */
 public class TestLineEquation extends Application {
 	private Draw3D dt = new Draw3D();
-	private Rand mr = new Rand();
+	private Sampler3D sampler = new Sampler3D();
+	private double[] ends = new double[6];
 	
 	private double minmax = 10.0;
 	
@@ -627,24 +628,19 @@ public class TestLineEquation extends Application {
 	}
 	
 	private void setLine() {
-		a1 = mr.uniform(0.0, minmax);
-		if (mr.uniform() < .5) a1 = -a1;
-		a2 = mr.uniform(0.0, minmax);
-		if (mr.uniform() < .5) a2 = -a2;
-		a3 = mr.uniform(0.0, minmax);
-		if (mr.uniform() < .5) a3 = -a3;
-		b1 = mr.uniform(0.0, minmax);
-		if (mr.uniform() < .5) b1 = -b1;
-		b2 = mr.uniform(0.0, minmax);
-		if (mr.uniform() < .5) b2 = -b2;
-		b3 = mr.uniform(0.0, minmax);
-		if (mr.uniform() < .5) b3 = -b3;
+		sampler.inBox(ends, new double[] {-minmax, minmax, -minmax, minmax, -minmax, minmax});
+		a1 = ends[0];
+		a2 = ends[1];
+		a3 = ends[2];
+		b1 = ends[3];
+		b2 = ends[4];
+		b3 = ends[5];
 	}
 	
 	private void setColor() {
-		int rRGB = mr.uniform(0,  255);
-		int gRGB = mr.uniform(0,  255);
-		int bRGB = mr.uniform(0,  255);
+		int rRGB = sampler.getRand().uniform(0,  255);
+		int gRGB = sampler.getRand().uniform(0,  255);
+		int bRGB = sampler.getRand().uniform(0,  255);
 		dt.setDrawColor(Color.rgb(rRGB, gRGB, bRGB));
 	}
 	
@@ -3,7 +3,7 @@ package org.edisonwj.draw3dtest;
 import org.edisonwj.draw3d.Arrow3D;
 import org.edisonwj.draw3d.Draw3D;
 import org.edisonwj.draw3d.Plane3D;
-import org.edisonwj.draw3d.Rand;
+import org.edisonwj.draw3d.Sampler3D;
 import org.edisonwj.draw3d.Text3D;
 import org.edisonwj.draw3d.Vector3D;
 
@@ -22,7 +22,9 @@ import javafx.stage.Stage;
 */
 public class TestPlanesRandom extends Application {
 	private Draw3D dt;
-	private Rand mr;
+	private Sampler3D sampler;
+	private double[] abc = new double[3];
+	private double[] box = {-10.0, 10.0, -10.0, 10.0, -10.0, 10.0};
 	private int iterations = 100;
 	private double a = 2;
 	private double b = 3;
@@ -31,7 +33,7 @@ public class TestPlanesRandom extends Application {
 	
 	@Override
 	public void start(Stage primaryStage) {
-		mr = new Rand();
+		sampler = new Sampler3D();
 		dt = new Draw3D();
 		Scene scene = dt.buildScene();
 		buildData();
@@ -75,14 +77,11 @@ public class TestPlanesRandom extends Application {
 	}
 	
 	private void setPlane() {
-		a = mr.uniform(0.0, 10.0);
-		if (mr.uniform() < .5) a = -a;
-		b = mr.uniform(0.0, 10.0);
-		if (mr.uniform() < .5) b = -b;
-		c = mr.uniform(0.0, 10.0);
-		if (mr.uniform() < .5) c = -c;
-		d = mr.uniform(0.0, 10.0);
-		if (mr.uniform() < .5) d = -d;
+		sampler.inBox(abc, box);
+		a = abc[0];
+		b = abc[1];
+		c = abc[2];
+		d = sampler.getRand().uniform(-10.0, 10.0);
 		System.out.println("Plane: a= " + a + ", b= " + b + ", c= " + c + ", d= " + d);
 	}
 	
@@ -0,0 +1,234 @@
+package org.edisonwj.draw3d;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+import javafx.geometry.Point3D;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+/**
+* DataReaderTest class tests DataReader: numbers read by nextDouble() have the bits of
+* Double.valueOf(), and lines ended by LF, CR or CRLF are numbered and returned alike,
+* however the data is split into reads. Data files, plain and compressed, are read as
+* by the Load Data File Task: the settings and objects of each view are found in order,
+* a malformed line fails alone, and the position used for the progress ends at the
+* length of the file.
+*
+* @author William Edison
+* @version 1.02
+*
+*/
+public class DataReaderTest {
+	private static final String[] NUMBERS = {
+		"0", "-0", "0.0", "-0.0", "1", "-1", "+1", "1.", ".5", "-.5", "0.1", "0.2", "0.3",
+		"1.5e3", "1.5E-3", "1e22", "1e23", "1e-22", "1e-23", "123456789012345678",
+		"1234567890123456789", "9007199254740991", "9007199254740993", "4.35",
+		"0.000000000000000000001", "1.7976931348623157E308", "4.9E-324", "2.2250738585072014E-308",
+		"3.141592653589793", "2.718281828459045", "0.1e1", "100e-2", "007", "1e+2",
+		"NaN", "Infinity", "-Infinity", "1234.5678e-10"
+	};
+	private static final String[] FILE_LINES = {
+		"// two views",
+		"DataGroup: 0",
+		"View: true, true, false, false, true, true, false",
+		"Camera: 10.0, -20.0, -1200.0",
+		"Origin: 0, 0, 0",
+		"Range: 10.0, 10.0, 10.0",
+		"Color: red",
+		"Sphere: 1.0, 2.0, 3.0, 0.5, 64, 0.0, 0.0, 0.0, , null, null, null",
+		"Sphere: 1.0, 2.0",
+		"Point: 1, 2, 3",
+		"DataGroup: 1",
+		"Line: 0.0, 0.0, 0.0, 1.0, 1.0, 1.0, 0.5, null",
+		"Formula: m*x*y; 0.1; null; null",
+		"Point: 4, 5, 6"
+	};
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void numbers() throws IOException {
+		ArrayList<String> numbers = new ArrayList<String>();
+		for (String s : NUMBERS) {
+			numbers.add(s);
+		}
+		Random random = new Random(20151);
+		for (int i = 0; i < 20000; i++) {
+			double d = Double.longBitsToDouble(random.nextLong());
+			if (Double.isNaN(d) || Double.isInfinite(d)) {
+				continue;
+			}
+			numbers.add(Double.toString(d));
+			double u = (random.nextDouble() - 0.5) * Math.pow(10.0, random.nextInt(40) - 20);
+			numbers.add(Double.toString(u));
+			numbers.add(String.format("%." + random.nextInt(18) + "f", u));
+			numbers.add(String.format("%." + random.nextInt(18) + "e", u));
+			numbers.add(Long.toString(random.nextLong() >> random.nextInt(64)));
+		}
+
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < numbers.size(); i += 3) {
+			sb.append("Point:");
+			for (int j = i; j < i + 3 && j < numbers.size(); j++) {
+				sb.append(j == i ? " " : ", ").append(numbers.get(j));
+			}
+			sb.append("\n");
+		}
+		DataReader dr = new DataReader(stream(sb.toString(), 8192));
+		int k = 0;
+		while (dr.nextLine()) {
+			while (dr.hasMoreFields()) {
+				String s = numbers.get(k++);
+				double expected = Double.valueOf(s);
+				double value = dr.nextDouble();
+				assertEquals("nextDouble(\"" + s + "\") = " + value + ", expected " + expected,
+							 Double.doubleToRawLongBits(expected), Double.doubleToRawLongBits(value));
+			}
+		}
+		assertEquals("numbers read", numbers.size(), k);
+	}
+
+	@Test
+	public void lines() throws IOException {
+		String[] lines = {"Sphere: 1.0, 2.0, 3.0, 0.5", "", "# comment", "Color: red",
+						  "Point: 1, 2, 3", "", "", "Text: 0, 0, 0; a, b c", "Point: 4, 5, 6"};
+		String[] ends = {"\n", "\r", "\r\n"};
+		Random random = new Random(7);
+		for (int pass = 0; pass < 200; pass++) {
+			StringBuilder sb = new StringBuilder();
+			String end = "";
+			for (String line : lines) {
+				String previous = end;
+				do {	// CR, then an empty line ended by LF, is one CRLF
+					end = ends[pass < ends.length ? pass : random.nextInt(ends.length)];
+				} while (previous.equals("\r") && line.isEmpty() && end.equals("\n"));
+				sb.append(line).append(end);
+			}
+			for (int chunk : new int[] {1, 2, 3, 5, 1000}) {
+				String s = "pass " + pass + ", chunk " + chunk;
+				DataReader dr = new DataReader(stream(sb.toString(), chunk));
+				for (int i = 0; i < lines.length; i++) {
+					if (lines[i].isEmpty()) {
+						continue;
+					}
+					assertTrue(s + ": line " + (i+1) + " missing", dr.nextLine());
+					assertEquals(s + ": line number", i + 1, dr.getLineNumber());
+					assertEquals(s + ": line", lines[i], dr.getLine());
+				}
+				assertFalse(s + ": line after the last", dr.nextLine());
+				assertEquals(s + ": position", sb.length(), dr.getPosition());
+			}
+		}
+	}
+
+	@Test
+	public void file() throws IOException {
+		File file = folder.newFile("views.txt");
+		OutputStream out = new FileOutputStream(file);
+		try {
+			out.write(fileText().getBytes(StandardCharsets.UTF_8));
+		}
+		finally {
+			out.close();
+		}
+		DataReader in = new DataReader(file);
+		try {
+			checkFile(in);
+			assertEquals("position at the end", file.length(), in.getPosition());
+		}
+		finally {
+			in.close();
+		}
+	}
+
+	@Test
+	public void compressedFile() throws IOException {
+		File file = new File(folder.getRoot(), "views.txt" + DataReader.COMPRESSED_EXTENSION);
+		OutputStream out = new GZIPOutputStream(new FileOutputStream(file));
+		try {
+			out.write(fileText().getBytes(StandardCharsets.UTF_8));
+		}
+		finally {
+			out.close();
+		}
+		DataReader in = new DataReader(file);
+		try {
+			checkFile(in);
+			assertEquals("lines read", FILE_LINES.length, in.getLineNumber());
+		}
+		finally {
+			in.close();
+		}
+	}
+
+	private static String fileText() {
+		StringBuilder sb = new StringBuilder();
+		for (String line : FILE_LINES) {
+			sb.append(line).append(System.lineSeparator());
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Reads the lines of FILE_LINES as the Load Data File Task does, checking the type of
+	 * each line and the objects read.
+	 */
+	private static void checkFile(DataReader in) throws IOException {
+		int[] types = {DataReader.COMMENT, DataReader.DATA_GROUP, DataReader.VIEW, DataReader.CAMERA,
+					   DataReader.ORIGIN, DataReader.RANGE, DataReader.COLOR, DataReader.SPHERE,
+					   DataReader.SPHERE, DataReader.POINT, DataReader.DATA_GROUP, DataReader.LINE,
+					   DataReader.FORMULA, DataReader.POINT};
+		ArrayList<Object> objects = new ArrayList<>();
+		int errors = 0;
+		for (int i = 0; i < FILE_LINES.length; i++) {
+			assertTrue("line " + (i+1) + " missing", in.nextLine());
+			assertEquals("type of line " + (i+1), types[i], in.getType());
+			if (in.getType() >= DataReader.ARROW) {
+				try {
+					objects.add(in.readObject());
+				}
+				catch (IllegalArgumentException | NoSuchElementException e) {
+					errors++;
+				}
+			}
+		}
+		assertFalse("line after the last", in.nextLine());
+		assertEquals("malformed lines", 1, errors);
+		assertEquals("objects read", 5, objects.size());
+		assertTrue(objects.get(0) instanceof Sphere3D);
+		assertTrue(objects.get(1) instanceof Point3D);
+		assertTrue(objects.get(2) instanceof Line3D);
+		assertTrue(objects.get(3) instanceof Formula3D);
+		assertEquals("formula parameter", 0.1, ((Formula3D) objects.get(3)).getParameter("m"), 0.0);
+		assertTrue(objects.get(4) instanceof Point3D);
+	}
+
+	/**
+	 * Returns the data as a stream that reads at most chunk bytes at a time.
+	 */
+	private static InputStream stream(String data, final int chunk) {
+		return new FilterInputStream(new ByteArrayInputStream(data.getBytes(StandardCharsets.UTF_8))) {
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				return super.read(b, off, Math.min(len, chunk));
+			}
+		};
+	}
+}
@@ -0,0 +1,218 @@
+package org.edisonwj.draw3d;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.GZIPInputStream;
+
+import javafx.geometry.Point3D;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+/**
+* DataWriterTest class tests DataWriter as used by the Save Data File Task: views of more
+* than one chunk of objects are written in order, plain and compressed, and read back by
+* DataReader; the lines of an object converted before the save are written as they were;
+* and a save that fails on an object without a text format, or is stopped between groups,
+* leaves the previous file unchanged and no temporary file.
+*
+* @author William Edison
+* @version 1.02
+*
+*/
+public class DataWriterTest {
+	private static final int POINTS = 2*Draw3DDefaults.SAVE_CHUNK + 3;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void plain() throws IOException {
+		checkRoundTrip(folder.newFile("views.txt"));
+	}
+
+	@Test
+	public void compressed() throws IOException {
+		checkRoundTrip(new File(folder.getRoot(), "views.txt" + DataReader.COMPRESSED_EXTENSION));
+	}
+
+	@Test
+	public void converted() throws IOException {
+		Patch3D patch = new Patch3D(new Point3D[][] {{new Point3D(0, 0, 0), new Point3D(0, 1, 0)},
+													 {new Point3D(1, 0, 0), new Point3D(1, 1, 1)}});
+		ArrayList<Object> drawList = new ArrayList<>();
+		drawList.add(patch);
+		String lines = DataWriter.writeLines("", drawList, 0, 1);
+		drawList.set(0, lines);
+		patch.setControlPoint(1, 1, new Point3D(5, 5, 5));
+
+		File file = folder.newFile("patch.txt");
+		ArrayList<ArrayList<Object>> drawLists = new ArrayList<>();
+		drawLists.add(drawList);
+		ArrayList<String> headers = new ArrayList<>();
+		headers.add(header(0));
+		write(file, headers, drawLists);
+		assertEquals("patch as converted", header(0) + lines, read(file));
+	}
+
+	@Test
+	public void failed() throws IOException {
+		File file = folder.newFile("views.txt");
+		Files.write(file.toPath(), "previous".getBytes(StandardCharsets.UTF_8));
+		ArrayList<String> headers = new ArrayList<>();
+		ArrayList<ArrayList<Object>> drawLists = new ArrayList<>();
+		views(headers, drawLists);
+		drawLists.get(2).add(POINTS, new ParametricSurface3D(new ParametricFunction3D() {
+			public void value(double u, double v, double[] p) {
+				p[0] = u;
+				p[1] = v;
+				p[2] = u*v;
+			}
+		}, 0.0, 1.0, 0.0, 1.0, 2, 2, false, false));
+		try {
+			write(file, headers, drawLists);
+			fail("a ParametricSurface3D was saved");
+		}
+		catch (IllegalArgumentException e) {
+			assertTrue(e.getMessage(), e.getMessage().startsWith("Cannot save"));
+		}
+		assertEquals("previous file", "previous", read(file));
+		assertArrayEquals("files left", new String[] {file.getName()}, folder.getRoot().list());
+	}
+
+	@Test
+	public void stopped() throws IOException {
+		File file = folder.newFile("views.txt");
+		Files.write(file.toPath(), "previous".getBytes(StandardCharsets.UTF_8));
+		ArrayList<String> headers = new ArrayList<>();
+		ArrayList<ArrayList<Object>> drawLists = new ArrayList<>();
+		views(headers, drawLists);
+		DataWriter out = new DataWriter(file, headers, drawLists);
+		try {
+			out.writeGroup();
+		}
+		finally {
+			out.close();
+		}
+		assertEquals("previous file", "previous", read(file));
+		assertArrayEquals("files left", new String[] {file.getName()}, folder.getRoot().list());
+	}
+
+	/**
+	 * Fills the headers and draw lists of three views: a little more than two chunks of
+	 * points between a few other objects, an empty view, and points of more chunks than
+	 * are written by one writeGroup().
+	 */
+	private static void views(ArrayList<String> headers, ArrayList<ArrayList<Object>> drawLists) {
+		int many = (4*ForkJoinPool.getCommonPoolParallelism() + 2) * Draw3DDefaults.SAVE_CHUNK;
+		ArrayList<Object> first = new ArrayList<>();
+		first.add(new Sphere3D(new Point3D(1, 2, 3), 0.5));
+		for (int i = 0; i < POINTS; i++) {
+			first.add(new Point3D(0.25*i, -i, 1e-3*i));
+		}
+		first.add(new Line3D(new Point3D(0, 0, 0), new Point3D(1, 1, 1)));
+		Formula3D f = new Formula3D("m*x*y");
+		f.setParameter("m", 0.1);
+		first.add(f);
+		ArrayList<Object> last = new ArrayList<>();
+		for (int i = 0; i < many; i++) {
+			last.add(new Point3D(i, 2*i, 3*i));
+		}
+		drawLists.add(first);
+		drawLists.add(new ArrayList<Object>());
+		drawLists.add(last);
+		for (int v = 0; v < drawLists.size(); v++) {
+			headers.add(header(v));
+		}
+	}
+
+	private static String header(int v) {
+		String nl = System.lineSeparator();
+		return "DataGroup: " + v + nl + "View: true, true, false, false, true, true, false" + nl +
+			   "Camera: 0.0, 0.0, -1200.0" + nl + "Origin: 0, 0, 0" + nl + "Range: 10.0, 10.0, 10.0" + nl;
+	}
+
+	private void checkRoundTrip(File file) throws IOException {
+		ArrayList<String> headers = new ArrayList<>();
+		ArrayList<ArrayList<Object>> drawLists = new ArrayList<>();
+		views(headers, drawLists);
+		write(file, headers, drawLists);
+
+		StringBuilder expected = new StringBuilder();
+		int objects = 0;
+		for (int v = 0; v < drawLists.size(); v++) {
+			ArrayList<Object> drawList = drawLists.get(v);
+			expected.append(DataWriter.writeLines(headers.get(v), drawList, 0, drawList.size()));
+			objects += drawList.size();
+		}
+		assertEquals(file.getName(), expected.toString(), read(file));
+
+		DataReader in = new DataReader(file);
+		int groups = 0;
+		int read = 0;
+		try {
+			while (in.nextLine()) {
+				if (in.getType() == DataReader.DATA_GROUP) {
+					groups++;
+				}
+				else if (in.getType() >= DataReader.ARROW) {
+					assertTrue(in.getLine(), in.readObject() != null);
+					read++;
+				}
+			}
+		}
+		finally {
+			in.close();
+		}
+		assertEquals(file.getName() + ": views read", drawLists.size(), groups);
+		assertEquals(file.getName() + ": objects read", objects, read);
+		assertArrayEquals(file.getName() + ": files left", new String[] {file.getName()}, folder.getRoot().list());
+	}
+
+	private static void write(File file, ArrayList<String> headers, ArrayList<ArrayList<Object>> drawLists) throws IOException {
+		DataWriter out = new DataWriter(file, headers, drawLists);
+		try {
+			while (out.hasMoreChunks()) {
+				out.writeGroup();
+			}
+			assertEquals("chunks written", out.getChunkCount(), out.getChunksWritten());
+			out.commit();
+		}
+		finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Reads a file as UTF-8 text, decompressing it when its name ends in COMPRESSED_EXTENSION.
+	 */
+	private static String read(File file) throws IOException {
+		InputStream in = new FileInputStream(file);
+		if (file.getName().endsWith(DataReader.COMPRESSED_EXTENSION)) {
+			in = new GZIPInputStream(in);
+		}
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] b = new byte[1 << 16];
+			for (int n; (n = in.read(b)) > 0; ) {
+				out.write(b, 0, n);
+			}
+			return new String(out.toByteArray(), StandardCharsets.UTF_8);
+		}
+		finally {
+			in.close();
+		}
+	}
+}
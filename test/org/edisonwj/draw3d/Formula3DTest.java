@@ -0,0 +1,191 @@
+package org.edisonwj.draw3d;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+/**
+* Formula3DTest class tests Formula3D: formulas parse with the usual precedence and
+* associativity and have the values of the same expressions written in Java, parameters
+* are found and set, malformed formulas are rejected, values computed in parallel and by
+* grid() equal those computed one by one, and a formula is read back by DataReader from
+* its outString().
+*
+* @author William Edison
+* @version 1.02
+*
+*/
+public class Formula3DTest {
+	private static final String[] FORMULAS = {
+		"1+2*3",
+		"2^3^2",
+		"-x^2",
+		"1-2-3",
+		"8/2/2",
+		"x*y - z",
+		"sin(x)*cos(y) + tan(z/4)",
+		"sqrt(x^2+y^2+z^2)",
+		"atan2(y, x) + hypot(x, y)",
+		"min(x, y) * max(y, z)",
+		"pow(abs(x), 1.5) + exp(-y^2)",
+		"log(abs(x)+1) + ln(2) + log10(100)",
+		"floor(x) + ceil(y) + sign(z)",
+		"pi*e",
+		"cbrt(x) + sinh(y) - cosh(z) + tanh(x)",
+		"asin(x/10) + acos(y/10) + atan(z)",
+		"2e-3*x + .5",
+		"(x + y) * (x - y) / (1 + z^2)",
+		"x^3 - 3*x*y^2"
+	};
+	private static final String[] MALFORMED = {
+		"", "1+", "(x", "x)", "sin(x", "atan2(x)", "x y", "2*", "sin()", "1..2", "x $ y"
+	};
+
+	/**
+	 * Value of formula i written in Java.
+	 */
+	private static double expected(int i, double x, double y, double z) {
+		switch (i) {
+		case 0:  return 7.0;
+		case 1:  return 512.0;
+		case 2:  return -(x*x);
+		case 3:  return -4.0;
+		case 4:  return 2.0;
+		case 5:  return x*y - z;
+		case 6:  return Math.sin(x)*Math.cos(y) + Math.tan(z/4);
+		case 7:  return Math.sqrt(x*x + y*y + z*z);
+		case 8:  return Math.atan2(y, x) + Math.hypot(x, y);
+		case 9:  return Math.min(x, y) * Math.max(y, z);
+		case 10: return Math.pow(Math.abs(x), 1.5) + Math.exp(-(y*y));
+		case 11: return Math.log(Math.abs(x) + 1) + Math.log(2) + Math.log10(100);
+		case 12: return Math.floor(x) + Math.ceil(y) + Math.signum(z);
+		case 13: return Math.PI*Math.E;
+		case 14: return Math.cbrt(x) + Math.sinh(y) - Math.cosh(z) + Math.tanh(x);
+		case 15: return Math.asin(x/10) + Math.acos(y/10) + Math.atan(z);
+		case 16: return 2e-3*x + 0.5;
+		case 17: return (x + y) * (x - y) / (1 + z*z);
+		case 18: return x*x*x - 3*x*y*y;
+		default: return Double.NaN;
+		}
+	}
+
+	@Test
+	public void values() {
+		double[] c = {-3.7, -1.0, -0.25, 0.0, 0.5, 1.0, 2.2, 5.9};
+		for (int i = 0; i < FORMULAS.length; i++) {
+			Formula3D f = new Formula3D(FORMULAS[i]);
+			assertEquals(FORMULAS[i] + ": parameters", 0, f.getParameterNames().length);
+			for (double x : c) {
+				for (double y : c) {
+					for (double z : c) {
+						double e = expected(i, x, y, z);
+						assertEquals(FORMULAS[i] + " at " + x + ", " + y + ", " + z,
+									 e, f.value(x, y, z), 1e-12 * Math.max(1.0, Math.abs(e)));
+					}
+					assertEquals(FORMULAS[i] + ": value(x, y)", f.value(x, y, 0.0), f.value(x, y), 0.0);
+					double[] p = new double[3];
+					f.value(x, y, p);
+					assertArrayEquals(FORMULAS[i] + ": value(x, y, p)", new double[] {x, y, f.value(x, y, 0.0)}, p, 0.0);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void parameters() {
+		String s = "m*cos(sqrt(x^2+y^2))/(2+sqrt(x^2+y^2)) + b*z + m";
+		Formula3D f = new Formula3D(s);
+		assertArrayEquals(s + ": parameters", new String[] {"m", "b"}, f.getParameterNames());
+		assertEquals(s + ": parameters are not 0.0 until set", 0.0, f.value(1.0, 2.0, 3.0), 0.0);
+		f.setParameter("m", 10.0);
+		f.setParameter("b", -0.5);
+		assertEquals(10.0, f.getParameter("m"), 0.0);
+		assertEquals(-0.5, f.getParameter("b"), 0.0);
+		for (double x = -6.0; x <= 6.0; x += 0.75) {
+			for (double y = -6.0; y <= 6.0; y += 0.75) {
+				double r = Math.sqrt(x*x + y*y);
+				double e = 10.0*Math.cos(r)/(2 + r) - 0.5*1.5 + 10.0;
+				assertEquals(s + " at " + x + ", " + y, e, f.value(x, y, 1.5), 1e-12 * Math.max(1.0, Math.abs(e)));
+			}
+		}
+		try {
+			f.setParameter("q", 1.0);
+			fail(s + ": setParameter() of an unknown name accepted");
+		}
+		catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void malformed() {
+		for (String s : MALFORMED) {
+			try {
+				new Formula3D(s);
+				fail("\"" + s + "\" accepted");
+			}
+			catch (IllegalArgumentException e) {
+				assertTrue("\"" + s + "\": message " + e.getMessage(), e.getMessage().startsWith("Formula3D"));
+			}
+		}
+	}
+
+	@Test
+	public void parallel() {
+		final Formula3D f = new Formula3D("a*sin(x*y) + sqrt(x^2 + y^2 + 1) - hypot(z, a)");
+		f.setParameter("a", 1.25);
+		final int n = 400000;
+		final double[] v = new double[n];
+		new ParallelRange() {
+			protected void compute(int lo, int hi) {
+				for (int i = lo; i < hi; i++) {
+					v[i] = f.value(0.001*i, 3.0 - 0.0001*i, 0.5);
+				}
+			}
+		}.invoke(0, n, 1000);
+		for (int i = 0; i < n; i++) {
+			assertEquals("value " + i + " computed in parallel", f.value(0.001*i, 3.0 - 0.0001*i, 0.5), v[i], 0.0);
+		}
+	}
+
+	@Test
+	public void grid() {
+		Formula3D f = new Formula3D("m*cos(sqrt(x^2+y^2))/(2+sqrt(x^2+y^2)) + atan2(y, x) - z");
+		f.setParameter("m", 7.5);
+		int nx = 61;
+		int ny = 45;
+		double[] p = f.grid(-6.0, 6.0, -4.0, 5.0, nx, ny);
+		assertEquals("grid() points", 3*nx*ny, p.length);
+		for (int j = 0, k = 0; j < ny; j++) {
+			for (int i = 0; i < nx; i++, k += 3) {
+				double x = (i == nx - 1) ? 6.0 : -6.0 + i*12.0/(nx - 1);
+				double y = (j == ny - 1) ? 5.0 : -4.0 + j*9.0/(ny - 1);
+				assertArrayEquals("grid() point " + i + ", " + j, new double[] {x, y, f.value(x, y, 0.0)},
+								  new double[] {p[k], p[k+1], p[k+2]}, 0.0);
+			}
+		}
+	}
+
+	@Test
+	public void dataReader() throws IOException {
+		Formula3D f = new Formula3D("atan2(x, y) + k*max(x, y^2)");
+		f.setParameter("k", -2.75);
+		String line = f.outString();
+		DataReader dr = new DataReader(new ByteArrayInputStream(line.getBytes(StandardCharsets.UTF_8)));
+		assertTrue(line + ": no line", dr.nextLine());
+		assertEquals(line + ": type", DataReader.FORMULA, dr.getType());
+		Object o = dr.readObject();
+		assertTrue(line + ": read as " + o, o instanceof Formula3D);
+		Formula3D g = (Formula3D) o;
+		assertEquals(line + ": formula", f.getFormula(), g.getFormula());
+		assertEquals(line + ": parameter", -2.75, g.getParameter("k"), 0.0);
+		assertEquals(line + ": value", f.value(0.3, -1.2, 0.0), g.value(0.3, -1.2, 0.0), 0.0);
+		assertEquals(line + ": written again", line, g.outString());
+	}
+}
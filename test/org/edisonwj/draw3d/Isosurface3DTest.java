@@ -0,0 +1,103 @@
+package org.edisonwj.draw3d;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+
+import org.junit.Test;
+/**
+* Isosurface3DTest class tests Isosurface3D: the surfaces of a sphere and a torus found by
+* marching cubes are closed and consistently oriented, i.e. each edge of a triangle is used
+* once in each direction, have the Euler characteristic of the shape, enclose its volume to
+* within the error of the grid with the triangles facing the side where F is greater than
+* the level, have their vertices within a grid cell of the surface, and are the same each
+* time they are found.
+*
+* @author William Edison
+* @version 1.02
+*
+*/
+public class Isosurface3DTest {
+	private static final int[] DIVISIONS = {12, 24, 47};
+	private static final double B = 1.55;
+
+	@Test
+	public void sphere() {
+		for (int divisions : DIVISIONS) {
+			checkSurface("sphere", "x^2 + y^2 + z^2", 1.0, divisions, 2, 4.0*Math.PI/3.0);
+		}
+	}
+
+	@Test
+	public void torus() {
+		for (int divisions : DIVISIONS) {
+			checkSurface("torus", "(sqrt(x^2 + y^2) - 1)^2 + z^2 - 0.16", 0.0, divisions, 0,
+						 2.0*Math.PI*Math.PI*0.16);
+		}
+	}
+
+	private static void checkSurface(String name, String formula, double level, int divisions,
+									 int euler, double volume) {
+		String s = name + ", " + divisions + " divisions";
+		Formula3D f = new Formula3D(formula);
+		Isosurface3D iso = new Isosurface3D(f, level, divisions, -B, B, -B, B, -B, B);
+		double[] p = iso.getPoints();
+		int[] t = iso.getTriangles();
+		int nv = iso.getPointCount();
+		int nt = iso.getTriangleCount();
+		assertTrue(s + ": " + nv + " points, " + nt + " triangles",
+				   nt > 0 && t.length == 3*nt && p.length == 3*nv);
+
+		HashMap<Long, Integer> edges = new HashMap<Long, Integer>();
+		for (int i = 0; i < t.length; i += 3) {
+			for (int k = 0; k < 3; k++) {
+				int v0 = t[i+k];
+				int v1 = t[i+(k+1)%3];
+				assertTrue(s + ": triangle with an invalid or repeated vertex", v0 >= 0 && v0 < nv && v0 != v1);
+				Long key = (long) v0 * nv + v1;
+				Integer n = edges.get(key);
+				edges.put(key, n == null ? 1 : n + 1);
+			}
+		}
+		int unmatched = 0;
+		for (Long key : edges.keySet()) {
+			long v0 = key / nv;
+			long v1 = key % nv;
+			if (edges.get(key) != 1 || !edges.containsKey(v1 * nv + v0)) {
+				unmatched++;
+			}
+		}
+		assertEquals(s + ": edges not used once in each direction", 0, unmatched);
+		int e = edges.size() / 2;
+		assertEquals(s + ": Euler characteristic", euler, nv - e + nt);
+
+		double enclosed = 0.0;
+		for (int i = 0; i < t.length; i += 3) {
+			int a = 3*t[i];
+			int c = 3*t[i+1];
+			int d = 3*t[i+2];
+			enclosed += (p[a]   * (p[c+1]*p[d+2] - p[c+2]*p[d+1]) +
+						 p[a+1] * (p[c+2]*p[d]   - p[c]*p[d+2]) +
+						 p[a+2] * (p[c]*p[d+1]   - p[c+1]*p[d])) / 6.0;
+		}
+		double h = 2.0*B / divisions;
+		assertEquals(s + ": enclosed volume", volume, enclosed, 2.5*h*h * volume);
+
+		double far = 0.0;
+		for (int i = 0; i < p.length; i += 3) {
+			double x = p[i];
+			double y = p[i+1];
+			double z = p[i+2];
+			double d = name.equals("sphere") ? Math.abs(Math.sqrt(x*x + y*y + z*z) - 1.0)
+											 : Math.abs(Math.hypot(Math.hypot(x, y) - 1.0, z) - 0.4);
+			far = Math.max(far, d);
+		}
+		assertTrue(s + ": a vertex is " + far + " from the surface, more than a grid cell " + h, far < h);
+
+		Isosurface3D again = new Isosurface3D(f, level, divisions, -B, B, -B, B, -B, B);
+		assertArrayEquals(s + ": points of a second surface", p, again.getPoints(), 0.0);
+		assertArrayEquals(s + ": triangles of a second surface", t, again.getTriangles());
+	}
+}
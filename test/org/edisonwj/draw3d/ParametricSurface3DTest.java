@@ -0,0 +1,148 @@
+package org.edisonwj.draw3d;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+
+import org.junit.Test;
+/**
+* ParametricSurface3DTest class tests ParametricSurface3D: after each refinement of a torus,
+* closed in u and v, and of a saddle, open, the triangles have valid vertices, each edge is
+* used at most once in each direction and, except on the boundary of an open surface, once
+* in both, so there are no cracks between cells of different levels, the Euler
+* characteristic is that of the surface, the triangles are counter clockwise in u, v, and
+* the vertices lie on the surface.
+*
+* @author William Edison
+* @version 1.02
+*
+*/
+public class ParametricSurface3DTest {
+	private static final double R = 2.0;
+	private static final double r = 0.5;
+
+	@Test
+	public void torus() {
+		ParametricFunction3D f = new ParametricFunction3D() {
+			public void value(double u, double v, double[] p) {
+				p[0] = (R + r*Math.cos(v)) * Math.cos(u);
+				p[1] = (R + r*Math.cos(v)) * Math.sin(u);
+				p[2] = r*Math.sin(v);
+			}
+		};
+		ParametricSurface3D s = new ParametricSurface3D(f, 0.0, 2.0*Math.PI, 0.0, 2.0*Math.PI, 6, 4, true, true);
+		int initial = s.getPointCount();
+		checkMesh("torus, initial grid", s, 0, true);
+		int points = initial;
+		for (double tolerance : new double[] {2.0, 0.5, 0.1}) {
+			s.refine(tolerance, 15.0, 100.0, 100.0, 100.0);
+			String name = "torus, tolerance " + tolerance;
+			assertTrue(name + ": no cells split", s.getPointCount() > points);
+			points = s.getPointCount();
+			checkMesh(name, s, 0, true);
+			double[] p = s.getPoints();
+			double far = 0.0;
+			for (int i = 0; i < p.length; i += 3) {
+				far = Math.max(far, Math.abs(Math.hypot(Math.hypot(p[i], p[i+1]) - R, p[i+2]) - r));
+			}
+			assertTrue(name + ": a vertex is " + far + " from the torus", far < 1e-12);
+		}
+		s.reset();
+		assertEquals("torus: points after reset()", initial, s.getPointCount());
+	}
+
+	@Test
+	public void saddle() {
+		ParametricFunction3D f = new ParametricFunction3D() {
+			public void value(double u, double v, double[] p) {
+				p[0] = u;
+				p[1] = v;
+				p[2] = 2.0*u*v*Math.exp(-(u*u + v*v));
+			}
+		};
+		ParametricSurface3D s = new ParametricSurface3D(f, -2.0, 2.0, -2.0, 2.0, 5, 7, false, false);
+		checkMesh("saddle, initial grid", s, 1, false);
+		for (double tolerance : new double[] {1.0, 0.2, 0.05}) {
+			s.refine(tolerance, 10.0, 100.0, 100.0, 100.0);
+			checkMesh("saddle, tolerance " + tolerance, s, 1, false);
+		}
+		int unlimited = s.getPointCount();
+		s.reset();
+		s.refine(0.05, 10.0, 100.0, 100.0, 100.0, unlimited / 4);
+		assertTrue("saddle: budget of " + (unlimited / 4) + " points gave " + s.getPointCount(),
+				   s.getPointCount() < unlimited);
+		checkMesh("saddle, budget", s, 1, false);
+	}
+
+	/**
+	 * Checks the triangles of a surface. On the saddle, whose x and y are u and v, the
+	 * triangles are counter clockwise seen from +z, and the edges used in one direction only
+	 * lie on the boundary of the parameter range.
+	 */
+	private static void checkMesh(String name, ParametricSurface3D s, int euler, boolean closed) {
+		double[] p = s.getPoints();
+		int[] t = s.getTriangles();
+		int nv = s.getPointCount();
+		int nt = s.getTriangleCount();
+		assertTrue(name + ": " + nv + " points, " + nt + " triangles",
+				   nt > 0 && t.length == 3*nt && p.length == 3*nv);
+
+		HashMap<Long, Integer> edges = new HashMap<Long, Integer>();
+		int clockwise = 0;
+		for (int i = 0; i < t.length; i += 3) {
+			for (int k = 0; k < 3; k++) {
+				int v0 = t[i+k];
+				int v1 = t[i+(k+1)%3];
+				assertTrue(name + ": triangle with an invalid or repeated vertex", v0 >= 0 && v0 < nv && v0 != v1);
+				Long key = (long) v0 * nv + v1;
+				Integer n = edges.get(key);
+				edges.put(key, n == null ? 1 : n + 1);
+			}
+			if (!closed) {
+				int a = 3*t[i];
+				int b = 3*t[i+1];
+				int c = 3*t[i+2];
+				if ((p[b] - p[a])*(p[c+1] - p[a+1]) - (p[b+1] - p[a+1])*(p[c] - p[a]) <= 0.0) {
+					clockwise++;
+				}
+			}
+		}
+		assertEquals(name + ": triangles not counter clockwise", 0, clockwise);
+
+		int repeated = 0;
+		int cracks = 0;
+		int boundary = 0;
+		for (Long key : edges.keySet()) {
+			int v0 = (int) (key / nv);
+			int v1 = (int) (key % nv);
+			if (edges.get(key) != 1) {
+				repeated++;
+			}
+			if (!edges.containsKey((long) v1 * nv + v0)) {
+				boundary++;
+				if (closed || !onBoundary(p, v0, v1)) {
+					cracks++;
+				}
+			}
+		}
+		assertEquals(name + ": edges used more than once in a direction", 0, repeated);
+		assertEquals(name + ": edges used in one direction only", 0, cracks);
+		int e = (edges.size() + boundary) / 2;
+		assertEquals(name + ": Euler characteristic", euler, nv - e + nt);
+	}
+
+	/**
+	 * Tests whether an edge of the saddle lies on a side of its parameter range.
+	 */
+	private static boolean onBoundary(double[] p, int v0, int v1) {
+		for (int k = 0; k < 2; k++) {
+			double a = p[3*v0+k];
+			double b = p[3*v1+k];
+			if (a == b && Math.abs(a) == 2.0) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
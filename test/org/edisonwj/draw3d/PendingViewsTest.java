@@ -0,0 +1,105 @@
+package org.edisonwj.draw3d;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+
+import javafx.geometry.Point3D;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+/**
+* PendingViewsTest class tests PendingViews as used when paging through the views of
+* loaded scene files: the views of two scene files loaded one after the other are all
+* read, in any order, each once, and a scene file is dropped when none of its views
+* are pending.
+*
+* @author William Edison
+* @version 1.02
+*
+*/
+public class PendingViewsTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void twoScenes() throws IOException {
+		SceneFile first = scene("first", 3, 0.0);
+		SceneFile second = scene("second", 2, 100.0);
+		PendingViews pending = new PendingViews();
+		for (int i = 0; i < 3; i++) {
+			pending.put(i, first, i);
+		}
+		for (int i = 0; i < 2; i++) {
+			pending.put(3 + i, second, i);
+		}
+		assertEquals("scenes", 2, pending.getSceneCount());
+
+		checkView(pending.read(4), 101.0);
+		checkView(pending.read(0), 0.0);
+		assertNull("view 4 read again", pending.read(4));
+		assertFalse(pending.contains(4));
+		assertTrue(pending.contains(1));
+		checkView(pending.read(3), 100.0);
+		assertEquals("scenes after the second is read", 1, pending.getSceneCount());
+		checkView(pending.read(2), 2.0);
+		checkView(pending.read(1), 1.0);
+		assertEquals("scenes after both are read", 0, pending.getSceneCount());
+		assertNull("view that was never pending", pending.read(7));
+	}
+
+	@Test
+	public void replaced() throws IOException {
+		SceneFile first = scene("first", 2, 0.0);
+		SceneFile second = scene("second", 1, 100.0);
+		PendingViews pending = new PendingViews();
+		pending.put(0, first, 0);
+		pending.put(1, first, 1);
+		pending.put(1, second, 0);
+		assertEquals("scenes", 2, pending.getSceneCount());
+		checkView(pending.read(1), 100.0);
+		checkView(pending.read(0), 0.0);
+		assertEquals("scenes", 0, pending.getSceneCount());
+
+		pending.put(0, first, 0);
+		pending.put(1, second, 0);
+		pending.clear();
+		assertFalse(pending.contains(0));
+		assertEquals("scenes after clear()", 0, pending.getSceneCount());
+	}
+
+	/**
+	 * Writes a scene file of views each holding one point, whose x is the view number
+	 * plus base, and opens it.
+	 */
+	private SceneFile scene(String name, int views, double base) throws IOException {
+		ArrayList<double[]> cameras = new ArrayList<>();
+		ArrayList<double[]> ranges = new ArrayList<>();
+		ArrayList<int[]> origins = new ArrayList<>();
+		ArrayList<boolean[]> viewSettings = new ArrayList<>();
+		ArrayList<ArrayList<Object>> drawLists = new ArrayList<>();
+		for (int v = 0; v < views; v++) {
+			cameras.add(new double[] {0.0, 0.0, -1200.0});
+			ranges.add(new double[] {10.0, 10.0, 10.0});
+			origins.add(new int[] {0, 0, 0});
+			viewSettings.add(new boolean[7]);
+			ArrayList<Object> drawList = new ArrayList<>();
+			drawList.add(new Point3D(base + v, 0, 0));
+			drawLists.add(drawList);
+		}
+		File file = folder.newFile(name + SceneFile.EXTENSION);
+		SceneFile.write(file, cameras, ranges, origins, viewSettings, drawLists);
+		return new SceneFile(file);
+	}
+
+	private static void checkView(ArrayList<Object> objects, double x) {
+		assertEquals("objects", 1, objects.size());
+		assertEquals("point", new Point3D(x, 0, 0), objects.get(0));
+	}
+}
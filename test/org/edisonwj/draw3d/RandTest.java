@@ -0,0 +1,157 @@
+package org.edisonwj.draw3d;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigInteger;
+
+import org.junit.Test;
+/**
+* RandTest class tests Rand: the values are those of the Lehmer generator x = a * x mod m,
+* the bulk methods give the same values as drawing them one by one, and the streams
+* returned by split() and split(n) start exactly one part of the period apart.
+*
+* @author William Edison
+* @version 1.02
+*
+*/
+public class RandTest {
+	private static final long M = 2147483647L;
+	private static final BigInteger A = BigInteger.valueOf(48271L);
+	private static final long[] SEEDS = {1L, 2L, 12345L, 987654321L, M - 1, M, 0L, -5L, Long.MAX_VALUE};
+	private static final int N = 100003;
+
+	/**
+	 * State n steps after state x, computed with BigInteger.
+	 */
+	private static long jump(long x, long n) {
+		return BigInteger.valueOf(x).multiply(A.modPow(BigInteger.valueOf(n), BigInteger.valueOf(M)))
+				.mod(BigInteger.valueOf(M)).longValue();
+	}
+
+	@Test
+	public void sequence() {
+		for (long seed : SEEDS) {
+			Rand r = new Rand(seed);
+			long s = r.getSeed();
+			assertTrue("seed " + seed + " reduced to " + s, s >= 1 && s < M);
+			for (int k = 1; k <= 1000; k++) {
+				assertEquals("seed " + seed + ": value " + k, (double) jump(s, k) / (double) M, r.uniform(), 0.0);
+			}
+		}
+	}
+
+	@Test
+	public void bulk() {
+		for (long seed : SEEDS) {
+			Rand bulk = new Rand(seed);
+			Rand single = new Rand(seed);
+
+			double[] u = new double[N];
+			double[] expected = new double[N];
+			bulk.uniform(u, 0.0, 1.0);
+			for (int i = 0; i < N; i++) {
+				expected[i] = single.uniform();
+			}
+			assertArrayEquals("seed " + seed + ": uniform(double[])", expected, u, 0.0);
+
+			int[] d = new int[N];
+			int[] expectedInts = new int[N];
+			bulk.uniform(d, 1, 6);
+			for (int i = 0; i < N; i++) {
+				expectedInts[i] = single.uniform(1, 6);
+			}
+			assertArrayEquals("seed " + seed + ": uniform(int[])", expectedInts, d);
+
+			double[] e = new double[N];
+			bulk.exponential(e, 2.5);
+			for (int i = 0; i < N; i++) {
+				expected[i] = single.exponential(2.5);
+			}
+			assertArrayEquals("seed " + seed + ": exponential(double[])", expected, e, 0.0);
+
+			double[] g = new double[N];
+			bulk.normal(g, 1.0, 3.0);
+			for (int i = 0; i < N; i++) {
+				expected[i] = single.Normal(1.0, 3.0);
+			}
+			assertArrayEquals("seed " + seed + ": normal(double[])", expected, g, 0.0);
+			assertEquals("seed " + seed + ": state after the bulk methods", single.getSeed(), bulk.getSeed());
+		}
+	}
+
+	@Test
+	public void split() {
+		for (long seed : SEEDS) {
+			Rand r = new Rand(seed);
+			long s = r.getSeed();
+			long length = M - 1;
+
+			long half = length / 2;
+			Rand c = r.split();
+			assertEquals("seed " + seed + ": start of split()", jump(s, length - half), c.getSeed());
+			assertEquals("seed " + seed + ": state after split()", s, r.getSeed());
+			length -= half;
+
+			long half2 = half / 2;
+			Rand cc = c.split();
+			assertEquals("seed " + seed + ": start of split() of a split Rand", jump(c.getSeed(), half - half2), cc.getSeed());
+
+			int n = 8;
+			long part = length / (n + 1);
+			long offset = length - n * part;
+			Rand[] streams = r.split(n);
+			for (int i = 0; i < n; i++) {
+				assertEquals("seed " + seed + ": start of split(" + n + ") stream " + i,
+							 jump(s, offset + i * part), streams[i].getSeed());
+			}
+
+			Rand[] again = new Rand(seed).split(n);
+			Rand[] expected = new Rand(seed).split(n);
+			for (int i = 0; i < n; i++) {
+				assertEquals("seed " + seed + ": split(" + n + ") is not reproducible", expected[i].getSeed(), again[i].getSeed());
+			}
+		}
+	}
+
+	/**
+	 * Halves the period of a Rand until its part is short, then checks by stepping a copy
+	 * one value at a time that split() and split(n) start where the parts begin.
+	 */
+	@Test
+	public void splitSteps() {
+		for (long seed : SEEDS) {
+			Rand r = new Rand(seed);
+			long s = r.getSeed();
+			long length = M - 1;
+			for (int k = 0; k < 20; k++) {
+				r.split();
+				length -= length / 2;
+			}
+
+			long half = length / 2;
+			Rand c = r.split();
+			Rand copy = new Rand(s);
+			for (long k = 0; k < length - half; k++) {
+				copy.uniform();
+			}
+			assertEquals("seed " + seed + ": start of split() of a part of " + length, copy.getSeed(), c.getSeed());
+			length -= half;
+
+			int n = 5;
+			long part = length / (n + 1);
+			long offset = length - n * part;
+			Rand[] streams = r.split(n);
+			copy = new Rand(s);
+			long steps = 0;
+			for (int i = 0; i < n; i++) {
+				for (; steps < offset + i * part; steps++) {
+					copy.uniform();
+				}
+				assertEquals("seed " + seed + ": start of split(" + n + ") stream " + i + " of a part of " + length,
+							 copy.getSeed(), streams[i].getSeed());
+			}
+		}
+	}
+}
@@ -0,0 +1,285 @@
+package org.edisonwj.draw3d;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import javafx.geometry.Point3D;
+import javafx.scene.paint.Color;
+import javafx.scene.paint.PhongMaterial;
+import javafx.scene.shape.DrawMode;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+/**
+* SceneFileTest class tests SceneFile: the settings and objects of each view are read back
+* as written, with the parameters of formulas kept exactly; a scene file may be written
+* over while its views are still to be read; and a file that is not a scene file, of an
+* unknown version, truncated or corrupted fails with an IOException and nothing else.
+* The coordinates of the objects are exact as floats, so that their text lines compare
+* equal after the round trip.
+*
+* @author William Edison
+* @version 1.02
+*
+*/
+public class SceneFileTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final ArrayList<double[]> cameras = new ArrayList<>();
+	private final ArrayList<double[]> ranges = new ArrayList<>();
+	private final ArrayList<int[]> origins = new ArrayList<>();
+	private final ArrayList<boolean[]> viewSettings = new ArrayList<>();
+	private final ArrayList<ArrayList<Object>> drawLists = new ArrayList<>();
+
+	@Test
+	public void roundTrip() throws IOException {
+		views(true);
+		File file = folder.newFile("scene" + SceneFile.EXTENSION);
+		write(file);
+		SceneFile scene = new SceneFile(file);
+		assertEquals("views", drawLists.size(), scene.getViewCount());
+		for (int v = 0; v < drawLists.size(); v++) {
+			assertArrayEquals("camera of view " + v, cameras.get(v), scene.getCamera(v), 0.0);
+			assertArrayEquals("range of view " + v, ranges.get(v), scene.getRange(v), 0.0);
+			assertArrayEquals("origin of view " + v, origins.get(v), scene.getOrigin(v));
+			assertArrayEquals("view settings of view " + v, viewSettings.get(v), scene.getViewSettings(v));
+			checkObjects(v, scene.getObjects(v));
+		}
+	}
+
+	@Test
+	public void formulaParameters() throws IOException {
+		views(true);
+		File file = folder.newFile("scene" + SceneFile.EXTENSION);
+		write(file);
+		ArrayList<Object> objects = new SceneFile(file).getObjects(0);
+		Formula3D f = (Formula3D) objects.get(objects.size() - 2);
+		assertEquals("m", 0.1, f.getParameter("m"), 0.0);
+		assertEquals("b", 1.0/3.0, f.getParameter("b"), 0.0);
+		Formula3D g = (Formula3D) ((Isosurface3D) objects.get(objects.size() - 1)).getFunction();
+		assertEquals("r", Math.PI, g.getParameter("r"), 0.0);
+	}
+
+	/**
+	 * Rewrites the block of a view holding a Formula3D in the layout of version 1, with
+	 * the parameters as floats, and reads it back.
+	 */
+	@Test
+	public void version1() throws IOException {
+		Formula3D f = new Formula3D("m*x*y + b");
+		f.setParameter("m", 0.1);
+		f.setParameter("b", 1.0/3.0);
+		ArrayList<Object> drawList = new ArrayList<>();
+		drawList.add(f);
+		cameras.add(new double[] {0.0, 0.0, -1200.0});
+		ranges.add(new double[] {10.0, 10.0, 10.0});
+		origins.add(new int[] {0, 0, 0});
+		viewSettings.add(new boolean[7]);
+		drawLists.add(drawList);
+		File file = folder.newFile("scene" + SceneFile.EXTENSION);
+		write(file);
+
+		ByteBuffer b = ByteBuffer.wrap(Files.readAllBytes(file.toPath())).order(ByteOrder.LITTLE_ENDIAN);
+		int block = (int) b.getLong(24) + 72;
+		assertEquals("block type", DataReader.FORMULA, b.getInt(block));
+		ByteBuffer old = ByteBuffer.allocate(block + 16 + 8 + 20 + 4).order(ByteOrder.LITTLE_ENDIAN);
+		old.put(Arrays.copyOf(b.array(), block));
+		old.putInt(4, 1);
+		old.putInt(DataReader.FORMULA).putInt(1).putInt(2).putInt(5);
+		old.putFloat(0.1f).putFloat((float) (1.0/3.0));
+		for (int k = 0; k < 5; k++) {
+			old.putInt(b.getInt(block + 16 + 4*k));
+		}
+		Files.write(file.toPath(), old.array());
+
+		Formula3D g = (Formula3D) new SceneFile(file).getObjects(0).get(0);
+		assertEquals("formula", f.getFormula(), g.getFormula());
+		assertEquals("m", 0.1f, g.getParameter("m"), 0.0);
+		assertEquals("b", (float) (1.0/3.0), g.getParameter("b"), 0.0);
+	}
+
+	@Test
+	public void writtenOver() throws IOException {
+		views(true);
+		File file = folder.newFile("scene" + SceneFile.EXTENSION);
+		write(file);
+		SceneFile scene = new SceneFile(file);
+		drawLists.get(2).clear();
+		write(file);
+		views(true);
+		checkObjects(2, scene.getObjects(2));
+		assertEquals("objects of the file written over", 0, new SceneFile(file).getObjects(2).size());
+	}
+
+	@Test
+	public void notSceneFile() throws IOException {
+		File file = folder.newFile("text" + SceneFile.EXTENSION);
+		Files.write(file.toPath(), "DataGroup: 0\nPoint: 1, 2, 3\n".getBytes(StandardCharsets.UTF_8));
+		checkFails(file);
+		Files.write(file.toPath(), new byte[0]);
+		checkFails(file);
+	}
+
+	@Test
+	public void unknownVersion() throws IOException {
+		views(true);
+		File file = folder.newFile("scene" + SceneFile.EXTENSION);
+		write(file);
+		byte[] b = Files.readAllBytes(file.toPath());
+		ByteBuffer.wrap(b).order(ByteOrder.LITTLE_ENDIAN).putInt(4, SceneFile.VERSION + 1);
+		Files.write(file.toPath(), b);
+		checkFails(file);
+	}
+
+	@Test
+	public void truncated() throws IOException {
+		views(false);
+		File file = folder.newFile("scene" + SceneFile.EXTENSION);
+		write(file);
+		byte[] b = Files.readAllBytes(file.toPath());
+		File part = new File(folder.getRoot(), "part" + SceneFile.EXTENSION);
+		for (int n = 0; n < b.length; n++) {
+			Files.write(part.toPath(), Arrays.copyOf(b, n));
+			read(part);
+		}
+	}
+
+	@Test
+	public void corrupted() throws IOException {
+		views(false);
+		File file = folder.newFile("scene" + SceneFile.EXTENSION);
+		write(file);
+		byte[] b = Files.readAllBytes(file.toPath());
+		File bad = new File(folder.getRoot(), "bad" + SceneFile.EXTENSION);
+		Random random = new Random(48);
+		for (int pass = 0; pass < 2000; pass++) {
+			byte[] c = b.clone();
+			for (int k = 1 + random.nextInt(4); k > 0; k--) {
+				c[random.nextInt(c.length)] ^= (byte) (1 << random.nextInt(8));
+			}
+			Files.write(bad.toPath(), c);
+			read(bad);
+		}
+	}
+
+	/**
+	 * Fills the settings and draw lists of three views: one of each type of object, an
+	 * empty view, and a view of points. The Isosurface3D, whose divisions a corrupted
+	 * file may raise to the largest accepted, is left out unless isosurface is true.
+	 */
+	private void views(boolean isosurface) {
+		cameras.clear();
+		ranges.clear();
+		origins.clear();
+		viewSettings.clear();
+		drawLists.clear();
+		PhongMaterial red = new PhongMaterial(Color.RED);
+		PhongMaterial blue = new PhongMaterial(Color.BLUE);
+		blue.setSpecularColor(Color.WHITE);
+		Point3D[] square = {new Point3D(0, 0, 0), new Point3D(1, 0, 0), new Point3D(1, 1, 0), new Point3D(0, 1, 0)};
+
+		ArrayList<Object> first = new ArrayList<>();
+		first.add(new Point3D(0.25, -1.5, 3));
+		first.add(new Point3D(1, 2, 3));
+		first.add(new Sphere3D(new Point3D(1, 2, 3), 0.5));
+		Line3D line = new Line3D(new Point3D(0, 0, 0), new Point3D(1, 1, 1));
+		line.setMaterial(red);
+		first.add(line);
+		Polygon3D polygon = new Polygon3D(square, blue);
+		polygon.setDrawMode(DrawMode.LINE);
+		first.add(polygon);
+		first.add(new Curve3D(new Point3D[] {new Point3D(0, 0, 0), new Point3D(1, 2, 0), new Point3D(2, 2, 1),
+											 new Point3D(3, 0, 1), new Point3D(4, 1, 0)}, 3, red));
+		first.add(new Hull3D(new Point3D[] {new Point3D(0, 0, 0), new Point3D(2, 0, 0),
+											new Point3D(0, 2, 0), new Point3D(0, 0, 2)}, blue));
+		first.add(new Patch3D(new Point3D[][] {{new Point3D(0, 0, 0), new Point3D(0, 1, 0)},
+											   {new Point3D(1, 0, 0), new Point3D(1, 1, 0.5)}}, red));
+		CurveTrace3D trace = new CurveTrace3D(1, blue);
+		trace.addPoint(0, 0, 0);
+		trace.addPoint(1, 0.5, 0.25);
+		trace.addPoint(2, 1, 0);
+		trace.setPolyline(0, new double[] {0, 0, 0, 1, 1, 1}, 2);
+		first.add(trace);
+		first.add(new PlaneArrangement(new Plane3D[] {new Plane3D(1, 0, 0, 0.5), new Plane3D(0, 1, 0, -0.25)},
+									   -2, 2, -2, 2, -2, 2, red));
+		Formula3D f = new Formula3D("m*x*y + b");
+		f.setParameter("m", 0.1);
+		f.setParameter("b", 1.0/3.0);
+		first.add(f);
+		if (isosurface) {
+			Formula3D g = new Formula3D("x^2 + y^2 + z^2 - r");
+			g.setParameter("r", Math.PI);
+			first.add(new Isosurface3D(g, 0.0, 8, -2, 2, -2, 2, -2, 2, blue));
+		}
+		ArrayList<Object> last = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			last.add(new Point3D(i, 0.5*i, -i));
+		}
+		drawLists.add(first);
+		drawLists.add(new ArrayList<Object>());
+		drawLists.add(last);
+		for (int v = 0; v < drawLists.size(); v++) {
+			cameras.add(new double[] {10.0*v, -20.0, -1200.0});
+			ranges.add(new double[] {10.0, 20.0 + v, 30.0});
+			origins.add(new int[] {v, -v, 2*v});
+			viewSettings.add(new boolean[] {true, v == 1, false, true, v != 1, false, v == 2});
+		}
+	}
+
+	private void write(File file) throws IOException {
+		SceneFile.write(file, cameras, ranges, origins, viewSettings, drawLists);
+	}
+
+	private void checkObjects(int v, ArrayList<Object> objects) {
+		ArrayList<Object> drawList = drawLists.get(v);
+		assertEquals("objects of view " + v, DataWriter.writeLines("", drawList, 0, drawList.size()),
+					 DataWriter.writeLines("", objects, 0, objects.size()));
+	}
+
+	private static void checkFails(File file) {
+		try {
+			new SceneFile(file);
+			fail(file.getName() + " read as a scene file");
+		}
+		catch (IOException e) {
+			// expected
+		}
+	}
+
+	/**
+	 * Reads all views of a scene file, which may fail only with an IOException.
+	 */
+	private static void read(File file) {
+		try {
+			SceneFile scene = new SceneFile(file);
+			for (int v = 0; v < scene.getViewCount(); v++) {
+				scene.getCamera(v);
+				scene.getRange(v);
+				scene.getOrigin(v);
+				scene.getViewSettings(v);
+				try {
+					scene.getObjects(v);
+				}
+				catch (IOException e) {
+					// a corrupt view fails alone
+				}
+			}
+		}
+		catch (IOException e) {
+			// expected
+		}
+	}
+}